@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.benchmarks;
+
+import org.apache.jena.cmd.ArgDecl;
+import org.apache.jena.cmd.CmdException;
+import org.apache.jena.cmd.CmdGeneral;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+
+import static io.telicent.attribute.utils.AttributeUtils.parseCount;
+
+/**
+ * Command generating a synthetic attribute store and a request mix to replay against it with {@link LoadDriver}.
+ * <p>
+ * Writes two files to the output directory:
+ * </p>
+ * <ul>
+ *     <li>{@value #ATTRIBUTES_FILE}, the users and hierarchies in the Turtle form the local store and the Simple
+ *     Attribute Server load. Each user holds a number of plain attributes ({@code a<k>=v<j>}) and one value of every
+ *     hierarchy ({@code h<k>=l<j>}, {@code l0} lowest); plain attribute names and values are drawn with a Zipf skew of
+ *     {@value #VALUE_SKEW}, so a few are common and most are rare.</li>
+ *     <li>{@value #REQUESTS_FILE}, one request per line as {@code user<TAB>label}. Labels are built from the same
+ *     attribute names and values; which label and which user each request uses is drawn with the given skews.</li>
+ * </ul>
+ */
+public class AttributeDataGenerator extends CmdGeneral {
+
+    /**
+     * Logger for class
+     */
+    public static final Logger LOGGER = LoggerFactory.getLogger(AttributeDataGenerator.class);
+
+    /**
+     * Name of the generated attribute file
+     */
+    public static final String ATTRIBUTES_FILE = "attributes.ttl";
+
+    /**
+     * Name of the generated request file
+     */
+    public static final String REQUESTS_FILE = "requests.tsv";
+
+    /**
+     * Zipf exponent for which plain attribute names and values are held and required
+     */
+    public static final double VALUE_SKEW = 1.0;
+
+    private static final ArgDecl argOutput = new ArgDecl(ArgDecl.HasValue, "output", "out", "o");
+    private static final ArgDecl argUsers = new ArgDecl(ArgDecl.HasValue, "users");
+    private static final ArgDecl argAttributes = new ArgDecl(ArgDecl.HasValue, "attributes", "attributesPerUser");
+    private static final ArgDecl argAttributeNames = new ArgDecl(ArgDecl.HasValue, "attributeNames", "names");
+    private static final ArgDecl argValues = new ArgDecl(ArgDecl.HasValue, "values", "valuesPerAttribute");
+    private static final ArgDecl argHierarchies = new ArgDecl(ArgDecl.HasValue, "hierarchies");
+    private static final ArgDecl argDepth = new ArgDecl(ArgDecl.HasValue, "depth", "hierarchyDepth");
+    private static final ArgDecl argLabels = new ArgDecl(ArgDecl.HasValue, "labels");
+    private static final ArgDecl argLabelExpressions =
+            new ArgDecl(ArgDecl.HasValue, "labelExpressions", "expressions");
+    private static final ArgDecl argRequests = new ArgDecl(ArgDecl.HasValue, "requests");
+    private static final ArgDecl argSkew = new ArgDecl(ArgDecl.HasValue, "skew", "labelSkew");
+    private static final ArgDecl argUserSkew = new ArgDecl(ArgDecl.HasValue, "userSkew");
+    private static final ArgDecl argSeed = new ArgDecl(ArgDecl.HasValue, "seed");
+
+    private Path output;
+    private int users;
+    private int attributes;
+    private int attributeNames;
+    private int values;
+    private int hierarchies;
+    private int depth;
+    private int labels;
+    private int labelExpressions;
+    private int requests;
+    private double skew;
+    private double userSkew;
+    private long seed;
+
+    /**
+     * Create Attribute Data Generator
+     * @param argv configuration parameters
+     */
+    public AttributeDataGenerator(String[] argv) {
+        super(argv);
+        add(argOutput, "output", "Directory to write the attribute and request files to");
+        add(argUsers, "users", "Number of users (default 10000)");
+        add(argAttributes, "attributes", "Number of plain attributes each user holds (default 10)");
+        add(argAttributeNames, "attributeNames", "Number of distinct plain attribute names (default 50)");
+        add(argValues, "values", "Number of distinct values of each plain attribute (default 10)");
+        add(argHierarchies, "hierarchies", "Number of hierarchies, each held by every user (default 3)");
+        add(argDepth, "depth", "Number of values in each hierarchy (default 5)");
+        add(argLabels, "labels", "Number of distinct labels (default 1000)");
+        add(argLabelExpressions, "labelExpressions", "Most expressions in a label (default 3)");
+        add(argRequests, "requests", "Number of requests to write (default 100000)");
+        add(argSkew, "skew", "Zipf exponent of label popularity, 0 for uniform (default 1.0)");
+        add(argUserSkew, "userSkew", "Zipf exponent of user popularity, 0 for uniform (default 0)");
+        add(argSeed, "seed", "Random seed (default 1)");
+    }
+
+    /**
+     * Entrypoint for the command
+     *
+     * @param args CLI arguments
+     */
+    public static void main(String... args) {
+        new AttributeDataGenerator(args).mainRun();
+    }
+
+    @Override
+    protected void processModulesAndArgs() {
+        super.processModulesAndArgs();
+        if (getValue(argOutput) == null) {
+            throw new CmdException("--output is required");
+        }
+        output = Path.of(getValue(argOutput));
+        users = parseCount(getValue(argUsers), 10_000);
+        attributes = parseCount(getValue(argAttributes), 10);
+        attributeNames = parseCount(getValue(argAttributeNames), 50);
+        values = parseCount(getValue(argValues), 10);
+        hierarchies = parseHierarchies(getValue(argHierarchies), 3);
+        depth = parseCount(getValue(argDepth), 5);
+        labels = parseCount(getValue(argLabels), 1000);
+        labelExpressions = parseCount(getValue(argLabelExpressions), 3);
+        requests = parseCount(getValue(argRequests), 100_000);
+        skew = parseSkew(getValue(argSkew), 1.0);
+        userSkew = parseSkew(getValue(argUserSkew), 0);
+        seed = contains(argSeed) ? parseSeed(getValue(argSeed)) : 1;
+        if (attributes > attributeNames) {
+            throw new CmdException("--attributes (" + attributes + ") cannot exceed --attributeNames ("
+                                   + attributeNames + ")");
+        }
+    }
+
+    private static int parseHierarchies(String hierarchiesStr, int defaultHierarchies) {
+        // Unlike the other counts, no hierarchies at all is allowed
+        return "0".equals(hierarchiesStr) ? 0 : parseCount(hierarchiesStr, defaultHierarchies);
+    }
+
+    private static double parseSkew(String skewStr, double defaultSkew) {
+        if (skewStr == null || skewStr.isEmpty()) {
+            return defaultSkew;
+        }
+        try {
+            double value = Double.parseDouble(skewStr);
+            if (value < 0 || Double.isNaN(value) || Double.isInfinite(value)) {
+                throw new CmdException("Bad skew: '" + skewStr + "'");
+            }
+            return value;
+        } catch (NumberFormatException ex) {
+            throw new CmdException("Bad skew: '" + skewStr + "'", ex);
+        }
+    }
+
+    private static long parseSeed(String seedStr) {
+        try {
+            return Long.parseLong(seedStr);
+        } catch (NumberFormatException ex) {
+            throw new CmdException("Bad seed: '" + seedStr + "'", ex);
+        }
+    }
+
+    @Override
+    protected void exec() {
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        Zipf names = new Zipf(attributeNames, VALUE_SKEW);
+        Zipf valueChoice = new Zipf(values, VALUE_SKEW);
+        try {
+            Files.createDirectories(output);
+            writeAttributes(output.resolve(ATTRIBUTES_FILE), random, names, valueChoice);
+            String[] labelMix = labels(random, names, valueChoice);
+            writeRequests(output.resolve(REQUESTS_FILE), random, labelMix);
+        } catch (IOException ex) {
+            throw new CmdException("Cannot write generated data to " + output, ex);
+        }
+        LOGGER.info("Wrote {} users, {} hierarchies and {} requests over {} labels to {} in {} ms", users, hierarchies,
+                    requests, labels, output, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void writeAttributes(Path file, SplittableRandom random, Zipf names, Zipf valueChoice)
+            throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("PREFIX authz: <http://telicent.io/security#>\n\n");
+            for (int h = 0; h < hierarchies; h++) {
+                StringJoiner levels = new StringJoiner(", ");
+                for (int l = 0; l < depth; l++) {
+                    levels.add(level(l));
+                }
+                out.write("[] authz:hierarchy [ authz:attribute \"" + hierarchy(h) + "\" ;\n");
+                out.write("                     authz:attributeValues \"" + levels + "\" ];\n   .\n\n");
+            }
+            BitSet held = new BitSet(attributeNames);
+            for (int u = 0; u < users; u++) {
+                StringJoiner userAttributes = new StringJoiner(" , ");
+                held.clear();
+                while (held.cardinality() < attributes) {
+                    int name = names.next(random);
+                    if (!held.get(name)) {
+                        held.set(name);
+                        userAttributes.add("\"" + plain(name, valueChoice.next(random)) + "\"");
+                    }
+                }
+                for (int h = 0; h < hierarchies; h++) {
+                    userAttributes.add("\"" + hierarchy(h) + "=" + level(random.nextInt(depth)) + "\"");
+                }
+                out.write("[] authz:user \"" + user(u) + "\" ;\n");
+                out.write("   authz:userAttribute " + userAttributes + " ;\n   .\n\n");
+            }
+        }
+    }
+
+    private String[] labels(SplittableRandom random, Zipf names, Zipf valueChoice) {
+        String[] labelMix = new String[labels];
+        for (int i = 0; i < labels; i++) {
+            int expressions = 1 + random.nextInt(labelExpressions);
+            StringJoiner label = new StringJoiner(",");
+            for (int e = 0; e < expressions; e++) {
+                // One expression in three is hierarchical, when there are hierarchies
+                if (hierarchies > 0 && random.nextInt(3) == 0) {
+                    label.add(hierarchy(random.nextInt(hierarchies)) + "=" + level(random.nextInt(depth)));
+                } else {
+                    label.add(plain(names.next(random), valueChoice.next(random)));
+                }
+            }
+            labelMix[i] = label.toString();
+        }
+        return labelMix;
+    }
+
+    private void writeRequests(Path file, SplittableRandom random, String[] labelMix) throws IOException {
+        Zipf labelChoice = new Zipf(labels, skew);
+        Zipf userChoice = new Zipf(users, userSkew);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int r = 0; r < requests; r++) {
+                out.write(user(userChoice.next(random)));
+                out.write('\t');
+                out.write(labelMix[labelChoice.next(random)]);
+                out.write('\n');
+            }
+        }
+    }
+
+    private static String user(int u) {
+        return "user" + u;
+    }
+
+    private static String plain(int name, int value) {
+        return "a" + name + "=v" + value;
+    }
+
+    private static String hierarchy(int h) {
+        return "h" + h;
+    }
+
+    private static String level(int l) {
+        return "l" + l;
+    }
+
+    @Override
+    protected String getSummary() {
+        String usage = " --output=<directory> [--users=N] [--attributes=N] [--attributeNames=N] [--values=N]"
+                       + " [--hierarchies=N] [--depth=N] [--labels=N] [--labelExpressions=N] [--requests=N]"
+                       + " [--skew=S] [--userSkew=S] [--seed=N]";
+        return getCommandName() + usage;
+    }
+
+    @Override
+    protected String getCommandName() {
+        return this.getClass().getSimpleName();
+    }
+}
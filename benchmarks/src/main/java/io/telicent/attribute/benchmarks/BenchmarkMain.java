@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.Arrays;
+
+/**
+ * Entry point of the benchmarks jar.
+ * <p>
+ * Takes the usual JMH command line (see {@code -h}), but adds the {@code gc} profiler unless a profiler is chosen, so
+ * every run reports allocation rates ({@code gc.alloc.rate.norm} is bytes allocated per operation) alongside the
+ * timings.
+ * </p>
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    /**
+     * Run the benchmarks
+     * @param args JMH command line arguments
+     * @throws Exception if JMH fails
+     */
+    public static void main(String[] args) throws Exception {
+        Main.main(withDefaultProfiler(args));
+    }
+
+    static String[] withDefaultProfiler(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("-prof") || arg.startsWith("-prof=")) {
+                return args;
+            }
+        }
+        String[] withProfiler = Arrays.copyOf(args, args.length + 2);
+        withProfiler[args.length] = "-prof";
+        withProfiler[args.length + 1] = "gc";
+        return withProfiler;
+    }
+}
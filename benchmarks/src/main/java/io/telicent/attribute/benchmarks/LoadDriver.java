@@ -0,0 +1,399 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.benchmarks;
+
+import org.apache.jena.atlas.json.JSON;
+import org.apache.jena.atlas.json.JsonParseException;
+import org.apache.jena.atlas.json.JsonValue;
+import org.apache.jena.cmd.ArgDecl;
+import org.apache.jena.cmd.CmdException;
+import org.apache.jena.cmd.CmdGeneral;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static io.telicent.attribute.utils.AttributeUtils.parseCount;
+import static io.telicent.attribute.utils.AttributeUtils.parseDuration;
+
+/**
+ * Command replaying a request mix (as written by {@link AttributeDataGenerator}) against a running evaluator's
+ * {@code /eval} endpoint, and reporting throughput and latency percentiles.
+ * <p>
+ * By default the load is closed-loop: each of the {@code --concurrency} workers sends its next request as soon as the
+ * previous one has been answered. That measures throughput, but under overload it hides latency: a slow response holds
+ * back the requests that would have been sent meanwhile, so their wait is never measured (coordinated omission), and
+ * the report says so. With {@code --rate} the load is open-loop instead: requests are due at a fixed rate and each
+ * one's latency is measured from when it was due, so time spent waiting for a free worker counts. Either way requests
+ * are taken from the file in order, starting again at the top when they run out, and requests made during the warm-up
+ * are not counted. Every request sent (or, open-loop, due) within the measurement window is counted, however late it
+ * is answered: requests still in flight when the window closes are waited for, and open-loop requests due in the window
+ * that no worker has taken by then are still sent, up to one request timeout after the window. Any left unsent after
+ * that are reported separately. The evaluator can be running with a local store, a remote store or a cached remote store; the
+ * driver only sees its {@code /eval} endpoint.
+ * </p>
+ */
+public class LoadDriver extends CmdGeneral {
+
+    /**
+     * Logger for class
+     */
+    public static final Logger LOGGER = LoggerFactory.getLogger(LoadDriver.class);
+
+    /**
+     * Default evaluation endpoint
+     */
+    public static final String DEFAULT_URL = "http://localhost:64431/eval";
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private static final ArgDecl argUrl = new ArgDecl(ArgDecl.HasValue, "url", "evalUrl");
+    private static final ArgDecl argRequests = new ArgDecl(ArgDecl.HasValue, "requests", "requestFile");
+    private static final ArgDecl argConcurrency = new ArgDecl(ArgDecl.HasValue, "concurrency", "workers", "c");
+    private static final ArgDecl argDuration = new ArgDecl(ArgDecl.HasValue, "duration", "d");
+    private static final ArgDecl argWarmup = new ArgDecl(ArgDecl.HasValue, "warmup");
+    private static final ArgDecl argTimeout = new ArgDecl(ArgDecl.HasValue, "timeout");
+    private static final ArgDecl argRate = new ArgDecl(ArgDecl.HasValue, "rate", "requestRate");
+
+    private String url;
+    private Path requestFile;
+    private int concurrency;
+    private Duration duration;
+    private Duration warmup;
+    private Duration timeout;
+    private long rate;
+
+    /**
+     * Create Load Driver
+     * @param argv configuration parameters
+     */
+    public LoadDriver(String[] argv) {
+        super(argv);
+        add(argUrl, "url", "Evaluation endpoint (default " + DEFAULT_URL + ")");
+        add(argRequests, "requests", "Request file, one user<TAB>label per line");
+        add(argConcurrency, "concurrency", "Number of concurrent workers (default 16)");
+        add(argDuration, "duration", "How long to measure for (ISO-8601, default PT60S)");
+        add(argWarmup, "warmup", "How long to send requests before measuring (ISO-8601, default PT10S)");
+        add(argTimeout, "timeout", "Timeout of each request (ISO-8601, default PT10S)");
+        add(argRate, "rate", "Requests per second for an open-loop load (default none: closed-loop)");
+    }
+
+    /**
+     * Entrypoint for the command
+     *
+     * @param args CLI arguments
+     */
+    public static void main(String... args) {
+        new LoadDriver(args).mainRun();
+    }
+
+    @Override
+    protected void processModulesAndArgs() {
+        super.processModulesAndArgs();
+        if (getValue(argRequests) == null) {
+            throw new CmdException("--requests is required");
+        }
+        requestFile = Path.of(getValue(argRequests));
+        url = contains(argUrl) ? getValue(argUrl) : DEFAULT_URL;
+        concurrency = parseCount(getValue(argConcurrency), 16);
+        duration = parseDuration(getValue(argDuration), Duration.ofSeconds(60));
+        warmup = parseDuration(getValue(argWarmup), Duration.ofSeconds(10));
+        timeout = parseDuration(getValue(argTimeout), Duration.ofSeconds(10));
+        rate = parseCount(getValue(argRate), 0);
+        if (!duration.isPositive() || warmup.isNegative() || !timeout.isPositive()) {
+            throw new CmdException("--duration and --timeout must be positive and --warmup not negative");
+        }
+    }
+
+    @Override
+    protected void exec() {
+        URI[] requests = readRequests();
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        LOGGER.info("Replaying {} requests against {} with {} workers ({}) for {} after {} warm-up", requests.length,
+                    url, concurrency, rate > 0 ? rate + " requests/s" : "closed-loop", duration, warmup);
+
+        long loadFrom = System.nanoTime();
+        long measureFrom = loadFrom + warmup.toNanos();
+        long measureTo = measureFrom + duration.toNanos();
+        long intervalNanos = rate > 0 ? Math.max(1, 1_000_000_000L / rate) : 0;
+        AtomicLong cursor = new AtomicLong();
+        List<Worker> workers = new ArrayList<>(concurrency);
+        List<Thread> threads = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Worker worker = new Worker(client, requests, cursor, timeout, loadFrom, intervalNanos, measureFrom,
+                                       measureTo);
+            workers.add(worker);
+            threads.add(Thread.ofPlatform().name("load-" + i).start(worker));
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CmdException("Interrupted while waiting for the load to finish", ex);
+        }
+        long unsent = 0;
+        if (intervalNanos > 0) {
+            unsent = dueInWindow(loadFrom, intervalNanos, measureFrom, measureTo)
+                     - workers.stream().mapToLong(Worker::measured).sum();
+        }
+        Result.of(workers, duration, rate > 0, unsent).toString().lines().forEach(LOGGER::info);
+    }
+
+    private URI[] readRequests() {
+        try {
+            List<String> lines = Files.readAllLines(requestFile, StandardCharsets.UTF_8);
+            List<URI> requests = new ArrayList<>(lines.size());
+            for (String line : lines) {
+                int tab = line.indexOf('\t');
+                if (tab < 0) {
+                    continue;
+                }
+                requests.add(URI.create(url + "?user=" + encode(line.substring(0, tab)) + "&label="
+                                        + encode(line.substring(tab + 1))));
+            }
+            if (requests.isEmpty()) {
+                throw new CmdException("No requests in " + requestFile);
+            }
+            return requests.toArray(new URI[0]);
+        } catch (IOException ex) {
+            throw new CmdException("Cannot read requests from " + requestFile, ex);
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whether an {@code /eval} response allows access, going by its JSON {@code result} field
+     * @param body the response body
+     * @return true if the result is {@code "true"}
+     */
+    static boolean isAllowed(String body) {
+        try {
+            JsonValue value = JSON.parseAny(body);
+            if (!value.isObject()) {
+                return false;
+            }
+            JsonValue result = value.getAsObject().get("result");
+            return result != null && result.isString() && "true".equals(result.getAsString().value());
+        } catch (JsonParseException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Number of open-loop requests due within the measurement window
+     * @param loadFrom when the load started (request {@code n} is due {@code n * intervalNanos} after)
+     * @param intervalNanos time between requests
+     * @param measureFrom start of the window
+     * @param measureTo end of the window (exclusive)
+     * @return number of requests due in the window
+     */
+    static long dueInWindow(long loadFrom, long intervalNanos, long measureFrom, long measureTo) {
+        return Math.ceilDiv(measureTo - loadFrom, intervalNanos) - Math.ceilDiv(measureFrom - loadFrom, intervalNanos);
+    }
+
+    /**
+     * Worker, recording the latency of each request sent (or due) in the measurement window. Closed-loop workers
+     * ({@code intervalNanos} 0) send each request as soon as the last was answered and time it from when it was sent;
+     * open-loop workers take request {@code n} when it is due, {@code n * intervalNanos} after the load started, and
+     * time it from then. Closed-loop workers stop sending when the window closes; open-loop workers stop once the next
+     * request is due after the window, or once the drain period after it is over.
+     */
+    private static final class Worker implements Runnable {
+        private final HttpClient client;
+        private final URI[] requests;
+        private final AtomicLong cursor;
+        private final Duration timeout;
+        private final long loadFrom;
+        private final long intervalNanos;
+        private final long measureFrom;
+        private final long measureTo;
+        private final long drainTo;
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+        private long allowed;
+
+        Worker(HttpClient client, URI[] requests, AtomicLong cursor, Duration timeout, long loadFrom,
+               long intervalNanos, long measureFrom, long measureTo) {
+            this.client = client;
+            this.requests = requests;
+            this.cursor = cursor;
+            this.timeout = timeout;
+            this.loadFrom = loadFrom;
+            this.intervalNanos = intervalNanos;
+            this.measureFrom = measureFrom;
+            this.measureTo = measureTo;
+            this.drainTo = measureTo + timeout.toNanos();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                long start = System.nanoTime();
+                if (intervalNanos == 0 && start >= measureTo) {
+                    return;
+                }
+                long next = cursor.getAndIncrement();
+                if (intervalNanos > 0) {
+                    start = loadFrom + next * intervalNanos;
+                    if (start >= measureTo) {
+                        return;
+                    }
+                    while (System.nanoTime() < start) {
+                        LockSupport.parkNanos(start - System.nanoTime());
+                    }
+                    if (System.nanoTime() >= drainTo) {
+                        // Left unsent
+                        return;
+                    }
+                }
+                URI uri = requests[(int) (next % requests.length)];
+                HttpRequest request = HttpRequest.newBuilder(uri).timeout(timeout)
+                                                 .POST(HttpRequest.BodyPublishers.noBody()).build();
+                boolean ok;
+                boolean allow = false;
+                try {
+                    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                    ok = response.statusCode() == 200;
+                    allow = ok && isAllowed(response.body());
+                } catch (IOException ex) {
+                    ok = false;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (start >= measureFrom) {
+                    record(System.nanoTime() - start, ok, allow);
+                }
+            }
+        }
+
+        long measured() {
+            return count + errors;
+        }
+
+        private void record(long latency, boolean ok, boolean allow) {
+            if (!ok) {
+                errors++;
+                return;
+            }
+            if (allow) {
+                allowed++;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+    }
+
+    /**
+     * Outcome of a run
+     * @param latencies sorted latencies of the successful requests (nanoseconds)
+     * @param errors number of failed requests
+     * @param allowed number of successful requests that were allowed
+     * @param measured length of the measurement window
+     * @param openLoop whether requests were sent at a fixed rate (latency timed from when each was due)
+     * @param unsent number of open-loop requests due in the window that were never sent
+     */
+    record Result(long[] latencies, long errors, long allowed, Duration measured, boolean openLoop, long unsent) {
+
+        static Result of(List<Worker> workers, Duration measured, boolean openLoop, long unsent) {
+            int total = workers.stream().mapToInt(w -> w.count).sum();
+            long[] latencies = new long[total];
+            int offset = 0;
+            long errors = 0;
+            long allowed = 0;
+            for (Worker worker : workers) {
+                System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+                offset += worker.count;
+                errors += worker.errors;
+                allowed += worker.allowed;
+            }
+            Arrays.sort(latencies);
+            return new Result(latencies, errors, allowed, measured, openLoop, unsent);
+        }
+
+        /**
+         * Latency at a percentile (nearest rank)
+         * @param percentile the percentile, e.g. 99.9
+         * @return latency in nanoseconds, 0 if there were no successful requests
+         */
+        long percentile(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * latencies.length);
+            return latencies[Math.max(0, Math.min(rank, latencies.length) - 1)];
+        }
+
+        @Override
+        public String toString() {
+            double seconds = measured.toNanos() / 1e9;
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("requests:   %d ok, %d errors in %.1f s%n", latencies.length, errors, seconds));
+            if (unsent > 0) {
+                report.append(String.format("unsent:     %d requests due in the window were never sent (the load"
+                                            + " outran the workers; latencies leave them out)%n", unsent));
+            }
+            report.append(String.format("throughput: %.1f requests/s%n", latencies.length / seconds));
+            report.append(String.format("allowed:    %.1f%%%n",
+                                        latencies.length == 0 ? 0.0 : 100.0 * allowed / latencies.length));
+            report.append(String.format("latency:    mean=%.3f ms", latencies.length == 0 ? 0.0
+                    : Arrays.stream(latencies).average().orElse(0) / 1e6));
+            for (double percentile : PERCENTILES) {
+                report.append(String.format(" p%s=%.3f ms", percentile % 1 == 0 ? (int) percentile : percentile,
+                                            percentile(percentile) / 1e6));
+            }
+            report.append(String.format(" max=%.3f ms",
+                                        latencies.length == 0 ? 0.0 : latencies[latencies.length - 1] / 1e6));
+            if (!openLoop) {
+                report.append(String.format("%nnote:       closed-loop load - under overload these latencies leave out"
+                                            + " the time requests would have waited to be sent (coordinated"
+                                            + " omission); use --rate for an open-loop load"));
+            }
+            return report.toString();
+        }
+    }
+
+    @Override
+    protected String getSummary() {
+        String usage = " --requests=<file> [--url=<eval URL>] [--concurrency=N] [--duration=PT60S] [--warmup=PT10S]"
+                       + " [--timeout=PT10S] [--rate=N]";
+        return getCommandName() + usage;
+    }
+
+    @Override
+    protected String getCommandName() {
+        return this.getClass().getSimpleName();
+    }
+}
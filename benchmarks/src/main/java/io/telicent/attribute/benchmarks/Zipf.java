@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.benchmarks;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Zipf distribution over {@code 0..n-1}: item {@code i} is drawn with weight {@code 1 / (i + 1)^skew}, so a skew of 0
+ * is uniform and a skew of 1 or more concentrates draws on the first few items.
+ */
+final class Zipf {
+
+    private final double[] cumulative;
+
+    /**
+     * Create the distribution
+     * @param n number of items
+     * @param skew Zipf exponent (0 or more)
+     */
+    Zipf(int n, double skew) {
+        cumulative = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            total += 1 / Math.pow(i + 1, skew);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= total;
+        }
+    }
+
+    /**
+     * Draw an item
+     * @param random source of randomness
+     * @return item number
+     */
+    int next(RandomGenerator random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int item = index >= 0 ? index : -index - 1;
+        return Math.min(item, cumulative.length - 1);
+    }
+}
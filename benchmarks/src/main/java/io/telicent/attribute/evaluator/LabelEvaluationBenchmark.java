@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import io.telicent.attribute.store.GeneratedAttributesStore;
+import io.telicent.attribute.store.InternedAttributesStore;
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.attributes.AttributeExpr;
+import io.telicent.jena.abac.attributes.AttributeParser;
+import io.telicent.jena.abac.core.AttributesStore;
+import io.telicent.jena.abac.core.CxtABAC;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluating parsed labels against {@link CxtABAC}, by label length and by the number of attributes the user holds,
+ * with the user's attributes held as parsed ({@code plain}) or as sets shared between users ({@code interned}, as the
+ * local store holds them).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LabelEvaluationBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int labelExpressions;
+
+    @Param({"4", "32", "256"})
+    public int userAttributes;
+
+    @Param({"plain", "interned"})
+    public String attributeSets;
+
+    private AttributesStore store;
+    private AttributeValueSet avSet;
+    private List<AttributeExpr> attrExprs;
+    private CompiledLabel compiled;
+    private CxtABAC context;
+
+    @Setup
+    public void setup() {
+        GeneratedAttributesStore generated = GeneratedAttributesStore.generate(1, userAttributes, 8);
+        store = "interned".equals(attributeSets) ? new InternedAttributesStore(generated) : generated;
+        avSet = store.attributes(GeneratedAttributesStore.userName(0));
+        attrExprs = AttributeParser.parseAttrExprList(generated.label(labelExpressions));
+        compiled = CompiledLabel.compile(attrExprs);
+        context = CxtABAC.context(avSet, store, null);
+    }
+
+    @Benchmark
+    public boolean reference() {
+        return AttributeListEvalServer.evaluate(attrExprs, context);
+    }
+
+    @Benchmark
+    public boolean compiled() {
+        return compiled.evaluate(context);
+    }
+
+    @Benchmark
+    public boolean compiledWithNewContext() {
+        return compiled.evaluate(CxtABAC.context(avSet, store, null));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import io.telicent.jena.abac.attributes.AttributeExpr;
+import io.telicent.jena.abac.attributes.AttributeParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing label expressions: the parser alone, parsing and compiling as the {@link LabelCache} does on a miss, and a
+ * label cache hit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LabelParsingBenchmark {
+
+    private static final Map<String, String> LABELS = Map.of(
+            "single", "clearance=secret",
+            "list", "clearance=secret,nationality=GBR,deployed_organisation=Telicent",
+            "nested", "clearance=secret,nationality=GBR&(deployed_organisation=Telicent||deployed_organisation=TOG)");
+
+    @Param({"single", "list", "nested"})
+    public String complexity;
+
+    private String label;
+    private LabelCache labelCache;
+
+    @Setup
+    public void setup() {
+        label = LABELS.get(complexity);
+        labelCache = new LabelCache(true, LabelCache.DEFAULT_MAXIMUM_SIZE);
+        labelCache.parse(label);
+    }
+
+    @Benchmark
+    public List<AttributeExpr> parse() {
+        return AttributeParser.parseAttrExprList(label);
+    }
+
+    @Benchmark
+    public LabelCache.ParsedLabel parseAndCompile() {
+        return LabelCache.ParsedLabel.parse(label);
+    }
+
+    @Benchmark
+    public LabelCache.ParsedLabel cacheHit() {
+        return labelCache.parse(label);
+    }
+}
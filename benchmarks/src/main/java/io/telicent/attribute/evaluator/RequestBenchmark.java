@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import io.telicent.attribute.evaluator.AttributeListEvalServer.AttributeListLabelEvaluator;
+import io.telicent.attribute.store.CachedAttributeStore;
+import io.telicent.attribute.store.GeneratedAttributesStore;
+import io.telicent.attribute.store.InternedAttributesStore;
+import io.telicent.attribute.utils.Metrics;
+import io.telicent.jena.abac.core.AttributesStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full {@code /eval} request handling.
+ * <p>
+ * {@code inProcess} calls the same {@code AttributeListLabelEvaluator.handle} as the server does for a request (user
+ * lookup, cached label parse, evaluation, JSON response and metrics), writing to a buffer instead of the HTTP response;
+ * {@code overHttp} sends the request to a running server, so it adds Jetty, the servlet and the loopback round trip.
+ * The store is either the local store ({@code local}) or a warmed {@link CachedAttributeStore} ({@code cached}), each
+ * with and without the decision cache.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestBenchmark {
+
+    private static final int USERS = 1000;
+
+    @Param({"local", "cached"})
+    public String store;
+
+    @Param({"false", "true"})
+    public boolean decisionCache;
+
+    private String label;
+    private AttributeListLabelEvaluator handler;
+    private HttpClient client;
+    private String url;
+
+    @Setup
+    public void setup() {
+        GeneratedAttributesStore generated = GeneratedAttributesStore.generate(USERS, 8, 8);
+        AttributesStore attrStore;
+        if ("cached".equals(store)) {
+            attrStore = new CachedAttributeStore(generated, Duration.ofHours(1));
+            for (int i = 0; i < USERS; i++) {
+                attrStore.attributes(GeneratedAttributesStore.userName(i));
+            }
+        } else {
+            attrStore = new InternedAttributesStore(generated);
+        }
+        label = generated.label(4);
+        LabelCache labelCache = new LabelCache(true, LabelCache.DEFAULT_MAXIMUM_SIZE);
+        DecisionCache decisions = new DecisionCache(decisionCache, DecisionCache.DEFAULT_MAXIMUM_SIZE);
+        handler = new AttributeListLabelEvaluator(new LabelEvaluator(attrStore, labelCache, decisions),
+                                                  new EvalMetrics(new Metrics(), TimingSettings.DEFAULT));
+
+        url = AttributeListEvalServer.builder(attrStore).labelCache(labelCache).decisionCache(decisions).start()
+                                     .getURL() + "?label=" + URLEncoder.encode(label, StandardCharsets.UTF_8) + "&user=";
+        client = HttpClient.newHttpClient();
+    }
+
+    /**
+     * Each thread's user cursor and response buffer
+     */
+    @State(Scope.Thread)
+    public static class Request {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private int next;
+
+        String user() {
+            next = (next + 1) % USERS;
+            return GeneratedAttributesStore.userName(next);
+        }
+    }
+
+    @Benchmark
+    public int inProcess(Request request) {
+        request.out.reset();
+        handler.handle(request.user(), label, new EvalTimings(), (name, value) -> {}, () -> request.out);
+        return request.out.size();
+    }
+
+    @Benchmark
+    public String overHttp(Request request) throws IOException, InterruptedException {
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(url + request.user()))
+                                             .POST(HttpRequest.BodyPublishers.noBody())
+                                             .build();
+        return client.send(httpRequest, HttpResponse.BodyHandlers.ofString()).body();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CachedAttributeStore} hit paths under contention: every user and the hierarchy are cached up front, then
+ * several threads (change with {@code -t}) look them up concurrently, each walking the users from its own starting
+ * point.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class CachedAttributeStoreBenchmark {
+
+    @Param({"1000", "100000"})
+    public int users;
+
+    private String[] userNames;
+    private CachedAttributeStore store;
+
+    @Setup
+    public void setup() {
+        GeneratedAttributesStore underlying = GeneratedAttributesStore.generate(users, 8, 8);
+        store = new CachedAttributeStore(underlying, Duration.ofHours(1));
+        userNames = new String[users];
+        for (int i = 0; i < users; i++) {
+            userNames[i] = GeneratedAttributesStore.userName(i);
+            store.attributes(userNames[i]);
+        }
+        store.getHierarchy(GeneratedAttributesStore.LEVEL);
+    }
+
+    /**
+     * Each thread's position in the user list
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next = ThreadLocalRandom.current().nextInt(1 << 20);
+
+        String user(String[] userNames) {
+            next = next + 1 == Integer.MAX_VALUE ? 0 : next + 1;
+            return userNames[next % userNames.length];
+        }
+    }
+
+    @Benchmark
+    public AttributeValueSet userHit(Cursor cursor) {
+        return store.attributes(cursor.user(userNames));
+    }
+
+    @Benchmark
+    public Hierarchy hierarchyHit() {
+        return store.getHierarchy(GeneratedAttributesStore.LEVEL);
+    }
+
+    @Benchmark
+    public boolean hasHierarchyHit() {
+        return store.hasHierarchy(GeneratedAttributesStore.LEVEL);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.attributes.AttributeValue;
+import io.telicent.jena.abac.attributes.ValueTerm;
+import io.telicent.jena.abac.core.AttributesStore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * In-memory attribute store of generated users, for benchmarks.
+ * <p>
+ * User {@code user<i>} holds {@code attr0} to {@code attr<n-1>} with the value {@value #COMMON_VALUE}, a
+ * {@code group} of {@code g<i % 16>} and a {@code level} from the {@code level} hierarchy ({@code l0} lowest), so
+ * labels built by {@link #label(int)} are satisfied by every user and evaluate every expression.
+ * </p>
+ */
+public final class GeneratedAttributesStore implements AttributesStore {
+
+    /**
+     * Hierarchical attribute every user holds
+     */
+    public static final Attribute LEVEL = Attribute.create("level");
+
+    /**
+     * Value every user holds for each plain attribute
+     */
+    public static final String COMMON_VALUE = "common";
+
+    private static final int GROUPS = 16;
+
+    private final Map<String, AttributeValueSet> users;
+    private final Map<Attribute, Hierarchy> hierarchies;
+    private final int attributesPerUser;
+
+    private GeneratedAttributesStore(Map<String, AttributeValueSet> users, Hierarchy levels, int attributesPerUser) {
+        this.users = users;
+        this.hierarchies = Map.of(LEVEL, levels);
+        this.attributesPerUser = attributesPerUser;
+    }
+
+    /**
+     * Generate a store
+     * @param userCount number of users
+     * @param attributesPerUser number of plain attributes each user holds
+     * @param hierarchySize number of values in the {@code level} hierarchy
+     * @return the store
+     */
+    public static GeneratedAttributesStore generate(int userCount, int attributesPerUser, int hierarchySize) {
+        Map<String, AttributeValueSet> users = new HashMap<>(userCount * 2);
+        for (int i = 0; i < userCount; i++) {
+            List<AttributeValue> values = new ArrayList<>(attributesPerUser + 2);
+            for (int j = 0; j < attributesPerUser; j++) {
+                values.add(AttributeValue.of("attr" + j, ValueTerm.value(COMMON_VALUE)));
+            }
+            values.add(AttributeValue.of("group", ValueTerm.value("g" + (i % GROUPS))));
+            values.add(AttributeValue.of(LEVEL, ValueTerm.value(level(i % hierarchySize))));
+            users.put(userName(i), AttributeValueSet.of(values));
+        }
+        return new GeneratedAttributesStore(users, levelHierarchy(hierarchySize), attributesPerUser);
+    }
+
+    /**
+     * Name of a generated user
+     * @param i the user's number
+     * @return user name
+     */
+    public static String userName(int i) {
+        return "user" + i;
+    }
+
+    /**
+     * Value of the {@code level} hierarchy at a rank
+     * @param rank the rank (0 is lowest)
+     * @return the value
+     */
+    public static String level(int rank) {
+        return "l" + rank;
+    }
+
+    /**
+     * The {@code level} hierarchy
+     * @param size number of values
+     * @return hierarchy from {@code l0} (lowest) up
+     */
+    public static Hierarchy levelHierarchy(int size) {
+        List<ValueTerm> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(ValueTerm.value(level(i)));
+        }
+        return Hierarchy.create(LEVEL, values);
+    }
+
+    /**
+     * The same users with the {@code level} hierarchy indexed by rank, as the caching stores hold it
+     * @return store sharing this store's users
+     * @see RankedValueList#index(Hierarchy)
+     */
+    public GeneratedAttributesStore indexed() {
+        return new GeneratedAttributesStore(users, RankedValueList.index(hierarchies.get(LEVEL)), attributesPerUser);
+    }
+
+    /**
+     * A label of plain attribute expressions that every user satisfies
+     * @param expressions number of expressions (attributes are reused if there are more than each user holds)
+     * @return label
+     */
+    public String label(int expressions) {
+        StringJoiner label = new StringJoiner(",");
+        for (int k = 0; k < expressions; k++) {
+            label.add("attr" + (k % attributesPerUser) + "=" + COMMON_VALUE);
+        }
+        return label.toString();
+    }
+
+    @Override
+    public AttributeValueSet attributes(String user) {
+        return users.get(user);
+    }
+
+    @Override
+    public Set<String> users() {
+        return users.keySet();
+    }
+
+    @Override
+    public boolean hasHierarchy(Attribute attribute) {
+        return hierarchies.containsKey(attribute);
+    }
+
+    @Override
+    public Hierarchy getHierarchy(Attribute attribute) {
+        return hierarchies.get(attribute);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.AttributeExpr;
+import io.telicent.jena.abac.attributes.AttributeParser;
+import io.telicent.jena.abac.attributes.ValueTerm;
+import io.telicent.jena.abac.core.CxtABAC;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hierarchy comparisons: comparing two values' positions in the hierarchy's value list, against the same comparison
+ * on a {@link RankedValueList} (a rank lookup rather than a scan), and evaluating a hierarchical label expression
+ * against each form of the hierarchy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HierarchyBenchmark {
+
+    @Param({"5", "50", "500"})
+    public int hierarchySize;
+
+    private List<ValueTerm> values;
+    private RankedValueList ranked;
+    private ValueTerm held;
+    private ValueTerm required;
+    private AttributeExpr attrExpr;
+    private CxtABAC listContext;
+    private CxtABAC rankedContext;
+
+    @Setup
+    public void setup() {
+        Hierarchy hierarchy = GeneratedAttributesStore.levelHierarchy(hierarchySize);
+        values = hierarchy.values();
+        ranked = (RankedValueList) RankedValueList.index(hierarchy).values();
+        held = values.get(hierarchySize - 1);
+        required = values.get(hierarchySize / 2);
+        attrExpr = AttributeParser.parseAttrExpr(GeneratedAttributesStore.LEVEL.name() + "="
+                                                 + GeneratedAttributesStore.level(hierarchySize / 2));
+        // The last user holds the top level
+        GeneratedAttributesStore store = GeneratedAttributesStore.generate(hierarchySize, 1, hierarchySize);
+        AttributeValueSet avSet = store.attributes(GeneratedAttributesStore.userName(hierarchySize - 1));
+        listContext = CxtABAC.context(avSet, store, null);
+        rankedContext = CxtABAC.context(avSet, store.indexed(), null);
+    }
+
+    @Benchmark
+    public boolean compareListPositions() {
+        int requiredIndex = values.indexOf(required);
+        return requiredIndex >= 0 && values.indexOf(held) >= requiredIndex;
+    }
+
+    @Benchmark
+    public boolean compareRanks() {
+        int requiredRank = ranked.indexOf(required);
+        return requiredRank >= 0 && ranked.indexOf(held) >= requiredRank;
+    }
+
+    @Benchmark
+    public boolean evaluateWithList() {
+        return attrExpr.eval(listContext).getBoolean();
+    }
+
+    @Benchmark
+    public boolean evaluateWithRanks() {
+        return attrExpr.eval(rankedContext).getBoolean();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.benchmarks;
+
+import io.telicent.attribute.benchmarks.LoadDriver.Result;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadDriverTests {
+
+    @Test
+    public void test_percentile_nearestRank() {
+        // given
+        Result cut = result(LongStream.rangeClosed(1, 100).toArray(), true);
+        // when
+        // then
+        assertEquals(1, cut.percentile(0));
+        assertEquals(1, cut.percentile(1));
+        assertEquals(50, cut.percentile(50));
+        assertEquals(90, cut.percentile(90));
+        assertEquals(99, cut.percentile(99));
+        assertEquals(100, cut.percentile(99.9));
+        assertEquals(100, cut.percentile(100));
+    }
+
+    @Test
+    public void test_percentile_fewLatencies() {
+        // given
+        Result one = result(new long[]{7}, true);
+        Result three = result(new long[]{1, 2, 3}, true);
+        // when
+        // then
+        assertEquals(7, one.percentile(50));
+        assertEquals(7, one.percentile(99.9));
+        assertEquals(2, three.percentile(50));
+        assertEquals(3, three.percentile(90));
+    }
+
+    @Test
+    public void test_percentile_noLatencies_zero() {
+        // given
+        Result cut = result(new long[0], true);
+        // when
+        long p99 = cut.percentile(99);
+        // then
+        assertEquals(0, p99);
+    }
+
+    @Test
+    public void test_report_closedLoop_warnsOfCoordinatedOmission() {
+        // given
+        Result closed = result(new long[]{1_000_000}, false);
+        Result open = result(new long[]{1_000_000}, true);
+        // when
+        // then
+        assertTrue(closed.toString().contains("coordinated omission"), closed.toString());
+        assertFalse(open.toString().contains("coordinated omission"), open.toString());
+    }
+
+    @Test
+    public void test_report_unsentRequests() {
+        // given
+        Result unsent = new Result(new long[]{1_000_000}, 0, 0, Duration.ofSeconds(1), true, 5);
+        Result allSent = result(new long[]{1_000_000}, true);
+        // when
+        // then
+        assertTrue(unsent.toString().contains("unsent:     5 requests"), unsent.toString());
+        assertFalse(allSent.toString().contains("unsent"), allSent.toString());
+    }
+
+    @Test
+    public void test_dueInWindow_countsRequestsDueInWindow() {
+        // given
+        // when
+        // then
+        assertEquals(10, LoadDriver.dueInWindow(0, 10, 0, 100));
+        assertEquals(5, LoadDriver.dueInWindow(0, 10, 50, 100));
+        assertEquals(5, LoadDriver.dueInWindow(0, 10, 45, 95));
+        assertEquals(6, LoadDriver.dueInWindow(1_000, 10, 1_045, 1_101));
+    }
+
+    @Test
+    public void test_isAllowed_resultField() {
+        // given
+        // when
+        // then
+        assertTrue(LoadDriver.isAllowed("{ \"user\" : \"u1\" , \"result\" : \"true\" }"));
+        assertFalse(LoadDriver.isAllowed("{ \"user\" : \"u1\" , \"result\" : \"false\" }"));
+        assertFalse(LoadDriver.isAllowed("{ \"user\" : \"true\" , \"result\" : \"false\" }"));
+        assertFalse(LoadDriver.isAllowed("{ \"user\" : \"u1\" }"));
+        assertFalse(LoadDriver.isAllowed("\"true\""));
+        assertFalse(LoadDriver.isAllowed("not json \"true\""));
+    }
+
+    private static Result result(long[] latencies, boolean openLoop) {
+        return new Result(latencies, 0, 0, Duration.ofSeconds(1), openLoop, 0);
+    }
+}
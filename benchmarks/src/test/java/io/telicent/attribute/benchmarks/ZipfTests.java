@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.benchmarks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZipfTests {
+
+    private static final int DRAWS = 100_000;
+
+    @Test
+    public void test_next_noSkew_uniform() {
+        // given
+        Zipf cut = new Zipf(10, 0);
+        // when
+        int[] counts = draw(cut, 10);
+        // then
+        for (int count : counts) {
+            assertEquals(DRAWS / 10.0, count, DRAWS / 100.0);
+        }
+    }
+
+    @Test
+    public void test_next_skewOne_harmonicWeights() {
+        // given
+        Zipf cut = new Zipf(10, 1);
+        double harmonic = 0;
+        for (int i = 1; i <= 10; i++) {
+            harmonic += 1.0 / i;
+        }
+        // when
+        int[] counts = draw(cut, 10);
+        // then
+        for (int i = 0; i < 10; i++) {
+            assertEquals(DRAWS / ((i + 1) * harmonic), counts[i], DRAWS / 100.0, "item " + i);
+        }
+    }
+
+    @Test
+    public void test_next_extremes_firstAndLastItems() {
+        // given
+        Zipf cut = new Zipf(5, 1.1);
+        // when
+        int lowest = cut.next(fixed(0.0));
+        int highest = cut.next(fixed(Math.nextDown(1.0)));
+        // then
+        assertEquals(0, lowest);
+        assertEquals(4, highest);
+    }
+
+    @Test
+    public void test_next_singleItem_alwaysZero() {
+        // given
+        Zipf cut = new Zipf(1, 2);
+        // when
+        int[] counts = draw(cut, 1);
+        // then
+        assertEquals(DRAWS, counts[0]);
+    }
+
+    private static int[] draw(Zipf zipf, int n) {
+        RandomGenerator random = new SplittableRandom(42);
+        int[] counts = new int[n];
+        for (int i = 0; i < DRAWS; i++) {
+            counts[zipf.next(random)]++;
+        }
+        return counts;
+    }
+
+    private static RandomGenerator fixed(double value) {
+        return new RandomGenerator() {
+            @Override
+            public long nextLong() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public double nextDouble() {
+                return value;
+            }
+        };
+    }
+}
@@ -11,6 +11,12 @@
  * specific language governing permissions and limitations under the License.
  */
 package io.telicent.attribute.evaluator;
+import io.telicent.attribute.store.BatchPolicy;
+import io.telicent.attribute.store.CacheSettings;
+import io.telicent.attribute.store.CacheWarmer;
+import io.telicent.attribute.store.MappedAttributeCache;
+import io.telicent.attribute.store.RefreshPolicy;
+import io.telicent.attribute.store.ReloadingAttributesStore;
 import io.telicent.jena.abac.core.AttributesStore;
 import org.apache.jena.atlas.RuntimeIOException;
 import org.apache.jena.atlas.json.JSON;
@@ -24,8 +30,15 @@ import org.apache.jena.irix.IRIx;
 import org.apache.jena.sys.JenaSystem;
 import org.slf4j.Logger;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static io.telicent.attribute.utils.AttributeUtils.*;
 
@@ -51,6 +64,74 @@ public class ALEServer extends CmdGeneral {
     private static final ArgDecl argCacheExpiry =
             new ArgDecl(ArgDecl.HasValue, "cacheExpiryTime", "expire", "expiryTime", "expireCache", "cacheTime",
                         "cacheExpiry");
+    private static final ArgDecl argCacheRefreshAfter =
+            new ArgDecl(ArgDecl.HasValue, "cacheRefreshAfter", "refreshAfter", "cacheRefresh");
+    private static final ArgDecl argCacheExpiryJitter =
+            new ArgDecl(ArgDecl.HasValue, "cacheExpiryJitter", "expiryJitter", "cacheJitter");
+    private static final ArgDecl argCacheStaleWindow =
+            new ArgDecl(ArgDecl.HasValue, "cacheStaleWindow", "staleWindow", "cacheServeStale");
+    private static final ArgDecl argCacheNegativeExpiry =
+            new ArgDecl(ArgDecl.HasValue, "cacheNegativeExpiry", "negativeExpiry", "cacheMissExpiry");
+    private static final ArgDecl argUserCacheExpiry =
+            new ArgDecl(ArgDecl.HasValue, "userCacheExpiry", "userCacheExpiryTime", "userExpiry");
+    private static final ArgDecl argUserCacheSize =
+            new ArgDecl(ArgDecl.HasValue, "userCacheSize", "userCacheMaxSize");
+    private static final ArgDecl argUserCacheWeight =
+            new ArgDecl(ArgDecl.HasValue, "userCacheWeight", "userCacheMaxWeight");
+    private static final ArgDecl argHierarchyCacheExpiry =
+            new ArgDecl(ArgDecl.HasValue, "hierarchyCacheExpiry", "hierarchyCacheExpiryTime", "hierarchyExpiry");
+    private static final ArgDecl argHierarchyCacheSize =
+            new ArgDecl(ArgDecl.HasValue, "hierarchyCacheSize", "hierarchyCacheMaxSize");
+    private static final ArgDecl argHierarchyCacheWeight =
+            new ArgDecl(ArgDecl.HasValue, "hierarchyCacheWeight", "hierarchyCacheMaxWeight");
+    private static final ArgDecl argSecondLevelCacheFile =
+            new ArgDecl(ArgDecl.HasValue, "secondLevelCacheFile", "l2CacheFile");
+    private static final ArgDecl argSecondLevelCacheCapacity =
+            new ArgDecl(ArgDecl.HasValue, "secondLevelCacheCapacity", "l2CacheCapacity");
+    private static final ArgDecl argSecondLevelCacheMaxAge =
+            new ArgDecl(ArgDecl.HasValue, "secondLevelCacheMaxAge", "l2CacheMaxAge");
+    private static final ArgDecl argBulkUserEndpoint =
+            new ArgDecl(ArgDecl.HasValue, "bulkUserEndpoint", "userBulkEndpoint", "bulkEndpoint");
+    private static final ArgDecl argCacheBatchWindow =
+            new ArgDecl(ArgDecl.HasValue, "cacheBatchWindow", "batchWindow");
+    private static final ArgDecl argCacheBatchSize =
+            new ArgDecl(ArgDecl.HasValue, "cacheBatchSize", "batchSize", "cacheBatchMaxSize");
+    private static final ArgDecl argLabelCacheEnabled =
+            new ArgDecl(ArgDecl.HasValue, "labelCacheEnabled", "labelCache", "enableLabelCache");
+    private static final ArgDecl argLabelCacheSize =
+            new ArgDecl(ArgDecl.HasValue, "labelCacheSize", "labelCacheMaxSize");
+    private static final ArgDecl argDecisionCacheEnabled =
+            new ArgDecl(ArgDecl.HasValue, "decisionCacheEnabled", "decisionCache", "enableDecisionCache");
+    private static final ArgDecl argDecisionCacheSize =
+            new ArgDecl(ArgDecl.HasValue, "decisionCacheSize", "decisionCacheMaxSize");
+    private static final ArgDecl argMinThreads = new ArgDecl(ArgDecl.HasValue, "minThreads", "threadsMin");
+    private static final ArgDecl argMaxThreads = new ArgDecl(ArgDecl.HasValue, "maxThreads", "threadsMax", "threads");
+    private static final ArgDecl argAcceptors = new ArgDecl(ArgDecl.HasValue, "acceptors", "acceptorThreads");
+    private static final ArgDecl argSelectors = new ArgDecl(ArgDecl.HasValue, "selectors", "selectorThreads");
+    private static final ArgDecl argMaxQueueSize =
+            new ArgDecl(ArgDecl.HasValue, "maxQueueSize", "queueSize", "maxQueue");
+    private static final ArgDecl argVirtualThreads =
+            new ArgDecl(ArgDecl.HasValue, "virtualThreads", "virtualThreadsEnabled", "enableVirtualThreads");
+    private static final ArgDecl argAsync = new ArgDecl(ArgDecl.HasValue, "async", "asyncEnabled", "enableAsync");
+    private static final ArgDecl argAsyncTimeout =
+            new ArgDecl(ArgDecl.HasValue, "asyncTimeout", "asyncRequestTimeout", "asyncTime");
+    private static final ArgDecl argTimingHeader =
+            new ArgDecl(ArgDecl.HasValue, "timingHeader", "serverTiming", "timingHeaderEnabled");
+    private static final ArgDecl argSlowRequestThreshold =
+            new ArgDecl(ArgDecl.HasValue, "slowRequestThreshold", "slowRequest", "slowThreshold");
+    private static final ArgDecl argRecordingEndpoint =
+            new ArgDecl(ArgDecl.HasValue, "recordingEndpoint", "jfrEndpoint", "enableRecording");
+    private static final ArgDecl argAdminPort = new ArgDecl(ArgDecl.HasValue, "adminPort", "recordingPort");
+    private static final ArgDecl argCompactStore =
+            new ArgDecl(ArgDecl.HasValue, "compactStore", "compactLocalStore", "compactAttributeStore");
+    private static final ArgDecl argWatchStore =
+            new ArgDecl(ArgDecl.HasValue, "watchStore", "reloadStore", "watchAttributeStore");
+    private static final ArgDecl argWarmUp =
+            new ArgDecl(ArgDecl.HasValue, "warmUp", "warmUpEnabled", "enableWarmUp", "cacheWarmUp");
+    private static final ArgDecl argWarmUpUsers =
+            new ArgDecl(ArgDecl.HasValue, "warmUpUsers", "warmUpUserList", "warmUpFile");
+    private static final ArgDecl argWarmUpConcurrency =
+            new ArgDecl(ArgDecl.HasValue, "warmUpConcurrency", "warmUpThreads");
     private static final String DEFAULT_USER_URL_SUFFIX = "/users/lookup/{user}";
     private static final String DEFAULT_HIERARCHY_URL_SUFFIX = "/hierarchies/lookup/{name}";
     private static final Duration DEFAULT_CACHE_EXPIRY_TIME = Duration.ofSeconds(10);
@@ -63,7 +144,59 @@ public class ALEServer extends CmdGeneral {
     private String lookupHierarchyEndpoint = "";
     private boolean cachingEnabled;
     private Duration cacheExpiryTime;
+    private Duration cacheRefreshAfter;
+    private Duration cacheExpiryJitter;
+    private Duration cacheStaleWindow;
+    private Duration cacheNegativeExpiry;
+    private Duration userCacheExpiry;
+    private long userCacheSize;
+    private long userCacheWeight;
+    private Duration hierarchyCacheExpiry;
+    private long hierarchyCacheSize;
+    private long hierarchyCacheWeight;
+    private CacheSettings userCacheSettings;
+    private CacheSettings hierarchyCacheSettings;
+    private String secondLevelCacheFile;
+    private long secondLevelCacheCapacity;
+    private Duration secondLevelCacheMaxAge;
+    private MappedAttributeCache secondLevelCache;
+    private ReloadingAttributesStore reloadingStore;
+    private String bulkUserEndpoint;
+    private Duration cacheBatchWindow;
+    private int cacheBatchSize;
+    private BatchPolicy batchPolicy;
+    private boolean labelCacheEnabled;
+    private long labelCacheSize;
+    private LabelCache labelCache;
+    private boolean decisionCacheEnabled;
+    private long decisionCacheSize;
+    private DecisionCache decisionCache;
+    private int minThreads;
+    private int maxThreads;
+    private int acceptors;
+    private int selectors;
+    private int maxQueueSize;
+    private boolean virtualThreads;
+    private boolean async;
+    private Duration asyncTimeout;
+    private ServerSettings serverSettings;
+    private boolean timingHeader;
+    private Duration slowRequestThreshold;
+    private TimingSettings timingSettings;
+    private boolean recordingEndpoint;
+    private int adminPort;
+    private boolean compactStore;
+    private boolean watchStore;
+    private boolean warmUp;
+    private String warmUpUsers;
+    private int warmUpConcurrency;
+    private final AtomicBoolean ready = new AtomicBoolean();
+    private volatile CacheWarmer.Result warmUpResult;
+    private EvalServer server;
     private String serverURL;
+    private String readyURL;
+    private String metricsURL;
+    private String recordingURL;
 
     /**
      * Create new ALE Server deployment
@@ -79,6 +212,64 @@ public class ALEServer extends CmdGeneral {
         add(argCacheEnabled, "cache", "Boolean flag to turn on internal cache (if using remote service)");
         add(argCacheExpiry, "cacheExpiry",
             "Duration for how long to cache user/hierarchy data (if using remote service)");
+        add(argCacheRefreshAfter, "cacheRefreshAfter",
+            "Duration after which cached data is refreshed in the background (defaults to 80% of cacheExpiry)");
+        add(argCacheExpiryJitter, "cacheExpiryJitter",
+            "Maximum random extension of each cache entry's expiry (defaults to 10% of cacheExpiry)");
+        add(argCacheStaleWindow, "cacheStaleWindow",
+            "Duration past expiry that cached data may be served while it is refreshed (defaults to none)");
+        add(argCacheNegativeExpiry, "cacheNegativeExpiry",
+            "Duration to remember unknown users and missing hierarchies (defaults to 20% of cacheExpiry)");
+        add(argUserCacheExpiry, "userCacheExpiry", "Duration to cache user data (defaults to cacheExpiry)");
+        add(argUserCacheSize, "userCacheSize", "Maximum number of users to cache");
+        add(argUserCacheWeight, "userCacheWeight",
+            "Maximum total weight of cached users, each weighing one plus its number of attributes (instead of size)");
+        add(argHierarchyCacheExpiry, "hierarchyCacheExpiry",
+            "Duration to cache hierarchy data (defaults to cacheExpiry)");
+        add(argHierarchyCacheSize, "hierarchyCacheSize", "Maximum number of hierarchies to cache");
+        add(argHierarchyCacheWeight, "hierarchyCacheWeight",
+            "Maximum total weight of cached hierarchies, each weighing one plus its number of tiers (instead of size)");
+        add(argSecondLevelCacheFile, "secondLevelCacheFile",
+            "File for an off-heap cache behind the in-memory cache, kept across restarts (if caching remote data)");
+        add(argSecondLevelCacheCapacity, "secondLevelCacheCapacity", "Size in bytes of the second-level cache file");
+        add(argSecondLevelCacheMaxAge, "secondLevelCacheMaxAge",
+            "Duration after which second-level cache entries are no longer used");
+        add(argBulkUserEndpoint, "bulkUserEndpoint",
+            "Endpoint for bulk user requests; when set, cache misses are batched (if using cached remote service)");
+        add(argCacheBatchWindow, "cacheBatchWindow", "Duration to gather cache misses into one bulk request");
+        add(argCacheBatchSize, "cacheBatchSize", "Maximum number of users in one bulk request");
+        add(argLabelCacheEnabled, "labelCache", "Boolean flag to cache parsed labels (defaults to true)");
+        add(argLabelCacheSize, "labelCacheSize", "Maximum number of parsed labels to cache");
+        add(argDecisionCacheEnabled, "decisionCache", "Boolean flag to cache evaluation results (defaults to false)");
+        add(argDecisionCacheSize, "decisionCacheSize", "Maximum number of evaluation results to cache");
+        add(argMinThreads, "minThreads", "Minimum number of server threads");
+        add(argMaxThreads, "maxThreads", "Maximum number of server threads");
+        add(argAcceptors, "acceptors", "Number of connector acceptor threads");
+        add(argSelectors, "selectors", "Number of connector selector threads");
+        add(argMaxQueueSize, "maxQueueSize", "Maximum number of requests queued waiting for a thread");
+        add(argVirtualThreads, "virtualThreads", "Boolean flag to run each request on a virtual thread");
+        add(argAsync, "async", "Boolean flag to release server threads during remote attribute lookups");
+        add(argAsyncTimeout, "asyncTimeout",
+            "How long (ISO-8601 duration) an asynchronous /eval request may wait before failing (default: PT30S)");
+        add(argTimingHeader, "timingHeader",
+            "Boolean flag to return /eval phase timings in a Server-Timing response header");
+        add(argSlowRequestThreshold, "slowRequestThreshold",
+            "Log /eval requests taking at least this long with their phase timings (ISO-8601 duration)");
+        add(argRecordingEndpoint, "recordingEndpoint",
+            "Boolean flag to enable the " + AttributeListEvalServer.RECORDING_PATH
+            + " endpoint, which starts, stops and dumps a flight recording");
+        add(argAdminPort, "adminPort",
+            "Port of the admin connector (bound to localhost) serving " + AttributeListEvalServer.RECORDING_PATH
+            + " (default: any free port)");
+        add(argCompactStore, "compactStore",
+            "Boolean flag to hold a local attribute file in compact arrays, for very large user bases");
+        add(argWatchStore, "watchStore",
+            "Boolean flag to reload the attribute file whenever it changes (if using a local store)");
+        add(argWarmUp, "warmUp",
+            "Boolean flag to preload the cache at startup (if using cached remote service); /ready waits for it");
+        add(argWarmUpUsers, "warmUpUsers",
+            "File listing the users to preload, one per line (defaults to every user the store lists)");
+        add(argWarmUpConcurrency, "warmUpConcurrency", "Maximum number of lookups in flight during warm-up");
     }
 
     /**
@@ -130,6 +321,45 @@ public class ALEServer extends CmdGeneral {
         if (cachingEnabled) {
             cacheExpiryTime = parseDuration(getValue(argCacheExpiry), DEFAULT_CACHE_EXPIRY_TIME);
         }
+        cacheRefreshAfter = parseDuration(getValue(argCacheRefreshAfter), null);
+        cacheExpiryJitter = parseDuration(getValue(argCacheExpiryJitter), null);
+        cacheStaleWindow = parseDuration(getValue(argCacheStaleWindow), null);
+        cacheNegativeExpiry = parseDuration(getValue(argCacheNegativeExpiry), null);
+        userCacheExpiry = parseDuration(getValue(argUserCacheExpiry), null);
+        userCacheSize = parseSize(getValue(argUserCacheSize), 0);
+        userCacheWeight = parseSize(getValue(argUserCacheWeight), 0);
+        hierarchyCacheExpiry = parseDuration(getValue(argHierarchyCacheExpiry), null);
+        hierarchyCacheSize = parseSize(getValue(argHierarchyCacheSize), 0);
+        hierarchyCacheWeight = parseSize(getValue(argHierarchyCacheWeight), 0);
+        secondLevelCacheFile = getValue(argSecondLevelCacheFile);
+        secondLevelCacheCapacity =
+                parseSize(getValue(argSecondLevelCacheCapacity), MappedAttributeCache.DEFAULT_CAPACITY);
+        secondLevelCacheMaxAge =
+                parseDuration(getValue(argSecondLevelCacheMaxAge), MappedAttributeCache.DEFAULT_MAX_AGE);
+        bulkUserEndpoint = getValue(argBulkUserEndpoint);
+        cacheBatchWindow = parseDuration(getValue(argCacheBatchWindow), BatchPolicy.DEFAULT_WINDOW);
+        cacheBatchSize = parseCount(getValue(argCacheBatchSize), BatchPolicy.DEFAULT_MAX_SIZE);
+        labelCacheEnabled = parseBoolean(getValue(argLabelCacheEnabled), true);
+        labelCacheSize = parseSize(getValue(argLabelCacheSize), LabelCache.DEFAULT_MAXIMUM_SIZE);
+        decisionCacheEnabled = parseBoolean(getValue(argDecisionCacheEnabled), false);
+        decisionCacheSize = parseSize(getValue(argDecisionCacheSize), DecisionCache.DEFAULT_MAXIMUM_SIZE);
+        minThreads = parseCount(getValue(argMinThreads), ServerSettings.DEFAULT_MIN_THREADS);
+        maxThreads = parseCount(getValue(argMaxThreads), ServerSettings.DEFAULT_MAX_THREADS);
+        acceptors = parseCount(getValue(argAcceptors), ServerSettings.DEFAULT.acceptors());
+        selectors = parseCount(getValue(argSelectors), ServerSettings.DEFAULT.selectors());
+        maxQueueSize = parseCount(getValue(argMaxQueueSize), ServerSettings.DEFAULT_MAX_QUEUE_SIZE);
+        virtualThreads = parseBoolean(getValue(argVirtualThreads), false);
+        async = parseBoolean(getValue(argAsync), false);
+        asyncTimeout = parseDuration(getValue(argAsyncTimeout), null);
+        timingHeader = parseBoolean(getValue(argTimingHeader), false);
+        slowRequestThreshold = parseDuration(getValue(argSlowRequestThreshold), null);
+        recordingEndpoint = parseBoolean(getValue(argRecordingEndpoint), false);
+        adminPort = portNumber(getValue(argAdminPort), 0);
+        compactStore = parseBoolean(getValue(argCompactStore), false);
+        watchStore = parseBoolean(getValue(argWatchStore), false);
+        warmUpUsers = getValue(argWarmUpUsers);
+        warmUp = parseBoolean(getValue(argWarmUp), warmUpUsers != null);
+        warmUpConcurrency = parseCount(getValue(argWarmUpConcurrency), CacheWarmer.DEFAULT_CONCURRENCY);
 
         port = portNumber(getValue(argPort), DEFAULT_PORT);
 
@@ -144,13 +374,89 @@ public class ALEServer extends CmdGeneral {
             processConfigFile();
         }
         processStoreConfig();
+        processCacheSettings();
+        processBatchPolicy();
+        processSecondLevelCache();
+        processServerSettings();
+        processWarmUp();
     }
 
     @Override
     protected void exec() {
         AttributesStore attrStore = buildAttributeStore();
-        serverURL = AttributeListEvalServer.run(port, "/eval", attrStore);
+        labelCache = new LabelCache(labelCacheEnabled, labelCacheSize);
+        decisionCache = new DecisionCache(decisionCacheEnabled, decisionCacheSize);
+        if (attrStore instanceof ReloadingAttributesStore reloading) {
+            reloadingStore = reloading;
+            reloadingStore.onReload(decisionCache::invalidateAll);
+        }
+        ready.set(!warmUp);
+        server = AttributeListEvalServer.builder(attrStore)
+                                        .port(port)
+                                        .path("/eval")
+                                        .labelCache(labelCache)
+                                        .decisionCache(decisionCache)
+                                        .serverSettings(serverSettings)
+                                        .ready(ready::get)
+                                        .timingSettings(timingSettings)
+                                        .recordings(recordingEndpoint ? new FlightRecordings() : null)
+                                        .adminPort(adminPort)
+                                        .start();
+        serverURL = server.getURL();
+        String baseURL = serverURL.substring(0, serverURL.lastIndexOf("/eval"));
+        readyURL = baseURL + AttributeListEvalServer.READY_PATH;
+        metricsURL = baseURL + AttributeListEvalServer.METRICS_PATH;
+        recordingURL = recordingEndpoint ? server.getAdminURL() + AttributeListEvalServer.RECORDING_PATH : null;
         LOGGER.info("URL = {}}", serverURL);
+        if (recordingURL != null) {
+            LOGGER.info("Recording URL = {}", recordingURL);
+        }
+        Runtime.getRuntime().addShutdownHook(Thread.ofPlatform().name("ale-shutdown").unstarted(this::stop));
+        if (warmUp) {
+            Thread.ofVirtual().name("cache-warm-up").start(() -> warmUp(attrStore));
+        }
+    }
+
+    private void warmUp(AttributesStore attrStore) {
+        try {
+            warmUpResult = new CacheWarmer(attrStore, warmUpConcurrency).warm(warmUpUserList());
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Cache warm-up failed, continuing with a cold cache", ex);
+        } finally {
+            ready.set(true);
+        }
+    }
+
+    private Collection<String> warmUpUserList() {
+        try (Stream<String> lines = Files.lines(Path.of(warmUpUsers))) {
+            return lines.map(String::strip).filter(line -> !line.isEmpty() && !line.startsWith("#")).toList();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Stop the server, if it is running, stop watching the local attribute file, and flush and close the second-level
+     * cache file, if there is one
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop();
+        }
+        if (reloadingStore != null) {
+            try {
+                reloadingStore.close();
+            } catch (IOException ex) {
+                LOGGER.warn("Cannot stop watching attribute store file {}", localAttributeStore, ex);
+            }
+        }
+        if (secondLevelCache != null) {
+            try {
+                secondLevelCache.close();
+            } catch (IOException ex) {
+                LOGGER.warn("Cannot close second-level cache file {}", secondLevelCacheFile, ex);
+            }
+        }
     }
 
     /**
@@ -161,14 +467,122 @@ public class ALEServer extends CmdGeneral {
         return serverURL;
     }
 
+    /**
+     * Get the URL of the Server's readiness endpoint
+     * @return the readiness URL, null if the server is not running
+     */
+    public String getReadyURL() {
+        return readyURL;
+    }
+
+    /**
+     * Get the URL of the Server's metrics endpoint
+     * @return the metrics URL, null if the server is not running
+     */
+    public String getMetricsURL() {
+        return metricsURL;
+    }
+
+    /**
+     * Get the URL of the Server's flight recording endpoint
+     * @return the recording URL, null if the server is not running or the endpoint is not enabled
+     */
+    public String getRecordingURL() {
+        return recordingURL;
+    }
+
+    /**
+     * Whether the server is ready for traffic (running, and any cache warm-up finished)
+     * @return true if ready
+     */
+    public boolean isReady() {
+        return ready.get();
+    }
+
+    /**
+     * Get the outcome of the cache warm-up
+     * @return the warm-up result, null if there was no warm-up or it has not finished (or it failed)
+     */
+    public CacheWarmer.Result getWarmUpResult() {
+        return warmUpResult;
+    }
+
+    /**
+     * Get the cache of parsed labels (and its hit/miss counts)
+     * @return the label cache in use, null if the server is not running
+     */
+    public LabelCache getLabelCache() {
+        return labelCache;
+    }
+
+    /**
+     * Get the cache of evaluation results (and its hit/miss counts)
+     * @return the decision cache in use, null if the server is not running
+     */
+    public DecisionCache getDecisionCache() {
+        return decisionCache;
+    }
+
+    /**
+     * Get the Jetty thread pool and connector settings
+     * @return the server settings, null if the arguments have not been processed
+     */
+    public ServerSettings getServerSettings() {
+        return serverSettings;
+    }
+
+    /**
+     * Get how /eval phase timings are reported
+     * @return timing settings, null if the arguments have not been processed
+     */
+    public TimingSettings getTimingSettings() {
+        return timingSettings;
+    }
+
+    /**
+     * Get the bound and refresh policy for the remote store's user cache
+     * @return the user cache settings, null if caching is not enabled or the arguments have not been processed
+     */
+    public CacheSettings getUserCacheSettings() {
+        return userCacheSettings;
+    }
+
+    /**
+     * Get the bound and refresh policy for the remote store's hierarchy cache
+     * @return the hierarchy cache settings, null if caching is not enabled or the arguments have not been processed
+     */
+    public CacheSettings getHierarchyCacheSettings() {
+        return hierarchyCacheSettings;
+    }
+
+    /**
+     * Get the batching of cache misses into bulk user lookups
+     * @return the batch policy, null if batching is not in use or the arguments have not been processed
+     */
+    public BatchPolicy getBatchPolicy() {
+        return batchPolicy;
+    }
+
     private AttributesStore buildAttributeStore() {
         AttributesStore store;
-        if (null != localAttributeStore) {
+        if (null != localAttributeStore && watchStore) {
+            LOGGER.info("Using local attribute store (reloaded on change)");
+            try {
+                store = createReloadingLocalAttributeStore(localAttributeStore, compactStore);
+            } catch (IOException ex) {
+                throw new CmdException("Cannot watch attribute store file: " + localAttributeStore, ex);
+            }
+        } else if (null != localAttributeStore) {
             LOGGER.info("Using local attribute store");
-            store = createLocalAttributeStore(localAttributeStore);
+            store = createLocalAttributeStore(localAttributeStore, compactStore);
         } else if (cachingEnabled) {
-            LOGGER.info("Using remote (cached) attribute store");
-            store = createCachedRemoteAttributeStore(lookupUserEndpoint, lookupHierarchyEndpoint, cacheExpiryTime);
+            LOGGER.info(batchPolicy != null ? "Using remote (cached, batched) attribute store"
+                                            : "Using remote (cached) attribute store");
+            secondLevelCache = openSecondLevelCache();
+            store = createCachedRemoteAttributeStore(lookupUserEndpoint, lookupHierarchyEndpoint,
+                                                     batchPolicy != null ? bulkUserEndpoint : null,
+                                                     userCacheSettings, hierarchyCacheSettings, batchPolicy,
+                                                     secondLevelCache);
         } else {
             LOGGER.info("Using remote attribute store");
             store = createRemoteAttributeStore(lookupUserEndpoint, lookupHierarchyEndpoint);
@@ -176,6 +590,27 @@ public class ALEServer extends CmdGeneral {
         return store;
     }
 
+    private MappedAttributeCache openSecondLevelCache() {
+        if (secondLevelCacheFile == null) {
+            return null;
+        }
+        try {
+            LOGGER.info("Using second-level cache file {}", secondLevelCacheFile);
+            return MappedAttributeCache.open(Path.of(secondLevelCacheFile), secondLevelCacheCapacity,
+                                             secondLevelCacheMaxAge);
+        } catch (IOException ex) {
+            throw new CmdException("Cannot open second-level cache file: " + secondLevelCacheFile, ex);
+        }
+    }
+
+    /**
+     * Get the off-heap second-level cache
+     * @return the second-level cache, null if there is none or the server is not running
+     */
+    public MappedAttributeCache getSecondLevelCache() {
+        return secondLevelCache;
+    }
+
     private void processStoreConfig() {
         try {
             IRIx iri = IRIx.create(storeURL);
@@ -193,6 +628,120 @@ public class ALEServer extends CmdGeneral {
         }
     }
 
+    private void processCacheSettings() {
+        if (!cachingEnabled) {
+            userCacheSettings = null;
+            hierarchyCacheSettings = null;
+            return;
+        }
+        if (cacheExpiryTime == null) {
+            cacheExpiryTime = DEFAULT_CACHE_EXPIRY_TIME;
+        }
+        userCacheSettings = cacheSettings(nonNegative(userCacheExpiry, cacheExpiryTime, argUserCacheExpiry),
+                                          userCacheSize, userCacheWeight, CacheSettings.DEFAULT_USER_MAXIMUM_SIZE,
+                                          argUserCacheSize, argUserCacheWeight);
+        hierarchyCacheSettings =
+                cacheSettings(nonNegative(hierarchyCacheExpiry, cacheExpiryTime, argHierarchyCacheExpiry),
+                              hierarchyCacheSize, hierarchyCacheWeight, CacheSettings.DEFAULT_HIERARCHY_MAXIMUM_SIZE,
+                              argHierarchyCacheSize, argHierarchyCacheWeight);
+    }
+
+    private CacheSettings cacheSettings(Duration expiry, long size, long weight, long defaultSize, ArgDecl argSize,
+                                        ArgDecl argWeight) {
+        if (size > 0 && weight > 0) {
+            throw new CmdException("Bad cache bounds: set " + argSize.getKeyName() + " or " + argWeight.getKeyName()
+                                   + ", not both");
+        }
+        long maximumSize = weight > 0 ? 0 : (size > 0 ? size : defaultSize);
+        return new CacheSettings(refreshPolicy(expiry), maximumSize, weight);
+    }
+
+    private RefreshPolicy refreshPolicy(Duration expiry) {
+        RefreshPolicy defaults = RefreshPolicy.of(expiry);
+        return new RefreshPolicy(expiry,
+                                 nonNegative(cacheRefreshAfter, defaults.refreshAfter(), argCacheRefreshAfter),
+                                 nonNegative(cacheExpiryJitter, defaults.jitter(), argCacheExpiryJitter),
+                                 nonNegative(cacheStaleWindow, defaults.staleWindow(), argCacheStaleWindow),
+                                 nonNegative(cacheNegativeExpiry, defaults.negativeExpiry(), argCacheNegativeExpiry));
+    }
+
+    private void processBatchPolicy() {
+        if (!cachingEnabled || localAttributeStore != null || bulkUserEndpoint == null) {
+            batchPolicy = null;
+            return;
+        }
+        if (cacheBatchWindow.isNegative()) {
+            throw new CmdException("Bad duration for " + argCacheBatchWindow.getKeyName() + ": '" + cacheBatchWindow
+                                   + "'");
+        }
+        if (cacheBatchSize < 1) {
+            throw new CmdException("Bad size for " + argCacheBatchSize.getKeyName() + ": '" + cacheBatchSize + "'");
+        }
+        batchPolicy = new BatchPolicy(cacheBatchWindow, cacheBatchSize);
+    }
+
+    private void processSecondLevelCache() {
+        if (secondLevelCacheFile != null && (!cachingEnabled || localAttributeStore != null)) {
+            LOGGER.info("Second-level cache only applies to a cached remote attribute store; not using it");
+            secondLevelCacheFile = null;
+        }
+        if (secondLevelCacheCapacity > Integer.MAX_VALUE) {
+            throw new CmdException("Bad size for " + argSecondLevelCacheCapacity.getKeyName() + ": '"
+                                   + secondLevelCacheCapacity + "' (at most " + Integer.MAX_VALUE + ")");
+        }
+        if (secondLevelCacheMaxAge.isNegative()) {
+            throw new CmdException("Bad duration for " + argSecondLevelCacheMaxAge.getKeyName() + ": '"
+                                   + secondLevelCacheMaxAge + "'");
+        }
+    }
+
+    private void processWarmUp() {
+        if (!warmUp) {
+            return;
+        }
+        if (localAttributeStore != null || !cachingEnabled) {
+            LOGGER.info("Cache warm-up only applies to a cached remote attribute store; skipping it");
+            warmUp = false;
+            return;
+        }
+        if (warmUpUsers == null) {
+            // A remote attribute store has no way to list its users
+            throw new CmdException("Cache warm-up needs a user list: set " + argWarmUpUsers.getKeyName());
+        }
+        if (!Files.isReadable(Path.of(warmUpUsers))) {
+            throw new CmdException("Cannot read warm-up user list: " + warmUpUsers);
+        }
+    }
+
+    private static Duration nonNegative(Duration duration, Duration defaultDuration, ArgDecl argDecl) {
+        if (duration == null) {
+            return defaultDuration;
+        }
+        if (duration.isNegative()) {
+            throw new CmdException("Bad duration for " + argDecl.getKeyName() + ": '" + duration + "'");
+        }
+        return duration;
+    }
+
+    private void processServerSettings() {
+        if (minThreads > maxThreads) {
+            throw new CmdException("Bad thread counts: minThreads (" + minThreads + ") exceeds maxThreads ("
+                                   + maxThreads + ")");
+        }
+        if (acceptors >= 0 && selectors >= 0 && maxThreads <= acceptors + selectors) {
+            throw new CmdException("Bad thread counts: maxThreads (" + maxThreads + ") must exceed acceptors plus "
+                                   + "selectors (" + (acceptors + selectors) + ")");
+        }
+        Duration timeout = nonNegative(asyncTimeout, ServerSettings.DEFAULT_ASYNC_TIMEOUT, argAsyncTimeout);
+        if (timeout.isZero()) {
+            throw new CmdException("Bad duration for " + argAsyncTimeout.getKeyName() + ": '" + timeout + "'");
+        }
+        serverSettings = new ServerSettings(minThreads, maxThreads, acceptors, selectors, maxQueueSize, virtualThreads,
+                                            async, timeout);
+        timingSettings = new TimingSettings(timingHeader, nonNegative(slowRequestThreshold, null,
+                                                                      argSlowRequestThreshold));
+    }
+
     void processLocalAttributeStoreConfig() {
         localAttributeStore = storeURL;
         lookupUserEndpoint = null;
@@ -227,11 +776,68 @@ public class ALEServer extends CmdGeneral {
             if (cachingEnabled) {
                 cacheExpiryTime = parseDuration(getJSONValue(jObject, argCacheExpiry), cacheExpiryTime);
             }
+            // The options above keep their original precedence; for those below the command line wins over the file
+            cacheRefreshAfter = parseDuration(configValue(jObject, argCacheRefreshAfter), cacheRefreshAfter);
+            cacheExpiryJitter = parseDuration(configValue(jObject, argCacheExpiryJitter), cacheExpiryJitter);
+            cacheStaleWindow = parseDuration(configValue(jObject, argCacheStaleWindow), cacheStaleWindow);
+            cacheNegativeExpiry = parseDuration(configValue(jObject, argCacheNegativeExpiry), cacheNegativeExpiry);
+            userCacheExpiry = parseDuration(configValue(jObject, argUserCacheExpiry), userCacheExpiry);
+            userCacheSize = parseSize(configValue(jObject, argUserCacheSize), userCacheSize);
+            userCacheWeight = parseSize(configValue(jObject, argUserCacheWeight), userCacheWeight);
+            hierarchyCacheExpiry = parseDuration(configValue(jObject, argHierarchyCacheExpiry), hierarchyCacheExpiry);
+            hierarchyCacheSize = parseSize(configValue(jObject, argHierarchyCacheSize), hierarchyCacheSize);
+            hierarchyCacheWeight = parseSize(configValue(jObject, argHierarchyCacheWeight), hierarchyCacheWeight);
+            secondLevelCacheFile = configString(jObject, argSecondLevelCacheFile, secondLevelCacheFile);
+            secondLevelCacheCapacity =
+                    parseSize(configValue(jObject, argSecondLevelCacheCapacity), secondLevelCacheCapacity);
+            secondLevelCacheMaxAge =
+                    parseDuration(configValue(jObject, argSecondLevelCacheMaxAge), secondLevelCacheMaxAge);
+            bulkUserEndpoint = configString(jObject, argBulkUserEndpoint, bulkUserEndpoint);
+            cacheBatchWindow = parseDuration(configValue(jObject, argCacheBatchWindow), cacheBatchWindow);
+            cacheBatchSize = parseCount(configValue(jObject, argCacheBatchSize), cacheBatchSize);
+            labelCacheEnabled = parseBoolean(configValue(jObject, argLabelCacheEnabled), labelCacheEnabled);
+            labelCacheSize = parseSize(configValue(jObject, argLabelCacheSize), labelCacheSize);
+            decisionCacheEnabled =
+                    parseBoolean(configValue(jObject, argDecisionCacheEnabled), decisionCacheEnabled);
+            decisionCacheSize = parseSize(configValue(jObject, argDecisionCacheSize), decisionCacheSize);
+            minThreads = parseCount(configValue(jObject, argMinThreads), minThreads);
+            maxThreads = parseCount(configValue(jObject, argMaxThreads), maxThreads);
+            acceptors = parseCount(configValue(jObject, argAcceptors), acceptors);
+            selectors = parseCount(configValue(jObject, argSelectors), selectors);
+            maxQueueSize = parseCount(configValue(jObject, argMaxQueueSize), maxQueueSize);
+            virtualThreads = parseBoolean(configValue(jObject, argVirtualThreads), virtualThreads);
+            async = parseBoolean(configValue(jObject, argAsync), async);
+            asyncTimeout = parseDuration(configValue(jObject, argAsyncTimeout), asyncTimeout);
+            timingHeader = parseBoolean(configValue(jObject, argTimingHeader), timingHeader);
+            slowRequestThreshold =
+                    parseDuration(configValue(jObject, argSlowRequestThreshold), slowRequestThreshold);
+            recordingEndpoint = parseBoolean(configValue(jObject, argRecordingEndpoint), recordingEndpoint);
+            adminPort = portNumber(configValue(jObject, argAdminPort), adminPort);
+            compactStore = parseBoolean(configValue(jObject, argCompactStore), compactStore);
+            watchStore = parseBoolean(configValue(jObject, argWatchStore), watchStore);
+            warmUpUsers = configString(jObject, argWarmUpUsers, warmUpUsers);
+            warmUp = parseBoolean(configValue(jObject, argWarmUp), warmUp || warmUpUsers != null);
+            warmUpConcurrency = parseCount(configValue(jObject, argWarmUpConcurrency), warmUpConcurrency);
         } catch (RuntimeIOException | NumberFormatException | DateTimeParseException exception) {
             throw new CmdException("Configuration file in bad format: " + configFile, exception);
         }
     }
 
+    /**
+     * Get a value from the configuration file, unless it was given on the command line
+     * @param jObject the configuration file
+     * @param argDecl the argument
+     * @return the file's value, or null if it has none or the command line value takes precedence
+     */
+    private String configValue(JsonObject jObject, ArgDecl argDecl) {
+        return contains(argDecl) ? null : getJSONValue(jObject, argDecl);
+    }
+
+    private String configString(JsonObject jObject, ArgDecl argDecl, String currentValue) {
+        String value = configValue(jObject, argDecl);
+        return value != null ? value : currentValue;
+    }
+
     /**
      * For testing purposes
      * @return the hierarchy endpoint being used
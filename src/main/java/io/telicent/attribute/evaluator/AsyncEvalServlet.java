@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import io.telicent.attribute.evaluator.AttributeListEvalServer.AttributeListLabelEvaluator;
+import io.telicent.attribute.evaluator.LabelEvaluator.Outcome;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.jena.atlas.json.JSON;
+import org.apache.jena.atlas.json.JsonObject;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.telicent.attribute.evaluator.AttributeListEvalServer.LOGGER;
+
+/**
+ * Asynchronous version of the {@code /eval} endpoint.
+ * <p>
+ * Takes the same request and gives the same response as the synchronous endpoint, but when the user's attributes or
+ * any hierarchy may have to come from a remote store the request is suspended and the server thread released; the
+ * response is written once the lookup and evaluation complete on the executor. Requests against a store that holds
+ * everything in memory complete inline.
+ * </p>
+ * <p>
+ * A suspended request that has not completed within the timeout fails with a 503. The servlet owns the executor and
+ * shuts it down when the servlet is destroyed.
+ * </p>
+ */
+class AsyncEvalServlet extends HttpServlet {
+
+    private static final String paramUser = AttributeListLabelEvaluator.paramUser;
+    private static final String paramLabel = AttributeListLabelEvaluator.paramLabel;
+    private static final String SERVER_TIMING = AttributeListLabelEvaluator.SERVER_TIMING;
+    private final transient LabelEvaluator labelEvaluator;
+    private final transient ExecutorService executor;
+    private final transient EvalMetrics evalMetrics;
+    private final Duration timeout;
+
+    AsyncEvalServlet(LabelEvaluator labelEvaluator, ExecutorService executor, EvalMetrics evalMetrics,
+                     Duration timeout) {
+        this.labelEvaluator = labelEvaluator;
+        this.executor = executor;
+        this.evalMetrics = evalMetrics;
+        this.timeout = timeout;
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        EvalTimings timings = new EvalTimings();
+        String error = AttributeListLabelEvaluator.checkParameters(request.getParameterMap());
+        if (error != null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, error);
+            return;
+        }
+        String user = request.getParameter(paramUser);
+        String label = request.getParameter(paramLabel);
+
+        CompletableFuture<Outcome> outcome = labelEvaluator.evaluateAsync(user, label, executor, timings);
+        if (outcome.isDone()) {
+            Outcome result = outcome.join();
+            respond(response, user, result, timings);
+            evalMetrics.record(user, label, result, timings);
+            return;
+        }
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(timeout.toMillis());
+        // Whichever of completion and timeout comes first writes the response
+        AtomicBoolean responded = new AtomicBoolean();
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                if (responded.compareAndSet(false, true)) {
+                    LOGGER.warn("Timed out evaluating label for user: {}", user);
+                    outcome.cancel(false);
+                    try {
+                        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Timed out evaluating label");
+                    } finally {
+                        asyncContext.complete();
+                        evalMetrics.record(user, label, null, timings);
+                    }
+                }
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+                // Nothing to do
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                responded.set(true);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+                // Nothing to do
+            }
+        });
+        outcome.whenComplete((result, ex) -> {
+            if (!responded.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                if (ex != null) {
+                    LOGGER.error("Failure in evaluating label for user: {}", user, ex);
+                    response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Failed to evaluate label");
+                } else {
+                    respond(response, user, result, timings);
+                }
+            } catch (IOException e) {
+                LOGGER.error("Failure in returning results", e);
+            } finally {
+                asyncContext.complete();
+                evalMetrics.record(user, label, ex == null ? result : null, timings);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+        super.destroy();
+    }
+
+    private void respond(HttpServletResponse response, String user, Outcome outcome, EvalTimings timings)
+            throws IOException {
+        String serverTiming = evalMetrics.serverTiming(timings);
+        if (serverTiming != null) {
+            response.setHeader(SERVER_TIMING, serverTiming);
+        }
+        if (outcome.isError()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad syntax: " + outcome.syntaxError());
+            return;
+        }
+        JsonObject jObj = JSON.buildObject(jb -> {
+            jb.pair("user", user);
+            jb.pair("result", outcome.result());
+        });
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/json");
+        long writeStart = System.nanoTime();
+        try (ServletOutputStream out = response.getOutputStream()) {
+            JSON.write(out, jObj);
+        }
+        timings.write(System.nanoTime() - writeStart);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import io.telicent.attribute.store.AsyncAttributesStore;
+import io.telicent.attribute.utils.ExcludeFromJacocoGeneratedReport;
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.attributes.ValueTerm;
+import io.telicent.jena.abac.core.AttributesStore;
+import io.telicent.jena.abac.core.CxtABAC;
+import jakarta.servlet.ServletOutputStream;
+import org.apache.jena.atlas.json.JSON;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.fuseki.servlets.ActionService;
+import org.apache.jena.fuseki.servlets.HttpAction;
+import org.apache.jena.fuseki.servlets.ServletOps;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.telicent.attribute.evaluator.AttributeListEvalServer.*;
+
+/**
+ * Evaluates a list of labels for a single user.
+ * <p>
+ * request: POST body:
+ * </p>
+ * <pre>
+ *   {
+ *      "user" : "...",
+ *      "labels" : [ "LABEL", ... ]
+ *   }
+ * </pre>
+ * <p>
+ * response:
+ * </p>
+ * <pre>
+ *   400 - Bad request
+ *   200 - JSON:
+ *   {
+ *      "user" : "...",
+ *      "results" : [ "STRING", ... ]
+ *   }
+ * </pre>
+ * <p>
+ * where each STRING is "true" or "false", in the same order as the given labels. If the user is unknown, every result
+ * is "false".
+ * </p>
+ */
+class AttributeListBatchEvaluator extends ActionService {
+
+    static final String fieldUser = "user";
+    static final String fieldLabels = "labels";
+    private static final ValueTerm dftResult = ValueTerm.FALSE;
+    private final AttributesStore attributesStore;
+    private final LabelCache labelCache;
+
+    AttributeListBatchEvaluator(AttributesStore attrStore, LabelCache labelCache) {
+        this.attributesStore = attrStore;
+        this.labelCache = labelCache;
+    }
+
+    @Override
+    public void execPost(HttpAction action) {
+        executeLifecycle(action);
+    }
+
+    @Override
+    @ExcludeFromJacocoGeneratedReport
+    public void validate(HttpAction action) {
+        // The request body can only be read once, so it is validated as it is parsed in execute.
+    }
+
+    @Override
+    public void execute(HttpAction action) {
+        JsonObject request = readRequest(action);
+        if (request == null) {
+            /*does not*/
+            return;
+        }
+        String user = getString(request, fieldUser);
+        List<String> labels = getStrings(request, fieldLabels);
+        if (user == null || labels == null) {
+            ServletOps.errorBadRequest("Request body needs a 'user' string and a 'labels' array of strings");
+            /*does not*/
+            return;
+        }
+
+        List<String> results = evaluateAll(user, labels);
+        if (results == null) {
+            /*does not*/
+            return;
+        }
+        JsonObject jObj = JSON.buildObject(jb -> {
+            jb.pair(fieldUser, user);
+            jb.key("results").startArray();
+            results.forEach(jb::value);
+            jb.finishArray();
+        });
+
+        try (ServletOutputStream out = action.getResponseOutputStream()) {
+            JSON.write(out, jObj);
+            ServletOps.success(action);
+        } catch (IOException e) {
+            LOGGER.error("Failure in returning results", e);
+        }
+    }
+
+    private List<String> evaluateAll(String user, List<String> labels) {
+        List<String> results = new ArrayList<>(labels.size());
+        AttributesStore store = AsyncAttributesStore.snapshot(attributesStore);
+        AttributeValueSet avSet = store.attributes(user);
+        if (avSet == null) {
+            LOGGER.debug("No attributes for user: {}", user);
+            labels.forEach(label -> results.add(dftResult.asString()));
+            return results;
+        }
+
+        // Parse every label before evaluating any, so a bad label rejects the whole request.
+        List<CompiledLabel> parsedLabels = parseLabels(labelCache, labels);
+        if (parsedLabels == null) {
+            /*does not*/
+            return null;
+        }
+
+        CxtABAC context = CxtABAC.context(avSet, store, null);
+        for (CompiledLabel compiledLabel : parsedLabels) {
+            results.add(ValueTerm.value(compiledLabel.evaluate(context)).asString());
+        }
+        LOGGER.debug("Results for user: {} :: {} labels", user, results.size());
+        return results;
+    }
+}
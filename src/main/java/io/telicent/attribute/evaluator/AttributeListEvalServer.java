@@ -12,28 +12,38 @@
  */
 package io.telicent.attribute.evaluator;
 
+import io.telicent.attribute.evaluator.LabelCache.ParsedLabel;
+import io.telicent.attribute.store.CachedAttributeStore;
 import io.telicent.attribute.utils.ExcludeFromJacocoGeneratedReport;
-import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.attribute.utils.Metrics;
 import io.telicent.jena.abac.attributes.AttributeExpr;
-import io.telicent.jena.abac.attributes.AttributeParser;
-import io.telicent.jena.abac.attributes.AttributeSyntaxError;
 import io.telicent.jena.abac.attributes.ValueTerm;
 import io.telicent.jena.abac.core.AttributesStore;
 import io.telicent.jena.abac.core.CxtABAC;
-import io.telicent.jena.abac.services.LibAuthService;
-import jakarta.servlet.ServletOutputStream;
-import org.apache.jena.atlas.json.JSON;
-import org.apache.jena.atlas.json.JsonObject;
+import jakarta.servlet.http.HttpServlet;
+import org.apache.jena.atlas.json.*;
 import org.apache.jena.atlas.lib.Pair;
 import org.apache.jena.fuseki.servlets.ActionService;
 import org.apache.jena.fuseki.servlets.HttpAction;
+import org.apache.jena.fuseki.servlets.ServletAction;
 import org.apache.jena.fuseki.servlets.ServletOps;
+import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
+import org.eclipse.jetty.ee10.servlet.ServletHolder;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 
 /**
  * Remove this once RDF-ABAC-Eval is available. Move any bug-fixes from here to that module. 1. getOneOnly() reg-ex fix
@@ -47,6 +57,44 @@ public final class AttributeListEvalServer {
      */
     public static final Logger LOGGER = LoggerFactory.getLogger("ALE");
 
+    /**
+     * Path suffix (relative to the evaluation path) for the batch endpoint
+     */
+    public static final String BATCH_SUFFIX = "/batch";
+
+    /**
+     * Path suffix (relative to the evaluation path) for the matrix endpoint
+     */
+    public static final String MATRIX_SUFFIX = "/matrix";
+
+    /**
+     * Path suffix (relative to the evaluation path) for the streaming endpoint
+     */
+    public static final String STREAM_SUFFIX = "/stream";
+
+    /**
+     * Path of the readiness endpoint
+     */
+    public static final String READY_PATH = "/ready";
+
+    /**
+     * Path of the metrics endpoint
+     */
+    public static final String METRICS_PATH = "/metrics";
+
+    /**
+     * Path of the flight recording admin endpoint
+     */
+    public static final String RECORDING_PATH = "/admin/recording";
+
+    /**
+     * Host the admin connector is bound to, so admin endpoints are only reachable from the same machine
+     */
+    public static final String ADMIN_HOST = "localhost";
+
+    private static final String MAIN_CONNECTOR = "main";
+    private static final String ADMIN_CONNECTOR = "admin";
+
     /**
      * Run the Server
      * @param port Port to use
@@ -55,9 +103,360 @@ public final class AttributeListEvalServer {
      * @return The URL for the server.
      */
     public static String run(int port, String path, AttributesStore attrStore) {
-        ActionService actionService = new AttributeListLabelEvaluator(attrStore);
-        String url = LibAuthService.run(port, LOGGER, List.of(Pair.create(path, actionService)));
-        return LibAuthService.serviceURL(url, path);
+        return builder(attrStore).port(port).path(path).start().getURL();
+    }
+
+    /**
+     * Start building a Server
+     * @param attrStore Attribute Store to reference
+     * @return a builder with every other setting at its default
+     */
+    public static Builder builder(AttributesStore attrStore) {
+        return new Builder(attrStore);
+    }
+
+    /**
+     * Settings for a Server, defaulting to: any free port, {@code /eval}, a label cache, no decision cache, the default
+     * {@link ServerSettings} and {@link TimingSettings}, always ready, a new {@link Metrics} registry and no flight
+     * recording endpoint.
+     */
+    public static final class Builder {
+        private final AttributesStore attrStore;
+        private int port = 0;
+        private String path = "/eval";
+        private LabelCache labelCache = new LabelCache(true, LabelCache.DEFAULT_MAXIMUM_SIZE);
+        private DecisionCache decisionCache = new DecisionCache(false, DecisionCache.DEFAULT_MAXIMUM_SIZE);
+        private ServerSettings serverSettings = ServerSettings.DEFAULT;
+        private BooleanSupplier ready = () -> true;
+        private Metrics metrics = new Metrics();
+        private TimingSettings timingSettings = TimingSettings.DEFAULT;
+        private FlightRecordings recordings;
+        private int adminPort = 0;
+
+        private Builder(AttributesStore attrStore) {
+            this.attrStore = attrStore;
+        }
+
+        /**
+         * @param port Port to use (0 for any free port)
+         * @return this builder
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * @param path Path of the evaluation endpoint
+         * @return this builder
+         */
+        public Builder path(String path) {
+            this.path = path;
+            return this;
+        }
+
+        /**
+         * @param labelCache Cache of parsed labels
+         * @return this builder
+         */
+        public Builder labelCache(LabelCache labelCache) {
+            this.labelCache = labelCache;
+            return this;
+        }
+
+        /**
+         * @param decisionCache Cache of evaluation results
+         * @return this builder
+         */
+        public Builder decisionCache(DecisionCache decisionCache) {
+            this.decisionCache = decisionCache;
+            return this;
+        }
+
+        /**
+         * @param serverSettings Jetty thread pool and connector settings
+         * @return this builder
+         */
+        public Builder serverSettings(ServerSettings serverSettings) {
+            this.serverSettings = serverSettings;
+            return this;
+        }
+
+        /**
+         * @param ready Whether the server is ready for traffic (reported on {@value #READY_PATH})
+         * @return this builder
+         */
+        public Builder ready(BooleanSupplier ready) {
+            this.ready = ready;
+            return this;
+        }
+
+        /**
+         * @param metrics Registry for the server's metrics (reported on {@value #METRICS_PATH}), to which the
+         *                evaluation, cache and (if cached) attribute store metrics are added
+         * @return this builder
+         */
+        public Builder metrics(Metrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * @param timingSettings How the per-phase timings of {@code /eval} requests are reported
+         * @return this builder
+         */
+        public Builder timingSettings(TimingSettings timingSettings) {
+            this.timingSettings = timingSettings;
+            return this;
+        }
+
+        /**
+         * @param recordings Flight recording controlled on {@value #RECORDING_PATH} (null for no such endpoint)
+         * @return this builder
+         */
+        public Builder recordings(FlightRecordings recordings) {
+            this.recordings = recordings;
+            return this;
+        }
+
+        /**
+         * @param adminPort Port of the admin connector, bound to {@value #ADMIN_HOST}, that serves
+         *                  {@value #RECORDING_PATH} (0 for any free port; only opened if there are recordings)
+         * @return this builder
+         */
+        public Builder adminPort(int adminPort) {
+            this.adminPort = adminPort;
+            return this;
+        }
+
+        /**
+         * Start the Server
+         * @return The running server.
+         */
+        public EvalServer start() {
+            EvalMetrics evalMetrics = new EvalMetrics(metrics, timingSettings);
+            registerMetrics(metrics, attrStore, labelCache, decisionCache);
+            LabelEvaluator labelEvaluator = new LabelEvaluator(attrStore, labelCache, decisionCache);
+            HttpServlet evalServlet = serverSettings.async()
+                    ? new AsyncEvalServlet(labelEvaluator, Executors.newVirtualThreadPerTaskExecutor(), evalMetrics,
+                                           serverSettings.asyncTimeout())
+                    : servlet(new AttributeListLabelEvaluator(labelEvaluator, evalMetrics));
+            HttpServlet batchServlet = servlet(new AttributeListBatchEvaluator(attrStore, labelCache));
+            HttpServlet matrixServlet = servlet(new AttributeListMatrixEvaluator(attrStore, labelCache));
+            HttpServlet streamServlet = servlet(new AttributeListStreamEvaluator(labelEvaluator));
+            List<Pair<String, HttpServlet>> servlets =
+                    List.of(Pair.create(path, evalServlet),
+                            Pair.create(path + BATCH_SUFFIX, batchServlet),
+                            Pair.create(path + MATRIX_SUFFIX, matrixServlet),
+                            Pair.create(path + STREAM_SUFFIX, streamServlet),
+                            Pair.create(READY_PATH, new ReadyServlet(ready)),
+                            Pair.create(METRICS_PATH, new MetricsServlet(metrics)));
+            List<Pair<String, HttpServlet>> adminServlets = recordings == null
+                    ? List.of()
+                    : List.of(Pair.create(RECORDING_PATH, new RecordingServlet(recordings)));
+            return startServer(port, path, serverSettings, servlets, adminPort, adminServlets);
+        }
+    }
+
+    private static void registerMetrics(Metrics metrics, AttributesStore attrStore, LabelCache labelCache,
+                                        DecisionCache decisionCache) {
+        String labelCacheLookups = "Label cache lookups";
+        String decisionCacheLookups = "Decision cache lookups";
+        metrics.counter("ale_label_cache_lookups_total", labelCacheLookups, labelCache::hitCount, "result", "hit")
+               .counter("ale_label_cache_lookups_total", labelCacheLookups, labelCache::missCount, "result", "miss")
+               .counter("ale_decision_cache_lookups_total", decisionCacheLookups, decisionCache::hitCount,
+                        "result", "hit")
+               .counter("ale_decision_cache_lookups_total", decisionCacheLookups, decisionCache::missCount,
+                        "result", "miss");
+        if (attrStore instanceof CachedAttributeStore cachedStore) {
+            cachedStore.registerMetrics(metrics);
+        }
+    }
+
+    /**
+     * Build and start a Jetty server for the given servlets.
+     * <p>
+     * Replaces {@code LibAuthService.run}, which always uses a fixed test-style thread pool.
+     * </p>
+     * @param port Port to use (0 for any free port)
+     * @param path Path of the evaluation endpoint, used for the server's URL
+     * @param serverSettings Jetty thread pool and connector settings
+     * @param servlets the servlets, by path
+     * @return the running server
+     */
+    static EvalServer startServer(int port, String path, ServerSettings serverSettings,
+                                  List<Pair<String, HttpServlet>> servlets) {
+        return startServer(port, path, serverSettings, servlets, 0, List.of());
+    }
+
+    /**
+     * Build and start a Jetty server for the given servlets, with any admin servlets on a second connector bound to
+     * {@value #ADMIN_HOST}, so they cannot be reached through the public port
+     * @param port Port to use (0 for any free port)
+     * @param path Path of the evaluation endpoint, used for the server's URL
+     * @param serverSettings Jetty thread pool and connector settings
+     * @param servlets the servlets, by path
+     * @param adminPort Port of the admin connector (0 for any free port)
+     * @param adminServlets the admin servlets, by path (empty for no admin connector)
+     * @return the running server
+     */
+    static EvalServer startServer(int port, String path, ServerSettings serverSettings,
+                                  List<Pair<String, HttpServlet>> servlets, int adminPort,
+                                  List<Pair<String, HttpServlet>> adminServlets) {
+        Server server = new Server(serverSettings.threadPool());
+        ServerConnector connector =
+                new ServerConnector(server, serverSettings.acceptors(), serverSettings.selectors());
+        connector.setName(MAIN_CONNECTOR);
+        connector.setPort(port);
+        // Acceptors and selectors each hold a pool thread for good, so leave at least one to serve requests
+        int reservedThreads = connector.getAcceptors() + connector.getSelectorManager().getSelectorCount();
+        ServerConnector adminConnector = null;
+        if (!adminServlets.isEmpty()) {
+            adminConnector = new ServerConnector(server, 1, 1);
+            adminConnector.setName(ADMIN_CONNECTOR);
+            adminConnector.setHost(ADMIN_HOST);
+            adminConnector.setPort(adminPort);
+            reservedThreads += adminConnector.getAcceptors() + adminConnector.getSelectorManager().getSelectorCount();
+        }
+        if (serverSettings.maxThreads() <= reservedThreads) {
+            throw new IllegalArgumentException("Bad thread counts: maxThreads (" + serverSettings.maxThreads()
+                                               + ") must exceed acceptors plus selectors (" + reservedThreads + ")");
+        }
+        server.addConnector(connector);
+        if (adminConnector == null) {
+            server.setHandler(context(servlets, MAIN_CONNECTOR));
+        } else {
+            server.addConnector(adminConnector);
+            server.setHandler(new ContextHandlerCollection(context(servlets, MAIN_CONNECTOR),
+                                                           context(adminServlets, ADMIN_CONNECTOR)));
+        }
+        try {
+            server.start();
+        } catch (Exception ex) {
+            throw new IllegalStateException("Failed to start server on port " + port, ex);
+        }
+        String host = connector.getHost() == null ? "localhost" : connector.getHost();
+        String adminURL = adminConnector == null ? null
+                : "http://" + ADMIN_HOST + ":" + adminConnector.getLocalPort();
+        return new EvalServer(server, "http://" + host + ":" + connector.getLocalPort() + path,
+                              connector.getLocalPort(), adminURL);
+    }
+
+    /**
+     * A context for the given servlets that only answers requests arriving on the named connector
+     */
+    private static ServletContextHandler context(List<Pair<String, HttpServlet>> servlets, String connectorName) {
+        ServletContextHandler handler = new ServletContextHandler();
+        handler.setVirtualHosts(List.of("@" + connectorName));
+        for (Pair<String, HttpServlet> servlet : servlets) {
+            ServletHolder holder = new ServletHolder(servlet.getRight());
+            holder.setAsyncSupported(true);
+            handler.addServlet(holder, servlet.getLeft());
+        }
+        return handler;
+    }
+
+    private static HttpServlet servlet(ActionService actionService) {
+        return new ServletAction(actionService, LOGGER);
+    }
+
+    /**
+     * Evaluate a parsed label list within the given context.
+     * <p>
+     * Every expression must evaluate to true; a zero length list evaluates to false. This is the reference evaluation;
+     * requests are evaluated with the equivalent {@link CompiledLabel}.
+     * </p>
+     * @param attrExprs parsed label expressions
+     * @param context evaluation context for the user
+     * @return true if access is allowed
+     */
+    static boolean evaluate(List<AttributeExpr> attrExprs, CxtABAC context) {
+        // Default of a zero length list.
+        boolean allow = ValueTerm.FALSE.getBoolean();
+        for (AttributeExpr attrExpr : attrExprs) {
+            ValueTerm vt = attrExpr.eval(context);
+            allow = vt.getBoolean();
+            if (!allow) {
+                break;
+            }
+        }
+        return allow;
+    }
+
+    /**
+     * Parse every label in the list (using the label cache), rejecting the request if any label is bad
+     * @param labelCache cache of parsed labels
+     * @param labels labels to parse
+     * @return the compiled labels in the same order, or null if the request has already been rejected
+     */
+    static List<CompiledLabel> parseLabels(LabelCache labelCache, List<String> labels) {
+        List<CompiledLabel> parsedLabels = new ArrayList<>(labels.size());
+        for (int i = 0; i < labels.size(); i++) {
+            ParsedLabel parsedLabel = labelCache.parse(labels.get(i));
+            if (parsedLabel.isError()) {
+                ServletOps.errorBadRequest("Bad syntax in label " + i + ": " + parsedLabel.error());
+                /*does not*/
+                return null;
+            }
+            parsedLabels.add(parsedLabel.compiled());
+        }
+        return parsedLabels;
+    }
+
+    /**
+     * Read the JSON object from the request body
+     * @param action the HTTP action
+     * @return the request object, or null if the request has already been rejected
+     */
+    static JsonObject readRequest(HttpAction action) {
+        try (InputStream in = action.getRequestInputStream()) {
+            JsonValue value = JSON.parseAny(in);
+            if (value.isObject()) {
+                return value.getAsObject();
+            }
+            ServletOps.errorBadRequest("Request body must be a JSON object");
+        } catch (JsonParseException ex) {
+            ServletOps.errorBadRequest("Bad JSON in request body: " + ex.getMessage());
+        } catch (IOException ex) {
+            ServletOps.errorBadRequest("Failed to read request body: " + ex.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Get a string field from the given object
+     * @param jObj JSON object
+     * @param field field name
+     * @return the string value, or null if missing or not a string
+     */
+    static String getString(JsonObject jObj, String field) {
+        JsonValue value = jObj.get(field);
+        if (value == null || !value.isString()) {
+            return null;
+        }
+        return value.getAsString().value();
+    }
+
+    /**
+     * Get an array of strings from the given object
+     * @param jObj JSON object
+     * @param field field name
+     * @return the string values, or null if missing or not an array of strings
+     */
+    static List<String> getStrings(JsonObject jObj, String field) {
+        JsonValue value = jObj.get(field);
+        if (value == null || !value.isArray()) {
+            return null;
+        }
+        JsonArray array = value.getAsArray();
+        List<String> strings = new ArrayList<>(array.size());
+        for (JsonValue element : array) {
+            if (!element.isString()) {
+                return null;
+            }
+            strings.add(element.getAsString().value());
+        }
+        return strings;
     }
 
     /**
@@ -67,13 +466,15 @@ public final class AttributeListEvalServer {
      */
     static class AttributeListLabelEvaluator extends ActionService {
 
-        private static final String paramUser = "user";
-        private static final String paramLabel = "label";
-        private static final ValueTerm dftResult = ValueTerm.FALSE;
-        private final AttributesStore attributesStore;
+        static final String paramUser = "user";
+        static final String paramLabel = "label";
+        static final String SERVER_TIMING = "Server-Timing";
+        private final LabelEvaluator labelEvaluator;
+        private final EvalMetrics evalMetrics;
 
-        public AttributeListLabelEvaluator(AttributesStore attrStore) {
-            this.attributesStore = attrStore;
+        public AttributeListLabelEvaluator(LabelEvaluator labelEvaluator, EvalMetrics evalMetrics) {
+            this.labelEvaluator = labelEvaluator;
+            this.evalMetrics = evalMetrics;
         }
 
         // Implemented methods.
@@ -85,22 +486,34 @@ public final class AttributeListEvalServer {
         @Override
         @ExcludeFromJacocoGeneratedReport
         public void validate(HttpAction action) {
-            Map<String, String[]> m = action.getRequestParameterMap();
+            String error = checkParameters(action.getRequestParameterMap());
+            if (error != null) {
+                ServletOps.errorBadRequest(error);
+            }
+        }
+
+        /**
+         * Check the request has exactly one user and one label
+         * @param m the request parameters
+         * @return the reason the request is bad, or null if it is good
+         */
+        static String checkParameters(Map<String, String[]> m) {
             if (!m.containsKey(paramLabel) && !m.containsKey(paramUser)) {
-                ServletOps.errorBadRequest("No 'label' and no 'user' query parameter");
+                return "No 'label' and no 'user' query parameter";
             }
             if (!m.containsKey(paramLabel)) {
-                ServletOps.errorBadRequest("No 'label' query parameter");
+                return "No 'label' query parameter";
             }
             if (!m.containsKey(paramUser)) {
-                ServletOps.errorBadRequest("No 'user' query parameter");
+                return "No 'user' query parameter";
             }
             if (m.get(paramUser).length >= 2) {
-                ServletOps.errorBadRequest("More than one 'user' query parameter");
+                return "More than one 'user' query parameter";
             }
             if (m.get(paramLabel).length >= 2) {
-                ServletOps.errorBadRequest("More than one 'label' query parameter");
+                return "More than one 'label' query parameter";
             }
+            return null;
         }
 
         /** execute
@@ -130,56 +543,68 @@ public final class AttributeListEvalServer {
         @Override
         @ExcludeFromJacocoGeneratedReport
         public void execute(HttpAction action) {
+            EvalTimings timings = new EvalTimings();
             // c.f. GSPLib. Move to one place!
             String user = getOneOnly(action, paramUser);
             String label = getOneOnly(action, paramLabel);
 
-            JsonObject jObj = JSON.buildObject(jb -> {
-                jb.pair("user", user);
-
-                AttributeValueSet avSet = attributesStore.attributes(user);
-                if (avSet == null) {
-                    LOGGER.info("No attributes for user: " + user);
-                    // Return false.
-                    jb.pair("result", dftResult.asString());
-                    return;
-                }
-
-                // Parse - evaluate
-                List<AttributeExpr> attrExprs;
-                try {
-                    attrExprs = AttributeParser.parseAttrExprList(label);
-                } catch (AttributeSyntaxError ex) {
-                    ServletOps.errorBadRequest("Bad syntax: " + ex.getMessage());
-                    /*does not*/
-                    return;
-                }
-
-                CxtABAC context = CxtABAC.context(avSet, attributesStore, null);
-                // Default of a zero length list.
-                boolean allow = dftResult.getBoolean();
-                for (AttributeExpr attrExpr : attrExprs) {
-                    ValueTerm vt = attrExpr.eval(context);
-                    allow = vt.getBoolean();
-                    if (!allow) {
-                        break;
-                    }
-                }
-                ValueTerm vt = ValueTerm.value(allow);
-                jb.pair("result", vt.asString());
-                LOGGER.info("Result for user: " + user + " :: " + allow);
+            LabelEvaluator.Outcome outcome = handle(user, label, timings, action::setResponseHeader, () -> {
+                ServletOps.success(action);
+                return action.getResponseOutputStream();
             });
+            if (outcome.isError()) {
+                ServletOps.errorBadRequest("Bad syntax: " + outcome.syntaxError());
+            }
+        }
 
-            try (ServletOutputStream out = action.getResponseOutputStream()) {
-                JSON.write(out, jObj);
-                ServletOps.success(action);
-            } catch (IOException e) {
-                LOGGER.error("Failure in returning results", e);
+        /**
+         * Evaluate one request, write its response and record it: everything {@link #execute(HttpAction)} does apart
+         * from reading the parameters and rejecting a bad label
+         * @param user the user
+         * @param label the label
+         * @param timings the request's timings, started when it arrived
+         * @param setHeader sets a response header
+         * @param body opens the response body (only called if there is a result to write)
+         * @return the outcome (if it is a syntax error, nothing has been written)
+         */
+        LabelEvaluator.Outcome handle(String user, String label, EvalTimings timings,
+                                      BiConsumer<String, String> setHeader, ResponseBody body) {
+            LabelEvaluator.Outcome outcome = labelEvaluator.evaluate(user, label, timings);
+            String serverTiming = evalMetrics.serverTiming(timings);
+            if (serverTiming != null) {
+                setHeader.accept(SERVER_TIMING, serverTiming);
+            }
+            if (!outcome.isError()) {
+                JsonObject jObj = JSON.buildObject(jb -> {
+                    jb.pair("user", user);
+                    jb.pair("result", outcome.result());
+                });
+                long writeStart = System.nanoTime();
+                try (OutputStream out = body.open()) {
+                    JSON.write(out, jObj);
+                } catch (IOException e) {
+                    LOGGER.error("Failure in returning results", e);
+                }
+                timings.write(System.nanoTime() - writeStart);
             }
+            evalMetrics.record(user, label, outcome, timings);
+            return outcome;
         }
 
         private String getOneOnly(HttpAction action, String param) {
             return action.getRequestParameter(param);
         }
+
+        /**
+         * Where a response is written
+         */
+        @FunctionalInterface
+        interface ResponseBody {
+            /**
+             * @return the response body stream, closed once the response is written
+             * @throws IOException if it cannot be opened
+             */
+            OutputStream open() throws IOException;
+        }
     }
 }
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import io.telicent.attribute.store.AsyncAttributesStore;
+import io.telicent.attribute.utils.ExcludeFromJacocoGeneratedReport;
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.core.AttributesStore;
+import io.telicent.jena.abac.core.CxtABAC;
+import jakarta.servlet.ServletOutputStream;
+import org.apache.jena.atlas.json.JSON;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.fuseki.servlets.ActionService;
+import org.apache.jena.fuseki.servlets.HttpAction;
+import org.apache.jena.fuseki.servlets.ServletOps;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static io.telicent.attribute.evaluator.AttributeListEvalServer.*;
+
+/**
+ * Evaluates every label in a list for every user in a list.
+ * <p>
+ * request: POST body:
+ * </p>
+ * <pre>
+ *   {
+ *      "users" : [ "USER", ... ],
+ *      "labels" : [ "LABEL", ... ]
+ *   }
+ * </pre>
+ * <p>
+ * response:
+ * </p>
+ * <pre>
+ *   400 - Bad request
+ *   200 - JSON:
+ *   {
+ *      "users" : [ "USER", ... ],
+ *      "results" : [ "BITMAP", ... ]
+ *   }
+ * </pre>
+ * <p>
+ * where each BITMAP is the Base64 encoding of the allow bits for the user at the same position. Bit {@code j} (for the
+ * label at position {@code j}) is bit {@code j % 8} (least significant first) of byte {@code j / 8}, and each bitmap is
+ * {@code ceil(labels / 8)} bytes long. Unknown users have no bits set.
+ * </p>
+ * <p>
+ * Each label is parsed once and each user's attributes are fetched once. Large matrices are evaluated in parallel on
+ * virtual threads, with at most {@link #MAX_PARALLELISM} users in flight.
+ * </p>
+ */
+class AttributeListMatrixEvaluator extends ActionService {
+
+    static final String fieldUsers = "users";
+    static final String fieldLabels = "labels";
+    /**
+     * Number of user/label pairs above which users are evaluated in parallel
+     */
+    static final long PARALLEL_THRESHOLD = 10_000;
+    /**
+     * Maximum number of users evaluated at the same time for a single request
+     */
+    static final int MAX_PARALLELISM = 16;
+    private final AttributesStore attributesStore;
+    private final LabelCache labelCache;
+
+    AttributeListMatrixEvaluator(AttributesStore attrStore, LabelCache labelCache) {
+        this.attributesStore = attrStore;
+        this.labelCache = labelCache;
+    }
+
+    @Override
+    public void execPost(HttpAction action) {
+        executeLifecycle(action);
+    }
+
+    @Override
+    @ExcludeFromJacocoGeneratedReport
+    public void validate(HttpAction action) {
+        // The request body can only be read once, so it is validated as it is parsed in execute.
+    }
+
+    @Override
+    public void execute(HttpAction action) {
+        JsonObject request = readRequest(action);
+        if (request == null) {
+            /*does not*/
+            return;
+        }
+        List<String> users = getStrings(request, fieldUsers);
+        List<String> labels = getStrings(request, fieldLabels);
+        if (users == null || labels == null) {
+            ServletOps.errorBadRequest("Request body needs a 'users' array and a 'labels' array of strings");
+            /*does not*/
+            return;
+        }
+        List<CompiledLabel> parsedLabels = parseLabels(labelCache, labels);
+        if (parsedLabels == null) {
+            /*does not*/
+            return;
+        }
+
+        byte[][] bitmaps = new byte[users.size()][];
+        if ((long) users.size() * labels.size() >= PARALLEL_THRESHOLD) {
+            evaluateParallel(users, parsedLabels, bitmaps);
+        } else {
+            for (int i = 0; i < users.size(); i++) {
+                bitmaps[i] = evaluateUser(users.get(i), parsedLabels);
+            }
+        }
+
+        Base64.Encoder encoder = Base64.getEncoder();
+        JsonObject jObj = JSON.buildObject(jb -> {
+            jb.key(fieldUsers).startArray();
+            users.forEach(jb::value);
+            jb.finishArray();
+            jb.key("results").startArray();
+            for (byte[] bitmap : bitmaps) {
+                jb.value(encoder.encodeToString(bitmap));
+            }
+            jb.finishArray();
+        });
+        LOGGER.debug("Matrix results for {} users :: {} labels", users.size(), labels.size());
+
+        try (ServletOutputStream out = action.getResponseOutputStream()) {
+            JSON.write(out, jObj);
+            ServletOps.success(action);
+        } catch (IOException e) {
+            LOGGER.error("Failure in returning results", e);
+        }
+    }
+
+    /**
+     * Evaluate users in at most {@link #MAX_PARALLELISM} slices, each on its own virtual thread, so that blocking
+     * attribute lookups neither tie up the common fork-join pool nor fan out without bound.
+     * @param users the users
+     * @param parsedLabels the compiled labels
+     * @param bitmaps the allow bitmaps, filled in at the same positions as the users
+     */
+    void evaluateParallel(List<String> users, List<CompiledLabel> parsedLabels, byte[][] bitmaps) {
+        int slices = Math.min(MAX_PARALLELISM, users.size());
+        List<Future<?>> futures = new ArrayList<>(slices);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int slice = 0; slice < slices; slice++) {
+                int first = slice;
+                futures.add(executor.submit(() -> {
+                    for (int i = first; i < users.size(); i += slices) {
+                        bitmaps[i] = evaluateUser(users.get(i), parsedLabels);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted evaluating matrix", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Failed evaluating matrix", e.getCause());
+        }
+    }
+
+    /**
+     * Evaluate every label for a single user
+     * @param user the user
+     * @param parsedLabels the compiled labels
+     * @return the allow bitmap for the user
+     */
+    byte[] evaluateUser(String user, List<CompiledLabel> parsedLabels) {
+        byte[] bitmap = new byte[(parsedLabels.size() + 7) / 8];
+        AttributesStore store = AsyncAttributesStore.snapshot(attributesStore);
+        AttributeValueSet avSet = store.attributes(user);
+        if (avSet == null) {
+            return bitmap;
+        }
+        CxtABAC context = CxtABAC.context(avSet, store, null);
+        for (int j = 0; j < parsedLabels.size(); j++) {
+            if (parsedLabels.get(j).evaluate(context)) {
+                bitmap[j >> 3] |= (byte) (1 << (j & 7));
+            }
+        }
+        return bitmap;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import io.telicent.attribute.utils.ExcludeFromJacocoGeneratedReport;
+import org.apache.jena.atlas.json.JSON;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.atlas.json.JsonParseException;
+import org.apache.jena.atlas.json.JsonValue;
+import org.apache.jena.fuseki.servlets.ActionService;
+import org.apache.jena.fuseki.servlets.HttpAction;
+import org.apache.jena.fuseki.servlets.ServletOps;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+import static io.telicent.attribute.evaluator.AttributeListEvalServer.*;
+
+/**
+ * Evaluates a stream of user/label pairs.
+ * <p>
+ * request: POST body, newline-delimited JSON:
+ * </p>
+ * <pre>
+ *   { "user" : "...", "label" : "..." }
+ *   { "user" : "...", "label" : "..." }
+ * </pre>
+ * <p>
+ * response: newline-delimited JSON, one line per (non-blank) request line, in order:
+ * </p>
+ * <pre>
+ *   { "user" : "...", "label" : "...", "result" : "STRING" }
+ *   { "user" : "...", "label" : "...", "error" : "..." }
+ * </pre>
+ * <p>
+ * Each line is evaluated exactly as {@code /eval} would evaluate it, but a bad line produces an "error" line rather
+ * than failing the whole request. The request is read and the response written incrementally, so memory use does not
+ * depend on the size of the body, and a slow reader blocks the evaluation rather than letting results pile up.
+ * </p>
+ */
+class AttributeListStreamEvaluator extends ActionService {
+
+    static final String contentTypeNDJSON = "application/x-ndjson";
+    /**
+     * Longest request line accepted; longer lines are skipped and reported as errors
+     */
+    static final int MAX_LINE_LENGTH = 64 * 1024;
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private final LabelEvaluator labelEvaluator;
+
+    AttributeListStreamEvaluator(LabelEvaluator labelEvaluator) {
+        this.labelEvaluator = labelEvaluator;
+    }
+
+    @Override
+    public void execPost(HttpAction action) {
+        executeLifecycle(action);
+    }
+
+    @Override
+    @ExcludeFromJacocoGeneratedReport
+    public void validate(HttpAction action) {
+        // Each line is validated as it is read; bad lines are reported in the response.
+    }
+
+    @Override
+    public void execute(HttpAction action) {
+        long lines = 0;
+        try (BufferedReader in = new BufferedReader(
+                     new InputStreamReader(action.getRequestInputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+             Writer out = new BufferedWriter(
+                     new OutputStreamWriter(action.getResponseOutputStream(), StandardCharsets.UTF_8),
+                     BUFFER_SIZE)) {
+            action.setResponseContentType(contentTypeNDJSON);
+            ServletOps.success(action);
+            LineReader reader = new LineReader(in);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    lines++;
+                    out.write(JSON.toStringFlat(evaluateLine(line, reader.truncated)));
+                    out.write('\n');
+                }
+                // Nothing more to hand - push out what we have rather than holding it back
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failure in streaming results after " + lines + " lines", e);
+            return;
+        }
+        LOGGER.debug("Streamed results :: {} lines", lines);
+    }
+
+    private JsonObject evaluateLine(String line, boolean truncated) {
+        if (truncated) {
+            return errorLine(null, null, "Line longer than " + MAX_LINE_LENGTH + " characters");
+        }
+        JsonObject request;
+        try {
+            JsonValue value = JSON.parseAny(line);
+            if (!value.isObject()) {
+                return errorLine(null, null, "Line must be a JSON object");
+            }
+            request = value.getAsObject();
+        } catch (JsonParseException ex) {
+            return errorLine(null, null, "Bad JSON: " + ex.getMessage());
+        }
+        String user = getString(request, "user");
+        String label = getString(request, "label");
+        if (user == null || label == null) {
+            return errorLine(user, label, "Line needs a 'user' string and a 'label' string");
+        }
+        LabelEvaluator.Outcome outcome = labelEvaluator.evaluate(user, label);
+        if (outcome.isError()) {
+            return errorLine(user, label, "Bad syntax: " + outcome.syntaxError());
+        }
+        return JSON.buildObject(jb -> {
+            jb.pair("user", user);
+            jb.pair("label", label);
+            jb.pair("result", outcome.result());
+        });
+    }
+
+    private static JsonObject errorLine(String user, String label, String message) {
+        return JSON.buildObject(jb -> {
+            if (user != null) {
+                jb.pair("user", user);
+            }
+            if (label != null) {
+                jb.pair("label", label);
+            }
+            jb.pair("error", message);
+        });
+    }
+
+    /**
+     * Reads lines of at most {@link #MAX_LINE_LENGTH} characters. The remainder of a longer line is skipped, and
+     * {@link #truncated} is set for it.
+     */
+    static class LineReader {
+        private final BufferedReader in;
+        private final StringBuilder line = new StringBuilder();
+        boolean truncated;
+
+        LineReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        String readLine() throws IOException {
+            line.setLength(0);
+            truncated = false;
+            int ch = in.read();
+            if (ch == -1) {
+                return null;
+            }
+            while (ch != -1 && ch != '\n') {
+                if (line.length() < MAX_LINE_LENGTH) {
+                    line.append((char) ch);
+                } else {
+                    truncated = true;
+                }
+                ch = in.read();
+            }
+            return line.toString();
+        }
+    }
+}
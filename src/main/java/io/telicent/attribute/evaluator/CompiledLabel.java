@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import io.telicent.jena.abac.attributes.AttributeExpr;
+import io.telicent.jena.abac.core.CxtABAC;
+
+import java.util.List;
+
+/**
+ * A parsed label list held ready for evaluation.
+ * <p>
+ * The reference evaluation ({@link AttributeListEvalServer#evaluate(List, CxtABAC)}) walks the list with an iterator
+ * on every request. The compiled form copies the list into a plain array once, when the label is parsed, and
+ * evaluates it as a short-circuit AND over that array.
+ * </p>
+ * <p>
+ * Only the list-level AND is compiled. Each expression in the list is still evaluated by its own expression tree, and
+ * hierarchy comparisons inside it are resolved by the attribute store (whose hierarchies are indexed by rank, see
+ * {@link io.telicent.attribute.store.RankedValueList}).
+ * </p>
+ */
+public final class CompiledLabel {
+
+    private final AttributeExpr[] exprs;
+
+    private CompiledLabel(AttributeExpr[] exprs) {
+        this.exprs = exprs;
+    }
+
+    /**
+     * Compile the parsed label list
+     * @param attrExprs parsed label expressions
+     * @return the compiled label
+     */
+    public static CompiledLabel compile(List<AttributeExpr> attrExprs) {
+        return new CompiledLabel(attrExprs.toArray(new AttributeExpr[0]));
+    }
+
+    /**
+     * Evaluate the label within the given context: every expression must be true, and a zero length list is never
+     * allowed
+     * @param context evaluation context for the user
+     * @return true if access is allowed
+     */
+    public boolean evaluate(CxtABAC context) {
+        if (exprs.length == 0) {
+            return false;
+        }
+        for (AttributeExpr expr : exprs) {
+            if (!expr.eval(context).getBoolean()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.core.AttributesStore;
+import io.telicent.jena.abac.core.CxtABAC;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded cache of evaluation results, keyed by user and label.
+ * <p>
+ * Each result remembers the user attributes and the hierarchies it was evaluated against. A cached result is only
+ * used while the attribute store still returns those same instances, so once a cached user or hierarchy entry is
+ * replaced or expires (and is loaded again), every result that depended on it is re-evaluated rather than served
+ * stale. This works best in front of the local store or {@link io.telicent.attribute.store.CachedAttributeStore}; an
+ * uncached remote store returns new instances on every call, so results are never reused.
+ * </p>
+ */
+public class DecisionCache {
+
+    /**
+     * Default maximum number of results held
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 100_000;
+
+    private final Cache<DecisionKey, Decision> cache;
+
+    /**
+     * Create new Decision Cache
+     * @param enabled whether to cache results at all
+     * @param maximumSize maximum number of results to hold
+     */
+    public DecisionCache(boolean enabled, long maximumSize) {
+        cache = enabled ? Caffeine.newBuilder().recordStats().maximumSize(maximumSize).build() : null;
+    }
+
+    /**
+     * Look up the result for the user and label, if it is still valid
+     * @param user the user
+     * @param label the (unparsed) label
+     * @param avSet the user's current attributes
+     * @param attributesStore the store that supplied the attributes (used to check hierarchies)
+     * @return the cached result, or null if there is no valid result
+     */
+    public Boolean get(String user, String label, AttributeValueSet avSet, AttributesStore attributesStore) {
+        if (cache == null) {
+            return null;
+        }
+        Decision decision = cache.getIfPresent(new DecisionKey(user, label));
+        if (decision == null || !decision.isValid(avSet, attributesStore)) {
+            return null;
+        }
+        return decision.allow();
+    }
+
+    /**
+     * Evaluate the parsed label for the user, and cache the result
+     * @param user the user
+     * @param label the (unparsed) label
+     * @param avSet the user's current attributes
+     * @param compiledLabel the parsed and compiled label
+     * @param attributesStore the store that supplied the attributes
+     * @return true if access is allowed
+     */
+    public boolean evaluate(String user, String label, AttributeValueSet avSet, CompiledLabel compiledLabel,
+                            AttributesStore attributesStore) {
+        if (cache == null) {
+            return compiledLabel.evaluate(CxtABAC.context(avSet, attributesStore, null));
+        }
+        RecordingAttributesStore recorder = new RecordingAttributesStore(attributesStore);
+        boolean allow = compiledLabel.evaluate(CxtABAC.context(avSet, recorder, null));
+        if (recorder.consistent) {
+            cache.put(new DecisionKey(user, label), new Decision(avSet, recorder.hierarchies, allow));
+        }
+        return allow;
+    }
+
+    /**
+     * Drop every cached result (e.g. when the attribute store has been replaced, whose results can no longer be used)
+     */
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Whether the cache is in use
+     * @return true if results are cached
+     */
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Number of lookups that found a result (valid or not)
+     * @return hit count
+     */
+    public long hitCount() {
+        return cache == null ? 0 : cache.stats().hitCount();
+    }
+
+    /**
+     * Number of lookups that found no result
+     * @return miss count
+     */
+    public long missCount() {
+        return cache == null ? 0 : cache.stats().missCount();
+    }
+
+    private record DecisionKey(String user, String label) {}
+
+    private record Decision(AttributeValueSet attributes, Map<Attribute, Hierarchy> hierarchies, boolean allow) {
+
+        boolean isValid(AttributeValueSet avSet, AttributesStore attributesStore) {
+            if (attributes != avSet) {
+                return false;
+            }
+            for (Map.Entry<Attribute, Hierarchy> entry : hierarchies.entrySet()) {
+                if (attributesStore.getHierarchy(entry.getKey()) != entry.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Wraps the attribute store for a single evaluation, recording every hierarchy it hands out (including the absence
+     * of one). If a hierarchy changes part way through the evaluation the result is not cached.
+     */
+    private static class RecordingAttributesStore implements AttributesStore {
+        private final AttributesStore underlyingStore;
+        private final Map<Attribute, Hierarchy> hierarchies = new HashMap<>();
+        private boolean consistent = true;
+
+        RecordingAttributesStore(AttributesStore underlyingStore) {
+            this.underlyingStore = underlyingStore;
+        }
+
+        @Override
+        public AttributeValueSet attributes(String user) {
+            return underlyingStore.attributes(user);
+        }
+
+        @Override
+        public Set<String> users() {
+            return underlyingStore.users();
+        }
+
+        @Override
+        public boolean hasHierarchy(Attribute attribute) {
+            // From the recorded hierarchy, so the answer cannot differ from what the result is cached against
+            Hierarchy hierarchy = getHierarchy(attribute);
+            return hierarchy != null && !hierarchy.values().isEmpty();
+        }
+
+        @Override
+        public Hierarchy getHierarchy(Attribute attribute) {
+            Hierarchy hierarchy = underlyingStore.getHierarchy(attribute);
+            record(attribute, hierarchy);
+            return hierarchy;
+        }
+
+        private void record(Attribute attribute, Hierarchy hierarchy) {
+            if (hierarchies.containsKey(attribute)) {
+                consistent &= hierarchies.get(attribute) == hierarchy;
+            } else {
+                hierarchies.put(attribute, hierarchy);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import io.telicent.attribute.evaluator.LabelEvaluator.Outcome;
+import io.telicent.attribute.utils.Metrics;
+import io.telicent.attribute.utils.Metrics.Histogram;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.telicent.attribute.evaluator.AttributeListEvalServer.LOGGER;
+
+/**
+ * Metrics of the {@code /eval} endpoint: the time taken by each request, and by each of its phases (see
+ * {@link EvalTimings}), and how many were allowed, denied or failed. The request rate is the rate of the duration
+ * histogram's count.
+ * <p>
+ * Requests slower than the {@link TimingSettings} threshold are also logged, with their phase timings.
+ * </p>
+ */
+class EvalMetrics {
+
+    private final TimingSettings timingSettings;
+    private final long slowRequestNanos;
+    private final Histogram duration = new Histogram();
+    private final Histogram[] phaseDurations = new Histogram[EvalTimings.PHASES.length];
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    EvalMetrics(Metrics metrics, TimingSettings timingSettings) {
+        this.timingSettings = timingSettings;
+        Duration threshold = timingSettings.slowRequestThreshold();
+        this.slowRequestNanos = threshold == null ? Long.MAX_VALUE : threshold.toNanos();
+        String decisions = "Results of /eval requests";
+        metrics.histogram("ale_eval_duration_seconds", "Time taken to evaluate /eval requests", duration)
+               .counter("ale_eval_decisions_total", decisions, allowed::sum, "result", "allow")
+               .counter("ale_eval_decisions_total", decisions, denied::sum, "result", "deny")
+               .counter("ale_eval_decisions_total", decisions, failed::sum, "result", "error");
+        for (int phase = 0; phase < phaseDurations.length; phase++) {
+            phaseDurations[phase] = new Histogram();
+            metrics.histogram("ale_eval_phase_duration_seconds", "Time taken by each phase of /eval requests",
+                              phaseDurations[phase], "phase", EvalTimings.PHASES[phase]);
+        }
+    }
+
+    /**
+     * The {@code Server-Timing} header value for the request, if timings are returned in the response
+     * @param timings the request's timings so far
+     * @return header value, or null if no header is to be returned
+     */
+    String serverTiming(EvalTimings timings) {
+        return timingSettings.responseHeader() ? timings.serverTiming() : null;
+    }
+
+    /**
+     * Record a completed request, and commit its flight recorder event
+     * @param user the user
+     * @param label the label
+     * @param outcome its outcome (null if it failed)
+     * @param timings its start time and phase timings
+     */
+    void record(String user, String label, Outcome outcome, EvalTimings timings) {
+        long totalNanos = System.nanoTime() - timings.startNanos();
+        duration.observeNanos(totalNanos);
+        for (int phase = 0; phase < phaseDurations.length; phase++) {
+            if (timings.ran(phase)) {
+                phaseDurations[phase].observeNanos(timings.nanos(phase));
+            }
+        }
+        EvaluationEvent event = timings.event();
+        event.end();
+        if (event.shouldCommit()) {
+            event.user = user;
+            event.labelLength = label == null ? 0 : label.length();
+            event.result = result(outcome);
+            event.commit();
+        }
+        if (totalNanos >= slowRequestNanos) {
+            LOGGER.warn("Slow /eval request: user={} result={} total_ms={} {}", user, result(outcome),
+                        EvalTimings.millis(totalNanos), timings);
+        }
+        if (outcome == null || outcome.isError()) {
+            failed.increment();
+        } else if (outcome.allow()) {
+            allowed.increment();
+        } else {
+            denied.increment();
+        }
+    }
+
+    private static String result(Outcome outcome) {
+        if (outcome == null) {
+            return "failed";
+        }
+        return outcome.isError() ? "error" : outcome.result();
+    }
+}
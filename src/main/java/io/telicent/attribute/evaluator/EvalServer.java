@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import org.eclipse.jetty.server.Server;
+
+/**
+ * A running evaluation server, returned by {@link AttributeListEvalServer.Builder#start()} so the caller can stop it.
+ */
+public final class EvalServer implements AutoCloseable {
+
+    private final Server server;
+    private final String url;
+    private final int port;
+    private final String adminURL;
+
+    EvalServer(Server server, String url, int port, String adminURL) {
+        this.server = server;
+        this.url = url;
+        this.port = port;
+        this.adminURL = adminURL;
+    }
+
+    /**
+     * The URL of the evaluation endpoint
+     * @return the URL
+     */
+    public String getURL() {
+        return url;
+    }
+
+    /**
+     * The port the server is listening on
+     * @return the port
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * The base URL of the admin connector, which only listens on {@value AttributeListEvalServer#ADMIN_HOST}
+     * @return the URL (no trailing slash), or null if the server has no admin endpoints
+     */
+    public String getAdminURL() {
+        return adminURL;
+    }
+
+    /**
+     * Whether the server is running
+     * @return true until the server has been stopped
+     */
+    public boolean isRunning() {
+        return server.isRunning();
+    }
+
+    /**
+     * Stop the server, waiting for in-flight requests to finish
+     */
+    public void stop() {
+        try {
+            server.stop();
+        } catch (Exception ex) {
+            throw new IllegalStateException("Failed to stop server on port " + port, ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Time spent in each phase of one {@code /eval} request, in nanoseconds: looking up the user's attributes, parsing the
+ * label, evaluating it (including the decision cache check and any hierarchy lookups) and writing the response.
+ * <p>
+ * Only the phases a request runs are recorded: the label is not parsed if the user is unknown or the decision cache
+ * answered, it is not evaluated if it failed to parse, and no response is written for a failed request.
+ * </p>
+ * <p>
+ * The request's start time and its flight recorder event (see {@link EvaluationEvent}) begin when this is created.
+ * </p>
+ */
+class EvalTimings {
+
+    /**
+     * Phase names, in order
+     */
+    static final String[] PHASES = {"lookup", "parse", "eval", "write"};
+
+    private static final long NOT_RUN = -1;
+
+    private final long startNanos = System.nanoTime();
+    private final EvaluationEvent event = new EvaluationEvent();
+    private final long[] nanos = new long[PHASES.length];
+
+    EvalTimings() {
+        Arrays.fill(nanos, NOT_RUN);
+        event.begin();
+    }
+
+    /**
+     * When the request started
+     * @return {@link System#nanoTime()} at the start
+     */
+    long startNanos() {
+        return startNanos;
+    }
+
+    /**
+     * The request's flight recorder event, begun when the request started
+     * @return the event
+     */
+    EvaluationEvent event() {
+        return event;
+    }
+
+    void lookup(long phaseNanos) {
+        nanos[0] = phaseNanos;
+    }
+
+    void parse(long phaseNanos) {
+        nanos[1] = phaseNanos;
+    }
+
+    void eval(long phaseNanos) {
+        nanos[2] = phaseNanos;
+    }
+
+    void write(long phaseNanos) {
+        nanos[3] = phaseNanos;
+    }
+
+    /**
+     * Whether the request ran the given phase
+     * @param phase index into {@link #PHASES}
+     * @return true if a time was recorded for it
+     */
+    boolean ran(int phase) {
+        return nanos[phase] != NOT_RUN;
+    }
+
+    /**
+     * Time spent in the given phase
+     * @param phase index into {@link #PHASES}
+     * @return nanoseconds (only meaningful if the phase {@link #ran(int)})
+     */
+    long nanos(int phase) {
+        return nanos[phase];
+    }
+
+    /**
+     * The phases run before the response is written, as a {@code Server-Timing} header value (durations in
+     * milliseconds)
+     * @return header value
+     */
+    String serverTiming() {
+        StringBuilder header = new StringBuilder();
+        for (int phase = 0; phase < PHASES.length - 1; phase++) {
+            if (ran(phase)) {
+                if (!header.isEmpty()) {
+                    header.append(", ");
+                }
+                header.append(PHASES[phase]).append(";dur=").append(millis(nanos[phase]));
+            }
+        }
+        return header.toString();
+    }
+
+    /**
+     * Every phase run as {@code <phase>_ms=<duration>} pairs, for logging
+     * @return the phases
+     */
+    @Override
+    public String toString() {
+        StringBuilder fields = new StringBuilder();
+        for (int phase = 0; phase < PHASES.length; phase++) {
+            if (ran(phase)) {
+                if (!fields.isEmpty()) {
+                    fields.append(' ');
+                }
+                fields.append(PHASES[phase]).append("_ms=").append(millis(nanos[phase]));
+            }
+        }
+        return fields.toString();
+    }
+
+    static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for one {@code /eval} request, lasting from the request's arrival to its response being
+ * written.
+ */
+@Name("io.telicent.ale.Evaluation")
+@Label("Label Evaluation")
+@Category({"Telicent", "Attribute Evaluator"})
+@Description("Evaluation of a label for a user")
+class EvaluationEvent extends Event {
+
+    @Label("User")
+    String user;
+
+    @Label("Label Length")
+    int labelLength;
+
+    @Label("Result")
+    @Description("true, false, error (bad label) or failed")
+    String result;
+}
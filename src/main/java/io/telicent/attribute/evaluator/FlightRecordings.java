@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+
+import static io.telicent.attribute.evaluator.AttributeListEvalServer.LOGGER;
+
+/**
+ * Controls an on-demand flight recording of the running server.
+ * <p>
+ * At most one recording is held. It records the JDK events of the chosen settings plus the evaluator's own events
+ * ({@link EvaluationEvent}, and the attribute store's cache load and remote lookup events), bounded by age and size so
+ * it can be left running on a live server. It can be dumped while running or after it is stopped; starting a new
+ * recording discards the old one.
+ * </p>
+ */
+public class FlightRecordings {
+
+    /**
+     * Default age beyond which recorded data is discarded
+     */
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofMinutes(10);
+
+    /**
+     * Default size beyond which the oldest recorded data is discarded
+     */
+    public static final long DEFAULT_MAX_SIZE = 100L * 1024 * 1024;
+
+    /**
+     * Default JDK settings ({@code profile} records method samples and allocations as well as the {@code default} set)
+     */
+    public static final String DEFAULT_SETTINGS = "profile";
+
+    private static final List<String> EVENTS =
+            List.of("io.telicent.ale.Evaluation", "io.telicent.ale.CacheLoad", "io.telicent.ale.RemoteLookup");
+
+    private Recording recording;
+
+    /**
+     * Start a new recording, discarding any previous one once the new one is running (if it cannot be started, the
+     * previous one is kept)
+     * @param settings name of the JDK settings to use ({@code default} or {@code profile})
+     * @param maxAge age beyond which data is discarded (positive)
+     * @param maxSize size beyond which data is discarded (positive)
+     * @throws IOException if the settings cannot be read
+     * @throws ParseException if the settings cannot be parsed
+     * @throws IllegalArgumentException if the maximum age or size is not positive
+     */
+    public synchronized void start(String settings, Duration maxAge, long maxSize) throws IOException, ParseException {
+        if (!maxAge.isPositive()) {
+            throw new IllegalArgumentException("Bad maximum age: " + maxAge + " (must be positive)");
+        }
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Bad maximum size: " + maxSize + " (must be positive)");
+        }
+        Recording started = new Recording(Configuration.getConfiguration(settings));
+        try {
+            started.setName("ale");
+            started.setToDisk(true);
+            started.setMaxAge(maxAge);
+            started.setMaxSize(maxSize);
+            EVENTS.forEach(started::enable);
+            started.start();
+        } catch (RuntimeException ex) {
+            started.close();
+            throw ex;
+        }
+        if (recording != null) {
+            recording.close();
+        }
+        recording = started;
+        LOGGER.info("Started flight recording ({} settings, max age {}, max size {})", settings, maxAge, maxSize);
+    }
+
+    /**
+     * Stop the recording, keeping its data to be dumped
+     * @return true if a recording was running
+     */
+    public synchronized boolean stop() {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            return false;
+        }
+        recording.stop();
+        LOGGER.info("Stopped flight recording");
+        return true;
+    }
+
+    /**
+     * Write the recorded data to a temporary file
+     * @return the file (to be deleted by the caller), or null if there is no recording
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized Path dump() throws IOException {
+        if (recording == null) {
+            return null;
+        }
+        Path file = Files.createTempFile("ale-", ".jfr");
+        try {
+            recording.dump(file);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(file);
+            throw ex;
+        }
+        return file;
+    }
+
+    /**
+     * The state of the recording
+     * @return {@code NONE} if there is none, otherwise its state (e.g. {@code RUNNING}, {@code STOPPED})
+     */
+    public synchronized String state() {
+        return recording == null ? "NONE" : recording.getState().name();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.telicent.jena.abac.attributes.AttributeExpr;
+import io.telicent.jena.abac.attributes.AttributeParser;
+import io.telicent.jena.abac.attributes.AttributeSyntaxError;
+
+import java.util.List;
+
+/**
+ * Bounded cache of parsed (and compiled) label expressions, keyed by the label string.
+ * <p>
+ * Labels that fail to parse are cached as well, so a bad label is rejected without being parsed again.
+ * </p>
+ */
+public class LabelCache {
+
+    /**
+     * Default maximum number of labels held
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final Cache<String, ParsedLabel> cache;
+
+    /**
+     * Create new Label Cache
+     * @param enabled whether to cache parsed labels at all
+     * @param maximumSize maximum number of labels to hold
+     */
+    public LabelCache(boolean enabled, long maximumSize) {
+        cache = enabled ? Caffeine.newBuilder().recordStats().maximumSize(maximumSize).build() : null;
+    }
+
+    /**
+     * Parse the given label, using the cached result if there is one
+     * @param label the label to parse
+     * @return the parsed label (or the syntax error it produced)
+     */
+    public ParsedLabel parse(String label) {
+        if (cache == null) {
+            return ParsedLabel.parse(label);
+        }
+        return cache.get(label, ParsedLabel::parse);
+    }
+
+    /**
+     * Whether the cache is in use
+     * @return true if parsed labels are cached
+     */
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Number of requests served from the cache
+     * @return hit count
+     */
+    public long hitCount() {
+        return cache == null ? 0 : cache.stats().hitCount();
+    }
+
+    /**
+     * Number of requests that had to parse the label
+     * @return miss count
+     */
+    public long missCount() {
+        return cache == null ? 0 : cache.stats().missCount();
+    }
+
+    /**
+     * The result of parsing a label: either the attribute expressions (and their compiled form) or the syntax error
+     * message.
+     * @param expressions parsed attribute expressions (null if in error)
+     * @param compiled compiled form of the expressions (null if in error)
+     * @param error syntax error message (null if parsed successfully)
+     */
+    public record ParsedLabel(List<AttributeExpr> expressions, CompiledLabel compiled, String error) {
+
+        static ParsedLabel parse(String label) {
+            try {
+                List<AttributeExpr> expressions = List.copyOf(AttributeParser.parseAttrExprList(label));
+                return new ParsedLabel(expressions, CompiledLabel.compile(expressions), null);
+            } catch (AttributeSyntaxError ex) {
+                return new ParsedLabel(null, null, String.valueOf(ex.getMessage()));
+            }
+        }
+
+        /**
+         * Whether the label failed to parse
+         * @return true if there was a syntax error
+         */
+        public boolean isError() {
+            return error != null;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import io.telicent.attribute.evaluator.LabelCache.ParsedLabel;
+import io.telicent.attribute.store.AsyncAttributesStore;
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.attributes.ValueTerm;
+import io.telicent.jena.abac.core.AttributesStore;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import static io.telicent.attribute.evaluator.AttributeListEvalServer.LOGGER;
+
+/**
+ * Evaluates a single label for a single user: look up the user's attributes, reuse a cached result if there is a valid
+ * one, otherwise parse and compile (via the label cache) and evaluate.
+ */
+class LabelEvaluator {
+
+    private static final ValueTerm dftResult = ValueTerm.FALSE;
+    private final AttributesStore attributesStore;
+    private final LabelCache labelCache;
+    private final DecisionCache decisionCache;
+
+    LabelEvaluator(AttributesStore attrStore, LabelCache labelCache, DecisionCache decisionCache) {
+        this.attributesStore = attrStore;
+        this.labelCache = labelCache;
+        this.decisionCache = decisionCache;
+    }
+
+    /**
+     * Evaluate the label for the user.
+     * <p>
+     * If the user is unknown the result is false, without the label being parsed.
+     * </p>
+     * @param user the user
+     * @param label the label
+     * @return the outcome
+     */
+    Outcome evaluate(String user, String label) {
+        return evaluate(user, label, new EvalTimings());
+    }
+
+    /**
+     * Evaluate the label for the user, recording the time taken by each phase
+     * @param user the user
+     * @param label the label
+     * @param timings where to record the phase timings
+     * @return the outcome
+     */
+    Outcome evaluate(String user, String label, EvalTimings timings) {
+        long start = System.nanoTime();
+        AttributesStore store = AsyncAttributesStore.snapshot(attributesStore);
+        AttributeValueSet avSet = store.attributes(user);
+        timings.lookup(System.nanoTime() - start);
+        return evaluate(user, label, avSet, store, timings);
+    }
+
+    /**
+     * Evaluate the label for the user, looking up the user's attributes asynchronously.
+     * <p>
+     * If the attributes are already to hand (a local store or a cache hit) and the store holds every hierarchy in
+     * memory, the evaluation completes inline. Otherwise the lookup and the evaluation run on the executor, so the
+     * calling thread is not held during a remote user or hierarchy lookup.
+     * </p>
+     * @param user the user
+     * @param label the label
+     * @param executor where to run a lookup that may block
+     * @param timings where to record the phase timings
+     * @return the outcome
+     */
+    CompletableFuture<Outcome> evaluateAsync(String user, String label, Executor executor, EvalTimings timings) {
+        long start = System.nanoTime();
+        AttributesStore store = AsyncAttributesStore.snapshot(attributesStore);
+        CompletableFuture<AttributeValueSet> lookup = AsyncAttributesStore.attributesAsync(store, user, executor);
+        Function<AttributeValueSet, Outcome> evaluation = avSet -> {
+            timings.lookup(System.nanoTime() - start);
+            return evaluate(user, label, avSet, store, timings);
+        };
+        return AsyncAttributesStore.hasLocalHierarchies(store)
+                ? lookup.thenApply(evaluation)
+                : lookup.thenApplyAsync(evaluation, executor);
+    }
+
+    private Outcome evaluate(String user, String label, AttributeValueSet avSet, AttributesStore store,
+                             EvalTimings timings) {
+        if (avSet == null) {
+            LOGGER.debug("No attributes for user: {}", user);
+            return Outcome.of(dftResult.getBoolean());
+        }
+
+        // Reuse an earlier result if nothing it depended on has changed
+        long start = System.nanoTime();
+        Boolean cachedAllow = decisionCache.get(user, label, avSet, store);
+        if (cachedAllow != null) {
+            timings.eval(System.nanoTime() - start);
+            LOGGER.debug("Result for user: {} :: {} (cached)", user, cachedAllow);
+            return Outcome.of(cachedAllow);
+        }
+
+        // Parse (or reuse an earlier parse) - evaluate
+        long parseStart = System.nanoTime();
+        ParsedLabel parsedLabel = labelCache.parse(label);
+        long evalStart = System.nanoTime();
+        timings.parse(evalStart - parseStart);
+        if (parsedLabel.isError()) {
+            return new Outcome(dftResult.getBoolean(), parsedLabel.error());
+        }
+        boolean allow = decisionCache.evaluate(user, label, avSet, parsedLabel.compiled(), store);
+        timings.eval(System.nanoTime() - evalStart + parseStart - start);
+        LOGGER.debug("Result for user: {} :: {}", user, allow);
+        return Outcome.of(allow);
+    }
+
+    /**
+     * The outcome of evaluating a label
+     * @param allow whether access is allowed (false if there was a syntax error)
+     * @param syntaxError the syntax error message if the label failed to parse, otherwise null
+     */
+    record Outcome(boolean allow, String syntaxError) {
+
+        static Outcome of(boolean allow) {
+            return new Outcome(allow, null);
+        }
+
+        boolean isError() {
+            return syntaxError != null;
+        }
+
+        String result() {
+            return ValueTerm.value(allow).asString();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.jena.atlas.json.JSON;
+import org.apache.jena.atlas.json.JsonObject;
+
+import java.io.IOException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Readiness endpoint.
+ * <pre>
+ *   GET /ready
+ *   200 - { "ready" : true }   the server is ready for traffic
+ *   503 - { "ready" : false }  the server is up but still starting (e.g. warming its caches)
+ * </pre>
+ */
+class ReadyServlet extends HttpServlet {
+
+    private final transient BooleanSupplier ready;
+
+    ReadyServlet(BooleanSupplier ready) {
+        this.ready = ready;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean isReady = ready.getAsBoolean();
+        JsonObject jObj = JSON.buildObject(jb -> jb.pair("ready", isReady));
+        response.setStatus(isReady ? HttpServletResponse.SC_OK : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setContentType("application/json");
+        try (ServletOutputStream out = response.getOutputStream()) {
+            JSON.write(out, jObj);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.jena.atlas.json.JSON;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.cmd.CmdException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+import static io.telicent.attribute.utils.AttributeUtils.parseDuration;
+import static io.telicent.attribute.utils.AttributeUtils.parseSize;
+
+/**
+ * Admin endpoint controlling an on-demand flight recording (see {@link FlightRecordings}).
+ * <pre>
+ *   POST /admin/recording?action=start[&amp;settings=profile][&amp;maxAge=PT10M][&amp;maxSize=104857600]
+ *   POST /admin/recording?action=stop
+ *   200 - { "state" : "RUNNING" }
+ *   400 - bad action or parameters
+ *   409 - stop requested but no recording is running
+ *
+ *   GET /admin/recording
+ *   200 - the recording so far (application/octet-stream; a JFR file)
+ *   404 - no recording has been started
+ * </pre>
+ */
+class RecordingServlet extends HttpServlet {
+
+    private final transient FlightRecordings recordings;
+
+    RecordingServlet(FlightRecordings recordings) {
+        this.recordings = recordings;
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String action = request.getParameter("action");
+        if ("start".equals(action)) {
+            try {
+                String settings = request.getParameter("settings");
+                Duration maxAge = parseDuration(request.getParameter("maxAge"), FlightRecordings.DEFAULT_MAX_AGE);
+                long maxSize = parseSize(request.getParameter("maxSize"), FlightRecordings.DEFAULT_MAX_SIZE);
+                recordings.start(settings == null ? FlightRecordings.DEFAULT_SETTINGS : settings, maxAge, maxSize);
+            } catch (CmdException | IllegalArgumentException | ParseException | IOException ex) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Cannot start recording: " + ex.getMessage());
+                return;
+            }
+        } else if ("stop".equals(action)) {
+            if (!recordings.stop()) {
+                response.sendError(HttpServletResponse.SC_CONFLICT, "No recording is running");
+                return;
+            }
+        } else {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "The 'action' parameter must be start or stop");
+            return;
+        }
+        JsonObject jObj = JSON.buildObject(jb -> jb.pair("state", recordings.state()));
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/json");
+        try (ServletOutputStream out = response.getOutputStream()) {
+            JSON.write(out, jObj);
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = recordings.dump();
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "No recording has been started");
+            return;
+        }
+        try {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType("application/octet-stream");
+            response.setHeader("Content-Disposition", "attachment; filename=\"ale.jfr\"");
+            try (ServletOutputStream out = response.getOutputStream()) {
+                Files.copy(file, out);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
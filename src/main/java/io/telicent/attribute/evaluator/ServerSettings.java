@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * Jetty settings for the evaluation server.
+ * @param minThreads minimum number of threads in the pool
+ * @param maxThreads maximum number of threads in the pool
+ * @param acceptors number of acceptor threads (-1 for Jetty's default)
+ * @param selectors number of selector threads (-1 for Jetty's default)
+ * @param maxQueueSize maximum number of jobs queued waiting for a thread
+ * @param virtualThreads whether each request runs on its own virtual thread
+ * @param async whether {@code /eval} releases the server thread while a remote attribute lookup is in flight
+ * @param asyncTimeout how long an asynchronous {@code /eval} request may be suspended before it fails
+ */
+public record ServerSettings(int minThreads, int maxThreads, int acceptors, int selectors, int maxQueueSize,
+                             boolean virtualThreads, boolean async, Duration asyncTimeout) {
+
+    /**
+     * Default minimum number of threads
+     */
+    public static final int DEFAULT_MIN_THREADS = 8;
+
+    /**
+     * Default maximum number of threads
+     */
+    public static final int DEFAULT_MAX_THREADS = 200;
+
+    /**
+     * Default maximum number of queued jobs
+     */
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 10_000;
+
+    /**
+     * Default time an asynchronous request may be suspended
+     */
+    public static final Duration DEFAULT_ASYNC_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Default settings
+     */
+    public static final ServerSettings DEFAULT =
+            new ServerSettings(DEFAULT_MIN_THREADS, DEFAULT_MAX_THREADS, -1, -1, DEFAULT_MAX_QUEUE_SIZE, false, false);
+
+    private static final int IDLE_TIMEOUT_MILLIS = 60_000;
+    private static final int QUEUE_GROWTH = 1024;
+
+    /**
+     * Settings with the default asynchronous request timeout
+     * @param minThreads minimum number of threads in the pool
+     * @param maxThreads maximum number of threads in the pool
+     * @param acceptors number of acceptor threads (-1 for Jetty's default)
+     * @param selectors number of selector threads (-1 for Jetty's default)
+     * @param maxQueueSize maximum number of jobs queued waiting for a thread
+     * @param virtualThreads whether each request runs on its own virtual thread
+     * @param async whether {@code /eval} releases the server thread while a remote attribute lookup is in flight
+     */
+    public ServerSettings(int minThreads, int maxThreads, int acceptors, int selectors, int maxQueueSize,
+                          boolean virtualThreads, boolean async) {
+        this(minThreads, maxThreads, acceptors, selectors, maxQueueSize, virtualThreads, async,
+             DEFAULT_ASYNC_TIMEOUT);
+    }
+
+    /**
+     * Build the thread pool described by these settings
+     * @return a new (unstarted) thread pool
+     */
+    QueuedThreadPool threadPool() {
+        int initialCapacity = Math.min(maxQueueSize, QUEUE_GROWTH);
+        QueuedThreadPool threadPool =
+                new QueuedThreadPool(maxThreads, minThreads, IDLE_TIMEOUT_MILLIS,
+                                     new BlockingArrayQueue<>(initialCapacity, initialCapacity, maxQueueSize));
+        threadPool.setName("ALE");
+        if (virtualThreads) {
+            threadPool.setVirtualThreadsExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        return threadPool;
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import java.time.Duration;
+
+/**
+ * How the per-phase timings of {@code /eval} requests (see {@link EvalTimings}) are reported, beyond the metrics.
+ * @param responseHeader whether to return the timings in a {@code Server-Timing} response header
+ * @param slowRequestThreshold requests taking at least this long are logged with their timings (null for none)
+ */
+public record TimingSettings(boolean responseHeader, Duration slowRequestThreshold) {
+
+    /**
+     * Default settings: no header and no slow request log
+     */
+    public static final TimingSettings DEFAULT = new TimingSettings(false, null);
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.core.AttributesStore;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Attribute store that can say whether a user's attributes are already to hand, and look them up asynchronously if
+ * not.
+ */
+public interface AsyncAttributesStore extends AttributesStore {
+
+    /**
+     * Whether the user's attributes can be returned without a remote call
+     * @param user the user
+     * @return true if {@link #attributes(String)} will not block on a remote store
+     */
+    boolean isAvailable(String user);
+
+    /**
+     * Whether every hierarchy is held in memory, so evaluating a label against the user's attributes never blocks
+     * @return true if {@link #getHierarchy} will not block on a remote store
+     */
+    default boolean hasLocalHierarchies() {
+        return true;
+    }
+
+    /**
+     * The store to use for one evaluation, so that the user's attributes and every hierarchy it looks up come from the
+     * same data even if the store is replaced part way through
+     * @return a store whose data does not change under the caller (this store, unless it swaps its data)
+     */
+    default AttributesStore snapshot() {
+        return this;
+    }
+
+    /**
+     * Look up the user's attributes, completing inline if they are available and otherwise on the executor
+     * @param user the user
+     * @param executor where to run a lookup that may block
+     * @return the user's attributes (null if the user is unknown)
+     */
+    default CompletableFuture<AttributeValueSet> attributesAsync(String user, Executor executor) {
+        if (isAvailable(user)) {
+            return CompletableFuture.completedFuture(attributes(user));
+        }
+        return CompletableFuture.supplyAsync(() -> attributes(user), executor);
+    }
+
+    /**
+     * Look up the user's attributes asynchronously from any store. Stores that are not {@link AsyncAttributesStore}s
+     * are assumed to block, so are always looked up on the executor.
+     * @param store the attribute store
+     * @param user the user
+     * @param executor where to run a lookup that may block
+     * @return the user's attributes (null if the user is unknown)
+     */
+    static CompletableFuture<AttributeValueSet> attributesAsync(AttributesStore store, String user,
+                                                                Executor executor) {
+        if (store instanceof AsyncAttributesStore asyncStore) {
+            return asyncStore.attributesAsync(user, executor);
+        }
+        return CompletableFuture.supplyAsync(() -> store.attributes(user), executor);
+    }
+
+    /**
+     * The store to use for one evaluation (see {@link #snapshot()}). Stores that are not {@link AsyncAttributesStore}s
+     * are used as they are.
+     * @param store the attribute store
+     * @return a store whose data does not change under the caller
+     */
+    static AttributesStore snapshot(AttributesStore store) {
+        return store instanceof AsyncAttributesStore asyncStore ? asyncStore.snapshot() : store;
+    }
+
+    /**
+     * Whether every hierarchy in the store is held in memory. Stores that are not {@link AsyncAttributesStore}s are
+     * assumed to block.
+     * @param store the attribute store
+     * @return true if hierarchy lookups will not block on a remote store
+     */
+    static boolean hasLocalHierarchies(AttributesStore store) {
+        return store instanceof AsyncAttributesStore asyncStore && asyncStore.hasLocalHierarchies();
+    }
+}
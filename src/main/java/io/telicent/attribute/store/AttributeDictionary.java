@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.attributes.AttributeValue;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary interning every attribute/value pair it sees into a dense integer ID.
+ * <p>
+ * An attribute value set is encoded as a bitset of those IDs, which is the same for any two sets with the same
+ * contents, whatever order their values are in. Sets with the same bits are canonicalised to one shared
+ * {@link AttributeValueSet} instance; the canonical sets are softly held, and a reclaimed one is replaced by the next
+ * set interned with those contents.
+ * </p>
+ * <p>
+ * IDs are never reused, so a bitset remains valid for the lifetime of the dictionary.
+ * </p>
+ */
+public class AttributeDictionary {
+
+    private final Map<AttributeValue, Integer> ids = new ConcurrentHashMap<>();
+    private int size;
+
+    private final Cache<BitSet, AttributeValueSet> canonicalSets = Caffeine.newBuilder().softValues().build();
+
+    /**
+     * The ID of the given attribute value, assigning the next free ID if it has not been seen before
+     * @param attributeValue the attribute value
+     * @return its ID
+     */
+    public int id(AttributeValue attributeValue) {
+        Integer id = ids.get(attributeValue);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(attributeValue);
+            if (id == null) {
+                id = size++;
+                ids.put(attributeValue, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Number of distinct attribute values seen
+     * @return dictionary size
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Encode the attribute value set as a bitset of IDs
+     * @param avSet the attribute value set
+     * @return the bitset (owned by the caller)
+     */
+    public BitSet encode(AttributeValueSet avSet) {
+        BitSet bits = new BitSet(size());
+        avSet.attributeValues(attributeValue -> bits.set(id(attributeValue)));
+        return bits;
+    }
+
+    /**
+     * Intern the attribute value set, returning the shared instance for its contents
+     * @param avSet the attribute value set (may be null)
+     * @return the canonical attribute value set, or null if given null
+     */
+    public AttributeValueSet intern(AttributeValueSet avSet) {
+        if (avSet == null) {
+            return null;
+        }
+        return canonicalSets.get(encode(avSet), bits -> avSet);
+    }
+}
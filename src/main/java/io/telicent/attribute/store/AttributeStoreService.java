@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.attributes.ValueTerm;
+import io.telicent.jena.abac.core.AttributesStore;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.jena.atlas.json.*;
+import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
+import org.eclipse.jetty.ee10.servlet.ServletHolder;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import static io.telicent.attribute.store.SASServer.LOGGER;
+import static io.telicent.attribute.utils.AttributeUtils.attributeValueString;
+
+/**
+ * REST services for an attribute store: user lookup, bulk user lookup and hierarchy lookup.
+ * <p>
+ * {@link SASServer} uses this in place of the library's {@code SimpleAttributesStore} only when bulk lookups or faults
+ * are asked for. It answers the single user and hierarchy lookups with the same responses, and adds a bulk lookup
+ * used by {@link BulkAttributesStoreRemote}:
+ * </p>
+ * <pre>
+ *   GET  /users/lookup/{user}        -> { "attributes" : [ "ATTRIBUTE", ... ] }
+ *   POST /users/lookup               { "users" : [ "USER", ... ] }
+ *                                    -> { "users" : { "USER" : [ "ATTRIBUTE", ... ], ... } }
+ *   GET  /hierarchies/lookup/{name}  -> { "tiers" : [ "VALUE", ... ] }
+ * </pre>
+ * <p>
+ * Unknown users and hierarchies are returned with no attributes or tiers by the single lookups, and are left out of
+ * the bulk response.
+ * </p>
+ * <p>
+ * Responses can be delayed, or fail, as set out by a {@link FaultInjection}. The lookups are async servlets: a delayed
+ * request is suspended, and answered from a timer once the delay has passed, so no server thread is held while it
+ * waits.
+ * </p>
+ */
+public final class AttributeStoreService {
+
+    private AttributeStoreService() {}
+
+    /**
+     * Path for user lookups
+     */
+    public static final String USERS_LOOKUP_PATH = "/users/lookup";
+
+    /**
+     * Path for hierarchy lookups
+     */
+    public static final String HIERARCHIES_LOOKUP_PATH = "/hierarchies/lookup";
+
+    /**
+     * Most users accepted in one bulk lookup
+     */
+    public static final int MAX_BULK_USERS = 10_000;
+
+    static final String USERS = "users";
+    static final String ATTRIBUTES = "attributes";
+    static final String TIERS = "tiers";
+
+    /**
+     * Run the Server
+     * @param port Port to use
+     * @param attributesStore Attribute Store to serve
+     * @return The URL for the server.
+     */
+    public static String run(int port, AttributesStore attributesStore) {
+        return run(port, attributesStore, FaultInjection.NONE);
+    }
+
+    /**
+     * Run the Server
+     * @param port Port to use (0 for any free port)
+     * @param attributesStore Attribute Store to serve
+     * @param faults Latency and failures to add to the responses
+     * @return The URL for the server.
+     */
+    public static String run(int port, AttributesStore attributesStore, FaultInjection faults) {
+        Server server = new Server();
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(port);
+        server.addConnector(connector);
+        ServletContextHandler handler = new ServletContextHandler();
+        handler.addServlet(asyncHolder(new UserLookup(attributesStore, faults)), USERS_LOOKUP_PATH + "/*");
+        handler.addServlet(asyncHolder(new HierarchyLookup(attributesStore, faults)), HIERARCHIES_LOOKUP_PATH + "/*");
+        server.setHandler(handler);
+        try {
+            server.start();
+        } catch (Exception ex) {
+            throw new IllegalStateException("Failed to start server on port " + port, ex);
+        }
+        return "http://localhost:" + connector.getLocalPort();
+    }
+
+    private static ServletHolder asyncHolder(HttpServlet servlet) {
+        ServletHolder holder = new ServletHolder(servlet);
+        holder.setAsyncSupported(true);
+        return holder;
+    }
+
+    /**
+     * Answer the request, delayed or failed as the endpoint's faults dictate.
+     * <p>
+     * A delayed request is suspended, and the response is written and the request completed once the delay has
+     * passed.
+     * </p>
+     * @param request the request
+     * @param response the response
+     * @param faults the faults injected
+     * @param endpoint the faults injected into this endpoint
+     * @param factor scale of the delay (for the users being looked up)
+     * @param answer the response body, if the request does not fail
+     * @throws IOException if the response cannot be written without a delay
+     */
+    static void answer(HttpServletRequest request, HttpServletResponse response, FaultInjection faults,
+                       FaultInjection.EndpointFaults endpoint, DoubleSupplier factor, Supplier<JsonObject> answer)
+            throws IOException {
+        if (endpoint.isNone()) {
+            respond(response, FaultInjection.Outcome.RESPOND, answer);
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        FaultInjection.Outcome outcome = endpoint.outcome(random);
+        long delayNanos = outcome == FaultInjection.Outcome.TIMEOUT
+                ? faults.timeoutDelay().toNanos()
+                : (long) (endpoint.latency().sampleNanos(random) * factor.getAsDouble());
+        if (delayNanos <= 0) {
+            respond(response, outcome, answer);
+            return;
+        }
+        AsyncContext asyncContext = request.startAsync();
+        // The response always comes, so the container should not time the request out first
+        asyncContext.setTimeout(0);
+        CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(() -> {
+            try {
+                respond(response, outcome, answer);
+            } catch (IOException | RuntimeException ex) {
+                LOGGER.error("Failure in returning results", ex);
+            } finally {
+                asyncContext.complete();
+            }
+        });
+    }
+
+    private static void respond(HttpServletResponse response, FaultInjection.Outcome outcome,
+                                Supplier<JsonObject> answer) throws IOException {
+        switch (outcome) {
+            case TIMEOUT -> response.sendError(HttpServletResponse.SC_GATEWAY_TIMEOUT, "Injected timeout");
+            case ERROR -> response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Injected error");
+            case RESPOND -> {
+                JsonObject jObj = answer.get();
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.setContentType("application/json");
+                try (ServletOutputStream out = response.getOutputStream()) {
+                    JSON.write(out, jObj);
+                }
+            }
+        }
+    }
+
+    private static String pathName(HttpServletRequest request) {
+        String pathInfo = request.getPathInfo();
+        if (pathInfo == null || pathInfo.length() <= 1) {
+            return null;
+        }
+        return pathInfo.substring(1);
+    }
+
+    private static void attributeArray(JsonBuilder jb, AttributeValueSet avSet) {
+        jb.startArray();
+        if (avSet != null) {
+            avSet.attributeValues(attributeValue -> jb.value(attributeValueString(attributeValue)));
+        }
+        jb.finishArray();
+    }
+
+    /**
+     * GET for a single user (by path), POST for many users (by body).
+     */
+    static class UserLookup extends HttpServlet {
+        private final transient AttributesStore attributesStore;
+        private final transient FaultInjection faults;
+
+        UserLookup(AttributesStore attributesStore, FaultInjection faults) {
+            this.attributesStore = attributesStore;
+            this.faults = faults;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            String user = pathName(request);
+            if (user == null) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "No user in request path");
+                return;
+            }
+            answer(request, response, faults, faults.users(), () -> faults.userFactor(user),
+                   () -> JSON.buildObject(jb -> {
+                       jb.key(ATTRIBUTES);
+                       attributeArray(jb, attributesStore.attributes(user));
+                   }));
+        }
+
+        @Override
+        protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            List<String> users = readUsers(request, response);
+            if (users == null) {
+                /*already rejected*/
+                return;
+            }
+            if (users.size() > MAX_BULK_USERS) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                                   "Too many users: " + users.size() + " (maximum " + MAX_BULK_USERS + ")");
+                return;
+            }
+            answer(request, response, faults, faults.users(),
+                   () -> users.stream().mapToDouble(faults::userFactor).max().orElse(1),
+                   () -> JSON.buildObject(jb -> {
+                       jb.key(USERS).startObject();
+                       for (String user : users) {
+                           AttributeValueSet avSet = attributesStore.attributes(user);
+                           if (avSet != null) {
+                               jb.key(user);
+                               attributeArray(jb, avSet);
+                           }
+                       }
+                       jb.finishObject();
+                   }));
+        }
+
+        private static List<String> readUsers(HttpServletRequest request, HttpServletResponse response)
+                throws IOException {
+            try (InputStream in = request.getInputStream()) {
+                JsonValue value = JSON.parseAny(in);
+                JsonValue usersValue = value.isObject() ? value.getAsObject().get(USERS) : null;
+                if (usersValue == null || !usersValue.isArray()) {
+                    response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                                       "Request body must be a JSON object with a '" + USERS + "' array");
+                    return null;
+                }
+                List<String> users = new ArrayList<>(usersValue.getAsArray().size());
+                for (JsonValue element : usersValue.getAsArray()) {
+                    if (!element.isString()) {
+                        response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                                           "Each entry in '" + USERS + "' must be a string");
+                        return null;
+                    }
+                    users.add(element.getAsString().value());
+                }
+                return users;
+            } catch (JsonParseException ex) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad JSON in request body: " + ex.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * GET for a single hierarchy (by path).
+     */
+    static class HierarchyLookup extends HttpServlet {
+        private final transient AttributesStore attributesStore;
+        private final transient FaultInjection faults;
+
+        HierarchyLookup(AttributesStore attributesStore, FaultInjection faults) {
+            this.attributesStore = attributesStore;
+            this.faults = faults;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            String name = pathName(request);
+            if (name == null) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "No hierarchy in request path");
+                return;
+            }
+            answer(request, response, faults, faults.hierarchies(), () -> 1, () -> JSON.buildObject(jb -> {
+                Hierarchy hierarchy = attributesStore.getHierarchy(new Attribute(name));
+                jb.key(TIERS).startArray();
+                if (hierarchy != null) {
+                    for (ValueTerm value : hierarchy.values()) {
+                        jb.value(value.getString());
+                    }
+                }
+                jb.finishArray();
+            }));
+        }
+    }
+}
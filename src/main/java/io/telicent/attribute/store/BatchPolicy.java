@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import java.time.Duration;
+
+/**
+ * How cached attribute store misses for different users are combined into one bulk lookup.
+ * <p>
+ * The first miss opens a batch; further misses join it until {@code window} has passed or {@code maxSize} users are
+ * waiting, and then all of them are fetched in a single request.
+ * </p>
+ * @param window how long to gather misses before fetching them
+ * @param maxSize the most users fetched in one request
+ */
+public record BatchPolicy(Duration window, int maxSize) {
+
+    /**
+     * Default time to gather misses
+     */
+    public static final Duration DEFAULT_WINDOW = Duration.ofMillis(2);
+
+    /**
+     * Default maximum users per bulk lookup
+     */
+    public static final int DEFAULT_MAX_SIZE = 100;
+
+    /**
+     * Default batching
+     */
+    public static final BatchPolicy DEFAULT = new BatchPolicy(DEFAULT_WINDOW, DEFAULT_MAX_SIZE);
+}
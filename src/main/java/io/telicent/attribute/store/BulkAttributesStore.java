@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.core.AttributesStore;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Attribute store that can look up many users in one call.
+ */
+public interface BulkAttributesStore extends AttributesStore {
+
+    /**
+     * Look up the attributes of many users at once
+     * @param users the users
+     * @return attributes by user; unknown users are absent
+     */
+    Map<String, AttributeValueSet> attributes(Collection<String> users);
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.attributes.AttributeSyntaxError;
+import io.telicent.jena.abac.core.AttributesStore;
+import io.telicent.jena.abac.core.AttributesStoreRemote;
+import org.apache.jena.atlas.json.*;
+import org.apache.jena.atlas.web.HttpException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+
+import static io.telicent.attribute.utils.AttributeUtils.parseAttributeValues;
+
+/**
+ * Remote attribute store that also looks up many users in one request, using the bulk endpoint served by
+ * {@link AttributeStoreService}.
+ * <p>
+ * Single user and hierarchy lookups go through {@link AttributesStoreRemote}. A bulk lookup that cannot connect, or
+ * gets no response, within the timeout fails, as does one whose response is not in the expected form, so a hung or
+ * misbehaving store fails the batch rather than holding every caller waiting on it.
+ * </p>
+ */
+public class BulkAttributesStoreRemote implements BulkAttributesStore {
+    /**
+     * Default time allowed to connect to the bulk endpoint, and (separately) for it to respond
+     */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+
+    private final AttributesStore remoteStore;
+    private final URI bulkUserEndpoint;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+
+    /**
+     * Create new Bulk Remote Attribute Store
+     * @param lookupUserEndpoint URL to obtain user data
+     * @param lookupHierarchyEndpoint URL to obtain hierarchy data
+     * @param bulkUserEndpoint URL to obtain data for many users at once
+     */
+    public BulkAttributesStoreRemote(String lookupUserEndpoint, String lookupHierarchyEndpoint,
+                                     String bulkUserEndpoint) {
+        this(lookupUserEndpoint, lookupHierarchyEndpoint, bulkUserEndpoint, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Create new Bulk Remote Attribute Store
+     * @param lookupUserEndpoint URL to obtain user data
+     * @param lookupHierarchyEndpoint URL to obtain hierarchy data
+     * @param bulkUserEndpoint URL to obtain data for many users at once
+     * @param timeout time allowed to connect to the bulk endpoint, and (separately) for it to respond
+     */
+    public BulkAttributesStoreRemote(String lookupUserEndpoint, String lookupHierarchyEndpoint,
+                                     String bulkUserEndpoint, Duration timeout) {
+        this.remoteStore = new AttributesStoreRemote(lookupUserEndpoint, lookupHierarchyEndpoint);
+        this.bulkUserEndpoint = URI.create(bulkUserEndpoint);
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public Map<String, AttributeValueSet> attributes(Collection<String> users) {
+        JsonObject request = JSON.buildObject(jb -> {
+            jb.key(AttributeStoreService.USERS).startArray();
+            users.forEach(jb::value);
+            jb.finishArray();
+        });
+        HttpRequest httpRequest = HttpRequest.newBuilder(bulkUserEndpoint)
+                                             .header("Content-Type", "application/json")
+                                             .timeout(timeout)
+                                             .POST(HttpRequest.BodyPublishers.ofString(JSON.toStringFlat(request)))
+                                             .build();
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException ex) {
+            throw new HttpException("Bulk user lookup failed: " + ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new HttpException("Bulk user lookup interrupted");
+        }
+        if (response.statusCode() != 200) {
+            throw new HttpException(response.statusCode(), "Bulk user lookup failed", response.body());
+        }
+        return parseResponse(response.body());
+    }
+
+    static Map<String, AttributeValueSet> parseResponse(String body) {
+        JsonValue response;
+        try {
+            response = JSON.parseAny(body);
+        } catch (JsonException ex) {
+            throw new HttpException("Bulk user lookup response is not JSON: " + ex.getMessage());
+        }
+        JsonValue usersValue = response.isObject() ? response.getAsObject().get(AttributeStoreService.USERS) : null;
+        if (usersValue == null || !usersValue.isObject()) {
+            throw new HttpException("Bulk user lookup response has no '" + AttributeStoreService.USERS + "' object");
+        }
+        JsonObject usersObject = usersValue.getAsObject();
+        Map<String, AttributeValueSet> results = new HashMap<>();
+        for (String user : usersObject.keys()) {
+            JsonValue userValue = usersObject.get(user);
+            if (!userValue.isArray()) {
+                throw new HttpException("Bulk user lookup response has no attribute array for user " + user);
+            }
+            JsonArray array = userValue.getAsArray();
+            List<String> attributeValueStrings = new ArrayList<>(array.size());
+            for (JsonValue element : array) {
+                if (!element.isString()) {
+                    throw new HttpException("Bulk user lookup response has a non-string attribute for user " + user);
+                }
+                attributeValueStrings.add(element.getAsString().value());
+            }
+            try {
+                results.put(user, parseAttributeValues(attributeValueStrings));
+            } catch (AttributeSyntaxError ex) {
+                throw new HttpException("Bulk user lookup response has a bad attribute for user " + user + ": "
+                                        + ex.getMessage());
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public AttributeValueSet attributes(String user) {
+        return remoteStore.attributes(user);
+    }
+
+    @Override
+    public Set<String> users() {
+        return remoteStore.users();
+    }
+
+    @Override
+    public boolean hasHierarchy(Attribute attribute) {
+        return remoteStore.hasHierarchy(attribute);
+    }
+
+    @Override
+    public Hierarchy getHierarchy(Attribute attribute) {
+        return remoteStore.getHierarchy(attribute);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a load (or background refresh) of an entry in the {@link CachedAttributeStore}.
+ */
+@Name("io.telicent.ale.CacheLoad")
+@Label("Attribute Cache Load")
+@Category({"Telicent", "Attribute Evaluator"})
+@Description("Load or refresh of a cached user or hierarchy")
+class CacheLoadEvent extends Event {
+
+    @Label("Cache")
+    @Description("users or hierarchies")
+    String cache;
+
+    @Label("Key")
+    @Description("The user or attribute name")
+    String key;
+
+    @Label("Source")
+    @Description("second-level or remote")
+    String source;
+
+    @Label("Refresh")
+    boolean refresh;
+
+    @Label("Found")
+    boolean found;
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Weigher;
+
+/**
+ * How large one of the caches in a {@link CachedAttributeStore} may grow, and when its entries are refreshed and
+ * expire.
+ * <p>
+ * A cache is bounded either by its number of entries or by their total weight, not both. An entry weighs one plus the
+ * number of values it holds (attribute values for a user, tiers for a hierarchy), so a weight bound tracks memory use
+ * more closely when users differ widely in how many attributes they have.
+ * </p>
+ * @param refreshPolicy when entries are refreshed and expire
+ * @param maximumSize most entries held (zero for no bound on the number of entries)
+ * @param maximumWeight most total weight held (zero for no bound on weight)
+ */
+public record CacheSettings(RefreshPolicy refreshPolicy, long maximumSize, long maximumWeight) {
+
+    /**
+     * Default maximum number of users cached
+     */
+    public static final long DEFAULT_USER_MAXIMUM_SIZE = 100_000;
+
+    /**
+     * Default maximum number of hierarchies cached
+     */
+    public static final long DEFAULT_HIERARCHY_MAXIMUM_SIZE = 10_000;
+
+    /**
+     * Create new Cache Settings
+     * @param refreshPolicy when entries are refreshed and expire
+     * @param maximumSize most entries held (zero for no bound on the number of entries)
+     * @param maximumWeight most total weight held (zero for no bound on weight)
+     */
+    public CacheSettings {
+        if (maximumSize < 0 || maximumWeight < 0) {
+            throw new IllegalArgumentException("Cache bounds cannot be negative");
+        }
+        if (maximumSize > 0 && maximumWeight > 0) {
+            throw new IllegalArgumentException("A cache is bounded by size or by weight, not both");
+        }
+    }
+
+    /**
+     * The default settings for the user cache with the given refresh policy
+     * @param refreshPolicy when entries are refreshed and expire
+     * @return the settings
+     */
+    public static CacheSettings users(RefreshPolicy refreshPolicy) {
+        return new CacheSettings(refreshPolicy, DEFAULT_USER_MAXIMUM_SIZE, 0);
+    }
+
+    /**
+     * The default settings for the hierarchy cache with the given refresh policy
+     * @param refreshPolicy when entries are refreshed and expire
+     * @return the settings
+     */
+    public static CacheSettings hierarchies(RefreshPolicy refreshPolicy) {
+        return new CacheSettings(refreshPolicy, DEFAULT_HIERARCHY_MAXIMUM_SIZE, 0);
+    }
+
+    /**
+     * Apply the size or weight bound to a cache builder
+     * @param builder the cache builder
+     * @param weigher the weight of an entry (only used if bounded by weight)
+     * @return the bounded builder
+     * @param <K> key type
+     * @param <V> value type
+     */
+    <K, V> Caffeine<K, V> bound(Caffeine<K, V> builder, Weigher<? super K, ? super V> weigher) {
+        if (maximumWeight > 0) {
+            return builder.maximumWeight(maximumWeight).weigher(weigher);
+        }
+        if (maximumSize > 0) {
+            return builder.maximumSize(maximumSize);
+        }
+        return builder;
+    }
+}
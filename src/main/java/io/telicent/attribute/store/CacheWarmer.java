@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.core.AttributesStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Preloads an attribute store's caches: looks up every given user, then the hierarchy of every attribute those users
+ * have.
+ * <p>
+ * Lookups run on virtual threads, with at most {@code concurrency} in flight at once so the remote store is not
+ * flooded. A lookup that fails is logged and counted, and does not stop the rest.
+ * </p>
+ */
+public class CacheWarmer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheWarmer.class);
+
+    /**
+     * Default maximum number of lookups in flight
+     */
+    public static final int DEFAULT_CONCURRENCY = 16;
+
+    private final AttributesStore store;
+    private final int concurrency;
+
+    /**
+     * Create new Cache Warmer
+     * @param store the (caching) store to warm
+     * @param concurrency most lookups in flight at once
+     */
+    public CacheWarmer(AttributesStore store, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+        }
+        this.store = store;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Warm the store for the given users and the hierarchies they reference
+     * @param users the users to preload
+     * @return what was loaded
+     */
+    public Result warm(Collection<String> users) {
+        long start = System.nanoTime();
+        Set<Attribute> attributes = ConcurrentHashMap.newKeySet();
+        AtomicInteger usersLoaded = new AtomicInteger();
+        AtomicInteger hierarchiesLoaded = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        forEach(users, failures, user -> {
+            AttributeValueSet avSet = store.attributes(user);
+            if (avSet != null) {
+                usersLoaded.incrementAndGet();
+                avSet.attributeValues(attributeValue -> attributes.add(attributeValue.attribute()));
+            }
+        });
+        forEach(attributes, failures, attribute -> {
+            if (store.getHierarchy(attribute) != null) {
+                hierarchiesLoaded.incrementAndGet();
+            }
+        });
+        Result result = new Result(usersLoaded.get(), hierarchiesLoaded.get(), failures.get(),
+                                   Duration.ofNanos(System.nanoTime() - start));
+        LOGGER.info("Cache warm-up loaded {} users and {} hierarchies in {} ({} failures)", result.users(),
+                    result.hierarchies(), result.duration(), result.failures());
+        return result;
+    }
+
+    private <T> void forEach(Collection<T> items, AtomicInteger failures, Consumer<T> lookup) {
+        Semaphore permits = new Semaphore(concurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (T item : items) {
+                permits.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        lookup.accept(item);
+                    } catch (RuntimeException ex) {
+                        failures.incrementAndGet();
+                        LOGGER.warn("Cache warm-up failed for {}: {}", item, ex.getMessage());
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * The outcome of a warm-up
+     * @param users number of users loaded (unknown users are not counted)
+     * @param hierarchies number of hierarchies loaded
+     * @param failures number of lookups that failed
+     * @param duration how long the warm-up took
+     */
+    public record Result(int users, int hierarchies, int failures, Duration duration) {}
+}
@@ -12,23 +12,90 @@
  */
 package io.telicent.attribute.store;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.telicent.attribute.utils.Metrics;
+import io.telicent.attribute.utils.Metrics.Histogram;
 import io.telicent.jena.abac.AttributeValueSet;
 import io.telicent.jena.abac.Hierarchy;
 import io.telicent.jena.abac.attributes.Attribute;
 import io.telicent.jena.abac.core.AttributesStore;
 
 import java.time.Duration;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 /**
  * Simple cached wrapper around existing Attribute Store.
+ * <p>
+ * Concurrent misses for different users can be combined into one bulk lookup (see {@link BatchPolicy}). Entries are
+ * refreshed in the background ahead of expiry, with jittered expiry times and an optional window in which
+ * stale entries are served while they are reloaded (see {@link RefreshPolicy}).
+ * </p>
+ * <p>
+ * User attributes are interned through an {@link AttributeDictionary} as they are loaded, so users with the same
+ * attributes share one cached set. Dictionary IDs are never reused, so once the dictionary holds
+ * {@link #DICTIONARY_MAXIMUM_SIZE} values it is replaced by an empty one; sets interned earlier stay valid but are no
+ * longer shared with sets loaded later. Hierarchies are cached with their values indexed by rank (see
+ * {@link RankedValueList}).
+ * </p>
+ * <p>
+ * The user and hierarchy caches each have their own bound (by number of entries or by weight) and refresh policy (see
+ * {@link CacheSettings}), so hierarchies, which change far less often, can be held for longer.
+ * </p>
+ * <p>
+ * An optional second-level cache ({@link MappedAttributeCache}) holds users and hierarchies off-heap, in a file that
+ * outlives the process. A miss here is looked up there before going to the underlying store, and everything loaded
+ * from the underlying store is written to it (with a tombstone for a user or hierarchy that is not found, so an
+ * earlier entry is not served again). Anything it holds within its own {@code maxAge} is served, so a restarted process
+ * is warm at once. An entry taken from it is held in memory only for what is left of its lifetime, counted from when it
+ * was written there, and one already older than the refresh age is also reloaded from the underlying store straight
+ * away, in the background.
+ * </p>
+ * <p>
+ * Unknown users and attributes without a hierarchy are remembered in separate negative caches for the policy's
+ * (shorter) negative expiry, so repeated lookups of them do not go back to the underlying store. The number of lookups
+ * answered this way is available from {@link #unknownUserHitCount()} and {@link #missingHierarchyHitCount()}.
+ * </p>
+ * <p>
+ * The time taken by each lookup in the underlying store, and the number that fail, are recorded and reported with the
+ * cache statistics by {@link #registerMetrics(Metrics)}.
+ * </p>
  */
-public class CachedAttributeStore implements AttributesStore {
-    final Cache<String, AttributeValueSet> userAttributeCache;
-    final Cache<Attribute, Hierarchy> hierarchyCache;
+public class CachedAttributeStore implements AsyncAttributesStore {
+    /**
+     * Maximum number of unknown users (and, separately, attributes without a hierarchy) remembered
+     */
+    public static final long NEGATIVE_CACHE_MAXIMUM_SIZE = 10_000;
+    /**
+     * Number of distinct attribute values interned before the dictionary is replaced
+     */
+    public static final int DICTIONARY_MAXIMUM_SIZE = 100_000;
+
+    final LoadingCache<String, AttributeValueSet> userAttributeCache;
+    final AsyncLoadingCache<String, AttributeValueSet> asyncUserCache;
+    final LoadingCache<Attribute, Hierarchy> hierarchyCache;
+    final Cache<String, Boolean> unknownUserCache;
+    final Cache<Attribute, Boolean> missingHierarchyCache;
     final AttributesStore underlyingStore;
+    volatile AttributeDictionary dictionary = new AttributeDictionary();
+    final MappedAttributeCache secondLevelCache;
+    final Histogram userLookupLatency = new Histogram();
+    final Histogram hierarchyLookupLatency = new Histogram();
+    final LongAdder userLookupErrors = new LongAdder();
+    final LongAdder hierarchyLookupErrors = new LongAdder();
 
     /**
      * Create new Cached Attribute Store
@@ -36,14 +103,192 @@ public class CachedAttributeStore implements AttributesStore {
      * @param cacheExpiryTime How long to hold cached entries
      */
     public CachedAttributeStore(AttributesStore underlyingStore, Duration cacheExpiryTime) {
+        this(underlyingStore, RefreshPolicy.of(cacheExpiryTime));
+    }
+
+    /**
+     * Create new Cached Attribute Store
+     * @param underlyingStore Attribute store to reference
+     * @param refreshPolicy When to refresh and expire cached entries
+     */
+    public CachedAttributeStore(AttributesStore underlyingStore, RefreshPolicy refreshPolicy) {
+        this(underlyingStore, refreshPolicy, null);
+    }
+
+    /**
+     * Create new Cached Attribute Store, with the default size bounds for each cache
+     * @param underlyingStore Attribute store to reference
+     * @param refreshPolicy When to refresh and expire cached entries
+     * @param batchPolicy How to combine concurrent user misses into bulk lookups (only used if the underlying store
+     *                    is a {@link BulkAttributesStore}; null to look users up one at a time)
+     */
+    public CachedAttributeStore(AttributesStore underlyingStore, RefreshPolicy refreshPolicy,
+                                BatchPolicy batchPolicy) {
+        this(underlyingStore, CacheSettings.users(refreshPolicy), CacheSettings.hierarchies(refreshPolicy),
+             batchPolicy);
+    }
+
+    /**
+     * Create new Cached Attribute Store
+     * @param underlyingStore Attribute store to reference
+     * @param userCacheSettings Bound and refresh policy for cached user attributes
+     * @param hierarchyCacheSettings Bound and refresh policy for cached hierarchies
+     * @param batchPolicy How to combine concurrent user misses into bulk lookups (only used if the underlying store
+     *                    is a {@link BulkAttributesStore}; null to look users up one at a time)
+     */
+    public CachedAttributeStore(AttributesStore underlyingStore, CacheSettings userCacheSettings,
+                                CacheSettings hierarchyCacheSettings, BatchPolicy batchPolicy) {
+        this(underlyingStore, userCacheSettings, hierarchyCacheSettings, batchPolicy, null);
+    }
+
+    /**
+     * Create new Cached Attribute Store
+     * @param underlyingStore Attribute store to reference
+     * @param userCacheSettings Bound and refresh policy for cached user attributes
+     * @param hierarchyCacheSettings Bound and refresh policy for cached hierarchies
+     * @param batchPolicy How to combine concurrent user misses into bulk lookups (only used if the underlying store
+     *                    is a {@link BulkAttributesStore}; null to look users up one at a time)
+     * @param secondLevelCache Off-heap cache consulted before the underlying store (null for none)
+     */
+    public CachedAttributeStore(AttributesStore underlyingStore, CacheSettings userCacheSettings,
+                                CacheSettings hierarchyCacheSettings, BatchPolicy batchPolicy,
+                                MappedAttributeCache secondLevelCache) {
         this.underlyingStore = underlyingStore;
-        userAttributeCache = Caffeine.newBuilder().recordStats().expireAfterWrite(cacheExpiryTime).build();
-        hierarchyCache = Caffeine.newBuilder().recordStats().expireAfterWrite(cacheExpiryTime).build();
+        this.secondLevelCache = secondLevelCache;
+        Executor refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        Function<String, AttributeValueSet> userLoader = underlyingStore::attributes;
+        boolean batched = batchPolicy != null && underlyingStore instanceof BulkAttributesStore;
+        if (batched) {
+            userLoader = new UserLookupBatcher((BulkAttributesStore) underlyingStore, batchPolicy,
+                                               refreshExecutor)::attributes;
+        }
+        Function<String, AttributeValueSet> loader =
+                timed(userLoader, "user", Function.identity(), userLookupLatency, userLookupErrors);
+        Function<Attribute, Hierarchy> hierarchyLoader = timed(underlyingStore::getHierarchy, "hierarchy",
+                                                               Attribute::name, hierarchyLookupLatency,
+                                                               hierarchyLookupErrors);
+        TieredLoader<String, AttributeValueSet> userTiers =
+                new TieredLoader<>("users", Function.identity(),
+                                   secondLevelCache == null ? key -> null : secondLevelCache::heldAttributes, loader,
+                                   secondLevelCache == null ? (key, value) -> {} : secondLevelCache::putAttributes,
+                                   this::intern, userCacheSettings.refreshPolicy(), refreshExecutor);
+        TieredLoader<Attribute, Hierarchy> hierarchyTiers =
+                new TieredLoader<>("hierarchies", Attribute::name,
+                                   secondLevelCache == null ? key -> null : secondLevelCache::heldHierarchy,
+                                   hierarchyLoader,
+                                   secondLevelCache == null ? (key, value) -> {} : secondLevelCache::putHierarchy,
+                                   RankedValueList::index, hierarchyCacheSettings.refreshPolicy(), refreshExecutor);
+        Caffeine<String, AttributeValueSet> userBuilder =
+                builder(userCacheSettings.refreshPolicy(), userTiers, refreshExecutor);
+        userBuilder = userCacheSettings.bound(userBuilder, CachedAttributeStore::weigh);
+        if (batched) {
+            // Loads wait for their batch on the executor, so they do not hold the cache's lock for the user meanwhile
+            asyncUserCache = userBuilder.buildAsync(userTiers);
+            userAttributeCache = asyncUserCache.synchronous();
+        } else {
+            asyncUserCache = null;
+            userAttributeCache = userBuilder.build(userTiers);
+        }
+        userTiers.attach(userAttributeCache);
+        Caffeine<Attribute, Hierarchy> hierarchyBuilder =
+                builder(hierarchyCacheSettings.refreshPolicy(), hierarchyTiers, refreshExecutor);
+        hierarchyCache = hierarchyCacheSettings.bound(hierarchyBuilder, CachedAttributeStore::weigh)
+                                               .build(hierarchyTiers);
+        hierarchyTiers.attach(hierarchyCache);
+        unknownUserCache = negativeCache(userCacheSettings.refreshPolicy());
+        missingHierarchyCache = negativeCache(hierarchyCacheSettings.refreshPolicy());
+    }
+
+    private AttributeValueSet intern(AttributeValueSet avSet) {
+        AttributeDictionary current = dictionary;
+        if (current.size() >= DICTIONARY_MAXIMUM_SIZE) {
+            current = new AttributeDictionary();
+            dictionary = current;
+        }
+        return current.intern(avSet);
+    }
+
+    private static <K, V> Function<K, V> timed(Function<K, V> lookup, String lookupName, Function<K, String> keyName,
+                                               Histogram latency, LongAdder errors) {
+        return key -> {
+            RemoteLookupEvent event = new RemoteLookupEvent();
+            event.begin();
+            long start = System.nanoTime();
+            V value = null;
+            boolean failed = true;
+            try {
+                value = lookup.apply(key);
+                failed = false;
+                return value;
+            } catch (RuntimeException ex) {
+                errors.increment();
+                throw ex;
+            } finally {
+                latency.observeNanos(System.nanoTime() - start);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.lookup = lookupName;
+                    event.key = keyName.apply(key);
+                    event.found = value != null;
+                    event.failed = failed;
+                    event.commit();
+                }
+            }
+        };
+    }
+
+    private static int weigh(String user, AttributeValueSet avSet) {
+        int[] weight = {1};
+        avSet.attributeValues(attributeValue -> weight[0]++);
+        return weight[0];
+    }
+
+    private static int weigh(Attribute attribute, Hierarchy hierarchy) {
+        return 1 + hierarchy.values().size();
+    }
+
+    private static <K> Cache<K, Boolean> negativeCache(RefreshPolicy refreshPolicy) {
+        Duration negativeExpiry = refreshPolicy.negativeExpiry();
+        if (negativeExpiry == null || !negativeExpiry.isPositive()) {
+            return null;
+        }
+        return Caffeine.newBuilder().recordStats().maximumSize(NEGATIVE_CACHE_MAXIMUM_SIZE)
+                       .expireAfterWrite(negativeExpiry).build();
+    }
+
+    private static <K, V> Caffeine<K, V> builder(RefreshPolicy refreshPolicy, Expiry<K, V> expiry,
+                                                 Executor refreshExecutor) {
+        Caffeine<K, V> builder = Caffeine.newBuilder().recordStats().executor(refreshExecutor).expireAfter(expiry);
+        Duration refreshInterval = refreshPolicy.refreshInterval();
+        if (refreshInterval != null) {
+            builder.refreshAfterWrite(refreshInterval);
+        }
+        return builder;
     }
 
     @Override
     public AttributeValueSet attributes(String user) {
-        return userAttributeCache.get(user, underlyingStore::attributes);
+        return getOrRemember(userAttributeCache, unknownUserCache, user);
+    }
+
+    @Override
+    public boolean isAvailable(String user) {
+        return isCached(user)
+               || (unknownUserCache != null && unknownUserCache.getIfPresent(user) != null);
+    }
+
+    private boolean isCached(String user) {
+        if (asyncUserCache == null) {
+            return userAttributeCache.getIfPresent(user) != null;
+        }
+        // Only a completed load counts; the synchronous view would wait for one still in flight
+        CompletableFuture<AttributeValueSet> future = asyncUserCache.getIfPresent(user);
+        return future != null && future.isDone() && !future.isCompletedExceptionally() && future.join() != null;
+    }
+
+    @Override
+    public boolean hasLocalHierarchies() {
+        return false;
     }
 
     @Override
@@ -59,6 +304,200 @@ public class CachedAttributeStore implements AttributesStore {
 
     @Override
     public Hierarchy getHierarchy(Attribute attribute) {
-        return hierarchyCache.get(attribute, underlyingStore::getHierarchy);
+        return getOrRemember(hierarchyCache, missingHierarchyCache, attribute);
+    }
+
+    /**
+     * Number of unknown user lookups answered from the negative cache (each one a call to the underlying store saved)
+     * @return hit count
+     */
+    public long unknownUserHitCount() {
+        return unknownUserCache == null ? 0 : unknownUserCache.stats().hitCount();
+    }
+
+    /**
+     * Number of missing hierarchy lookups answered from the negative cache (each one a call to the underlying store
+     * saved)
+     * @return hit count
+     */
+    public long missingHierarchyHitCount() {
+        return missingHierarchyCache == null ? 0 : missingHierarchyCache.stats().hitCount();
+    }
+
+    /**
+     * Register this store's metrics: the statistics of both caches, the negative cache hits, the latency and errors of
+     * lookups in the underlying store and, if there is one, the second-level cache's hits, misses and size
+     * @param metrics the registry
+     */
+    public void registerMetrics(Metrics metrics) {
+        String negativeHits = "Lookups answered from the negative cache (unknown users, attributes with no hierarchy)";
+        String lookupLatency = "Time taken by lookups in the remote attribute store";
+        String lookupErrors = "Lookups in the remote attribute store that failed";
+        metrics.cache("ale_attribute_cache", "users", userAttributeCache)
+               .cache("ale_attribute_cache", "hierarchies", hierarchyCache)
+               .counter("ale_attribute_cache_negative_hits_total", negativeHits, this::unknownUserHitCount,
+                        "cache", "users")
+               .counter("ale_attribute_cache_negative_hits_total", negativeHits, this::missingHierarchyHitCount,
+                        "cache", "hierarchies")
+               .histogram("ale_remote_lookup_duration_seconds", lookupLatency, userLookupLatency, "lookup", "user")
+               .histogram("ale_remote_lookup_duration_seconds", lookupLatency, hierarchyLookupLatency,
+                          "lookup", "hierarchy")
+               .counter("ale_remote_lookup_errors_total", lookupErrors, userLookupErrors::sum, "lookup", "user")
+               .counter("ale_remote_lookup_errors_total", lookupErrors, hierarchyLookupErrors::sum,
+                        "lookup", "hierarchy");
+        if (secondLevelCache != null) {
+            metrics.counter("ale_second_level_cache_hits_total", "Second-level cache hits",
+                            secondLevelCache::hitCount)
+                   .counter("ale_second_level_cache_misses_total", "Second-level cache misses",
+                            secondLevelCache::missCount)
+                   .gauge("ale_second_level_cache_size", "Entries in the second-level cache", secondLevelCache::size);
+        }
+    }
+
+    private static <K, V> V getOrRemember(LoadingCache<K, V> cache, Cache<K, Boolean> negativeCache, K key) {
+        if (negativeCache == null) {
+            return cache.get(key);
+        }
+        if (negativeCache.getIfPresent(key) != null) {
+            return null;
+        }
+        V value = cache.get(key);
+        if (value == null) {
+            negativeCache.put(key, Boolean.TRUE);
+        }
+        return value;
+    }
+
+    /**
+     * Loads an entry from the second-level cache if it has it, otherwise from the underlying store (writing the
+     * value, or a tombstone if there is none, back to the second-level cache). Refreshes always go to the underlying
+     * store. Each load is recorded as a {@link CacheLoadEvent}.
+     * <p>
+     * Also the cache's expiry: the refresh policy's, less the age of an entry taken from the second-level cache, so it
+     * is not held for longer than one loaded when it was written there would have been. An entry from the second-level
+     * cache that is already older than the refresh age is reloaded from the underlying store in the background (once
+     * at a time per key); if that fails, it is reloaded when the entry expires.
+     * </p>
+     */
+    private static final class TieredLoader<K, V> implements CacheLoader<K, V>, Expiry<K, V> {
+        private final String cacheName;
+        private final Function<K, String> keyName;
+        private final Function<K, MappedAttributeCache.Held<V>> secondLevel;
+        private final Function<K, V> underlying;
+        private final BiConsumer<K, V> writeBack;
+        private final UnaryOperator<V> prepare;
+        private final Expiry<K, V> policyExpiry;
+        private final long refreshAgeNanos;
+        private final Executor executor;
+        private final Map<K, Long> secondLevelAges = new ConcurrentHashMap<>();
+        private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+        private volatile LoadingCache<K, V> cache;
+
+        TieredLoader(String cacheName, Function<K, String> keyName,
+                     Function<K, MappedAttributeCache.Held<V>> secondLevel, Function<K, V> underlying,
+                     BiConsumer<K, V> writeBack, UnaryOperator<V> prepare, RefreshPolicy refreshPolicy,
+                     Executor executor) {
+            this.cacheName = cacheName;
+            this.keyName = keyName;
+            this.secondLevel = secondLevel;
+            this.underlying = underlying;
+            this.writeBack = writeBack;
+            this.prepare = prepare;
+            this.policyExpiry = refreshPolicy.jitteredExpiry();
+            Duration refreshInterval = refreshPolicy.refreshInterval();
+            this.refreshAgeNanos = (refreshInterval != null ? refreshInterval : refreshPolicy.expiry()).toNanos();
+            this.executor = executor;
+        }
+
+        void attach(LoadingCache<K, V> cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public V load(K key) {
+            CacheLoadEvent event = new CacheLoadEvent();
+            event.begin();
+            MappedAttributeCache.Held<V> held = secondLevel.apply(key);
+            if (held != null) {
+                long ageNanos = held.age().toNanos();
+                secondLevelAges.put(key, ageNanos);
+                commit(event, key, "second-level", false, true);
+                if (ageNanos >= refreshAgeNanos) {
+                    refreshInBackground(key);
+                }
+                return prepare.apply(held.value());
+            }
+            V value = fromUnderlying(key);
+            commit(event, key, "remote", false, value != null);
+            return value;
+        }
+
+        @Override
+        public V reload(K key, V oldValue) {
+            CacheLoadEvent event = new CacheLoadEvent();
+            event.begin();
+            V value = fromUnderlying(key);
+            commit(event, key, "remote", true, value != null);
+            return value;
+        }
+
+        private V fromUnderlying(K key) {
+            V value = underlying.apply(key);
+            writeBack.accept(key, value);
+            return value == null ? null : prepare.apply(value);
+        }
+
+        private void refreshInBackground(K key) {
+            LoadingCache<K, V> target = cache;
+            if (target == null || !refreshing.add(key)) {
+                return;
+            }
+            executor.execute(() -> {
+                try {
+                    V value = reload(key, null);
+                    if (value == null) {
+                        target.invalidate(key);
+                    } else {
+                        target.put(key, value);
+                    }
+                } catch (RuntimeException ex) {
+                    // Already counted as a failed lookup; the entry is reloaded once it expires
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        }
+
+        @Override
+        public long expireAfterCreate(K key, V value, long currentTime) {
+            return lessSecondLevelAge(key, policyExpiry.expireAfterCreate(key, value, currentTime));
+        }
+
+        @Override
+        public long expireAfterUpdate(K key, V value, long currentTime, long currentDuration) {
+            return lessSecondLevelAge(key, policyExpiry.expireAfterUpdate(key, value, currentTime, currentDuration));
+        }
+
+        @Override
+        public long expireAfterRead(K key, V value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        private long lessSecondLevelAge(K key, long lifetime) {
+            Long ageNanos = secondLevelAges.remove(key);
+            return ageNanos == null ? lifetime : Math.max(lifetime - ageNanos, 0);
+        }
+
+        private void commit(CacheLoadEvent event, K key, String source, boolean refresh, boolean found) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.cache = cacheName;
+                event.key = keyName.apply(key);
+                event.source = source;
+                event.refresh = refresh;
+                event.found = found;
+                event.commit();
+            }
+        }
     }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.core.AttributesStore;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Attribute store holding every user in a few primitive arrays, for very large local attribute files.
+ * <p>
+ * The store is built from another store (typically the one parsed from the attribute file), which is not referenced
+ * afterwards, so the parsed graph and its per-user objects can be collected. What is kept is:
+ * </p>
+ * <ul>
+ *     <li>the user names, UTF-8 encoded end to end in one byte array, with an array of their offsets;</li>
+ *     <li>for each user, the index of its attribute set, each distinct set being held once;</li>
+ *     <li>an open-addressing hash table of user indexes, so a user is found with a hash and (usually) one compare;</li>
+ *     <li>the hierarchies of the attributes users hold, indexed by rank (see {@link RankedValueList}).</li>
+ * </ul>
+ * <p>
+ * That is roughly 16 bytes per user plus the name, against several hundred bytes of objects per user in the graph.
+ * </p>
+ */
+public class CompactAttributesStore implements AsyncAttributesStore {
+
+    private final byte[] names;
+    private final int[] nameOffsets;
+    private final int[] userSets;
+    private final int[] slots;
+    private final AttributeValueSet[] attributeSets;
+    private final Map<Attribute, Hierarchy> hierarchies;
+    private final Set<String> users = new UserNames();
+
+    /**
+     * Create new Compact Attribute Store
+     * @param underlyingStore Attribute store to copy
+     */
+    public CompactAttributesStore(AttributesStore underlyingStore) {
+        AttributeDictionary dictionary = new AttributeDictionary();
+        Map<BitSet, Integer> setIndexes = new HashMap<>();
+        List<AttributeValueSet> distinctSets = new ArrayList<>();
+        Set<String> heldAttributes = new HashSet<>();
+        ByteArrayOutputStream encodedNames = new ByteArrayOutputStream();
+        int capacity = underlyingStore.users().size();
+        int[] offsets = new int[capacity + 1];
+        int[] sets = new int[capacity];
+        int count = 0;
+        for (String user : underlyingStore.users()) {
+            AttributeValueSet avSet = underlyingStore.attributes(user);
+            if (avSet == null) {
+                continue;
+            }
+            Integer setIndex = setIndexes.putIfAbsent(dictionary.encode(avSet), distinctSets.size());
+            if (setIndex == null) {
+                setIndex = distinctSets.size();
+                distinctSets.add(avSet);
+                avSet.attributeValues(attributeValue -> heldAttributes.add(attributeValue.attribute().name()));
+            }
+            encodedNames.writeBytes(user.getBytes(StandardCharsets.UTF_8));
+            sets[count] = setIndex;
+            offsets[++count] = encodedNames.size();
+        }
+        this.names = encodedNames.toByteArray();
+        this.nameOffsets = Arrays.copyOf(offsets, count + 1);
+        this.userSets = Arrays.copyOf(sets, count);
+        this.attributeSets = distinctSets.toArray(AttributeValueSet[]::new);
+        this.slots = new int[Integer.highestOneBit(Math.max(count, 1)) * 4];
+        for (int index = 0; index < count; index++) {
+            int slot = hash(names, nameOffsets[index], nameOffsets[index + 1]) & (slots.length - 1);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            slots[slot] = index + 1;
+        }
+        Map<Attribute, Hierarchy> indexed = new HashMap<>();
+        for (String name : heldAttributes) {
+            Attribute attribute = new Attribute(name);
+            if (underlyingStore.hasHierarchy(attribute)) {
+                Hierarchy hierarchy = underlyingStore.getHierarchy(attribute);
+                if (hierarchy != null) {
+                    indexed.put(attribute, RankedValueList.index(hierarchy));
+                }
+            }
+        }
+        this.hierarchies = Map.copyOf(indexed);
+    }
+
+    @Override
+    public AttributeValueSet attributes(String user) {
+        int index = find(user.getBytes(StandardCharsets.UTF_8));
+        return index < 0 ? null : attributeSets[userSets[index]];
+    }
+
+    @Override
+    public boolean isAvailable(String user) {
+        return true;
+    }
+
+    /**
+     * Number of distinct attribute sets held
+     * @return distinct set count
+     */
+    public int distinctSetCount() {
+        return attributeSets.length;
+    }
+
+    @Override
+    public Set<String> users() {
+        return users;
+    }
+
+    @Override
+    public boolean hasHierarchy(Attribute attribute) {
+        return hierarchies.containsKey(attribute);
+    }
+
+    @Override
+    public Hierarchy getHierarchy(Attribute attribute) {
+        return hierarchies.get(attribute);
+    }
+
+    private int find(byte[] user) {
+        int slot = hash(user, 0, user.length) & (slots.length - 1);
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int index = entry - 1;
+            if (Arrays.equals(names, nameOffsets[index], nameOffsets[index + 1], user, 0, user.length)) {
+                return index;
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        return -1;
+    }
+
+    private String name(int index) {
+        int from = nameOffsets[index];
+        return new String(names, from, nameOffsets[index + 1] - from, StandardCharsets.UTF_8);
+    }
+
+    private static int hash(byte[] bytes, int from, int to) {
+        int hash = 1;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        // Spread the bits, as only the low ones pick the slot.
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * The user names, decoded as they are iterated rather than held as strings
+     */
+    private class UserNames extends AbstractSet<String> {
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String user && find(user.getBytes(StandardCharsets.UTF_8)) >= 0;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < userSets.length;
+                }
+
+                @Override
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return name(next++);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return userSets.length;
+        }
+    }
+}
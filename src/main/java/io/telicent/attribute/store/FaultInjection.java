@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Latency and failures the Simple Attribute Server adds to its responses, to stand in for a slow or unreliable remote
+ * attribute store when testing the evaluator.
+ * <p>
+ * Each endpoint (user lookups, single and bulk, and hierarchy lookups) has its own latency distribution, error rate
+ * and timeout rate. An error is answered with {@code 503} after the usual delay; a timeout holds the request for
+ * {@code timeoutDelay} and then answers {@code 504}. User lookups can also be made consistently slower or faster for
+ * particular users: each user's delay is scaled by a fixed factor derived from the user name, log-normal with
+ * {@code userVariation} as its sigma, so a handful of users are always slow. A bulk lookup is as slow as its slowest
+ * user.
+ * </p>
+ * @param users faults injected into user lookups
+ * @param hierarchies faults injected into hierarchy lookups
+ * @param userVariation sigma of the per-user delay factor (zero for none)
+ * @param timeoutDelay how long a timed out request is held
+ */
+public record FaultInjection(EndpointFaults users, EndpointFaults hierarchies, double userVariation,
+                             Duration timeoutDelay) {
+
+    /**
+     * Default time a timed out request is held
+     */
+    public static final Duration DEFAULT_TIMEOUT_DELAY = Duration.ofSeconds(30);
+
+    /**
+     * No faults
+     */
+    public static final FaultInjection NONE =
+            new FaultInjection(EndpointFaults.NONE, EndpointFaults.NONE, 0, DEFAULT_TIMEOUT_DELAY);
+
+    /**
+     * Create new Fault Injection
+     * @param users faults injected into user lookups
+     * @param hierarchies faults injected into hierarchy lookups
+     * @param userVariation sigma of the per-user delay factor (zero for none)
+     * @param timeoutDelay how long a timed out request is held
+     */
+    public FaultInjection {
+        if (userVariation < 0 || Double.isNaN(userVariation)) {
+            throw new IllegalArgumentException("User variation cannot be negative");
+        }
+        if (timeoutDelay.isNegative()) {
+            throw new IllegalArgumentException("Timeout delay cannot be negative");
+        }
+    }
+
+    /**
+     * Whether any faults are injected
+     * @return true if all endpoints answer at once and never fail
+     */
+    public boolean isNone() {
+        return users.isNone() && hierarchies.isNone();
+    }
+
+    /**
+     * The factor a user's delays are scaled by; the same on every call for the same user
+     * @param user the user
+     * @return delay factor (1 if there is no user variation)
+     */
+    public double userFactor(String user) {
+        if (userVariation == 0) {
+            return 1;
+        }
+        return Math.exp(userVariation * new SplittableRandom(user.hashCode()).nextGaussian());
+    }
+
+    /**
+     * What happens to a request
+     */
+    public enum Outcome {
+        /** Answered normally, after the delay */
+        RESPOND,
+        /** Answered with an error, after the delay */
+        ERROR,
+        /** Held for the timeout delay, then answered with an error */
+        TIMEOUT
+    }
+
+    /**
+     * Faults injected into one endpoint
+     * @param latency delay added to each request
+     * @param errorRate fraction of requests answered with an error
+     * @param timeoutRate fraction of requests that time out
+     */
+    public record EndpointFaults(LatencyDistribution latency, double errorRate, double timeoutRate) {
+
+        /**
+         * No delay and no failures
+         */
+        public static final EndpointFaults NONE = new EndpointFaults(LatencyDistribution.NONE, 0, 0);
+
+        /**
+         * Create new Endpoint Faults
+         * @param latency delay added to each request
+         * @param errorRate fraction of requests answered with an error
+         * @param timeoutRate fraction of requests that time out
+         */
+        public EndpointFaults {
+            if (!(errorRate >= 0 && timeoutRate >= 0 && errorRate + timeoutRate <= 1)) {
+                throw new IllegalArgumentException("Error and timeout rates must be between 0 and 1 in total");
+            }
+        }
+
+        /**
+         * Whether this endpoint answers at once and never fails
+         * @return true if no faults are injected
+         */
+        public boolean isNone() {
+            return NONE.latency.equals(latency) && errorRate == 0 && timeoutRate == 0;
+        }
+
+        /**
+         * Decide what happens to a request
+         * @param random source of randomness
+         * @return the outcome
+         */
+        public Outcome outcome(RandomGenerator random) {
+            if (errorRate == 0 && timeoutRate == 0) {
+                return Outcome.RESPOND;
+            }
+            double draw = random.nextDouble();
+            if (draw < timeoutRate) {
+                return Outcome.TIMEOUT;
+            }
+            return draw < timeoutRate + errorRate ? Outcome.ERROR : Outcome.RESPOND;
+        }
+    }
+}
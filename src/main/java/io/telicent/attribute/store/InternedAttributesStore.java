@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.core.AttributesStore;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Attribute store holding every user's attributes with those of users with the same attributes shared.
+ * <p>
+ * The users are read once, when the store is created. Each distinct set of attributes (as encoded by an
+ * {@link AttributeDictionary}) is held once, as the first {@link AttributeValueSet} seen with those attributes (so its
+ * values keep the order the underlying store gave them), and users with the same attributes point at that instance.
+ * The hierarchies of the attributes users hold are copied at the same time, indexed by rank (see
+ * {@link RankedValueList}), so no reference to the underlying store is kept.
+ * </p>
+ */
+public class InternedAttributesStore implements AsyncAttributesStore {
+    private final Map<String, AttributeValueSet> userAttributes;
+    private final Map<Attribute, Hierarchy> hierarchies;
+
+    /**
+     * Create new Interned Attribute Store
+     * @param underlyingStore Attribute store to read
+     */
+    public InternedAttributesStore(AttributesStore underlyingStore) {
+        AttributeDictionary dictionary = new AttributeDictionary();
+        Map<String, AttributeValueSet> interned = new HashMap<>();
+        Map<BitSet, AttributeValueSet> distinctSets = new HashMap<>();
+        Set<String> heldAttributes = new HashSet<>();
+        for (String user : underlyingStore.users()) {
+            AttributeValueSet avSet = underlyingStore.attributes(user);
+            if (avSet != null) {
+                AttributeValueSet existing = distinctSets.putIfAbsent(dictionary.encode(avSet), avSet);
+                if (existing == null) {
+                    avSet.attributeValues(attributeValue -> heldAttributes.add(attributeValue.attribute().name()));
+                }
+                interned.put(user, existing == null ? avSet : existing);
+            }
+        }
+        this.userAttributes = Map.copyOf(interned);
+        Map<Attribute, Hierarchy> indexed = new HashMap<>();
+        for (String name : heldAttributes) {
+            Attribute attribute = new Attribute(name);
+            if (underlyingStore.hasHierarchy(attribute)) {
+                Hierarchy hierarchy = underlyingStore.getHierarchy(attribute);
+                if (hierarchy != null) {
+                    indexed.put(attribute, RankedValueList.index(hierarchy));
+                }
+            }
+        }
+        this.hierarchies = Map.copyOf(indexed);
+    }
+
+    @Override
+    public AttributeValueSet attributes(String user) {
+        return userAttributes.get(user);
+    }
+
+    @Override
+    public boolean isAvailable(String user) {
+        return true;
+    }
+
+    @Override
+    public Set<String> users() {
+        return userAttributes.keySet();
+    }
+
+    @Override
+    public boolean hasHierarchy(Attribute attribute) {
+        return hierarchies.containsKey(attribute);
+    }
+
+    @Override
+    public Hierarchy getHierarchy(Attribute attribute) {
+        return hierarchies.get(attribute);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import org.apache.jena.cmd.CmdException;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+import static io.telicent.attribute.utils.AttributeUtils.parseDuration;
+
+/**
+ * How long an injected delay lasts, drawn afresh for each request.
+ * <p>
+ * Written as {@code fixed:<duration>}, {@code uniform:<min>,<max>} or {@code longtail:<median>,<p99>}, with ISO-8601
+ * durations, e.g. {@code longtail:PT0.01S,PT0.5S}. A long tail is log-normal: half the delays are under the median
+ * and one in a hundred is over the 99th percentile, with no upper bound.
+ * </p>
+ */
+public sealed interface LatencyDistribution {
+
+    /**
+     * No delay
+     */
+    LatencyDistribution NONE = new Fixed(Duration.ZERO);
+
+    /**
+     * Draw a delay
+     * @param random source of randomness
+     * @return delay in nanoseconds
+     */
+    long sampleNanos(RandomGenerator random);
+
+    /**
+     * Parse a distribution
+     * @param spec the distribution, e.g. {@code uniform:PT0.005S,PT0.05S}
+     * @param defaultDistribution what to use if no value is given
+     * @return the distribution
+     */
+    static LatencyDistribution parse(String spec, LatencyDistribution defaultDistribution) {
+        if (spec == null || spec.isEmpty()) {
+            return defaultDistribution;
+        }
+        int colon = spec.indexOf(':');
+        String kind = colon < 0 ? spec : spec.substring(0, colon);
+        String[] args = colon < 0 ? new String[0] : spec.substring(colon + 1).split(",");
+        LatencyDistribution distribution;
+        try {
+            distribution = switch (kind) {
+                case "fixed" -> args.length == 1 ? new Fixed(duration(args[0])) : null;
+                case "uniform" -> args.length == 2 ? new Uniform(duration(args[0]), duration(args[1])) : null;
+                case "longtail" -> args.length == 2 ? new LongTail(duration(args[0]), duration(args[1])) : null;
+                default -> null;
+            };
+        } catch (IllegalArgumentException ex) {
+            throw new CmdException("Bad latency distribution: '" + spec + "' (" + ex.getMessage() + ")", ex);
+        }
+        if (distribution == null) {
+            throw new CmdException("Bad latency distribution: '" + spec
+                                   + "' (expected fixed:<duration>, uniform:<min>,<max> or longtail:<median>,<p99>)");
+        }
+        return distribution;
+    }
+
+    private static Duration duration(String durationStr) {
+        Duration duration = parseDuration(durationStr.trim(), null);
+        if (duration == null || duration.isNegative()) {
+            throw new IllegalArgumentException("durations must not be negative");
+        }
+        return duration;
+    }
+
+    /**
+     * Always the same delay
+     * @param delay the delay
+     */
+    record Fixed(Duration delay) implements LatencyDistribution {
+        @Override
+        public long sampleNanos(RandomGenerator random) {
+            return delay.toNanos();
+        }
+    }
+
+    /**
+     * Delays spread evenly between two bounds
+     * @param min shortest delay
+     * @param max longest delay
+     */
+    record Uniform(Duration min, Duration max) implements LatencyDistribution {
+
+        /**
+         * Create a uniform distribution
+         * @param min shortest delay
+         * @param max longest delay
+         */
+        public Uniform {
+            if (max.compareTo(min) < 0) {
+                throw new IllegalArgumentException("max is less than min");
+            }
+        }
+
+        @Override
+        public long sampleNanos(RandomGenerator random) {
+            long minNanos = min.toNanos();
+            long maxNanos = max.toNanos();
+            return minNanos == maxNanos ? minNanos : random.nextLong(minNanos, maxNanos + 1);
+        }
+    }
+
+    /**
+     * Log-normal delays: most near the median, a few far beyond it
+     * @param median the median delay
+     * @param p99 the 99th percentile delay
+     */
+    record LongTail(Duration median, Duration p99) implements LatencyDistribution {
+
+        /** z-score of the 99th percentile of the standard normal distribution */
+        private static final double Z_99 = 2.3263;
+
+        /**
+         * Create a long tail distribution
+         * @param median the median delay
+         * @param p99 the 99th percentile delay
+         */
+        public LongTail {
+            if (!median.isPositive() || p99.compareTo(median) < 0) {
+                throw new IllegalArgumentException("median must be positive and p99 at least the median");
+            }
+        }
+
+        @Override
+        public long sampleNanos(RandomGenerator random) {
+            double mu = Math.log(median.toNanos());
+            double sigma = (Math.log(p99.toNanos()) - mu) / Z_99;
+            return (long) Math.exp(mu + sigma * random.nextGaussian());
+        }
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.attributes.ValueTerm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static io.telicent.attribute.utils.AttributeUtils.attributeValueString;
+import static io.telicent.attribute.utils.AttributeUtils.parseAttributeValues;
+
+/**
+ * Second-level cache of user attributes and hierarchies, held off-heap in a memory-mapped file.
+ * <p>
+ * The file is an append-only log: each entry is written after the last, and an on-heap index maps each user or
+ * attribute to its latest entry. The index is rebuilt by scanning the log when the file is opened, so a restarted
+ * process serves what was written before it stopped. Each entry is stamped with the time it was written; a lookup
+ * ignores entries older than the cache's {@code maxAge}, and reports the age of what it finds (see {@link Held}) so
+ * the caller can decide how much longer to keep it. A user or hierarchy that is no longer found is recorded with a
+ * tombstone, which hides any earlier entry for it. When the file is full it is compacted: the latest entry for each
+ * key is kept if it is still young enough to be used, and everything else (including tombstones) is dropped.
+ * </p>
+ * <pre>
+ *   header: int magic, int version, int end of log, int unused
+ *   entry:  int length (of the rest of the entry), byte kind, string key, long time written (epoch millis),
+ *           int count (-1 for a tombstone), string value * count
+ *   string: int length, UTF-8 bytes
+ * </pre>
+ * <p>
+ * User attributes are held as their string forms (as served by the attribute store's user lookups), hierarchies as
+ * their tier values.
+ * </p>
+ */
+public class MappedAttributeCache implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedAttributeCache.class);
+
+    /**
+     * Default size of the file
+     */
+    public static final long DEFAULT_CAPACITY = 256L * 1024 * 1024;
+
+    /**
+     * Default age after which entries are ignored
+     */
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofHours(1);
+
+    private static final int MAGIC = 0x41424143;
+    private static final int VERSION = 1;
+    private static final int END_OFFSET = 8;
+    private static final int HEADER_SIZE = 16;
+    private static final byte USER = 1;
+    private static final byte HIERARCHY = 2;
+    private static final int TOMBSTONE = -1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long maxAgeMillis;
+    private final Map<Key, Integer> index = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private int end;
+
+    private MappedAttributeCache(FileChannel channel, MappedByteBuffer buffer, int capacity, Duration maxAge) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.maxAgeMillis = maxAge.toMillis();
+    }
+
+    /**
+     * Open (or create) the cache file
+     * @param file the file
+     * @param capacity size of the file in bytes (at most 2GB)
+     * @param maxAge age after which entries are ignored
+     * @return the cache, holding whatever entries the file already has
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static MappedAttributeCache open(Path file, long capacity, Duration maxAge) throws IOException {
+        if (capacity <= HEADER_SIZE || capacity > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bad capacity for second-level cache: " + capacity);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            MappedAttributeCache cache = new MappedAttributeCache(channel, buffer, (int) capacity, maxAge);
+            cache.load();
+            return cache;
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    private void load() {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            clear();
+            return;
+        }
+        int logEnd = buffer.getInt(END_OFFSET);
+        if (logEnd < HEADER_SIZE || logEnd > capacity) {
+            clear();
+            return;
+        }
+        int offset = HEADER_SIZE;
+        while (offset + Integer.BYTES <= logEnd) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + Integer.BYTES + length > logEnd) {
+                break;
+            }
+            int nameLength = buffer.getInt(offset + Integer.BYTES + 1);
+            if (nameLength < 0 || nameLength > length - 1 - Integer.BYTES) {
+                break;
+            }
+            index.put(new Key(buffer.get(offset + Integer.BYTES), readString(offset + Integer.BYTES + 1)), offset);
+            offset += Integer.BYTES + length;
+        }
+        end = offset;
+        buffer.putInt(END_OFFSET, end);
+        LOGGER.info("Second-level cache opened with {} entries ({} bytes used)", index.size(), end);
+    }
+
+    private void clear() {
+        index.clear();
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        end = HEADER_SIZE;
+        buffer.putInt(END_OFFSET, end);
+    }
+
+    /**
+     * Look up a user's attributes
+     * @param user the user
+     * @return the attributes, or null if not held (or too old, or recorded as not found)
+     */
+    public AttributeValueSet attributes(String user) {
+        Held<AttributeValueSet> held = heldAttributes(user);
+        return held == null ? null : held.value();
+    }
+
+    /**
+     * Look up a user's attributes, with their age
+     * @param user the user
+     * @return the attributes and how long ago they were written, or null if not held (or too old, or recorded as not
+     *         found)
+     */
+    public Held<AttributeValueSet> heldAttributes(String user) {
+        Held<List<String>> held = get(new Key(USER, user));
+        return held == null ? null : new Held<>(parseAttributeValues(held.value()), held.age());
+    }
+
+    /**
+     * Hold a user's attributes
+     * @param user the user
+     * @param avSet the attributes, or null to record that the user was not found
+     */
+    public void putAttributes(String user, AttributeValueSet avSet) {
+        List<String> values = null;
+        if (avSet != null) {
+            List<String> strings = new ArrayList<>();
+            avSet.attributeValues(attributeValue -> strings.add(attributeValueString(attributeValue)));
+            values = strings;
+        }
+        put(new Key(USER, user), values);
+    }
+
+    /**
+     * Look up an attribute's hierarchy
+     * @param attribute the attribute
+     * @return the hierarchy, or null if not held (or too old, or recorded as not found)
+     */
+    public Hierarchy getHierarchy(Attribute attribute) {
+        Held<Hierarchy> held = heldHierarchy(attribute);
+        return held == null ? null : held.value();
+    }
+
+    /**
+     * Look up an attribute's hierarchy, with its age
+     * @param attribute the attribute
+     * @return the hierarchy and how long ago it was written, or null if not held (or too old, or recorded as not
+     *         found)
+     */
+    public Held<Hierarchy> heldHierarchy(Attribute attribute) {
+        Held<List<String>> held = get(new Key(HIERARCHY, attribute.name()));
+        return held == null ? null
+                : new Held<>(Hierarchy.create(attribute.name(), held.value().toArray(String[]::new)), held.age());
+    }
+
+    /**
+     * Hold an attribute's hierarchy
+     * @param attribute the attribute
+     * @param hierarchy the hierarchy, or null to record that the attribute has none
+     */
+    public void putHierarchy(Attribute attribute, Hierarchy hierarchy) {
+        List<String> values = null;
+        if (hierarchy != null) {
+            values = new ArrayList<>(hierarchy.values().size());
+            for (ValueTerm value : hierarchy.values()) {
+                values.add(value.getString());
+            }
+        }
+        put(new Key(HIERARCHY, attribute.name()), values);
+    }
+
+    /**
+     * Number of users and hierarchies held (including tombstones and any too old to be used)
+     * @return entry count
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Number of lookups that found a usable entry
+     * @return hit count
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Number of lookups that found no usable entry
+     * @return miss count
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    private Held<List<String>> get(Key key) {
+        lock.readLock().lock();
+        try {
+            Integer offset = index.get(key);
+            if (offset == null) {
+                misses.increment();
+                return null;
+            }
+            int position = writtenPosition(offset);
+            int count = buffer.getInt(position + Long.BYTES);
+            long age = System.currentTimeMillis() - buffer.getLong(position);
+            if (count == TOMBSTONE || age > maxAgeMillis) {
+                misses.increment();
+                return null;
+            }
+            position += Long.BYTES + Integer.BYTES;
+            List<String> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(readString(position));
+                position += Integer.BYTES + buffer.getInt(position);
+            }
+            hits.increment();
+            return new Held<>(values, Duration.ofMillis(Math.max(age, 0)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(Key key, List<String> values) {
+        byte[] entry = encode(key, values, System.currentTimeMillis());
+        if (HEADER_SIZE + entry.length > capacity) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (end + entry.length > capacity) {
+                compact();
+            }
+            if (end + entry.length > capacity) {
+                LOGGER.info("Second-level cache full after compaction ({} entries), clearing it", index.size());
+                clear();
+            }
+            buffer.put(end, entry);
+            index.put(key, end);
+            end += entry.length;
+            buffer.putInt(END_OFFSET, end);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the latest entry for each key to the start of the log, in log order, dropping entries that are too old to
+     * be used and tombstones (the entries they hide are dropped with them). Called with the write lock held.
+     */
+    private void compact() {
+        int before = index.size();
+        long now = System.currentTimeMillis();
+        List<Map.Entry<Key, Integer>> latest = new ArrayList<>(index.entrySet());
+        latest.sort(Map.Entry.comparingByValue());
+        index.clear();
+        int target = HEADER_SIZE;
+        for (Map.Entry<Key, Integer> indexEntry : latest) {
+            int offset = indexEntry.getValue();
+            int position = writtenPosition(offset);
+            if (buffer.getInt(position + Long.BYTES) == TOMBSTONE || now - buffer.getLong(position) > maxAgeMillis) {
+                continue;
+            }
+            byte[] entry = new byte[Integer.BYTES + buffer.getInt(offset)];
+            buffer.get(offset, entry);
+            buffer.put(target, entry);
+            index.put(indexEntry.getKey(), target);
+            target += entry.length;
+        }
+        end = target;
+        buffer.putInt(END_OFFSET, end);
+        LOGGER.info("Second-level cache full, compacted from {} to {} entries ({} bytes used)", before, index.size(),
+                    end);
+    }
+
+    private int writtenPosition(int offset) {
+        int position = offset + Integer.BYTES + 1;
+        return position + Integer.BYTES + buffer.getInt(position);
+    }
+
+    private static byte[] encode(Key key, List<String> values, long written) {
+        byte[] name = key.name().getBytes(StandardCharsets.UTF_8);
+        List<String> held = values == null ? List.of() : values;
+        List<byte[]> encodedValues = new ArrayList<>(held.size());
+        int length = 1 + Integer.BYTES + name.length + Long.BYTES + Integer.BYTES;
+        for (String value : held) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            encodedValues.add(encoded);
+            length += Integer.BYTES + encoded.length;
+        }
+        ByteBuffer entry = ByteBuffer.allocate(Integer.BYTES + length);
+        entry.putInt(length).put(key.kind()).putInt(name.length).put(name).putLong(written)
+             .putInt(values == null ? TOMBSTONE : values.size());
+        for (byte[] encoded : encodedValues) {
+            entry.putInt(encoded.length).put(encoded);
+        }
+        return entry.array();
+    }
+
+    private String readString(int position) {
+        byte[] bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Flush the file to disk and close it (closing it again does nothing)
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!channel.isOpen()) {
+                return;
+            }
+            buffer.force();
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * An entry found in the cache
+     * @param value the user's attributes or the attribute's hierarchy
+     * @param age how long ago the entry was written
+     * @param <V> value type
+     */
+    public record Held<V>(V value, Duration age) {}
+
+    private record Key(byte kind, String name) {}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.ValueTerm;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Hierarchy value list with each value's rank indexed up front.
+ * <p>
+ * Hierarchy comparisons look values up by position in the list; here {@link #indexOf(Object)} and
+ * {@link #contains(Object)} are a single map lookup rather than a scan, so comparing two values is an integer compare
+ * of their ranks. The list is immutable.
+ * </p>
+ */
+public final class RankedValueList extends AbstractList<ValueTerm> implements RandomAccess {
+
+    private final ValueTerm[] values;
+    private final Map<ValueTerm, Integer> ranks;
+
+    private RankedValueList(List<ValueTerm> values) {
+        this.values = values.toArray(new ValueTerm[0]);
+        this.ranks = new HashMap<>(this.values.length * 2);
+        for (int i = 0; i < this.values.length; i++) {
+            ranks.putIfAbsent(this.values[i], i);
+        }
+    }
+
+    /**
+     * Index the hierarchy's values by rank
+     * @param hierarchy the hierarchy (may be null)
+     * @return an equal hierarchy backed by a ranked value list, or null if given null
+     */
+    public static Hierarchy index(Hierarchy hierarchy) {
+        if (hierarchy == null || hierarchy.values() instanceof RankedValueList) {
+            return hierarchy;
+        }
+        return new Hierarchy(hierarchy.attribute(), new RankedValueList(hierarchy.values()));
+    }
+
+    @Override
+    public ValueTerm get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        Integer rank = ranks.get(o);
+        return rank == null ? -1 : rank;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return ranks.containsKey(o);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * When cached attribute store entries are refreshed and expire.
+ * <p>
+ * An entry is reloaded in the background once it is older than {@code refreshAfter} and read again, with the old
+ * value served until the reload completes. It expires {@code expiry} after it was loaded, plus a random jitter of up to
+ * {@code jitter} so entries loaded together do not all expire together. For a further {@code staleWindow} an expired
+ * entry is still served (and reloaded in the background) rather than fetched in the foreground, covering a slow or
+ * unavailable remote store; if the reload fails the stale value is kept until the window closes.
+ * </p>
+ * <p>
+ * Lookups that find nothing (unknown users, attributes without a hierarchy) are remembered for
+ * {@code negativeExpiry}, which is normally shorter, so a user or hierarchy that is added remotely is seen soon.
+ * </p>
+ * @param expiry how long an entry is fresh
+ * @param refreshAfter age after which a read triggers a background reload (zero to disable)
+ * @param jitter maximum random extension of each entry's expiry
+ * @param staleWindow how long past expiry an entry may still be served while it is reloaded
+ * @param negativeExpiry how long a lookup that found nothing is remembered (zero to disable)
+ */
+public record RefreshPolicy(Duration expiry, Duration refreshAfter, Duration jitter, Duration staleWindow,
+                            Duration negativeExpiry) {
+
+    /**
+     * The default policy for the given expiry: refresh ahead at 80% of the expiry, up to 10% jitter, no stale window,
+     * and lookups that found nothing remembered for 20% of the expiry
+     * @param expiry how long an entry is fresh
+     * @return the policy
+     */
+    public static RefreshPolicy of(Duration expiry) {
+        return new RefreshPolicy(expiry, expiry.multipliedBy(4).dividedBy(5), expiry.dividedBy(10), Duration.ZERO,
+                                 expiry.dividedBy(5));
+    }
+
+    /**
+     * The age after which a read triggers a background reload: the refresh-ahead age if it is before expiry, otherwise
+     * the expiry itself if there is a stale window to serve from while reloading
+     * @return the refresh age, or null if entries are never refreshed in the background
+     */
+    public Duration refreshInterval() {
+        if (refreshAfter.isPositive() && refreshAfter.compareTo(expiry) < 0) {
+            return refreshAfter;
+        }
+        return staleWindow.isPositive() ? expiry : null;
+    }
+
+    /**
+     * The Caffeine expiry for this policy: each entry is held for the expiry and stale window plus its own jitter
+     * @param <K> key type
+     * @param <V> value type
+     * @return the expiry
+     */
+    <K, V> Expiry<K, V> jitteredExpiry() {
+        long heldNanos = expiry.plus(staleWindow).toNanos();
+        long jitterNanos = jitter.toNanos();
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(K key, V value, long currentTime) {
+                return jitterNanos <= 0 ? heldNanos : heldNanos + ThreadLocalRandom.current().nextLong(jitterNanos + 1);
+            }
+
+            @Override
+            public long expireAfterUpdate(K key, V value, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, value, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(K key, V value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.core.AttributesStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Local attribute store that follows changes to its file.
+ * <p>
+ * The file's directory is watched; when anything in it changes (and it has then been quiet for {@code settleTime}, so
+ * a file being written is not read half way through), the file is checked against the version last loaded: the file
+ * it resolves to through any symbolic links, its size and its modification time. A file replaced by a rename, or
+ * switched by swapping a symbolic link (as Kubernetes does for a mounted ConfigMap, through its {@code ..data} link),
+ * is seen as well as one written in place. If it has changed, a new store is built from it on the watcher thread and
+ * swapped in with a single volatile write. Lookups are never paused: until the swap they are served by the old store,
+ * afterwards by the new one; an evaluation that takes a {@link #snapshot()} is served wholly by one or the other. If
+ * the new file cannot be loaded the old store is kept. Listeners registered with {@link #onReload(Runnable)} are run
+ * after each swap, to invalidate caches that hold results from the old store.
+ * </p>
+ */
+public class ReloadingAttributesStore implements AsyncAttributesStore, AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReloadingAttributesStore.class);
+
+    /**
+     * Default time the file must be unchanged before it is reloaded
+     */
+    public static final Duration DEFAULT_SETTLE_TIME = Duration.ofMillis(500);
+
+    private final Path file;
+    private final Function<Path, AttributesStore> loader;
+    private final Duration settleTime;
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+    private volatile AttributesStore current;
+    private volatile FileVersion loadedVersion;
+    private volatile WatchService watchService;
+
+    /**
+     * Create new Reloading Attributes Store, loading the file straight away (call {@link #watch()} to follow changes)
+     * @param file the attribute file
+     * @param loader builds a store from the file
+     * @param settleTime how long the file must be unchanged before it is reloaded
+     */
+    public ReloadingAttributesStore(Path file, Function<Path, AttributesStore> loader, Duration settleTime) {
+        this.file = file.toAbsolutePath();
+        this.loader = loader;
+        this.settleTime = settleTime;
+        this.loadedVersion = FileVersion.of(this.file);
+        this.current = loader.apply(this.file);
+    }
+
+    /**
+     * Start watching the file for changes
+     * @return this store
+     * @throws IOException if the file's directory cannot be watched
+     */
+    public ReloadingAttributesStore watch() throws IOException {
+        WatchService service = file.getFileSystem().newWatchService();
+        file.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                                  StandardWatchEventKinds.ENTRY_DELETE);
+        watchService = service;
+        Thread.ofPlatform().daemon().name("attribute-store-watcher").start(() -> follow(service));
+        LOGGER.info("Watching {} for changes", file);
+        return this;
+    }
+
+    /**
+     * Register an action to run after each reload
+     * @param listener the action
+     */
+    public void onReload(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    /**
+     * Rebuild the store from the file now and swap it in
+     * @return true if the file was loaded, false if it could not be (the old store is kept)
+     */
+    public boolean reload() {
+        long start = System.nanoTime();
+        AttributesStore reloaded;
+        try {
+            loadedVersion = FileVersion.of(file);
+            reloaded = loader.apply(file);
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Failed to reload {}, keeping the current attributes: {}", file, ex.getMessage());
+            return false;
+        }
+        current = reloaded;
+        LOGGER.info("Reloaded {} in {}", file, Duration.ofNanos(System.nanoTime() - start));
+        for (Runnable listener : reloadListeners) {
+            listener.run();
+        }
+        return true;
+    }
+
+    private void follow(WatchService service) {
+        try {
+            while (true) {
+                service.take().reset();
+                // Wait for the writes to settle before reading the file.
+                WatchKey key;
+                while ((key = service.poll(settleTime.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+                if (hasChanged()) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ex) {
+            // Closed - stop watching.
+        }
+    }
+
+    private boolean hasChanged() {
+        try {
+            return !FileVersion.of(file).equals(loadedVersion);
+        } catch (UncheckedIOException ex) {
+            // Missing part way through a swap - the event that completes it will follow.
+            return false;
+        }
+    }
+
+    /**
+     * Stop watching the file
+     * @throws IOException if the watch cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        WatchService service = watchService;
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    @Override
+    public AttributesStore snapshot() {
+        return current;
+    }
+
+    @Override
+    public AttributeValueSet attributes(String user) {
+        return current.attributes(user);
+    }
+
+    @Override
+    public boolean isAvailable(String user) {
+        return true;
+    }
+
+    @Override
+    public Set<String> users() {
+        return current.users();
+    }
+
+    @Override
+    public boolean hasHierarchy(Attribute attribute) {
+        return current.hasHierarchy(attribute);
+    }
+
+    @Override
+    public Hierarchy getHierarchy(Attribute attribute) {
+        return current.getHierarchy(attribute);
+    }
+
+    /**
+     * What identifies a version of the file: where it resolves to, its size and when it was last modified
+     */
+    private record FileVersion(Path realPath, long size, FileTime modified) {
+
+        static FileVersion of(Path file) {
+            try {
+                Path realPath = file.toRealPath();
+                BasicFileAttributes attributes = Files.readAttributes(realPath, BasicFileAttributes.class);
+                return new FileVersion(realPath, attributes.size(), attributes.lastModifiedTime());
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+}
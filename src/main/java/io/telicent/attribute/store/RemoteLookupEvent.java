@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a lookup in the attribute store behind a {@link CachedAttributeStore}.
+ */
+@Name("io.telicent.ale.RemoteLookup")
+@Label("Remote Attribute Lookup")
+@Category({"Telicent", "Attribute Evaluator"})
+@Description("Lookup of a user or hierarchy in the remote attribute store")
+class RemoteLookupEvent extends Event {
+
+    @Label("Lookup")
+    @Description("user or hierarchy")
+    String lookup;
+
+    @Label("Key")
+    @Description("The user or attribute name")
+    String key;
+
+    @Label("Found")
+    boolean found;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -16,11 +16,15 @@ import io.telicent.attribute.utils.ExcludeFromJacocoGeneratedReport;
 import io.telicent.jena.abac.core.AttributesStore;
 import io.telicent.jena.abac.services.SimpleAttributesStore;
 import org.apache.jena.cmd.ArgDecl;
+import org.apache.jena.cmd.CmdException;
 import org.apache.jena.cmd.CmdGeneral;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static io.telicent.attribute.utils.AttributeUtils.createLocalAttributeStore;
+import static io.telicent.attribute.utils.AttributeUtils.parseBoolean;
+import static io.telicent.attribute.utils.AttributeUtils.parseDuration;
+import static io.telicent.attribute.utils.AttributeUtils.parseFraction;
 import static io.telicent.attribute.utils.AttributeUtils.portNumber;
 
 /**
@@ -36,9 +40,29 @@ public class SASServer extends CmdGeneral {
     private static final ArgDecl argStore =
             new ArgDecl(ArgDecl.HasValue, "attrStore", "attrstore", "store", "attributeStore", "attributestore",
                         "attributes", "userAttrStore");
+    private static final ArgDecl argBulkLookup =
+            new ArgDecl(ArgDecl.HasValue, "bulkLookup", "bulkLookupEnabled", "enableBulkLookup");
+    private static final ArgDecl argLatency = new ArgDecl(ArgDecl.HasValue, "latency", "delay");
+    private static final ArgDecl argUserLatency = new ArgDecl(ArgDecl.HasValue, "userLatency", "userDelay");
+    private static final ArgDecl argHierarchyLatency =
+            new ArgDecl(ArgDecl.HasValue, "hierarchyLatency", "hierarchyDelay");
+    private static final ArgDecl argErrorRate = new ArgDecl(ArgDecl.HasValue, "errorRate", "errors");
+    private static final ArgDecl argUserErrorRate = new ArgDecl(ArgDecl.HasValue, "userErrorRate", "userErrors");
+    private static final ArgDecl argHierarchyErrorRate =
+            new ArgDecl(ArgDecl.HasValue, "hierarchyErrorRate", "hierarchyErrors");
+    private static final ArgDecl argTimeoutRate = new ArgDecl(ArgDecl.HasValue, "timeoutRate", "timeouts");
+    private static final ArgDecl argUserTimeoutRate =
+            new ArgDecl(ArgDecl.HasValue, "userTimeoutRate", "userTimeouts");
+    private static final ArgDecl argHierarchyTimeoutRate =
+            new ArgDecl(ArgDecl.HasValue, "hierarchyTimeoutRate", "hierarchyTimeouts");
+    private static final ArgDecl argTimeoutDelay = new ArgDecl(ArgDecl.HasValue, "timeoutDelay", "timeoutHold");
+    private static final ArgDecl argUserVariation =
+            new ArgDecl(ArgDecl.HasValue, "userVariation", "userLatencyVariation");
     private static final int DEFAULT_PORT = 64331;
     private int port;
     private String attributeStorePath;
+    private boolean bulkLookup;
+    private FaultInjection faults;
 
     private String serverURL;
 
@@ -50,6 +74,23 @@ public class SASServer extends CmdGeneral {
         super(argv);
         add(argStore, "store", "File name for local attribute store");
         add(argPort, "port", "Listen on this port number");
+        add(argBulkLookup, "bulkLookup", "Boolean flag to also serve bulk user lookups (POST /users/lookup)");
+        add(argLatency, "latency", "Delay added to every lookup: fixed:<duration>, uniform:<min>,<max> or "
+                                   + "longtail:<median>,<p99> (default none)");
+        add(argUserLatency, "userLatency", "Delay added to user lookups (default --latency)");
+        add(argHierarchyLatency, "hierarchyLatency", "Delay added to hierarchy lookups (default --latency)");
+        add(argErrorRate, "errorRate", "Fraction of lookups answered with 503 (default 0)");
+        add(argUserErrorRate, "userErrorRate", "Fraction of user lookups answered with 503 (default --errorRate)");
+        add(argHierarchyErrorRate, "hierarchyErrorRate",
+            "Fraction of hierarchy lookups answered with 503 (default --errorRate)");
+        add(argTimeoutRate, "timeoutRate", "Fraction of lookups held for --timeoutDelay, then answered with 504 "
+                                           + "(default 0)");
+        add(argUserTimeoutRate, "userTimeoutRate", "Fraction of user lookups that time out (default --timeoutRate)");
+        add(argHierarchyTimeoutRate, "hierarchyTimeoutRate",
+            "Fraction of hierarchy lookups that time out (default --timeoutRate)");
+        add(argTimeoutDelay, "timeoutDelay", "How long a timed out lookup is held (default PT30S)");
+        add(argUserVariation, "userVariation", "Sigma of the fixed log-normal factor each user's delays are scaled "
+                                               + "by (default 0, no variation)");
     }
 
     /**
@@ -67,18 +108,62 @@ public class SASServer extends CmdGeneral {
         super.processModulesAndArgs();
         port = portNumber(getValue(argPort), DEFAULT_PORT);
         attributeStorePath = super.getValue(argStore);
+        bulkLookup = parseBoolean(getValue(argBulkLookup), false);
+        faults = faultInjection();
+    }
+
+    private FaultInjection faultInjection() {
+        LatencyDistribution latency = LatencyDistribution.parse(getValue(argLatency), LatencyDistribution.NONE);
+        double errorRate = parseFraction(getValue(argErrorRate), 0);
+        double timeoutRate = parseFraction(getValue(argTimeoutRate), 0);
+        try {
+            FaultInjection.EndpointFaults users = new FaultInjection.EndpointFaults(
+                    LatencyDistribution.parse(getValue(argUserLatency), latency),
+                    parseFraction(getValue(argUserErrorRate), errorRate),
+                    parseFraction(getValue(argUserTimeoutRate), timeoutRate));
+            FaultInjection.EndpointFaults hierarchies = new FaultInjection.EndpointFaults(
+                    LatencyDistribution.parse(getValue(argHierarchyLatency), latency),
+                    parseFraction(getValue(argHierarchyErrorRate), errorRate),
+                    parseFraction(getValue(argHierarchyTimeoutRate), timeoutRate));
+            return new FaultInjection(users, hierarchies, parseVariation(getValue(argUserVariation)),
+                                      parseDuration(getValue(argTimeoutDelay), FaultInjection.DEFAULT_TIMEOUT_DELAY));
+        } catch (IllegalArgumentException ex) {
+            throw new CmdException("Bad fault injection settings: " + ex.getMessage(), ex);
+        }
+    }
+
+    private static double parseVariation(String variationStr) {
+        if (variationStr == null || variationStr.isEmpty()) {
+            return 0;
+        }
+        try {
+            double variation = Double.parseDouble(variationStr);
+            if (!(variation >= 0) || Double.isInfinite(variation)) {
+                throw new CmdException("Bad user variation: '" + variationStr + "'");
+            }
+            return variation;
+        } catch (NumberFormatException ex) {
+            throw new CmdException("Bad user variation: '" + variationStr + "'", ex);
+        }
     }
 
     @Override
     protected void exec() {
         AttributesStore attributesStore = createLocalAttributeStore(attributeStorePath);
-        serverURL = SimpleAttributesStore.run(port, attributesStore);
+        // The library's service unless bulk lookups or faults need the extended one
+        serverURL = bulkLookup || !faults.isNone()
+                ? AttributeStoreService.run(port, attributesStore, faults)
+                : SimpleAttributesStore.run(port, attributesStore);
         LOGGER.info("URL = {}", serverURL);
+        if (!faults.isNone()) {
+            LOGGER.info("Injecting faults: {}", faults);
+        }
     }
 
     @Override
     protected String getSummary() {
-        String usage = " --store=<file:filename> [--port]";
+        String usage = " --store=<file:filename> [--port] [--bulkLookup] [--latency=<distribution>]"
+                       + " [--errorRate=<fraction>] [--timeoutRate=<fraction>] [--userVariation=<sigma>]";
         return getCommandName() + usage;
     }
 
@@ -87,6 +172,22 @@ public class SASServer extends CmdGeneral {
         return this.getClass().getSimpleName();
     }
 
+    /**
+     * Get the faults injected into the server's responses
+     * @return the fault injection settings
+     */
+    public FaultInjection getFaultInjection() {
+        return faults;
+    }
+
+    /**
+     * Whether the server also serves bulk user lookups
+     * @return true if bulk lookups are served
+     */
+    public boolean isBulkLookup() {
+        return bulkLookup;
+    }
+
     /**
      * Get the URL for the server
      * @return URL
@@ -0,0 +1,419 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.attributes.ValueTerm;
+import io.telicent.jena.abac.core.AttributesStore;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static io.telicent.attribute.utils.AttributeUtils.attributeValueString;
+import static io.telicent.attribute.utils.AttributeUtils.parseAttributeValues;
+
+/**
+ * Attribute store served from a compact binary snapshot of another store, memory-mapped read-only.
+ * <p>
+ * Opening a snapshot maps the file and reads its header and hierarchies; nothing is parsed per user. A user is found
+ * by binary search over the sorted user table in the mapped file, and each distinct attribute set is decoded the first
+ * time a user holding it is looked up and then shared. Snapshots are written by {@link #write(AttributesStore, Path)}
+ * (see {@link SnapshotCompiler}).
+ * </p>
+ * <pre>
+ *   header:      int magic, int version, int count and int offset of each of: values, sets, users, hierarchies
+ *   values:      int offset * count, then string (attribute value string form) * count
+ *   sets:        int offset * count, then (int count, int value index * count) * count
+ *   users:       int offset * count (sorted by user name), then (string user, int set index) * count
+ *   hierarchies: (string attribute, int count, string value * count) * count
+ *   string:      int length, UTF-8 bytes
+ * </pre>
+ * <p>
+ * Hierarchies are written for every attribute held by some user, as those are the only ones an evaluation consults.
+ * </p>
+ * <p>
+ * Opening checks every section, and reads the hierarchies, against the size of the file, so a truncated snapshot is
+ * rejected then rather than failing lookups later. The file stays mapped while the store is in use: it must only ever
+ * be replaced by moving a new file into place (as {@link #write(AttributesStore, Path)} does), never rewritten or
+ * truncated in place.
+ * </p>
+ */
+public class SnapshotAttributesStore implements AsyncAttributesStore {
+
+    private static final int MAGIC = 0x41424153;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + 4 * 2 * Integer.BYTES;
+
+    private final MappedByteBuffer buffer;
+    private final Section values;
+    private final Section sets;
+    private final Section users;
+    private final AtomicReferenceArray<AttributeValueSet> attributeSets;
+    private final Map<Attribute, Hierarchy> hierarchies;
+    private volatile Set<String> userNames;
+
+    private SnapshotAttributesStore(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not an attribute snapshot");
+        }
+        if (buffer.getInt(Integer.BYTES) != VERSION) {
+            throw new IllegalArgumentException("Unsupported attribute snapshot version: " + buffer.getInt(4));
+        }
+        this.values = table(0);
+        this.sets = table(1);
+        this.users = table(2);
+        this.attributeSets = new AtomicReferenceArray<>(sets.count());
+        this.hierarchies = readHierarchies(section(3));
+    }
+
+    /**
+     * Whether the file is an attribute snapshot (rather than, say, Turtle)
+     * @param file the file
+     * @return true if the file starts with the snapshot header
+     */
+    public static boolean isSnapshot(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+            return channel.read(magic, 0) == Integer.BYTES && magic.getInt(0) == MAGIC;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Open a snapshot file
+     * @param file the snapshot (at most 2GB)
+     * @return the attribute store it holds
+     * @throws IOException if the file cannot be mapped
+     * @throws IllegalArgumentException if the file is not a snapshot, or is truncated or corrupt
+     */
+    public static SnapshotAttributesStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Attribute snapshot too large: " + file);
+            }
+            // The mapping stays valid once the channel is closed.
+            return new SnapshotAttributesStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Write a snapshot of the given store. The snapshot is written alongside the file and then moved into place, so a
+     * process reading (or watching) the file never sees it half written.
+     * @param store the attribute store
+     * @param file the snapshot file to write
+     * @throws IOException if the file cannot be written (or would be over 2GB)
+     */
+    public static void write(AttributesStore store, Path file) throws IOException {
+        Map<String, Integer> valueIds = new LinkedHashMap<>();
+        Map<BitSet, int[]> distinctSets = new LinkedHashMap<>();
+        Map<byte[], BitSet> userSets = new HashMap<>();
+        Set<String> heldAttributes = new TreeSet<>();
+        for (String user : store.users()) {
+            AttributeValueSet avSet = store.attributes(user);
+            if (avSet == null) {
+                continue;
+            }
+            List<Integer> ids = new ArrayList<>();
+            avSet.attributeValues(attributeValue -> {
+                heldAttributes.add(attributeValue.attribute().name());
+                ids.add(valueIds.computeIfAbsent(attributeValueString(attributeValue), key -> valueIds.size()));
+            });
+            BitSet bits = new BitSet();
+            ids.forEach(bits::set);
+            distinctSets.putIfAbsent(bits, ids.stream().mapToInt(Integer::intValue).toArray());
+            userSets.put(user.getBytes(StandardCharsets.UTF_8), bits);
+        }
+        Map<BitSet, Integer> setIds = new HashMap<>();
+        distinctSets.keySet().forEach(bits -> setIds.put(bits, setIds.size()));
+        List<byte[]> sortedUsers = new ArrayList<>(userSets.keySet());
+        sortedUsers.sort(Arrays::compareUnsigned);
+        List<Hierarchy> heldHierarchies = new ArrayList<>();
+        for (String name : heldAttributes) {
+            Attribute attribute = new Attribute(name);
+            Hierarchy hierarchy = store.hasHierarchy(attribute) ? store.getHierarchy(attribute) : null;
+            if (hierarchy != null) {
+                heldHierarchies.add(hierarchy);
+            }
+        }
+
+        Path tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                channel.position(HEADER_SIZE);
+                DataOutputStream out =
+                        new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                int[] header = new int[8];
+                header[0] = valueIds.size();
+                header[1] = writeTable(out, valueIds.keySet(), SnapshotAttributesStore::writeString);
+                header[2] = distinctSets.size();
+                header[3] = writeTable(out, distinctSets.values(), (data, ids) -> {
+                    data.writeInt(ids.length);
+                    for (int id : ids) {
+                        data.writeInt(id);
+                    }
+                });
+                header[4] = sortedUsers.size();
+                header[5] = writeTable(out, sortedUsers, (data, user) -> {
+                    data.writeInt(user.length);
+                    data.write(user);
+                    data.writeInt(setIds.get(userSets.get(user)));
+                });
+                header[6] = heldHierarchies.size();
+                header[7] = HEADER_SIZE + out.size();
+                for (Hierarchy hierarchy : heldHierarchies) {
+                    writeString(out, hierarchy.attribute().name());
+                    out.writeInt(hierarchy.values().size());
+                    for (ValueTerm value : hierarchy.values()) {
+                        writeString(out, value.getString());
+                    }
+                }
+                out.flush();
+                if (out.size() < 0 || out.size() > Integer.MAX_VALUE - HEADER_SIZE) {
+                    throw new IOException("Attribute snapshot too large: " + file);
+                }
+                ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+                for (int value : header) {
+                    headerBuffer.putInt(value);
+                }
+                channel.write(headerBuffer.flip(), 0);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Write an offset table followed by the entries it points at
+     * @return offset of the table
+     */
+    private static <T> int writeTable(DataOutputStream out, Iterable<T> entries, EntryWriter<T> writer)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        List<Integer> offsets = new ArrayList<>();
+        for (T entry : entries) {
+            offsets.add(data.size());
+            writer.write(data, entry);
+        }
+        int tableOffset = HEADER_SIZE + out.size();
+        int dataOffset = tableOffset + offsets.size() * Integer.BYTES;
+        for (int offset : offsets) {
+            out.writeInt(dataOffset + offset);
+        }
+        bytes.writeTo(out);
+        return tableOffset;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Override
+    public AttributeValueSet attributes(String user) {
+        int index = findUser(user.getBytes(StandardCharsets.UTF_8));
+        if (index < 0) {
+            return null;
+        }
+        int offset = entry(users, index);
+        return attributeSet(buffer.getInt(offset + Integer.BYTES + buffer.getInt(offset)));
+    }
+
+    @Override
+    public boolean isAvailable(String user) {
+        return true;
+    }
+
+    @Override
+    public Set<String> users() {
+        Set<String> names = userNames;
+        if (names == null) {
+            Set<String> decoded = new LinkedHashSet<>();
+            for (int index = 0; index < users.count(); index++) {
+                decoded.add(readString(entry(users, index)));
+            }
+            names = userNames = Collections.unmodifiableSet(decoded);
+        }
+        return names;
+    }
+
+    @Override
+    public boolean hasHierarchy(Attribute attribute) {
+        return hierarchies.containsKey(attribute);
+    }
+
+    @Override
+    public Hierarchy getHierarchy(Attribute attribute) {
+        return hierarchies.get(attribute);
+    }
+
+    private AttributeValueSet attributeSet(int index) {
+        AttributeValueSet avSet = attributeSets.get(index);
+        if (avSet == null) {
+            int offset = entry(sets, index);
+            int count = buffer.getInt(offset);
+            List<String> attributeValues = new ArrayList<>(count);
+            for (int i = 1; i <= count; i++) {
+                attributeValues.add(readString(entry(values, buffer.getInt(offset + i * Integer.BYTES))));
+            }
+            AttributeValueSet decoded = parseAttributeValues(attributeValues);
+            avSet = attributeSets.compareAndExchange(index, null, decoded);
+            if (avSet == null) {
+                avSet = decoded;
+            }
+        }
+        return avSet;
+    }
+
+    private int findUser(byte[] user) {
+        int low = 0;
+        int high = users.count() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareString(entry(users, mid), user);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareString(int offset, byte[] other) {
+        int length = buffer.getInt(offset);
+        int common = Math.min(length, other.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Byte.compareUnsigned(buffer.get(offset + Integer.BYTES + i), other[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, other.length);
+    }
+
+    private String readString(int offset) {
+        checkBounds(offset, Integer.BYTES);
+        checkBounds(offset + Integer.BYTES, buffer.getInt(offset));
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        buffer.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Map<Attribute, Hierarchy> readHierarchies(Section section) {
+        Map<Attribute, Hierarchy> read = new HashMap<>();
+        int offset = section.offset();
+        for (int index = 0; index < section.count(); index++) {
+            String name = readString(offset);
+            offset += Integer.BYTES + buffer.getInt(offset);
+            checkBounds(offset, Integer.BYTES);
+            int tierCount = buffer.getInt(offset);
+            checkBounds(offset, (long) tierCount * Integer.BYTES);
+            String[] tiers = new String[tierCount];
+            offset += Integer.BYTES;
+            for (int i = 0; i < tiers.length; i++) {
+                tiers[i] = readString(offset);
+                offset += Integer.BYTES + buffer.getInt(offset);
+            }
+            read.put(new Attribute(name), RankedValueList.index(Hierarchy.create(name, tiers)));
+        }
+        // The hierarchies are written last, so they end the file
+        if (offset != buffer.capacity()) {
+            throw new IllegalArgumentException("Corrupt attribute snapshot: " + (buffer.capacity() - offset)
+                                               + " bytes after the hierarchies");
+        }
+        return Map.copyOf(read);
+    }
+
+    private int entry(Section section, int index) {
+        return buffer.getInt(section.offset() + index * Integer.BYTES);
+    }
+
+    private Section section(int index) {
+        int position = 2 * Integer.BYTES + index * 2 * Integer.BYTES;
+        Section section = new Section(buffer.getInt(position), buffer.getInt(position + Integer.BYTES));
+        if (section.count() < 0) {
+            throw new IllegalArgumentException("Corrupt attribute snapshot: section " + index + " has "
+                                               + section.count() + " entries");
+        }
+        checkBounds(section.offset(), 0);
+        return section;
+    }
+
+    /**
+     * A section starting with a table of entry offsets, each of which must lie within the file
+     */
+    private Section table(int index) {
+        Section section = section(index);
+        checkBounds(section.offset(), (long) section.count() * Integer.BYTES);
+        for (int entry = 0; entry < section.count(); entry++) {
+            checkBounds(entry(section, entry), Integer.BYTES);
+        }
+        return section;
+    }
+
+    private void checkBounds(long offset, long length) {
+        if (offset < HEADER_SIZE || length < 0 || offset + length > buffer.capacity()) {
+            throw new IllegalArgumentException("Truncated or corrupt attribute snapshot: " + length
+                                               + " bytes at offset " + offset + " in a file of "
+                                               + buffer.capacity() + " bytes");
+        }
+    }
+
+    /**
+     * A section of the snapshot: its entry count and the offset of its table (or first entry)
+     */
+    private record Section(int count, int offset) {}
+
+    /**
+     * Writes one entry of a table
+     */
+    @FunctionalInterface
+    private interface EntryWriter<T> {
+        void write(DataOutputStream out, T entry) throws IOException;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.attribute.utils.ExcludeFromJacocoGeneratedReport;
+import io.telicent.jena.abac.core.AttributesStore;
+import org.apache.jena.cmd.ArgDecl;
+import org.apache.jena.cmd.CmdException;
+import org.apache.jena.cmd.CmdGeneral;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static io.telicent.attribute.utils.AttributeUtils.createLocalAttributeStore;
+import static io.telicent.attribute.utils.AttributeUtils.localFile;
+
+/**
+ * Command compiling an attribute file (Turtle, or any RDF syntax) into a binary snapshot, which the evaluator and the
+ * Simple Attribute Server load (by memory-mapping it) in place of the RDF.
+ */
+public class SnapshotCompiler extends CmdGeneral {
+
+    /**
+     * Logger for class
+     */
+    public static final Logger LOGGER = LoggerFactory.getLogger(SnapshotCompiler.class);
+    private static final ArgDecl argStore =
+            new ArgDecl(ArgDecl.HasValue, "attrStore", "attrstore", "store", "attributeStore", "attributestore",
+                        "attributes", "userAttrStore");
+    private static final ArgDecl argOutput = new ArgDecl(ArgDecl.HasValue, "output", "out", "snapshot", "o");
+    private String attributeStorePath;
+    private String outputPath;
+
+    /**
+     * Create Snapshot Compiler
+     * @param argv configuration parameters
+     */
+    public SnapshotCompiler(String[] argv) {
+        super(argv);
+        add(argStore, "store", "File name for the attribute file to compile");
+        add(argOutput, "output", "File name to write the snapshot to");
+    }
+
+    /**
+     * Entrypoint for the command
+     *
+     * @param args CLI arguments
+     */
+    @ExcludeFromJacocoGeneratedReport
+    public static void main(String... args) {
+        new SnapshotCompiler(args).mainRun();
+    }
+
+    @Override
+    protected void processModulesAndArgs() {
+        super.processModulesAndArgs();
+        attributeStorePath = getValue(argStore);
+        outputPath = getValue(argOutput);
+        if (attributeStorePath == null || outputPath == null) {
+            throw new CmdException("Both --store and --output are required");
+        }
+    }
+
+    @Override
+    protected void exec() {
+        long start = System.nanoTime();
+        AttributesStore attributesStore = createLocalAttributeStore(attributeStorePath);
+        Path output = localFile(outputPath);
+        try {
+            SnapshotAttributesStore.write(attributesStore, output);
+        } catch (IOException ex) {
+            throw new CmdException("Cannot write attribute snapshot: " + outputPath, ex);
+        }
+        LOGGER.info("Wrote snapshot of {} users to {} in {}", attributesStore.users().size(), output,
+                    Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    @Override
+    protected String getSummary() {
+        String usage = " --store=<file:filename> --output=<filename>";
+        return getCommandName() + usage;
+    }
+
+    @Override
+    protected String getCommandName() {
+        return this.getClass().getSimpleName();
+    }
+}
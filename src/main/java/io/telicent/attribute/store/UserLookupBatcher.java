@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Combines concurrent lookups of different users into bulk lookups.
+ * <p>
+ * The first lookup opens a batch and schedules it to be fetched once the batch window has passed; lookups arriving
+ * meanwhile join it (sharing the pending result if the user is already in the batch). A batch that reaches the maximum
+ * size is fetched straight away, and its scheduled fetch then does nothing, so it cannot cut short the window of a
+ * later batch. Callers get a future for their user's attributes; the user cache loads through it asynchronously, so no
+ * cache lock is held while a batch fills.
+ * </p>
+ */
+class UserLookupBatcher {
+    private final BulkAttributesStore store;
+    private final BatchPolicy batchPolicy;
+    private final Executor fetchExecutor;
+    private Map<String, CompletableFuture<AttributeValueSet>> pending = new HashMap<>();
+
+    UserLookupBatcher(BulkAttributesStore store, BatchPolicy batchPolicy, Executor fetchExecutor) {
+        this.store = store;
+        this.batchPolicy = batchPolicy;
+        this.fetchExecutor = fetchExecutor;
+    }
+
+    /**
+     * Look up the user's attributes as part of a batch
+     * @param user the user
+     * @return the user's attributes, or null if the user is unknown
+     */
+    AttributeValueSet attributes(String user) {
+        try {
+            return lookup(user).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Add the user to the current batch
+     * @param user the user
+     * @return the user's attributes (null if the user is unknown), once the batch has been fetched
+     */
+    CompletableFuture<AttributeValueSet> lookup(String user) {
+        CompletableFuture<AttributeValueSet> result;
+        Map<String, CompletableFuture<AttributeValueSet>> fullBatch = null;
+        synchronized (this) {
+            result = pending.get(user);
+            if (result != null) {
+                return result;
+            }
+            result = new CompletableFuture<>();
+            pending.put(user, result);
+            if (pending.size() >= batchPolicy.maxSize()) {
+                fullBatch = takePending();
+            } else if (pending.size() == 1) {
+                Map<String, CompletableFuture<AttributeValueSet>> batch = pending;
+                CompletableFuture.delayedExecutor(batchPolicy.window().toNanos(), TimeUnit.NANOSECONDS, fetchExecutor)
+                                 .execute(() -> flush(batch));
+            }
+        }
+        if (fullBatch != null) {
+            fetch(fullBatch);
+        }
+        return result;
+    }
+
+    private void flush(Map<String, CompletableFuture<AttributeValueSet>> batch) {
+        synchronized (this) {
+            if (pending != batch) {
+                // Already fetched when it filled up
+                return;
+            }
+            takePending();
+        }
+        fetch(batch);
+    }
+
+    private Map<String, CompletableFuture<AttributeValueSet>> takePending() {
+        Map<String, CompletableFuture<AttributeValueSet>> batch = pending;
+        pending = new HashMap<>();
+        return batch;
+    }
+
+    private void fetch(Map<String, CompletableFuture<AttributeValueSet>> batch) {
+        try {
+            Map<String, AttributeValueSet> results = store.attributes(batch.keySet());
+            batch.forEach((user, result) -> result.complete(results.get(user)));
+        } catch (RuntimeException ex) {
+            batch.values().forEach(result -> result.completeExceptionally(ex));
+        }
+    }
+}
@@ -12,21 +12,42 @@
  */
 package io.telicent.attribute.utils;
 
+import io.telicent.attribute.store.BatchPolicy;
+import io.telicent.attribute.store.BulkAttributesStoreRemote;
+import io.telicent.attribute.store.CacheSettings;
 import io.telicent.attribute.store.CachedAttributeStore;
+import io.telicent.attribute.store.CompactAttributesStore;
+import io.telicent.attribute.store.InternedAttributesStore;
+import io.telicent.attribute.store.MappedAttributeCache;
+import io.telicent.attribute.store.RefreshPolicy;
+import io.telicent.attribute.store.ReloadingAttributesStore;
+import io.telicent.attribute.store.SnapshotAttributesStore;
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.attributes.AttributeValue;
+import io.telicent.jena.abac.attributes.ValueTerm;
 import io.telicent.jena.abac.core.Attributes;
 import io.telicent.jena.abac.core.AttributesStore;
 import io.telicent.jena.abac.core.AttributesStoreRemote;
+import org.apache.jena.atlas.lib.IRILib;
 import org.apache.jena.cmd.CmdException;
 import org.apache.jena.graph.Graph;
 import org.apache.jena.riot.RDFParser;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
 
  /**
   * Utility class for creating attributes
   */
  public final class AttributeUtils {
+    private static final Pattern PLAIN_VALUE = Pattern.compile("[A-Za-z0-9_.:+-]+");
+
     private AttributeUtils() {
     }
 
@@ -44,6 +65,20 @@ import java.time.format.DateTimeParseException;
                                         cacheExpiryTime);
     }
 
+     /**
+      * Create a remote attribute store with a cache that refreshes ahead of expiry
+      * @param lookupUserEndpoint URL to obtain user data
+      * @param lookupHierarchyEndpoint URL to obtain hiearchy data
+      * @param refreshPolicy when to refresh and expire cached data
+      * @return Attribute Store
+      */
+    public static AttributesStore createCachedRemoteAttributeStore(String lookupUserEndpoint,
+                                                                   String lookupHierarchyEndpoint,
+                                                                   RefreshPolicy refreshPolicy) {
+        return new CachedAttributeStore(new AttributesStoreRemote(lookupUserEndpoint, lookupHierarchyEndpoint),
+                                        refreshPolicy);
+    }
+
      /**
       * Create a remote attribute store without a cache
       * @param lookupUserEndpoint URL to obtain user data
@@ -56,13 +91,121 @@ import java.time.format.DateTimeParseException;
     }
 
      /**
-      *  Create an attribute store based on local file
+      *  Create an attribute store based on local file: either a snapshot (see {@link SnapshotAttributesStore}),
+      *  which is memory-mapped, or RDF, with the user attributes interned
       * @param localAttributeStoreFile File to use for the attribute data
       * @return Attribute Store
       */
      public static AttributesStore createLocalAttributeStore(String localAttributeStoreFile) {
+        return createLocalAttributeStore(localAttributeStoreFile, false);
+    }
+
+     /**
+      *  Create an attribute store based on local file: either a snapshot (see {@link SnapshotAttributesStore}),
+      *  which is memory-mapped, or RDF, with the user attributes interned or (for very large files) compacted
+      * @param localAttributeStoreFile File to use for the attribute data
+      * @param compact whether to hold RDF data in a {@link CompactAttributesStore}, dropping the parsed graph
+      * @return Attribute Store
+      */
+     public static AttributesStore createLocalAttributeStore(String localAttributeStoreFile, boolean compact) {
+        Path file = localFile(localAttributeStoreFile);
+        if (SnapshotAttributesStore.isSnapshot(file)) {
+            try {
+                return SnapshotAttributesStore.open(file);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Cannot open attribute snapshot: " + localAttributeStoreFile, ex);
+            }
+        }
         Graph graph = RDFParser.source(localAttributeStoreFile).toGraph();
-        return Attributes.buildStore(graph);
+        AttributesStore parsed = Attributes.buildStore(graph);
+        return compact ? new CompactAttributesStore(parsed) : new InternedAttributesStore(parsed);
+    }
+
+     /**
+      *  Create an attribute store based on local file that reloads the file whenever it changes
+      * @param localAttributeStoreFile File to use for the attribute data
+      * @param compact whether to hold RDF data in a {@link CompactAttributesStore}
+      * @return Attribute Store, already watching the file
+      * @throws IOException if the file cannot be watched
+      */
+     public static ReloadingAttributesStore createReloadingLocalAttributeStore(String localAttributeStoreFile,
+                                                                               boolean compact) throws IOException {
+        Path file = localFile(localAttributeStoreFile);
+        return new ReloadingAttributesStore(file, path -> createLocalAttributeStore(path.toString(), compact),
+                                            ReloadingAttributesStore.DEFAULT_SETTLE_TIME).watch();
+    }
+
+     /**
+      * The local path of an attribute store file, given as a {@code file:} URI or a plain file name
+      * @param localAttributeStoreFile the file
+      * @return its path
+      */
+    public static Path localFile(String localAttributeStoreFile) {
+        if (localAttributeStoreFile.startsWith("file:")) {
+            return Path.of(IRILib.IRIToFilename(localAttributeStoreFile));
+        }
+        return Path.of(localAttributeStoreFile);
+    }
+
+     /**
+      * Create a remote attribute store with separately bounded and refreshed user and hierarchy caches, optionally
+      * combining concurrent user misses into bulk lookups and backed by an off-heap second-level cache
+      * @param lookupUserEndpoint URL to obtain user data
+      * @param lookupHierarchyEndpoint URL to obtain hiearchy data
+      * @param bulkUserEndpoint URL to obtain data for many users at once (null to look users up one at a time)
+      * @param userCacheSettings bound and refresh policy for cached user data
+      * @param hierarchyCacheSettings bound and refresh policy for cached hierarchy data
+      * @param batchPolicy how long to gather user misses into one bulk lookup, and how many at most (null if not
+      *                    using a bulk endpoint)
+      * @param secondLevelCache off-heap cache behind the on-heap caches (null for none)
+      * @return Attribute Store
+      */
+    public static AttributesStore createCachedRemoteAttributeStore(String lookupUserEndpoint,
+                                                                   String lookupHierarchyEndpoint,
+                                                                   String bulkUserEndpoint,
+                                                                   CacheSettings userCacheSettings,
+                                                                   CacheSettings hierarchyCacheSettings,
+                                                                   BatchPolicy batchPolicy,
+                                                                   MappedAttributeCache secondLevelCache) {
+        AttributesStore remoteStore = bulkUserEndpoint == null
+                                      ? new AttributesStoreRemote(lookupUserEndpoint, lookupHierarchyEndpoint)
+                                      : new BulkAttributesStoreRemote(lookupUserEndpoint, lookupHierarchyEndpoint,
+                                                                      bulkUserEndpoint);
+        return new CachedAttributeStore(remoteStore, userCacheSettings, hierarchyCacheSettings, batchPolicy,
+                                        secondLevelCache);
+    }
+
+     /**
+      * Render an attribute value as a string that parses back to the same value (as served by the attribute store's
+      * user lookups): the attribute name alone for a true boolean, otherwise {@code name=value} with the value
+      * double-quoted if it is not a plain word
+      * @param attributeValue the attribute value
+      * @return string form
+      */
+    public static String attributeValueString(AttributeValue attributeValue) {
+        String name = attributeValue.attribute().name();
+        ValueTerm value = attributeValue.value();
+        if (value.isBoolean()) {
+            return value.getBoolean() ? name : name + "=" + value.asString();
+        }
+        String valueStr = value.getString();
+        if (PLAIN_VALUE.matcher(valueStr).matches()) {
+            return name + "=" + valueStr;
+        }
+        return name + "=\"" + valueStr.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+     /**
+      * Parse attribute value strings (as produced by {@link #attributeValueString(AttributeValue)}) into a set
+      * @param attributeValueStrings string forms of the attribute values
+      * @return the attribute value set
+      */
+    public static AttributeValueSet parseAttributeValues(List<String> attributeValueStrings) {
+        List<AttributeValue> attributeValues = new ArrayList<>(attributeValueStrings.size());
+        for (String attributeValueString : attributeValueStrings) {
+            AttributeValueSet.of(attributeValueString).attributeValues(attributeValues::add);
+        }
+        return AttributeValueSet.of(attributeValues);
     }
 
      /**
@@ -82,6 +225,82 @@ import java.time.format.DateTimeParseException;
         }
     }
 
+     /**
+      * Parse the given boolean flag
+      * @param booleanStr String representation of the flag
+      * @param defaultValue What to use if no value is given
+      * @return boolean representation
+      */
+    public static boolean parseBoolean(String booleanStr, boolean defaultValue) {
+        if (null == booleanStr || booleanStr.isEmpty()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(booleanStr);
+    }
+
+     /**
+      * Parse the given size (a positive whole number)
+      * @param sizeStr String representation of the desired size
+      * @param defaultSize What to use if no value is given
+      * @return the relevant size
+      */
+    public static long parseSize(String sizeStr, long defaultSize) {
+        if (null == sizeStr || sizeStr.isEmpty()) {
+            return defaultSize;
+        }
+        try {
+            long size = Long.parseLong(sizeStr);
+            if (size <= 0) {
+                throw new CmdException("Bad size: '" + sizeStr + "'");
+            }
+            return size;
+        } catch (NumberFormatException ex) {
+            throw new CmdException("Bad size: '" + sizeStr + "'", ex);
+        }
+    }
+
+     /**
+      * Parse the given count (a positive whole number that fits in an int)
+      * @param countStr String representation of the desired count
+      * @param defaultCount What to use if no value is given
+      * @return the relevant count
+      */
+    public static int parseCount(String countStr, int defaultCount) {
+        if (null == countStr || countStr.isEmpty()) {
+            return defaultCount;
+        }
+        try {
+            int count = Integer.parseInt(countStr);
+            if (count <= 0) {
+                throw new CmdException("Bad count: '" + countStr + "'");
+            }
+            return count;
+        } catch (NumberFormatException ex) {
+            throw new CmdException("Bad count: '" + countStr + "'", ex);
+        }
+    }
+
+     /**
+      * Parse the given fraction (a number from 0 to 1)
+      * @param fractionStr String representation of the desired fraction
+      * @param defaultFraction What to use if no value is given
+      * @return the relevant fraction
+      */
+    public static double parseFraction(String fractionStr, double defaultFraction) {
+        if (null == fractionStr || fractionStr.isEmpty()) {
+            return defaultFraction;
+        }
+        try {
+            double fraction = Double.parseDouble(fractionStr);
+            if (!(fraction >= 0 && fraction <= 1)) {
+                throw new CmdException("Bad fraction: '" + fractionStr + "'");
+            }
+            return fraction;
+        } catch (NumberFormatException ex) {
+            throw new CmdException("Bad fraction: '" + fractionStr + "'", ex);
+        }
+    }
+
      /**
       * Parse the given string into a duration
       * @param durationStr the desired duration
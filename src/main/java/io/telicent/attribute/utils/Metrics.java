@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Minimal registry of counters, gauges and histograms, rendered in the Prometheus text exposition format.
+ * <p>
+ * Counters and gauges are read from suppliers when scraped, so existing statistics (cache stats, hit counts) are
+ * exposed without being copied. Metrics registered under the same name with different labels form one family.
+ * </p>
+ */
+public class Metrics {
+
+    /**
+     * Content type of {@link #scrape()}
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    /**
+     * Register a counter
+     * @param name metric name (ending {@code _total})
+     * @param help description
+     * @param value supplies the current count
+     * @param labels label names and values, alternating
+     * @return this registry
+     */
+    public Metrics counter(String name, String help, DoubleSupplier value, String... labels) {
+        return add(name, help, "counter", (out, metric) -> sample(out, metric, labels, value.getAsDouble()));
+    }
+
+    /**
+     * Register a gauge
+     * @param name metric name
+     * @param help description
+     * @param value supplies the current value
+     * @param labels label names and values, alternating
+     * @return this registry
+     */
+    public Metrics gauge(String name, String help, DoubleSupplier value, String... labels) {
+        return add(name, help, "gauge", (out, metric) -> sample(out, metric, labels, value.getAsDouble()));
+    }
+
+    /**
+     * Register a histogram
+     * @param name metric name (ending with the unit, e.g. {@code _seconds})
+     * @param help description
+     * @param histogram the histogram
+     * @param labels label names and values, alternating
+     * @return this registry
+     */
+    public Metrics histogram(String name, String help, Histogram histogram, String... labels) {
+        return add(name, help, "histogram", (out, metric) -> histogram.write(out, metric, labels));
+    }
+
+    /**
+     * Register the statistics of a Caffeine cache (which must record stats) as {@code <prefix>_*} metrics labelled
+     * with the cache name
+     * @param prefix metric name prefix
+     * @param cacheName value of the {@code cache} label
+     * @param cache the cache
+     * @return this registry
+     */
+    public Metrics cache(String prefix, String cacheName, Cache<?, ?> cache) {
+        String[] labels = {"cache", cacheName};
+        counter(prefix + "_hits_total", "Cache hits", stat(cache, CacheStats::hitCount), labels);
+        counter(prefix + "_misses_total", "Cache misses", stat(cache, CacheStats::missCount), labels);
+        counter(prefix + "_evictions_total", "Cache evictions", stat(cache, CacheStats::evictionCount), labels);
+        counter(prefix + "_eviction_weight_total", "Weight of evicted cache entries",
+                stat(cache, CacheStats::evictionWeight), labels);
+        counter(prefix + "_loads_total", "Successful cache loads", stat(cache, CacheStats::loadSuccessCount), labels);
+        counter(prefix + "_load_failures_total", "Failed (or empty) cache loads",
+                stat(cache, CacheStats::loadFailureCount), labels);
+        counter(prefix + "_load_duration_seconds_total", "Time spent loading cache entries",
+                () -> cache.stats().totalLoadTime() / (double) TimeUnit.SECONDS.toNanos(1), labels);
+        gauge(prefix + "_size", "Approximate number of cache entries", cache::estimatedSize, labels);
+        return this;
+    }
+
+    private static DoubleSupplier stat(Cache<?, ?> cache, Function<CacheStats, Long> statistic) {
+        return () -> statistic.apply(cache.stats());
+    }
+
+    private synchronized Metrics add(String name, String help, String type, Sample sample) {
+        Family family = families.computeIfAbsent(name, key -> new Family(help, type, new ArrayList<>()));
+        if (!family.type().equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " already registered as a " + family.type());
+        }
+        family.samples().add(sample);
+        return this;
+    }
+
+    /**
+     * Render every metric in the Prometheus text format
+     * @return the metrics
+     */
+    public synchronized String scrape() {
+        StringBuilder out = new StringBuilder();
+        families.forEach((name, family) -> {
+            out.append("# HELP ").append(name).append(' ').append(family.help()).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type()).append('\n');
+            for (Sample sample : family.samples()) {
+                sample.write(out, name);
+            }
+        });
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String metric, String[] labels, double value) {
+        out.append(metric);
+        if (labels.length > 0) {
+            out.append('{');
+            for (int i = 0; i + 1 < labels.length; i += 2) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ').append(format(value)).append('\n');
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String format(double value) {
+        if (value == Double.POSITIVE_INFINITY) {
+            return "+Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private record Family(String help, String type, List<Sample> samples) {}
+
+    @FunctionalInterface
+    private interface Sample {
+        void write(StringBuilder out, String metric);
+    }
+
+    /**
+     * Histogram of durations, in seconds, over fixed buckets
+     */
+    public static class Histogram {
+
+        /**
+         * Default bucket upper bounds, in seconds: 100 microseconds to 10 seconds
+         */
+        public static final double[] DEFAULT_BUCKETS =
+                {0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+        private final double[] bounds;
+        private final LongAdder[] counts;
+        private final DoubleAdder sum = new DoubleAdder();
+
+        /**
+         * Create new Histogram with the default buckets
+         */
+        public Histogram() {
+            this(DEFAULT_BUCKETS);
+        }
+
+        /**
+         * Create new Histogram
+         * @param bounds bucket upper bounds, in seconds, ascending
+         */
+        public Histogram(double... bounds) {
+            this.bounds = bounds.clone();
+            this.counts = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Record a duration
+         * @param nanos the duration in nanoseconds
+         */
+        public void observeNanos(long nanos) {
+            observe(nanos / (double) TimeUnit.SECONDS.toNanos(1));
+        }
+
+        /**
+         * Record a value
+         * @param seconds the value in seconds
+         */
+        public void observe(double seconds) {
+            int bucket = 0;
+            while (bucket < bounds.length && seconds > bounds[bucket]) {
+                bucket++;
+            }
+            counts[bucket].increment();
+            sum.add(seconds);
+        }
+
+        /**
+         * Number of values recorded
+         * @return count
+         */
+        public long count() {
+            long count = 0;
+            for (LongAdder bucketCount : counts) {
+                count += bucketCount.sum();
+            }
+            return count;
+        }
+
+        /**
+         * Sum of the values recorded
+         * @return sum, in seconds
+         */
+        public double sum() {
+            return sum.sum();
+        }
+
+        private void write(StringBuilder out, String metric, String[] labels) {
+            String[] bucketLabels = new String[labels.length + 2];
+            System.arraycopy(labels, 0, bucketLabels, 0, labels.length);
+            bucketLabels[labels.length] = "le";
+            long cumulative = 0;
+            for (int i = 0; i <= bounds.length; i++) {
+                cumulative += counts[i].sum();
+                bucketLabels[labels.length + 1] = i < bounds.length ? format(bounds[i]) : "+Inf";
+                sample(out, metric + "_bucket", bucketLabels, cumulative);
+            }
+            sample(out, metric + "_sum", labels, sum());
+            sample(out, metric + "_count", labels, cumulative);
+        }
+    }
+}
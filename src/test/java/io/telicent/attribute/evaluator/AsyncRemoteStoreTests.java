@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.apache.jena.atlas.web.HttpException;
+import org.apache.jena.sys.JenaSystem;
+import org.junit.jupiter.api.*;
+
+import java.util.stream.IntStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static io.telicent.attribute.utils.URLRequests.postEvalRequest;
+import static io.telicent.attribute.utils.URLRequests.postRequest;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncRemoteStoreTests {
+    private static WireMockServer wireMockServer;
+    private static String URL;
+
+    @BeforeAll
+    public static void setupClass() {
+        JenaSystem.init();
+        wireMockServer = new WireMockServer(wireMockConfig().dynamicPort());
+        wireMockServer.start();
+        String url = "http://localhost:" + wireMockServer.port();
+        String[] args = {"--store", url, "--port", "0", "--async", "true", "--maxThreads", "16"};
+        ALEServer server = new ALEServer(args);
+        server.mainRun();
+        URL = server.getURL();
+    }
+
+    @AfterAll
+    public static void cleanUp() {
+        wireMockServer.stop();
+    }
+
+    @BeforeEach
+    void setup() {
+        wireMockServer.stubFor(get(urlEqualTo("/users/lookup/user1"))
+                                       .willReturn(aResponse()
+                                                           .withFixedDelay(50)
+                                                           .withBody("""
+                                                                             {
+                                                                               "attributes" : [
+                                                                                   "credentials=ordinary-degree" ,
+                                                                                   "engineer"
+                                                                                 ]
+                                                                             }""")));
+        wireMockServer.stubFor(get(urlEqualTo("/hierarchies/lookup/credentials"))
+                                       .willReturn(aResponse()
+                                                           .withBody("""
+                                                                             {
+                                                                               "tiers" : [
+                                                                                   "hnc" ,
+                                                                                   "hnd" ,
+                                                                                   "ordinary-degree" ,
+                                                                                   "honours-degree" ,
+                                                                                   "phd"
+                                                                                 ]
+                                                                             }""")));
+    }
+
+    @AfterEach
+    void tidy() {
+        wireMockServer.resetAll();
+    }
+
+    @Test
+    void test_happyPath_hierarchyMatch() throws JsonProcessingException {
+        // given
+        // when
+        String actual = postEvalRequest(URL, "user1", "credentials = hnd");
+        // then
+        TestEvaluationResult result = new ObjectMapper().readValue(actual, TestEvaluationResult.class);
+        assertTrue(result.result);
+        wireMockServer.verify(getRequestedFor(urlEqualTo("/users/lookup/user1")));
+        wireMockServer.verify(getRequestedFor(urlEqualTo("/hierarchies/lookup/credentials")));
+    }
+
+    @Test
+    void test_hierarchyMisMatch() throws JsonProcessingException {
+        // given
+        // when
+        String actual = postEvalRequest(URL, "user1", "credentials = phd");
+        // then
+        TestEvaluationResult result = new ObjectMapper().readValue(actual, TestEvaluationResult.class);
+        assertFalse(result.result);
+    }
+
+    @Test
+    void test_concurrentRequests_moreThanThreadPool() {
+        // given
+        int requests = 64;
+        // when
+        long allowed = IntStream.range(0, requests).parallel()
+                                .mapToObj(i -> postEvalRequest(URL, "user1", "engineer"))
+                                .filter(response -> response.contains("\"true\""))
+                                .count();
+        // then
+        assertEquals(requests, allowed);
+    }
+
+    @Test
+    void test_slowLookup_timesOut() {
+        // given
+        wireMockServer.stubFor(get(urlEqualTo("/users/lookup/slowUser"))
+                                       .willReturn(aResponse().withFixedDelay(2_000)
+                                                              .withBody("{ \"attributes\" : [ \"engineer\" ] }")));
+        String[] args = {"--store", "http://localhost:" + wireMockServer.port(), "--port", "0", "--async", "true",
+                "--asyncTimeout", "PT0.1S"};
+        ALEServer server = new ALEServer(args);
+        server.mainRun();
+        // when
+        HttpException exception =
+                assertThrows(HttpException.class, () -> postEvalRequest(server.getURL(), "slowUser", "engineer"));
+        server.stop();
+        // then
+        assertEquals(503, exception.getStatusCode());
+    }
+
+    @Test
+    void test_badSyntax_badRequest() {
+        // given
+        // when
+        HttpException exception =
+                assertThrows(HttpException.class, () -> postEvalRequest(URL, "user1", "email=u1@telicent.io"));
+        // then
+        assertEquals(400, exception.getStatusCode());
+    }
+
+    @Test
+    void test_missingUser_badRequest() {
+        // given
+        // when
+        HttpException exception = assertThrows(HttpException.class, () -> postRequest(URL + "?label=l1"));
+        // then
+        assertEquals(400, exception.getStatusCode());
+    }
+}
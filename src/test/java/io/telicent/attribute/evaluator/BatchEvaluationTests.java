@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.jena.sys.JenaSystem;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static io.telicent.attribute.utils.URLRequests.postJsonRequest;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchEvaluationTests {
+    private static final String[] WORKING_CONFIG =
+            {"--store", "file:src/test/resources/sample_attributes.ttl", "--port", "0"};
+    private static String batchUrl;
+
+    @BeforeAll
+    public static void setupClass() {
+        JenaSystem.init();
+        ALEServer server = new ALEServer(WORKING_CONFIG);
+        server.mainRun();
+        batchUrl = server.getURL() + AttributeListEvalServer.BATCH_SUFFIX;
+    }
+
+    @Test
+    void test_happyPath_resultsInRequestOrder() throws JsonProcessingException {
+        // given
+        String body = """
+                {
+                  "user" : "employee1",
+                  "labels" : [ "credentials = ordinary-degree", "credentials = phd", "credentials = hnd" ]
+                }""";
+        // when
+        HttpResponse<String> response = postJsonRequest(batchUrl, body);
+        // then
+        assertEquals(200, response.statusCode());
+        TestBatchEvaluationResult result =
+                new ObjectMapper().readValue(response.body(), TestBatchEvaluationResult.class);
+        assertEquals("employee1", result.user);
+        assertEquals(List.of(true, false, true), result.results);
+    }
+
+    @Test
+    void test_unknownUser_allFalse() throws JsonProcessingException {
+        // given
+        String body = """
+                { "user" : "nobody", "labels" : [ "credentials = hnd", "engineer" ] }""";
+        // when
+        HttpResponse<String> response = postJsonRequest(batchUrl, body);
+        // then
+        assertEquals(200, response.statusCode());
+        TestBatchEvaluationResult result =
+                new ObjectMapper().readValue(response.body(), TestBatchEvaluationResult.class);
+        assertEquals(List.of(false, false), result.results);
+    }
+
+    @Test
+    void test_emptyLabelList_emptyResults() throws JsonProcessingException {
+        // given
+        String body = """
+                { "user" : "employee1", "labels" : [] }""";
+        // when
+        HttpResponse<String> response = postJsonRequest(batchUrl, body);
+        // then
+        assertEquals(200, response.statusCode());
+        TestBatchEvaluationResult result =
+                new ObjectMapper().readValue(response.body(), TestBatchEvaluationResult.class);
+        assertEquals(List.of(), result.results);
+    }
+
+    @Test
+    void test_badLabelSyntax_badRequest() {
+        // given
+        String body = """
+                { "user" : "employee1", "labels" : [ "engineer", "email=u1@telicent.io" ] }""";
+        // when
+        HttpResponse<String> response = postJsonRequest(batchUrl, body);
+        // then
+        assertEquals(400, response.statusCode());
+    }
+
+    @Test
+    void test_badRequestBodies_badRequest() {
+        // given
+        List<String> bodies = List.of("not json",
+                                      "[ \"employee1\" ]",
+                                      "{ \"labels\" : [ \"engineer\" ] }",
+                                      "{ \"user\" : \"employee1\" }",
+                                      "{ \"user\" : \"employee1\", \"labels\" : [ 1, 2 ] }");
+        // when
+        // then
+        for (String body : bodies) {
+            assertEquals(400, postJsonRequest(batchUrl, body).statusCode(), body);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import io.telicent.jena.abac.attributes.AttributeExpr;
+import io.telicent.jena.abac.attributes.AttributeParser;
+import io.telicent.jena.abac.attributes.AttributeSyntaxError;
+import io.telicent.jena.abac.core.AttributesStore;
+import io.telicent.jena.abac.core.CxtABAC;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static io.telicent.attribute.utils.AttributeUtils.createLocalAttributeStore;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledLabelTests {
+
+    private static final List<String> USERS =
+            List.of("u1", "u2", "u3", "employee1", "employee2", "employee3");
+
+    private static final List<String> TERMS =
+            List.of("engineer", "employee", "contractor", "manager", "permanent", "nothing", "clearance=secret",
+                    "clearance=ordinary", "clearance=top-secret", "nationality=GBR", "nationality=USA",
+                    "deployed_organisation=TOG", "credentials=phd", "credentials=hnc", "credentials=honours-degree",
+                    "credentials=ordinary-degree", "status=public", "status=confidential", "status=sensitive",
+                    "status=private", "email='u3@telicent.io'", "email='e1@telicent.io'", "*");
+
+    @Test
+    void test_evaluate_randomLabels_matchesReference() {
+        // given
+        AttributesStore store = createLocalAttributeStore("file:src/test/resources/sample_attributes.ttl");
+        Random random = new Random(20241018L);
+        int labels = 20_000;
+        int parsed = 0;
+        // when
+        for (int i = 0; i < labels; i++) {
+            String label = randomLabel(random);
+            List<AttributeExpr> attrExprs;
+            try {
+                attrExprs = AttributeParser.parseAttrExprList(label);
+            } catch (AttributeSyntaxError ex) {
+                continue;
+            }
+            parsed++;
+            CompiledLabel compiledLabel = CompiledLabel.compile(attrExprs);
+            for (String user : USERS) {
+                CxtABAC context = CxtABAC.context(store.attributes(user), store, null);
+                // then
+                assertEquals(AttributeListEvalServer.evaluate(attrExprs, context), compiledLabel.evaluate(context),
+                             "Label '" + label + "' for user " + user);
+            }
+        }
+        assertTrue(parsed > labels / 2, parsed + " of " + labels + " labels parsed");
+    }
+
+    @Test
+    void test_evaluate_knownLabels_expectedUsers() {
+        // given
+        AttributesStore store = createLocalAttributeStore("file:src/test/resources/sample_attributes.ttl");
+        Map<String, Set<String>> expected = new LinkedHashMap<>();
+        expected.put("engineer", Set.of("u1", "u2", "employee1", "employee2", "employee3"));
+        expected.put("engineer, employee", Set.of("u1", "employee1"));
+        expected.put("engineer, !contractor", Set.of("u1", "employee1", "employee3"));
+        expected.put("clearance=ordinary, nationality=GBR", Set.of("u3"));
+        expected.put("clearance=top-secret, nationality=GBR", Set.of());
+        expected.put("engineer, employee, credentials=hnd", Set.of("employee1"));
+        expected.put("engineer | manager, status=public, credentials=hnc, employee", Set.of("employee1"));
+        expected.put("engineer, credentials=phd, contractor, !employee", Set.of("employee2"));
+        // when
+        for (Map.Entry<String, Set<String>> entry : expected.entrySet()) {
+            CompiledLabel compiledLabel = CompiledLabel.compile(AttributeParser.parseAttrExprList(entry.getKey()));
+            for (String user : USERS) {
+                CxtABAC context = CxtABAC.context(store.attributes(user), store, null);
+                // then
+                assertEquals(entry.getValue().contains(user), compiledLabel.evaluate(context),
+                             "Label '" + entry.getKey() + "' for user " + user);
+            }
+        }
+    }
+
+    @Test
+    void test_evaluate_emptyLabel_neverAllowed() {
+        // given
+        AttributesStore store = createLocalAttributeStore("file:src/test/resources/sample_attributes.ttl");
+        CompiledLabel compiledLabel = CompiledLabel.compile(List.of());
+        // when
+        // then
+        for (String user : USERS) {
+            assertFalse(compiledLabel.evaluate(CxtABAC.context(store.attributes(user), store, null)), user);
+        }
+    }
+
+    private static String randomLabel(Random random) {
+        int size = random.nextInt(7);
+        StringBuilder label = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                label.append(", ");
+            }
+            label.append(randomExpr(random, 2));
+        }
+        return label.toString();
+    }
+
+    private static String randomExpr(Random random, int depth) {
+        int choice = depth == 0 ? 0 : random.nextInt(5);
+        return switch (choice) {
+            case 1 -> "!" + randomExpr(random, depth - 1);
+            case 2 -> randomExpr(random, depth - 1) + " | " + randomExpr(random, depth - 1);
+            case 3 -> "(" + randomExpr(random, depth - 1) + " & " + randomExpr(random, depth - 1) + ")";
+            default -> TERMS.get(random.nextInt(TERMS.size()));
+        };
+    }
+}
@@ -14,11 +14,17 @@ package io.telicent.attribute.evaluator;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.telicent.attribute.store.CacheSettings;
+import io.telicent.attribute.store.RefreshPolicy;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+
 import static io.telicent.attribute.utils.URLRequests.postEvalRequest;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ConfigFileTests {
@@ -98,4 +104,33 @@ class ConfigFileTests {
         TestEvaluationResult result = new ObjectMapper().readValue(actual, TestEvaluationResult.class);
         assertFalse(result.result);
     }
+
+    @Test
+    void test_configFile_overridesCommandLine_originalOptions() {
+        // given
+        String[] args = {CONFIG_FILE_PARAMETER, "file:src/test/resources/test_config_remote_cache.json",
+                "--userEndpoint", "http://localhost:64331/users/lookup/{user}", "--cacheExpiryTime", "PT5S"};
+        // when
+        ALEServer server = new ALEServer(args);
+        server.process();
+        // then
+        CacheSettings expected = new CacheSettings(RefreshPolicy.of(Duration.ofSeconds(20)),
+                                                   CacheSettings.DEFAULT_USER_MAXIMUM_SIZE, 0);
+        assertEquals(expected, server.getUserCacheSettings());
+        assertNull(server.getLookupUserEndpoint());
+    }
+
+    @Test
+    void test_commandLine_overridesConfigFile_newOptions() {
+        // given
+        String[] args = {CONFIG_FILE_PARAMETER, "file:src/test/resources/test_config_remote_options.json",
+                "--userCacheExpiry", "PT5S"};
+        // when
+        ALEServer server = new ALEServer(args);
+        server.process();
+        // then
+        CacheSettings expected = new CacheSettings(RefreshPolicy.of(Duration.ofSeconds(5)),
+                                                   CacheSettings.DEFAULT_USER_MAXIMUM_SIZE, 0);
+        assertEquals(expected, server.getUserCacheSettings());
+    }
 }
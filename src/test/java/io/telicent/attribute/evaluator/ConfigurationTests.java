@@ -12,10 +12,15 @@
  */
 package io.telicent.attribute.evaluator;
 
+import io.telicent.attribute.store.BatchPolicy;
+import io.telicent.attribute.store.CacheSettings;
+import io.telicent.attribute.store.RefreshPolicy;
 import org.apache.jena.atlas.json.JsonParseException;
 import org.apache.jena.cmd.CmdException;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ConfigurationTests {
@@ -172,4 +177,191 @@ class ConfigurationTests {
         // then
         assertDoesNotThrow(server::process);
     }
+
+    @Test
+    void test_invalidLabelCacheSize() {
+        // given
+        String[] args = {"--labelCacheSize", "-10", "--store", "http://some.url/"};
+        // when
+        ALEServer server = new ALEServer(args);
+        // then
+        assertThrowsExactly(CmdException.class, server::process, "Bad size: '-10'");
+    }
+
+    @Test
+    void test_invalidThreadCounts() {
+        // given
+        String[] args = {"--minThreads", "50", "--maxThreads", "10", "--store", "http://some.url/"};
+        // when
+        ALEServer server = new ALEServer(args);
+        // then
+        assertThrowsExactly(CmdException.class, server::process,
+                            "Bad thread counts: minThreads (50) exceeds maxThreads (10)");
+    }
+
+    @Test
+    void test_asyncTimeout() {
+        // given
+        String[] args = {"--async", "true", "--asyncTimeout", "PT5S", "--store", "http://some.url/"};
+        // when
+        ALEServer server = new ALEServer(args);
+        server.process();
+        // then
+        assertEquals(Duration.ofSeconds(5), server.getServerSettings().asyncTimeout());
+    }
+
+    @Test
+    void test_invalidAsyncTimeout() {
+        // given
+        String[] args = {"--async", "true", "--asyncTimeout", "PT0S", "--store", "http://some.url/"};
+        // when
+        ALEServer server = new ALEServer(args);
+        // then
+        assertThrowsExactly(CmdException.class, server::process, "Bad duration for asyncTimeout: 'PT0S'");
+    }
+
+    @Test
+    void test_tooFewThreadsForConnector() {
+        // given
+        String[] args = {"--minThreads", "2", "--maxThreads", "3", "--acceptors", "1", "--selectors", "2", "--store",
+                "http://some.url/"};
+        // when
+        ALEServer server = new ALEServer(args);
+        // then
+        assertThrowsExactly(CmdException.class, server::process,
+                            "Bad thread counts: maxThreads (3) must exceed acceptors plus selectors (3)");
+    }
+
+    @Test
+    void test_serverSettings() {
+        // given
+        String[] args = {"--maxThreads", "64", "--acceptors", "1", "--selectors", "2", "--maxQueueSize", "500",
+                "--virtualThreads", "true", "--async", "true", "--store", "http://some.url/"};
+        // when
+        ALEServer server = new ALEServer(args);
+        server.process();
+        // then
+        ServerSettings expected = new ServerSettings(ServerSettings.DEFAULT_MIN_THREADS, 64, 1, 2, 500, true, true);
+        assertEquals(expected, server.getServerSettings());
+    }
+
+    @Test
+    void test_timingSettings() {
+        // given
+        String[] args = {"--timingHeader", "true", "--slowRequestThreshold", "PT0.25S", "--store", "http://some.url/"};
+        // when
+        ALEServer server = new ALEServer(args);
+        server.process();
+        // then
+        assertEquals(new TimingSettings(true, Duration.ofMillis(250)), server.getTimingSettings());
+    }
+
+    @Test
+    void test_timingSettings_defaults() {
+        // given
+        String[] args = {"--store", "http://some.url/"};
+        // when
+        ALEServer server = new ALEServer(args);
+        server.process();
+        // then
+        assertEquals(TimingSettings.DEFAULT, server.getTimingSettings());
+    }
+
+    @Test
+    void test_invalidSlowRequestThreshold() {
+        // given
+        String[] args = {"--slowRequestThreshold", "-PT1S", "--store", "http://some.url/"};
+        // when
+        ALEServer server = new ALEServer(args);
+        // then
+        assertThrowsExactly(CmdException.class, server::process, "Bad duration for slowRequestThreshold: '-PT1S'");
+    }
+
+    @Test
+    void test_refreshPolicy() {
+        // given
+        String[] args = {"--cacheEnabled", "true", "--cacheExpiryTime", "PT20S", "--cacheRefreshAfter", "PT15S",
+                "--cacheStaleWindow", "PT1M", "--cacheNegativeExpiry", "PT1S", "--store", "http://some.url/"};
+        // when
+        ALEServer server = new ALEServer(args);
+        server.process();
+        // then
+        RefreshPolicy expected = new RefreshPolicy(Duration.ofSeconds(20), Duration.ofSeconds(15),
+                                                   Duration.ofSeconds(2), Duration.ofMinutes(1),
+                                                   Duration.ofSeconds(1));
+        assertEquals(expected, server.getUserCacheSettings().refreshPolicy());
+        assertEquals(expected, server.getHierarchyCacheSettings().refreshPolicy());
+    }
+
+    @Test
+    void test_invalidStaleWindow() {
+        // given
+        String[] args = {"--cacheEnabled", "true", "--cacheStaleWindow", "-PT10S", "--store", "http://some.url/"};
+        // when
+        ALEServer server = new ALEServer(args);
+        // then
+        assertThrowsExactly(CmdException.class, server::process, "Bad duration for cacheStaleWindow: '-PT10S'");
+    }
+
+    @Test
+    void test_batchPolicy() {
+        // given
+        String[] args = {"--cacheEnabled", "true", "--bulkUserEndpoint", "http://some.url/users/lookup",
+                "--cacheBatchWindow", "PT0.005S", "--cacheBatchSize", "50", "--store", "http://some.url/"};
+        // when
+        ALEServer server = new ALEServer(args);
+        server.process();
+        // then
+        assertEquals(new BatchPolicy(Duration.ofMillis(5), 50), server.getBatchPolicy());
+    }
+
+    @Test
+    void test_batchPolicy_noBulkEndpoint_notBatched() {
+        // given
+        String[] args = {"--cacheEnabled", "true", "--cacheBatchSize", "50", "--store", "http://some.url/"};
+        // when
+        ALEServer server = new ALEServer(args);
+        server.process();
+        // then
+        assertNull(server.getBatchPolicy());
+    }
+
+    @Test
+    void test_cacheSettings_perCache() {
+        // given
+        String[] args = {"--cacheEnabled", "true", "--cacheExpiryTime", "PT10S", "--userCacheWeight", "50000",
+                "--hierarchyCacheExpiry", "PT1H", "--hierarchyCacheSize", "500", "--store", "http://some.url/"};
+        // when
+        ALEServer server = new ALEServer(args);
+        server.process();
+        // then
+        CacheSettings expectedUsers = new CacheSettings(RefreshPolicy.of(Duration.ofSeconds(10)), 0, 50_000);
+        CacheSettings expectedHierarchies = new CacheSettings(RefreshPolicy.of(Duration.ofHours(1)), 500, 0);
+        assertEquals(expectedUsers, server.getUserCacheSettings());
+        assertEquals(expectedHierarchies, server.getHierarchyCacheSettings());
+    }
+
+    @Test
+    void test_cacheSettings_defaultBounds() {
+        // given
+        String[] args = {"--cacheEnabled", "true", "--store", "http://some.url/"};
+        // when
+        ALEServer server = new ALEServer(args);
+        server.process();
+        // then
+        assertEquals(CacheSettings.DEFAULT_USER_MAXIMUM_SIZE, server.getUserCacheSettings().maximumSize());
+        assertEquals(CacheSettings.DEFAULT_HIERARCHY_MAXIMUM_SIZE, server.getHierarchyCacheSettings().maximumSize());
+    }
+
+    @Test
+    void test_cacheSettings_sizeAndWeight() {
+        // given
+        String[] args = {"--cacheEnabled", "true", "--userCacheSize", "100", "--userCacheWeight", "1000", "--store",
+                "http://some.url/"};
+        // when
+        ALEServer server = new ALEServer(args);
+        // then
+        assertThrowsExactly(CmdException.class, server::process,
+                            "Bad cache bounds: set userCacheSize or userCacheWeight, not both");
+    }
 }
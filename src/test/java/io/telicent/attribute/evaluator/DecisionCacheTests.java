@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.attributes.AttributeParser;
+import io.telicent.jena.abac.core.AttributesStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecisionCacheTests {
+
+    private static final String LABEL = "credentials = hnd";
+    private static final CompiledLabel PARSED_LABEL = CompiledLabel.compile(AttributeParser.parseAttrExprList(LABEL));
+    private static final Attribute CREDENTIALS = new Attribute("credentials");
+
+    private static Hierarchy credentialsHierarchy() {
+        return Hierarchy.create("credentials", "hnc", "hnd", "ordinary-degree", "honours-degree", "phd");
+    }
+
+    /**
+     * Store that hands out whatever hierarchy instances the test has put in it
+     */
+    private static class TestStore implements AttributesStore {
+        final Map<Attribute, Hierarchy> hierarchies = new ConcurrentHashMap<>();
+        final AtomicInteger hasHierarchyCalls = new AtomicInteger();
+
+        @Override
+        public AttributeValueSet attributes(String user) {
+            return null;
+        }
+
+        @Override
+        public Set<String> users() {
+            return Set.of();
+        }
+
+        @Override
+        public boolean hasHierarchy(Attribute attribute) {
+            hasHierarchyCalls.incrementAndGet();
+            return hierarchies.containsKey(attribute);
+        }
+
+        @Override
+        public Hierarchy getHierarchy(Attribute attribute) {
+            return hierarchies.get(attribute);
+        }
+    }
+
+    @Test
+    void test_get_unchangedDependencies_cachedResult() {
+        // given
+        TestStore store = new TestStore();
+        store.hierarchies.put(CREDENTIALS, credentialsHierarchy());
+        AttributeValueSet avSet = AttributeValueSet.of("credentials=phd");
+        DecisionCache cut = new DecisionCache(true, 10);
+        // when
+        Boolean beforeEvaluation = cut.get("user1", LABEL, avSet, store);
+        boolean evaluated = cut.evaluate("user1", LABEL, avSet, PARSED_LABEL, store);
+        Boolean afterEvaluation = cut.get("user1", LABEL, avSet, store);
+        // then
+        assertNull(beforeEvaluation);
+        assertTrue(evaluated);
+        assertEquals(Boolean.TRUE, afterEvaluation);
+        assertEquals(1, cut.hitCount());
+        assertEquals(1, cut.missCount());
+    }
+
+    @Test
+    void test_get_userAttributesReplaced_noResult() {
+        // given
+        TestStore store = new TestStore();
+        store.hierarchies.put(CREDENTIALS, credentialsHierarchy());
+        DecisionCache cut = new DecisionCache(true, 10);
+        cut.evaluate("user1", LABEL, AttributeValueSet.of("credentials=phd"), PARSED_LABEL, store);
+        // when
+        Boolean result = cut.get("user1", LABEL, AttributeValueSet.of("credentials=phd"), store);
+        // then
+        assertNull(result);
+    }
+
+    @Test
+    void test_get_hierarchyReplaced_noResult() {
+        // given
+        TestStore store = new TestStore();
+        store.hierarchies.put(CREDENTIALS, credentialsHierarchy());
+        AttributeValueSet avSet = AttributeValueSet.of("credentials=hnc");
+        DecisionCache cut = new DecisionCache(true, 10);
+        boolean evaluated = cut.evaluate("user1", LABEL, avSet, PARSED_LABEL, store);
+        // when
+        store.hierarchies.put(CREDENTIALS, Hierarchy.create("credentials", "hnd", "hnc"));
+        Boolean result = cut.get("user1", LABEL, avSet, store);
+        // then
+        assertFalse(evaluated);
+        assertNull(result);
+        assertTrue(cut.evaluate("user1", LABEL, avSet, PARSED_LABEL, store));
+    }
+
+    @Test
+    void test_get_hierarchyAdded_noResult() {
+        // given
+        TestStore store = new TestStore();
+        AttributeValueSet avSet = AttributeValueSet.of("credentials=phd");
+        DecisionCache cut = new DecisionCache(true, 10);
+        cut.evaluate("user1", LABEL, avSet, PARSED_LABEL, store);
+        // when
+        store.hierarchies.put(CREDENTIALS, credentialsHierarchy());
+        Boolean result = cut.get("user1", LABEL, avSet, store);
+        // then
+        assertNull(result);
+    }
+
+    @Test
+    void test_evaluate_hierarchyOnlyFetchedOnce_cachedResult() {
+        // given
+        TestStore store = new TestStore();
+        store.hierarchies.put(CREDENTIALS, credentialsHierarchy());
+        AttributeValueSet avSet = AttributeValueSet.of("credentials=phd");
+        DecisionCache cut = new DecisionCache(true, 10);
+        // when
+        boolean evaluated = cut.evaluate("user1", LABEL, avSet, PARSED_LABEL, store);
+        Boolean result = cut.get("user1", LABEL, avSet, store);
+        // then
+        assertTrue(evaluated);
+        assertEquals(Boolean.TRUE, result);
+        assertEquals(0, store.hasHierarchyCalls.get());
+    }
+
+    @Test
+    void test_disabled_evaluatesEveryTime() {
+        // given
+        TestStore store = new TestStore();
+        store.hierarchies.put(CREDENTIALS, credentialsHierarchy());
+        AttributeValueSet avSet = AttributeValueSet.of("credentials=phd");
+        DecisionCache cut = new DecisionCache(false, 10);
+        // when
+        boolean evaluated = cut.evaluate("user1", LABEL, avSet, PARSED_LABEL, store);
+        Boolean result = cut.get("user1", LABEL, avSet, store);
+        // then
+        assertTrue(evaluated);
+        assertNull(result);
+        assertFalse(cut.isEnabled());
+    }
+}
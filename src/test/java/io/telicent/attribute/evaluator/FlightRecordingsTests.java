@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecordingsTests {
+
+    private final FlightRecordings cut = new FlightRecordings();
+
+    @AfterEach
+    void stopRecording() {
+        cut.stop();
+    }
+
+    @Test
+    void test_noRecording() throws IOException {
+        // given
+        // when
+        // then
+        assertEquals("NONE", cut.state());
+        assertNull(cut.dump());
+        assertFalse(cut.stop());
+    }
+
+    @Test
+    void test_startDumpStop_evaluationEventsRecorded() throws IOException, ParseException {
+        // given
+        cut.start("default", Duration.ofMinutes(1), FlightRecordings.DEFAULT_MAX_SIZE);
+        EvaluationEvent event = new EvaluationEvent();
+        event.begin();
+        event.user = "user1";
+        event.labelLength = 8;
+        event.result = "true";
+        event.commit();
+        // when
+        Path file = cut.dump();
+        try {
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            // then
+            assertEquals("RUNNING", cut.state());
+            RecordedEvent recorded = events.stream()
+                                           .filter(e -> e.getEventType().getName().equals("io.telicent.ale.Evaluation"))
+                                           .findFirst()
+                                           .orElseThrow();
+            assertEquals("user1", recorded.getString("user"));
+            assertEquals(8, recorded.getInt("labelLength"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        assertTrue(cut.stop());
+        assertEquals("STOPPED", cut.state());
+        assertFalse(cut.stop());
+    }
+
+    @Test
+    void test_start_unknownSettings_throws() {
+        // given
+        // when
+        // then
+        assertThrows(IOException.class, () -> cut.start("no-such-settings", Duration.ofMinutes(1), 1024));
+        assertEquals("NONE", cut.state());
+    }
+
+    @Test
+    void test_start_badLimits_previousRecordingKept() throws IOException, ParseException {
+        // given
+        cut.start("default", Duration.ofMinutes(1), FlightRecordings.DEFAULT_MAX_SIZE);
+        // when
+        // then
+        assertThrows(IllegalArgumentException.class, () -> cut.start("default", Duration.ZERO, 1024));
+        assertThrows(IllegalArgumentException.class, () -> cut.start("default", Duration.ofMinutes(-1), 1024));
+        assertThrows(IllegalArgumentException.class, () -> cut.start("default", Duration.ofMinutes(1), 0));
+        assertThrows(IOException.class, () -> cut.start("no-such-settings", Duration.ofMinutes(1), 1024));
+        assertEquals("RUNNING", cut.state());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import io.telicent.attribute.evaluator.LabelCache.ParsedLabel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LabelCacheTests {
+
+    @Test
+    void test_parse_repeatedLabel_servedFromCache() {
+        // given
+        LabelCache cut = new LabelCache(true, 10);
+        // when
+        ParsedLabel initialResult = cut.parse("clearance=secret,nationality=GBR");
+        ParsedLabel subsequentResult = cut.parse("clearance=secret,nationality=GBR");
+        // then
+        assertFalse(initialResult.isError());
+        assertEquals(2, initialResult.expressions().size());
+        assertSame(initialResult, subsequentResult);
+        assertEquals(1, cut.missCount());
+        assertEquals(1, cut.hitCount());
+    }
+
+    @Test
+    void test_parse_badSyntax_errorCached() {
+        // given
+        LabelCache cut = new LabelCache(true, 10);
+        // when
+        ParsedLabel initialResult = cut.parse("email=u1@telicent.io");
+        ParsedLabel subsequentResult = cut.parse("email=u1@telicent.io");
+        // then
+        assertTrue(initialResult.isError());
+        assertNull(initialResult.expressions());
+        assertSame(initialResult, subsequentResult);
+        assertEquals(1, cut.missCount());
+        assertEquals(1, cut.hitCount());
+    }
+
+    @Test
+    void test_parse_disabled_parsesEveryTime() {
+        // given
+        LabelCache cut = new LabelCache(false, 10);
+        // when
+        ParsedLabel initialResult = cut.parse("credentials = phd");
+        ParsedLabel subsequentResult = cut.parse("credentials = phd");
+        // then
+        assertFalse(cut.isEnabled());
+        assertNotSame(initialResult, subsequentResult);
+        assertEquals(initialResult.expressions().size(), subsequentResult.expressions().size());
+        assertEquals(0, cut.hitCount());
+        assertEquals(0, cut.missCount());
+    }
+}
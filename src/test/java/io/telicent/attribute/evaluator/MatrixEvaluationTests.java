@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.attributes.AttributeParser;
+import io.telicent.jena.abac.core.AttributesStore;
+import org.apache.jena.sys.JenaSystem;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpResponse;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static io.telicent.attribute.utils.URLRequests.postJsonRequest;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatrixEvaluationTests {
+    private static final String[] WORKING_CONFIG =
+            {"--store", "file:src/test/resources/sample_attributes.ttl", "--port", "0"};
+    private static String matrixUrl;
+
+    @BeforeAll
+    public static void setupClass() {
+        JenaSystem.init();
+        ALEServer server = new ALEServer(WORKING_CONFIG);
+        server.mainRun();
+        matrixUrl = server.getURL() + AttributeListEvalServer.MATRIX_SUFFIX;
+    }
+
+    private static BitSet bitmap(String encoded) {
+        return BitSet.valueOf(Base64.getDecoder().decode(encoded));
+    }
+
+    private static BitSet bits(int... indexes) {
+        BitSet bitSet = new BitSet();
+        for (int index : indexes) {
+            bitSet.set(index);
+        }
+        return bitSet;
+    }
+
+    @Test
+    void test_happyPath_bitmapPerUser() throws JsonProcessingException {
+        // given
+        String body = """
+                {
+                  "users" : [ "employee1", "employee2", "nobody" ],
+                  "labels" : [ "credentials = hnd", "engineer", "contractor", "credentials = phd" ]
+                }""";
+        // when
+        HttpResponse<String> response = postJsonRequest(matrixUrl, body);
+        // then
+        assertEquals(200, response.statusCode());
+        TestMatrixEvaluationResult result =
+                new ObjectMapper().readValue(response.body(), TestMatrixEvaluationResult.class);
+        assertEquals(List.of("employee1", "employee2", "nobody"), result.users);
+        assertEquals(bits(0, 1), bitmap(result.results.get(0)));
+        assertEquals(bits(0, 1, 2, 3), bitmap(result.results.get(1)));
+        assertEquals(bits(), bitmap(result.results.get(2)));
+        assertEquals(1, Base64.getDecoder().decode(result.results.get(2)).length);
+    }
+
+    @Test
+    void test_largeMatrix_evaluatedInParallel() throws JsonProcessingException {
+        // given
+        List<String> users = Collections.nCopies(100, "\"employee1\"");
+        List<String> labels = Collections.nCopies(100, "\"engineer\"");
+        String body = "{ \"users\" : " + users.stream().collect(Collectors.joining(",", "[", "]"))
+                      + ", \"labels\" : " + labels.stream().collect(Collectors.joining(",", "[", "]")) + " }";
+        BitSet expected = new BitSet();
+        expected.set(0, 100);
+        // when
+        HttpResponse<String> response = postJsonRequest(matrixUrl, body);
+        // then
+        assertEquals(200, response.statusCode());
+        TestMatrixEvaluationResult result =
+                new ObjectMapper().readValue(response.body(), TestMatrixEvaluationResult.class);
+        assertEquals(100, result.results.size());
+        result.results.forEach(bitmap -> assertEquals(expected, bitmap(bitmap)));
+    }
+
+    @Test
+    void test_evaluateParallel_boundedConcurrency() {
+        // given
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AttributesStore slowStore = new AttributesStore() {
+            @Override
+            public AttributeValueSet attributes(String user) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                return null;
+            }
+
+            @Override
+            public Set<String> users() {
+                return Set.of();
+            }
+
+            @Override
+            public boolean hasHierarchy(Attribute attribute) {
+                return false;
+            }
+
+            @Override
+            public Hierarchy getHierarchy(Attribute attribute) {
+                return null;
+            }
+        };
+        AttributeListMatrixEvaluator evaluator = new AttributeListMatrixEvaluator(slowStore, null);
+        List<String> users = Collections.nCopies(200, "user");
+        List<CompiledLabel> labels = List.of(CompiledLabel.compile(AttributeParser.parseAttrExprList("engineer")));
+        byte[][] bitmaps = new byte[users.size()][];
+        // when
+        evaluator.evaluateParallel(users, labels, bitmaps);
+        // then
+        assertTrue(maxInFlight.get() <= AttributeListMatrixEvaluator.MAX_PARALLELISM);
+        for (byte[] bitmap : bitmaps) {
+            assertArrayEquals(new byte[1], bitmap);
+        }
+    }
+
+    @Test
+    void test_badRequests_badRequest() {
+        // given
+        List<String> bodies = List.of("{ \"users\" : [ \"employee1\" ] }",
+                                      "{ \"labels\" : [ \"engineer\" ] }",
+                                      "{ \"users\" : [ \"employee1\" ], \"labels\" : [ \"email=u1@telicent.io\" ] }");
+        // when
+        // then
+        for (String body : bodies) {
+            assertEquals(400, postJsonRequest(matrixUrl, body).statusCode(), body);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.apache.jena.atlas.web.HttpException;
+import org.apache.jena.sys.JenaSystem;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static io.telicent.attribute.utils.URLRequests.getResponse;
+import static io.telicent.attribute.utils.URLRequests.postBodyRequest;
+import static io.telicent.attribute.utils.URLRequests.postEvalRequest;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsEndpointTests {
+    private static WireMockServer wireMockServer;
+    private static String attributeServerURL;
+
+    @BeforeAll
+    public static void setupClass() {
+        JenaSystem.init();
+        wireMockServer = new WireMockServer(wireMockConfig().dynamicPort());
+        wireMockServer.start();
+        attributeServerURL = "http://localhost:" + wireMockServer.port();
+        wireMockServer.stubFor(get(urlEqualTo("/users/lookup/user1"))
+                                       .willReturn(aResponse()
+                                                           .withBody("""
+                                                                             {
+                                                                               "attributes" : [ "employee" ]
+                                                                             }""")));
+    }
+
+    @AfterAll
+    public static void cleanUp() {
+        wireMockServer.stop();
+    }
+
+    @Test
+    void test_metrics_evalAndCacheStatsReported() throws IOException {
+        // given
+        String[] args = {"--store", attributeServerURL, "--port", "0", "--cachingEnabled", "true"};
+        ALEServer server = new ALEServer(args);
+        server.mainRun();
+        // when
+        postEvalRequest(server.getURL(), "user1", "employee");
+        postEvalRequest(server.getURL(), "user1", "contractor");
+        postEvalRequest(server.getURL(), "user1", "employee");
+        HttpResponse<String> response = getResponse(server.getMetricsURL());
+        // then
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+        String metrics = response.body();
+        assertTrue(metrics.contains("ale_eval_duration_seconds_count 3\n"), metrics);
+        assertTrue(metrics.contains("ale_eval_decisions_total{result=\"allow\"} 2\n"), metrics);
+        assertTrue(metrics.contains("ale_eval_decisions_total{result=\"deny\"} 1\n"), metrics);
+        assertTrue(metrics.contains("ale_attribute_cache_hits_total{cache=\"users\"} 2\n"), metrics);
+        assertTrue(metrics.contains("ale_attribute_cache_misses_total{cache=\"users\"} 1\n"), metrics);
+        assertTrue(metrics.contains("ale_remote_lookup_duration_seconds_count{lookup=\"user\"} 1\n"), metrics);
+        assertTrue(metrics.contains("ale_label_cache_lookups_total{result=\"miss\"} 2\n"), metrics);
+    }
+
+    @Test
+    void test_timingHeader_phasesReturnedAndRecorded() {
+        // given
+        String[] args = {"--store", attributeServerURL, "--port", "0", "--cachingEnabled", "true",
+                "--timingHeader", "true", "--slowRequestThreshold", "PT0S"};
+        ALEServer server = new ALEServer(args);
+        server.mainRun();
+        // when
+        HttpResponse<String> response =
+                postBodyRequest(server.getURL() + "?user=user1&label=employee", "text/plain", "");
+        String metrics = getResponse(server.getMetricsURL()).body();
+        // then
+        assertEquals(200, response.statusCode());
+        String serverTiming = response.headers().firstValue("Server-Timing").orElse("");
+        assertTrue(serverTiming.matches("lookup;dur=[0-9.]+, parse;dur=[0-9.]+, eval;dur=[0-9.]+"), serverTiming);
+        for (String phase : List.of("lookup", "parse", "eval", "write")) {
+            assertTrue(metrics.contains("ale_eval_phase_duration_seconds_count{phase=\"" + phase + "\"} 1\n"),
+                       metrics);
+        }
+    }
+
+    @Test
+    void test_phaseDurations_onlyPhasesRunRecorded() {
+        // given
+        String[] args = {"--store", attributeServerURL, "--port", "0", "--cachingEnabled", "true",
+                "--decisionCacheEnabled", "true"};
+        ALEServer server = new ALEServer(args);
+        server.mainRun();
+        // when
+        postEvalRequest(server.getURL(), "user1", "employee");
+        postEvalRequest(server.getURL(), "user1", "employee");
+        assertThrows(HttpException.class, () -> postEvalRequest(server.getURL(), "user1", "email=u1@telicent.io"));
+        String metrics = getResponse(server.getMetricsURL()).body();
+        // then
+        assertTrue(metrics.contains("ale_eval_phase_duration_seconds_count{phase=\"lookup\"} 3\n"), metrics);
+        assertTrue(metrics.contains("ale_eval_phase_duration_seconds_count{phase=\"parse\"} 2\n"), metrics);
+        assertTrue(metrics.contains("ale_eval_phase_duration_seconds_count{phase=\"eval\"} 2\n"), metrics);
+        assertTrue(metrics.contains("ale_eval_phase_duration_seconds_count{phase=\"write\"} 2\n"), metrics);
+    }
+
+    @Test
+    void test_timingHeader_offByDefault() {
+        // given
+        String[] args = {"--store", "file:src/test/resources/sample_attributes.ttl", "--port", "0"};
+        ALEServer server = new ALEServer(args);
+        server.mainRun();
+        // when
+        HttpResponse<String> response = postBodyRequest(server.getURL() + "?user=u1&label=employee", "text/plain", "");
+        // then
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Server-Timing").isEmpty());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import org.apache.jena.sys.JenaSystem;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpResponse;
+
+import static io.telicent.attribute.utils.URLRequests.getResponse;
+import static io.telicent.attribute.utils.URLRequests.postBodyRequest;
+import static io.telicent.attribute.utils.URLRequests.postEvalRequest;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordingEndpointTests {
+
+    private static final String LOCAL_STORE = "file:src/test/resources/sample_attributes.ttl";
+
+    @BeforeAll
+    public static void setupClass() {
+        JenaSystem.init();
+    }
+
+    @Test
+    void test_recording_startDumpStop() {
+        // given
+        ALEServer server = start(true);
+        String recordingURL = server.getRecordingURL();
+        // when
+        HttpResponse<String> notStarted = getResponse(recordingURL);
+        HttpResponse<String> started = post(recordingURL + "?action=start&settings=default&maxAge=PT1M");
+        postEvalRequest(server.getURL(), "u1", "employee");
+        HttpResponse<String> dumped = getResponse(recordingURL);
+        HttpResponse<String> stopped = post(recordingURL + "?action=stop");
+        HttpResponse<String> stoppedAgain = post(recordingURL + "?action=stop");
+        // then
+        assertEquals(404, notStarted.statusCode());
+        assertEquals(200, started.statusCode());
+        assertTrue(started.body().contains("RUNNING"), started.body());
+        assertEquals(200, dumped.statusCode());
+        assertTrue(dumped.body().startsWith("FLR"));
+        assertEquals(200, stopped.statusCode());
+        assertTrue(stopped.body().contains("STOPPED"), stopped.body());
+        assertEquals(409, stoppedAgain.statusCode());
+    }
+
+    @Test
+    void test_recording_badRequests() {
+        // given
+        ALEServer server = start(true);
+        // when
+        HttpResponse<String> noAction = post(server.getRecordingURL());
+        HttpResponse<String> badMaxAge = post(server.getRecordingURL() + "?action=start&maxAge=soon");
+        HttpResponse<String> zeroMaxAge = post(server.getRecordingURL() + "?action=start&maxAge=PT0S");
+        HttpResponse<String> negativeMaxAge = post(server.getRecordingURL() + "?action=start&maxAge=-PT1M");
+        HttpResponse<String> zeroMaxSize = post(server.getRecordingURL() + "?action=start&maxSize=0");
+        // then
+        assertEquals(400, noAction.statusCode());
+        assertEquals(400, badMaxAge.statusCode());
+        assertEquals(400, zeroMaxAge.statusCode());
+        assertEquals(400, negativeMaxAge.statusCode());
+        assertEquals(400, zeroMaxSize.statusCode());
+    }
+
+    @Test
+    void test_recording_onlyOnAdminConnector() {
+        // given
+        ALEServer server = start(true);
+        // when
+        String publicRecordingURL = server.getURL().replace("/eval", "/admin/recording");
+        HttpResponse<String> publicResponse = getResponse(publicRecordingURL);
+        HttpResponse<String> adminEval = post(server.getRecordingURL().replace("/admin/recording", "/eval")
+                                              + "?user=u1&label=employee");
+        // then
+        assertEquals(404, publicResponse.statusCode());
+        assertEquals(404, adminEval.statusCode());
+        assertTrue(server.getRecordingURL().startsWith("http://localhost:"), server.getRecordingURL());
+        assertNotEquals(publicRecordingURL, server.getRecordingURL());
+    }
+
+    @Test
+    void test_recording_disabledByDefault() {
+        // given
+        ALEServer server = start(false);
+        // when
+        String recordingURL = server.getURL().replace("/eval", "/admin/recording");
+        HttpResponse<String> response = getResponse(recordingURL);
+        // then
+        assertNull(server.getRecordingURL());
+        assertEquals(404, response.statusCode());
+    }
+
+    private static ALEServer start(boolean recordingEndpoint) {
+        String[] args = {"--store", LOCAL_STORE, "--port", "0",
+                         "--recordingEndpoint", String.valueOf(recordingEndpoint)};
+        ALEServer server = new ALEServer(args);
+        server.mainRun();
+        return server;
+    }
+
+    private static HttpResponse<String> post(String url) {
+        return postBodyRequest(url, "text/plain", "");
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.jena.sys.JenaSystem;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.telicent.attribute.utils.URLRequests.postBodyRequest;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamEvaluationTests {
+    private static final String[] WORKING_CONFIG =
+            {"--store", "file:src/test/resources/sample_attributes.ttl", "--port", "0"};
+    private static final String NDJSON = "application/x-ndjson";
+    private static String streamUrl;
+
+    @BeforeAll
+    public static void setupClass() {
+        JenaSystem.init();
+        ALEServer server = new ALEServer(WORKING_CONFIG);
+        server.mainRun();
+        streamUrl = server.getURL() + AttributeListEvalServer.STREAM_SUFFIX;
+    }
+
+    private static List<JsonNode> readLines(String body) throws JsonProcessingException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            lines.add(mapper.readTree(line));
+        }
+        return lines;
+    }
+
+    @Test
+    void test_happyPath_resultPerLineInOrder() throws JsonProcessingException {
+        // given
+        String body = """
+                { "user" : "employee1", "label" : "credentials = hnd" }
+                { "user" : "employee1", "label" : "credentials = phd" }
+
+                { "user" : "nobody", "label" : "engineer" }
+                """;
+        // when
+        HttpResponse<String> response = postBodyRequest(streamUrl, NDJSON, body);
+        // then
+        assertEquals(200, response.statusCode());
+        List<JsonNode> lines = readLines(response.body());
+        assertEquals(3, lines.size());
+        assertEquals("employee1", lines.get(0).get("user").asText());
+        assertEquals("credentials = hnd", lines.get(0).get("label").asText());
+        assertTrue(lines.get(0).get("result").asBoolean());
+        assertFalse(lines.get(1).get("result").asBoolean());
+        assertFalse(lines.get(2).get("result").asBoolean());
+    }
+
+    @Test
+    void test_badLines_errorPerLine() throws JsonProcessingException {
+        // given
+        String body = """
+                not json
+                [ "employee1" ]
+                { "user" : "employee1" }
+                { "user" : "employee1", "label" : "email=u1@telicent.io" }
+                { "user" : "employee1", "label" : "engineer" }
+                """;
+        // when
+        HttpResponse<String> response = postBodyRequest(streamUrl, NDJSON, body);
+        // then
+        assertEquals(200, response.statusCode());
+        List<JsonNode> lines = readLines(response.body());
+        assertEquals(5, lines.size());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(lines.get(i).has("error"), "Line " + i);
+            assertFalse(lines.get(i).has("result"), "Line " + i);
+        }
+        assertTrue(lines.get(4).get("result").asBoolean());
+    }
+
+    @Test
+    void test_overlongLine_skipped() throws JsonProcessingException {
+        // given
+        String longLabel = "a".repeat(AttributeListStreamEvaluator.MAX_LINE_LENGTH);
+        String body = "{ \"user\" : \"employee1\", \"label\" : \"" + longLabel + "\" }\n"
+                      + "{ \"user\" : \"employee1\", \"label\" : \"engineer\" }\n";
+        // when
+        HttpResponse<String> response = postBodyRequest(streamUrl, NDJSON, body);
+        // then
+        List<JsonNode> lines = readLines(response.body());
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).has("error"));
+        assertTrue(lines.get(1).get("result").asBoolean());
+    }
+
+    @Test
+    void test_manyLines_allEvaluated() throws JsonProcessingException {
+        // given
+        int count = 10_000;
+        String line = "{ \"user\" : \"employee2\", \"label\" : \"contractor\" }\n";
+        String body = line.repeat(count);
+        // when
+        HttpResponse<String> response = postBodyRequest(streamUrl, NDJSON, body);
+        // then
+        List<JsonNode> lines = readLines(response.body());
+        assertEquals(count, lines.size());
+        lines.forEach(result -> assertTrue(result.get("result").asBoolean()));
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.jena.sys.JenaSystem;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static io.telicent.attribute.utils.URLRequests.postEvalRequest;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadServerTests {
+    private static final String[] WORKING_CONFIG =
+            {"--store", "file:src/test/resources/sample_attributes.ttl", "--port", "0", "--virtualThreads", "true",
+                    "--minThreads", "4", "--maxThreads", "16", "--acceptors", "1", "--selectors", "1"};
+    private static String url;
+
+    @BeforeAll
+    public static void setupClass() {
+        JenaSystem.init();
+        ALEServer server = new ALEServer(WORKING_CONFIG);
+        server.mainRun();
+        url = server.getURL();
+    }
+
+    @Test
+    void test_eval_onVirtualThreads() throws JsonProcessingException {
+        // given
+        // when
+        String actual = postEvalRequest(url, "u3", "clearance=secret");
+        // then
+        TestEvaluationResult result = new ObjectMapper().readValue(actual, TestEvaluationResult.class);
+        assertTrue(result.result);
+    }
+
+    @Test
+    void test_stop_serverNoLongerAnswers() {
+        // given
+        ALEServer server = new ALEServer(WORKING_CONFIG);
+        server.mainRun();
+        String stoppedURL = server.getURL();
+        postEvalRequest(stoppedURL, "u3", "clearance=secret");
+        // when
+        server.stop();
+        // then
+        assertThrows(RuntimeException.class, () -> postEvalRequest(stoppedURL, "u3", "clearance=secret"));
+    }
+
+    @Test
+    void test_startServer_tooFewThreads_rejected() {
+        // given
+        ServerSettings settings = new ServerSettings(1, 2, 1, 1, ServerSettings.DEFAULT_MAX_QUEUE_SIZE, false, false);
+        // when
+        // then
+        assertThrowsExactly(IllegalArgumentException.class,
+                            () -> AttributeListEvalServer.startServer(0, "/eval", settings, List.of()));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.evaluator;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.apache.jena.cmd.CmdException;
+import org.apache.jena.sys.JenaSystem;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static io.telicent.attribute.utils.URLRequests.getResponse;
+import static io.telicent.attribute.utils.URLRequests.postEvalRequest;
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarmUpTests {
+    private static WireMockServer wireMockServer;
+    private static String attributeServerURL;
+
+    @BeforeAll
+    public static void setupClass() {
+        JenaSystem.init();
+        wireMockServer = new WireMockServer(wireMockConfig().dynamicPort());
+        wireMockServer.start();
+        attributeServerURL = "http://localhost:" + wireMockServer.port();
+        for (String user : List.of("user1", "user2")) {
+            wireMockServer.stubFor(get(urlEqualTo("/users/lookup/" + user))
+                                           .willReturn(aResponse()
+                                                               .withFixedDelay(300)
+                                                               .withBody("""
+                                                                                 {
+                                                                                   "attributes" : [
+                                                                                       "credentials=ordinary-degree" ,
+                                                                                       "employee"
+                                                                                     ]
+                                                                                 }""")));
+        }
+        wireMockServer.stubFor(get(urlEqualTo("/hierarchies/lookup/credentials"))
+                                       .willReturn(aResponse()
+                                                           .withBody("""
+                                                                             {
+                                                                               "tiers" : [
+                                                                                   "hnc" ,
+                                                                                   "ordinary-degree" ,
+                                                                                   "phd"
+                                                                                 ]
+                                                                             }""")));
+    }
+
+    @AfterAll
+    public static void cleanUp() {
+        wireMockServer.stop();
+    }
+
+    @Test
+    void test_warmUp_notReadyUntilCacheLoaded(@TempDir Path tempDir) throws IOException, InterruptedException {
+        // given
+        Path userList = tempDir.resolve("users.txt");
+        Files.writeString(userList, "# users to preload\nuser1\n\nuser2\n");
+        String[] args = {"--store", attributeServerURL, "--port", "0", "--cachingEnabled", "true", "--warmUpUsers",
+                userList.toString(), "--warmUpConcurrency", "2"};
+        ALEServer server = new ALEServer(args);
+        // when
+        server.mainRun();
+        HttpResponse<String> duringWarmUp = getResponse(server.getReadyURL());
+        for (int i = 0; i < 100 && !server.isReady(); i++) {
+            Thread.sleep(50);
+        }
+        HttpResponse<String> afterWarmUp = getResponse(server.getReadyURL());
+        postEvalRequest(server.getURL(), "user1", "credentials = hnc");
+        // then
+        assertEquals(503, duringWarmUp.statusCode());
+        assertEquals(200, afterWarmUp.statusCode());
+        assertEquals(2, server.getWarmUpResult().users());
+        assertEquals(1, server.getWarmUpResult().hierarchies());
+        wireMockServer.verify(exactly(1), getRequestedFor(urlEqualTo("/users/lookup/user1")));
+        wireMockServer.verify(exactly(1), getRequestedFor(urlEqualTo("/hierarchies/lookup/credentials")));
+    }
+
+    @Test
+    void test_noWarmUp_readyAtOnce() {
+        // given
+        String[] args = {"--store", attributeServerURL, "--port", "0", "--cachingEnabled", "true"};
+        ALEServer server = new ALEServer(args);
+        // when
+        server.mainRun();
+        HttpResponse<String> response = getResponse(server.getReadyURL());
+        // then
+        assertTrue(server.isReady());
+        assertEquals(200, response.statusCode());
+        assertNull(server.getWarmUpResult());
+    }
+
+    @Test
+    void test_warmUp_missingUserList() {
+        // given
+        String[] args = {"--store", attributeServerURL, "--cachingEnabled", "true", "--warmUpUsers",
+                "src/test/resources/no-such-users.txt"};
+        ALEServer server = new ALEServer(args);
+        // when
+        // then
+        assertThrowsExactly(CmdException.class, server::process,
+                            "Cannot read warm-up user list: src/test/resources/no-such-users.txt");
+    }
+
+    @Test
+    void test_warmUp_noUserList_rejected() {
+        // given
+        String[] args = {"--store", attributeServerURL, "--cachingEnabled", "true", "--warmUp", "true"};
+        ALEServer server = new ALEServer(args);
+        // when
+        // then
+        assertThrowsExactly(CmdException.class, server::process, "Cache warm-up needs a user list: set warmUpUsers");
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.core.AttributesStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.BitSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AttributeDictionaryTests {
+
+    @Mock
+    private AttributesStore mockedStore;
+
+    @Test
+    public void test_intern_sameContents_sharedInstance() {
+        // given
+        AttributeDictionary cut = new AttributeDictionary();
+        AttributeValueSet first = AttributeValueSet.of("clearance=secret,nationality=GBR");
+        AttributeValueSet second = AttributeValueSet.of("nationality=GBR,clearance=secret");
+        // when
+        AttributeValueSet internedFirst = cut.intern(first);
+        AttributeValueSet internedSecond = cut.intern(second);
+        // then
+        assertSame(first, internedFirst);
+        assertSame(internedFirst, internedSecond);
+        assertEquals(2, cut.size());
+    }
+
+    @Test
+    public void test_intern_null_null() {
+        // given
+        AttributeDictionary cut = new AttributeDictionary();
+        // when
+        // then
+        assertNull(cut.intern(null));
+    }
+
+    @Test
+    public void test_encode_orderIndependent() {
+        // given
+        AttributeDictionary cut = new AttributeDictionary();
+        // when
+        BitSet bits = cut.encode(AttributeValueSet.of("clearance=secret,nationality=GBR"));
+        BitSet reordered = cut.encode(AttributeValueSet.of("nationality=GBR,clearance=secret"));
+        BitSet different = cut.encode(AttributeValueSet.of("clearance=top-secret,nationality=GBR"));
+        // then
+        assertEquals(2, bits.cardinality());
+        assertEquals(bits, reordered);
+        assertNotEquals(bits, different);
+        assertEquals(3, cut.size());
+    }
+
+    @Test
+    public void test_internedStore_identicalUsers_sharedInstance() {
+        // given
+        when(mockedStore.users()).thenReturn(Set.of("user1", "user2"));
+        when(mockedStore.attributes("user1")).thenReturn(AttributeValueSet.of("engineer,status=public"));
+        when(mockedStore.attributes("user2")).thenReturn(AttributeValueSet.of("status=public,engineer"));
+        // when
+        InternedAttributesStore cut = new InternedAttributesStore(mockedStore);
+        // then
+        assertSame(cut.attributes("user1"), cut.attributes("user2"));
+        assertNull(cut.attributes("user3"));
+        assertEquals(Set.of("user1", "user2"), cut.users());
+    }
+
+    @Test
+    public void test_internedStore_hierarchiesCopied() {
+        // given
+        Attribute status = new Attribute("status");
+        when(mockedStore.users()).thenReturn(Set.of("user1"));
+        when(mockedStore.attributes("user1")).thenReturn(AttributeValueSet.of("engineer,status=public"));
+        when(mockedStore.hasHierarchy(any())).thenAnswer(invocation -> status.equals(invocation.getArgument(0)));
+        when(mockedStore.getHierarchy(status)).thenReturn(Hierarchy.create("status", "public", "sensitive"));
+        // when
+        InternedAttributesStore cut = new InternedAttributesStore(mockedStore);
+        clearInvocations(mockedStore);
+        // then
+        assertTrue(cut.hasHierarchy(status));
+        assertInstanceOf(RankedValueList.class, cut.getHierarchy(status).values());
+        assertFalse(cut.hasHierarchy(new Attribute("engineer")));
+        assertNull(cut.getHierarchy(new Attribute("engineer")));
+        verifyNoInteractions(mockedStore);
+    }
+}
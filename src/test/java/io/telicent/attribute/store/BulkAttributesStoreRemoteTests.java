@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import org.apache.jena.atlas.web.HttpException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkAttributesStoreRemoteTests {
+
+    @Test
+    void test_parseResponse_wellFormed() {
+        // given
+        String body = "{\"users\":{\"user1\":[\"engineer\",\"status=public\"]}}";
+        // when
+        Map<String, AttributeValueSet> result = BulkAttributesStoreRemote.parseResponse(body);
+        // then
+        assertEquals(1, result.size());
+        assertNotNull(result.get("user1"));
+    }
+
+    @Test
+    void test_parseResponse_malformed_httpException() {
+        // given
+        List<String> bodies = List.of("not json", "[]", "{}", "{\"users\":[]}", "{\"users\":{\"user1\":\"engineer\"}}",
+                                      "{\"users\":{\"user1\":[1]}}");
+        // when
+        // then
+        for (String body : bodies) {
+            assertThrows(HttpException.class, () -> BulkAttributesStoreRemote.parseResponse(body), body);
+        }
+    }
+
+    @Test
+    void test_attributes_noResponse_timesOut() throws IOException {
+        // given
+        try (ServerSocket server = new ServerSocket(0)) {
+            Thread.ofVirtual().start(() -> {
+                // Accept the connection but never respond
+                try (Socket ignored = server.accept()) {
+                    Thread.sleep(5_000);
+                } catch (IOException | InterruptedException ex) {
+                    // Test over
+                }
+            });
+            String bulkEndpoint = "http://localhost:" + server.getLocalPort() + "/users/lookup";
+            String hierarchyEndpoint = "http://localhost:1/hierarchies/lookup/{name}";
+            BulkAttributesStoreRemote cut = new BulkAttributesStoreRemote(bulkEndpoint + "/{user}", hierarchyEndpoint,
+                                                                          bulkEndpoint, Duration.ofMillis(200));
+            // when
+            long start = System.nanoTime();
+            assertThrows(HttpException.class, () -> cut.attributes(List.of("user1")));
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            // then
+            assertTrue(millis < 4_000, "took " + millis + "ms");
+        }
+    }
+}
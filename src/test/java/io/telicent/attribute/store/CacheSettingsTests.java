@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.core.AttributesStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CacheSettingsTests {
+
+    private static final AttributeValueSet SAMPLE_ATTRIBUTE_VALUE_SET =
+            AttributeValueSet.of("attribute1=value1,attribute2=value2,attribute3=value3");
+
+    private static final Hierarchy SAMPLE_HIERARCHY =
+            Hierarchy.create("Test", "attribute1", "attribute2", "attribute3");
+
+    @Mock
+    private AttributesStore mockedStore;
+
+    @Test
+    public void test_constructor_sizeAndWeight_rejected() {
+        // given
+        RefreshPolicy policy = RefreshPolicy.of(Duration.ofSeconds(10));
+        // when
+        // then
+        assertThrows(IllegalArgumentException.class, () -> new CacheSettings(policy, 10, 10));
+        assertThrows(IllegalArgumentException.class, () -> new CacheSettings(policy, -1, 0));
+    }
+
+    @Test
+    public void test_defaults_boundedBySize() {
+        // given
+        RefreshPolicy policy = RefreshPolicy.of(Duration.ofSeconds(10));
+        // when
+        CacheSettings users = CacheSettings.users(policy);
+        CacheSettings hierarchies = CacheSettings.hierarchies(policy);
+        // then
+        assertEquals(CacheSettings.DEFAULT_USER_MAXIMUM_SIZE, users.maximumSize());
+        assertEquals(CacheSettings.DEFAULT_HIERARCHY_MAXIMUM_SIZE, hierarchies.maximumSize());
+        assertEquals(0, users.maximumWeight());
+    }
+
+    @Test
+    public void test_userCache_boundedByAttributeWeight() {
+        // given
+        when(mockedStore.attributes(anyString())).thenReturn(SAMPLE_ATTRIBUTE_VALUE_SET);
+        RefreshPolicy policy = RefreshPolicy.of(Duration.ofSeconds(30));
+        CachedAttributeStore cut = new CachedAttributeStore(mockedStore, new CacheSettings(policy, 0, 5),
+                                                            CacheSettings.hierarchies(policy), null);
+        // when
+        cut.attributes("user1");
+        cut.attributes("user2");
+        cut.userAttributeCache.cleanUp();
+        // then
+        assertEquals(1, cut.userAttributeCache.estimatedSize());
+    }
+
+    @Test
+    public void test_separateExpiry_hierarchyOutlivesUser() throws InterruptedException {
+        // given
+        Attribute attribute = new Attribute("Test");
+        when(mockedStore.attributes("user")).thenReturn(SAMPLE_ATTRIBUTE_VALUE_SET);
+        when(mockedStore.getHierarchy(attribute)).thenReturn(SAMPLE_HIERARCHY);
+        RefreshPolicy userPolicy =
+                new RefreshPolicy(Duration.ofMillis(50), Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+        RefreshPolicy hierarchyPolicy = RefreshPolicy.of(Duration.ofMinutes(10));
+        CachedAttributeStore cut = new CachedAttributeStore(mockedStore, CacheSettings.users(userPolicy),
+                                                            CacheSettings.hierarchies(hierarchyPolicy), null);
+        // when
+        cut.attributes("user");
+        cut.getHierarchy(attribute);
+        Thread.sleep(100);
+        cut.attributes("user");
+        cut.getHierarchy(attribute);
+        // then
+        verify(mockedStore, times(2)).attributes("user");
+        verify(mockedStore, times(1)).getHierarchy(attribute);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.core.AttributesStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CacheWarmerTests {
+
+    private static final AttributeValueSet SAMPLE_ATTRIBUTE_VALUE_SET =
+            AttributeValueSet.of("attribute1=value1,attribute2=value2");
+
+    private static final Hierarchy SAMPLE_HIERARCHY = Hierarchy.create("attribute1", "value1", "value2");
+
+    @Mock
+    private AttributesStore mockedStore;
+
+    @Test
+    public void test_warm_loadsUsersAndReferencedHierarchies() {
+        // given
+        when(mockedStore.attributes("user1")).thenReturn(SAMPLE_ATTRIBUTE_VALUE_SET);
+        when(mockedStore.attributes("user2")).thenReturn(SAMPLE_ATTRIBUTE_VALUE_SET);
+        when(mockedStore.attributes("unknown")).thenReturn(null);
+        when(mockedStore.getHierarchy(new Attribute("attribute1"))).thenReturn(SAMPLE_HIERARCHY);
+        when(mockedStore.getHierarchy(new Attribute("attribute2"))).thenReturn(null);
+        CacheWarmer cut = new CacheWarmer(mockedStore, 4);
+        // when
+        CacheWarmer.Result result = cut.warm(List.of("user1", "user2", "unknown"));
+        // then
+        assertEquals(2, result.users());
+        assertEquals(1, result.hierarchies());
+        assertEquals(0, result.failures());
+        verify(mockedStore, times(1)).getHierarchy(new Attribute("attribute1"));
+        verify(mockedStore, times(1)).getHierarchy(new Attribute("attribute2"));
+    }
+
+    @Test
+    public void test_warm_failuresCountedAndSkipped() {
+        // given
+        when(mockedStore.attributes("user1")).thenThrow(new RuntimeException("Remote store unavailable"));
+        when(mockedStore.attributes("user2")).thenReturn(SAMPLE_ATTRIBUTE_VALUE_SET);
+        when(mockedStore.getHierarchy(any(Attribute.class))).thenReturn(SAMPLE_HIERARCHY);
+        CacheWarmer cut = new CacheWarmer(mockedStore, 1);
+        // when
+        CacheWarmer.Result result = cut.warm(List.of("user1", "user2"));
+        // then
+        assertEquals(1, result.users());
+        assertEquals(2, result.hierarchies());
+        assertEquals(1, result.failures());
+    }
+
+    @Test
+    public void test_warm_concurrencyBounded() {
+        // given
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(mockedStore.attributes(anyString())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(10);
+            inFlight.decrementAndGet();
+            return null;
+        });
+        CacheWarmer cut = new CacheWarmer(mockedStore, 3);
+        List<String> users = IntStream.range(0, 30).mapToObj(i -> "user" + i).toList();
+        // when
+        cut.warm(users);
+        // then
+        assertTrue(maxInFlight.get() <= 3);
+        verify(mockedStore, times(30)).attributes(anyString());
+    }
+
+    @Test
+    public void test_constructor_badConcurrency() {
+        // given
+        // when
+        // then
+        assertThrows(IllegalArgumentException.class, () -> new CacheWarmer(mockedStore, 0));
+    }
+}
@@ -22,7 +22,17 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.util.Collections.emptyList;
 import static org.junit.jupiter.api.Assertions.*;
@@ -113,6 +123,75 @@ public class CachedAttributeStoreTests {
         verify(mockedStore, times(1)).getHierarchy(attribute);
     }
 
+    @Test
+    public void test_attributes_unknownUserRememberedInNegativeCache() {
+        //given
+        when(mockedStore.attributes("unknown")).thenReturn(null)
+                                               .thenThrow(new RuntimeException("Test failed - negative cache bypassed"));
+        cut = new CachedAttributeStore(mockedStore, Duration.ofSeconds(5));
+        //when
+        AttributeValueSet initialResult = cut.attributes("unknown");
+        AttributeValueSet subsequentResult = cut.attributes("unknown");
+        //then
+        assertNull(initialResult);
+        assertNull(subsequentResult);
+        assertTrue(cut.isAvailable("unknown"));
+        assertEquals(1, cut.unknownUserHitCount());
+        verify(mockedStore, times(1)).attributes("unknown");
+    }
+
+    @Test
+    public void test_getHierarchy_missingHierarchyRememberedInNegativeCache() {
+        //given
+        Attribute attribute = new Attribute("Test");
+        when(mockedStore.getHierarchy(attribute)).thenReturn(null);
+        cut = new CachedAttributeStore(mockedStore, Duration.ofSeconds(5));
+        //when
+        boolean initialResult = cut.hasHierarchy(attribute);
+        boolean subsequentResult = cut.hasHierarchy(attribute);
+        Hierarchy hierarchy = cut.getHierarchy(attribute);
+        //then
+        assertFalse(initialResult);
+        assertFalse(subsequentResult);
+        assertNull(hierarchy);
+        assertEquals(2, cut.missingHierarchyHitCount());
+        verify(mockedStore, times(1)).getHierarchy(attribute);
+    }
+
+    @Test
+    public void test_attributes_negativeCacheExpiresBeforePositiveCache() throws InterruptedException {
+        //given
+        when(mockedStore.attributes("user")).thenReturn(null).thenReturn(SAMPLE_ATTRIBUTE_VALUE_SET);
+        RefreshPolicy policy = new RefreshPolicy(Duration.ofSeconds(30), Duration.ZERO, Duration.ZERO, Duration.ZERO,
+                                                 Duration.ofMillis(50));
+        cut = new CachedAttributeStore(mockedStore, policy);
+        //when
+        AttributeValueSet initialResult = cut.attributes("user");
+        Thread.sleep(100);
+        AttributeValueSet subsequentResult = cut.attributes("user");
+        //then
+        assertNull(initialResult);
+        assertEquals(SAMPLE_ATTRIBUTE_VALUE_SET, subsequentResult);
+        assertEquals(0, cut.unknownUserHitCount());
+        verify(mockedStore, times(2)).attributes("user");
+    }
+
+    @Test
+    public void test_attributes_negativeCacheDisabled_unknownUserLookedUpEachTime() {
+        //given
+        when(mockedStore.attributes("unknown")).thenReturn(null);
+        RefreshPolicy policy = new RefreshPolicy(Duration.ofSeconds(30), Duration.ZERO, Duration.ZERO, Duration.ZERO,
+                                                 Duration.ZERO);
+        cut = new CachedAttributeStore(mockedStore, policy);
+        //when
+        cut.attributes("unknown");
+        cut.attributes("unknown");
+        //then
+        assertFalse(cut.isAvailable("unknown"));
+        assertEquals(0, cut.unknownUserHitCount());
+        verify(mockedStore, times(2)).attributes("unknown");
+    }
+
     @Test
     public void test_users_callGoesToUnderlyingStoreNotCache() {
         //given
@@ -141,5 +220,112 @@ public class CachedAttributeStoreTests {
         verify(mockedStore, times(2)).attributes("user");
     }
 
+    @Test
+    public void test_attributesAsync_missRunsOnExecutorHitCompletesInline() {
+        //given
+        when(mockedStore.attributes("user")).thenReturn(SAMPLE_ATTRIBUTE_VALUE_SET)
+                                            .thenThrow(new RuntimeException("Test failed - cache bypassed"));
+        cut = new CachedAttributeStore(mockedStore, Duration.ofSeconds(5));
+        List<Runnable> submitted = new ArrayList<>();
+        //when
+        CompletableFuture<AttributeValueSet> initialResult = cut.attributesAsync("user", submitted::add);
+        boolean completedBeforeLookup = initialResult.isDone();
+        submitted.forEach(Runnable::run);
+        CompletableFuture<AttributeValueSet> subsequentResult = cut.attributesAsync("user", submitted::add);
+        //then
+        assertFalse(completedBeforeLookup);
+        assertEquals(SAMPLE_ATTRIBUTE_VALUE_SET, initialResult.join());
+        assertTrue(subsequentResult.isDone());
+        assertEquals(SAMPLE_ATTRIBUTE_VALUE_SET, subsequentResult.join());
+        assertEquals(1, submitted.size());
+        assertTrue(cut.isAvailable("user"));
+    }
+
+    @Test
+    public void test_attributes_concurrentMissesCombinedIntoOneBulkLookup() {
+        //given
+        BulkAttributesStore bulkStore = mock(BulkAttributesStore.class);
+        List<Collection<String>> bulkRequests = new ArrayList<>();
+        when(bulkStore.attributes(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> users = invocation.getArgument(0);
+            synchronized (bulkRequests) {
+                bulkRequests.add(List.copyOf(users));
+            }
+            return users.stream().collect(Collectors.toMap(Function.identity(), user -> SAMPLE_ATTRIBUTE_VALUE_SET));
+        });
+        BatchPolicy batchPolicy = new BatchPolicy(Duration.ofSeconds(30), 5);
+        cut = new CachedAttributeStore(bulkStore, RefreshPolicy.of(Duration.ofSeconds(5)), batchPolicy);
+        List<String> users = IntStream.range(0, 5).mapToObj(i -> "user" + i).toList();
+        //when
+        List<AttributeValueSet> results;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<AttributeValueSet>> futures =
+                    users.stream().map(user -> CompletableFuture.supplyAsync(() -> cut.attributes(user), executor))
+                         .toList();
+            results = futures.stream().map(CompletableFuture::join).toList();
+        }
+        //then
+        results.forEach(result -> assertEquals(SAMPLE_ATTRIBUTE_VALUE_SET, result));
+        assertEquals(1, bulkRequests.size());
+        assertEquals(Set.copyOf(users), Set.copyOf(bulkRequests.getFirst()));
+        verify(bulkStore, never()).attributes(anyString());
+    }
+
+    @Test
+    public void test_attributes_batchFetchedAfterWindow_unknownUserIsNull() {
+        //given
+        BulkAttributesStore bulkStore = mock(BulkAttributesStore.class);
+        when(bulkStore.attributes(anyCollection())).thenReturn(Map.of());
+        BatchPolicy batchPolicy = new BatchPolicy(Duration.ofMillis(1), 100);
+        cut = new CachedAttributeStore(bulkStore, RefreshPolicy.of(Duration.ofSeconds(5)), batchPolicy);
+        //when
+        AttributeValueSet result = cut.attributes("unknown");
+        //then
+        assertNull(result);
+        verify(bulkStore, times(1)).attributes(Set.of("unknown"));
+    }
+
+    @Test
+    public void test_isAvailable_batchInFlight_doesNotWait() {
+        //given
+        BulkAttributesStore bulkStore = mock(BulkAttributesStore.class);
+        BatchPolicy batchPolicy = new BatchPolicy(Duration.ofSeconds(30), 100);
+        cut = new CachedAttributeStore(bulkStore, RefreshPolicy.of(Duration.ofSeconds(5)), batchPolicy);
+        Thread.ofVirtual().start(() -> cut.attributes("user"));
+        //when
+        boolean available = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> cut.isAvailable("user"));
+        //then
+        assertFalse(available);
+    }
+
+    @Test
+    public void test_batcher_fullBatchDoesNotShortenNextWindow() throws InterruptedException {
+        //given
+        BulkAttributesStore bulkStore = mock(BulkAttributesStore.class);
+        when(bulkStore.attributes(anyCollection())).thenReturn(Map.of());
+        UserLookupBatcher batcher = new UserLookupBatcher(bulkStore, new BatchPolicy(Duration.ofSeconds(1), 2),
+                                                          Executors.newVirtualThreadPerTaskExecutor());
+        batcher.lookup("user1");
+        batcher.lookup("user2");
+        Thread.sleep(600);
+        //when
+        CompletableFuture<AttributeValueSet> later = batcher.lookup("user3");
+        Thread.sleep(600);
+        //then
+        assertFalse(later.isDone());
+        assertNull(later.join());
+        verify(bulkStore, times(1)).attributes(Set.of("user3"));
+    }
 
+    @Test
+    public void test_attributes_batchPolicyIgnoredForNonBulkStore() {
+        //given
+        when(mockedStore.attributes("user")).thenReturn(SAMPLE_ATTRIBUTE_VALUE_SET);
+        cut = new CachedAttributeStore(mockedStore, RefreshPolicy.of(Duration.ofSeconds(5)), BatchPolicy.DEFAULT);
+        //when
+        AttributeValueSet result = cut.attributes("user");
+        //then
+        assertEquals(SAMPLE_ATTRIBUTE_VALUE_SET, result);
+        verify(mockedStore, times(1)).attributes("user");
+    }
 }
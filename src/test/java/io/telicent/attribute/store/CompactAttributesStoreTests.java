@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.attribute.utils.AttributeUtils;
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.attributes.ValueTerm;
+import io.telicent.jena.abac.core.AttributesStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.telicent.attribute.utils.AttributeUtils.attributeValueString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CompactAttributesStoreTests {
+
+    private static final String SAMPLE_FILE = "file:src/test/resources/sample_attributes.ttl";
+
+    private static final Attribute CLEARANCE = new Attribute("clearance");
+
+    @Mock
+    private AttributesStore mockedStore;
+
+    @Test
+    public void test_sampleFile_sameAttributes() {
+        // given
+        AttributesStore expected = AttributeUtils.createLocalAttributeStore(SAMPLE_FILE);
+        // when
+        AttributesStore cut = AttributeUtils.createLocalAttributeStore(SAMPLE_FILE, true);
+        // then
+        assertInstanceOf(CompactAttributesStore.class, cut);
+        assertEquals(expected.users(), new HashSet<>(cut.users()));
+        for (String user : expected.users()) {
+            assertEquals(strings(expected.attributes(user)), strings(cut.attributes(user)), user);
+        }
+        assertNull(cut.attributes("unknown-user"));
+        assertTrue(cut.hasHierarchy(CLEARANCE));
+        assertEquals(tiers(expected.getHierarchy(CLEARANCE)), tiers(cut.getHierarchy(CLEARANCE)));
+        assertNull(cut.getHierarchy(new Attribute("unknown")));
+    }
+
+    @Test
+    public void test_manyUsers_allFound_setsShared() {
+        // given
+        Set<String> users = IntStream.range(0, 5000).mapToObj(i -> "user-" + i).collect(Collectors.toSet());
+        when(mockedStore.users()).thenReturn(users);
+        when(mockedStore.attributes(anyString())).thenAnswer(invocation -> {
+            String user = invocation.getArgument(0);
+            return AttributeValueSet.of("level=" + (user.hashCode() & 7));
+        });
+        // when
+        CompactAttributesStore cut = new CompactAttributesStore(mockedStore);
+        // then
+        assertEquals(8, cut.distinctSetCount());
+        assertEquals(users.size(), cut.users().size());
+        assertEquals(users, new HashSet<>(cut.users()));
+        for (String user : users) {
+            assertTrue(cut.users().contains(user));
+            assertEquals(List.of("level=" + (user.hashCode() & 7)), strings(cut.attributes(user)));
+        }
+        assertSame(cut.attributes("user-1"), cut.attributes("user-" + firstWithSameLevel("user-1", users)));
+        assertNull(cut.attributes("user-5000"));
+        assertFalse(cut.users().contains("user-5000"));
+    }
+
+    @Test
+    public void test_noUsers_empty() {
+        // given
+        when(mockedStore.users()).thenReturn(Set.of());
+        // when
+        CompactAttributesStore cut = new CompactAttributesStore(mockedStore);
+        // then
+        assertTrue(cut.users().isEmpty());
+        assertNull(cut.attributes("user1"));
+    }
+
+    private static String firstWithSameLevel(String user, Set<String> users) {
+        return users.stream()
+                    .filter(other -> !other.equals(user) && (other.hashCode() & 7) == (user.hashCode() & 7))
+                    .map(other -> other.substring("user-".length()))
+                    .findFirst()
+                    .orElseThrow();
+    }
+
+    private static List<String> strings(AttributeValueSet avSet) {
+        List<String> strings = new ArrayList<>();
+        avSet.attributeValues(attributeValue -> strings.add(attributeValueString(attributeValue)));
+        return strings;
+    }
+
+    private static List<String> tiers(Hierarchy hierarchy) {
+        return hierarchy.values().stream().map(ValueTerm::getString).toList();
+    }
+}
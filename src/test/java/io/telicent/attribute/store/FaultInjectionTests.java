@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import org.apache.jena.cmd.CmdException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FaultInjectionTests {
+
+    @Test
+    void test_parse_distributions() {
+        // given
+        // when
+        LatencyDistribution fixed = LatencyDistribution.parse("fixed:PT0.01S", LatencyDistribution.NONE);
+        LatencyDistribution uniform = LatencyDistribution.parse("uniform:PT0.005S, PT0.05S", LatencyDistribution.NONE);
+        LatencyDistribution longTail = LatencyDistribution.parse("longtail:PT0.01S,PT0.5S", LatencyDistribution.NONE);
+        LatencyDistribution missing = LatencyDistribution.parse(null, fixed);
+        // then
+        assertEquals(new LatencyDistribution.Fixed(Duration.ofMillis(10)), fixed);
+        assertEquals(new LatencyDistribution.Uniform(Duration.ofMillis(5), Duration.ofMillis(50)), uniform);
+        assertEquals(new LatencyDistribution.LongTail(Duration.ofMillis(10), Duration.ofMillis(500)), longTail);
+        assertSame(fixed, missing);
+    }
+
+    @Test
+    void test_parse_badDistributions_throw() {
+        // given
+        // when
+        // then
+        assertThrows(CmdException.class, () -> LatencyDistribution.parse("normal:PT1S", null));
+        assertThrows(CmdException.class, () -> LatencyDistribution.parse("fixed", null));
+        assertThrows(CmdException.class, () -> LatencyDistribution.parse("fixed:10ms", null));
+        assertThrows(CmdException.class, () -> LatencyDistribution.parse("uniform:PT1S", null));
+        assertThrows(CmdException.class, () -> LatencyDistribution.parse("uniform:PT2S,PT1S", null));
+        assertThrows(CmdException.class, () -> LatencyDistribution.parse("longtail:PT1S,PT0.5S", null));
+        assertThrows(CmdException.class, () -> LatencyDistribution.parse("fixed:PT-1S", null));
+    }
+
+    @Test
+    void test_uniform_withinBounds() {
+        // given
+        LatencyDistribution uniform = new LatencyDistribution.Uniform(Duration.ofMillis(5), Duration.ofMillis(50));
+        SplittableRandom random = new SplittableRandom(1);
+        // when
+        long[] samples = new long[10_000];
+        Arrays.setAll(samples, i -> uniform.sampleNanos(random));
+        // then
+        assertTrue(Arrays.stream(samples).allMatch(s -> s >= 5_000_000 && s <= 50_000_000));
+    }
+
+    @Test
+    void test_longTail_matchesPercentiles() {
+        // given
+        LatencyDistribution longTail = new LatencyDistribution.LongTail(Duration.ofMillis(10), Duration.ofMillis(200));
+        SplittableRandom random = new SplittableRandom(1);
+        // when
+        long[] samples = new long[100_000];
+        Arrays.setAll(samples, i -> longTail.sampleNanos(random));
+        Arrays.sort(samples);
+        // then
+        assertEquals(10_000_000.0, samples[50_000], 1_000_000.0);
+        assertEquals(200_000_000.0, samples[99_000], 30_000_000.0);
+        assertTrue(samples[samples.length - 1] > 200_000_000);
+    }
+
+    @Test
+    void test_endpointFaults_outcomeRates() {
+        // given
+        FaultInjection.EndpointFaults cut = new FaultInjection.EndpointFaults(LatencyDistribution.NONE, 0.2, 0.1);
+        SplittableRandom random = new SplittableRandom(1);
+        Map<FaultInjection.Outcome, Integer> counts = new EnumMap<>(FaultInjection.Outcome.class);
+        // when
+        for (int i = 0; i < 100_000; i++) {
+            counts.merge(cut.outcome(random), 1, Integer::sum);
+        }
+        // then
+        assertFalse(cut.isNone());
+        assertEquals(20_000.0, counts.get(FaultInjection.Outcome.ERROR), 1_000.0);
+        assertEquals(10_000.0, counts.get(FaultInjection.Outcome.TIMEOUT), 1_000.0);
+        assertEquals(70_000.0, counts.get(FaultInjection.Outcome.RESPOND), 1_000.0);
+    }
+
+    @Test
+    void test_endpointFaults_badRates_rejected() {
+        // given
+        // when
+        // then
+        assertThrows(IllegalArgumentException.class,
+                     () -> new FaultInjection.EndpointFaults(LatencyDistribution.NONE, -0.1, 0));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new FaultInjection.EndpointFaults(LatencyDistribution.NONE, 0.6, 0.6));
+    }
+
+    @Test
+    void test_userFactor_stablePerUser() {
+        // given
+        FaultInjection cut = new FaultInjection(FaultInjection.EndpointFaults.NONE, FaultInjection.EndpointFaults.NONE,
+                                                1.0, FaultInjection.DEFAULT_TIMEOUT_DELAY);
+        // when
+        double first = cut.userFactor("user1");
+        double again = cut.userFactor("user1");
+        double other = cut.userFactor("user2");
+        // then
+        assertEquals(first, again);
+        assertNotEquals(first, other);
+        assertTrue(first > 0);
+        assertEquals(1.0, FaultInjection.NONE.userFactor("user1"));
+        assertTrue(FaultInjection.NONE.isNone());
+    }
+}
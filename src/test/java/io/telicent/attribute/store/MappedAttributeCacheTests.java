@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.attributes.ValueTerm;
+import io.telicent.jena.abac.core.AttributesStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.telicent.attribute.utils.AttributeUtils.attributeValueString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MappedAttributeCacheTests {
+
+    private static final AttributeValueSet SAMPLE_ATTRIBUTE_VALUE_SET =
+            AttributeValueSet.of("employee,email=\"e1@telicent.io\",status=public");
+
+    private static final Hierarchy SAMPLE_HIERARCHY = Hierarchy.create("status", "public", "confidential", "secret");
+
+    private static final Attribute STATUS = new Attribute("status");
+
+
+    @TempDir
+    private Path tempDir;
+
+    @Mock
+    private AttributesStore mockedStore;
+
+    @Test
+    public void test_putAndGet_roundTrip() throws IOException {
+        // given
+        try (MappedAttributeCache cut = open(Duration.ofMinutes(5))) {
+            // when
+            cut.putAttributes("user1", SAMPLE_ATTRIBUTE_VALUE_SET);
+            cut.putHierarchy(STATUS, SAMPLE_HIERARCHY);
+            // then
+            assertEquals(strings(SAMPLE_ATTRIBUTE_VALUE_SET), strings(cut.attributes("user1")));
+            assertEquals(tiers(SAMPLE_HIERARCHY), tiers(cut.getHierarchy(STATUS)));
+            assertNull(cut.attributes("user2"));
+            assertNull(cut.getHierarchy(new Attribute("other")));
+            assertEquals(2, cut.hitCount());
+            assertEquals(2, cut.missCount());
+        }
+    }
+
+    @Test
+    public void test_reopen_entriesKept() throws IOException {
+        // given
+        try (MappedAttributeCache cache = open(Duration.ofMinutes(5))) {
+            cache.putAttributes("user1", AttributeValueSet.of("status=public"));
+            cache.putAttributes("user1", SAMPLE_ATTRIBUTE_VALUE_SET);
+            cache.putHierarchy(STATUS, SAMPLE_HIERARCHY);
+        }
+        // when
+        try (MappedAttributeCache cut = open(Duration.ofMinutes(5))) {
+            // then
+            assertEquals(2, cut.size());
+            assertEquals(strings(SAMPLE_ATTRIBUTE_VALUE_SET), strings(cut.attributes("user1")));
+            assertEquals(tiers(SAMPLE_HIERARCHY), tiers(cut.getHierarchy(STATUS)));
+        }
+    }
+
+    @Test
+    public void test_get_tooOld_miss() throws IOException, InterruptedException {
+        // given
+        try (MappedAttributeCache cut = open(Duration.ofMillis(1))) {
+            cut.putAttributes("user1", SAMPLE_ATTRIBUTE_VALUE_SET);
+            // when
+            Thread.sleep(20);
+            AttributeValueSet result = cut.attributes("user1");
+            // then
+            assertNull(result);
+        }
+    }
+
+    @Test
+    public void test_get_ageReported() throws IOException, InterruptedException {
+        // given
+        try (MappedAttributeCache cut = open(Duration.ofMinutes(5))) {
+            cut.putHierarchy(STATUS, SAMPLE_HIERARCHY);
+            // when
+            Thread.sleep(20);
+            MappedAttributeCache.Held<Hierarchy> result = cut.heldHierarchy(STATUS);
+            // then
+            assertEquals(tiers(SAMPLE_HIERARCHY), tiers(result.value()));
+            assertTrue(result.age().compareTo(Duration.ofMillis(20)) >= 0, "age " + result.age());
+            assertTrue(result.age().compareTo(Duration.ofMinutes(1)) < 0, "age " + result.age());
+        }
+    }
+
+    @Test
+    public void test_tombstone_hidesEarlierEntry() throws IOException {
+        // given
+        try (MappedAttributeCache cache = open(Duration.ofMinutes(5))) {
+            cache.putAttributes("user1", SAMPLE_ATTRIBUTE_VALUE_SET);
+            cache.putHierarchy(STATUS, SAMPLE_HIERARCHY);
+            // when
+            cache.putAttributes("user1", null);
+            cache.putHierarchy(STATUS, null);
+        }
+        try (MappedAttributeCache cut = open(Duration.ofMinutes(5))) {
+            // then
+            assertNull(cut.attributes("user1"));
+            assertNull(cut.getHierarchy(STATUS));
+        }
+    }
+
+    @Test
+    public void test_put_full_compacted() throws IOException {
+        // given
+        Path file = tempDir.resolve("small.cache");
+        try (MappedAttributeCache cut = MappedAttributeCache.open(file, 512, Duration.ofMinutes(5))) {
+            // when
+            for (int i = 0; i < 20; i++) {
+                cut.putAttributes("user" + (i % 2), SAMPLE_ATTRIBUTE_VALUE_SET);
+            }
+            // then
+            assertEquals(2, cut.size());
+            assertEquals(strings(SAMPLE_ATTRIBUTE_VALUE_SET), strings(cut.attributes("user0")));
+            assertEquals(strings(SAMPLE_ATTRIBUTE_VALUE_SET), strings(cut.attributes("user1")));
+        }
+    }
+
+    @Test
+    public void test_put_fullOfLiveEntries_cleared() throws IOException {
+        // given
+        Path file = tempDir.resolve("small.cache");
+        try (MappedAttributeCache cut = MappedAttributeCache.open(file, 256, Duration.ofMinutes(5))) {
+            // when
+            for (int i = 0; i < 10; i++) {
+                cut.putAttributes("user" + i, SAMPLE_ATTRIBUTE_VALUE_SET);
+            }
+            // then
+            assertTrue(cut.size() < 10);
+            assertEquals(strings(SAMPLE_ATTRIBUTE_VALUE_SET), strings(cut.attributes("user9")));
+            assertNull(cut.attributes("user0"));
+        }
+    }
+
+    @Test
+    public void test_open_unrecognisedFile_cleared() throws IOException {
+        // given
+        Files.writeString(tempDir.resolve("l2.cache"), "not a cache file");
+        // when
+        try (MappedAttributeCache cut = open(Duration.ofMinutes(5))) {
+            // then
+            assertEquals(0, cut.size());
+        }
+    }
+
+    @Test
+    public void test_cachedStore_restartServedFromSecondLevel() throws IOException {
+        // given
+        when(mockedStore.attributes("user1")).thenReturn(SAMPLE_ATTRIBUTE_VALUE_SET)
+                                             .thenThrow(new RuntimeException("Test failed - second level bypassed"));
+        RefreshPolicy policy = RefreshPolicy.of(Duration.ofSeconds(30));
+        try (MappedAttributeCache secondLevel = open(Duration.ofMinutes(5))) {
+            CachedAttributeStore before = new CachedAttributeStore(mockedStore, CacheSettings.users(policy),
+                                                                   CacheSettings.hierarchies(policy), null,
+                                                                   secondLevel);
+            // when
+            before.attributes("user1");
+            CachedAttributeStore after = new CachedAttributeStore(mockedStore, CacheSettings.users(policy),
+                                                                  CacheSettings.hierarchies(policy), null,
+                                                                  secondLevel);
+            AttributeValueSet result = after.attributes("user1");
+            // then
+            assertEquals(strings(SAMPLE_ATTRIBUTE_VALUE_SET), strings(result));
+            verify(mockedStore, times(1)).attributes("user1");
+        }
+    }
+
+    @Test
+    public void test_cachedStore_olderThanExpiry_servedThenRefreshed() throws IOException, InterruptedException {
+        // given
+        when(mockedStore.attributes("user1")).thenReturn(SAMPLE_ATTRIBUTE_VALUE_SET);
+        RefreshPolicy policy = RefreshPolicy.of(Duration.ofMillis(10));
+        try (MappedAttributeCache secondLevel = open(Duration.ofMinutes(5))) {
+            secondLevel.putAttributes("user1", AttributeValueSet.of("status=public"));
+            Thread.sleep(20);
+            CachedAttributeStore cut = new CachedAttributeStore(mockedStore, CacheSettings.users(policy),
+                                                                CacheSettings.hierarchies(policy), null, secondLevel);
+            // when
+            AttributeValueSet result = cut.attributes("user1");
+            // then
+            assertEquals(List.of("status=public"), strings(result));
+            verify(mockedStore, timeout(5000)).attributes("user1");
+        }
+    }
+
+    @Test
+    public void test_cachedStore_secondLevelEntry_heldForRemainingLifetime() throws IOException, InterruptedException {
+        // given
+        RefreshPolicy policy = new RefreshPolicy(Duration.ofMillis(400), Duration.ZERO, Duration.ZERO, Duration.ZERO,
+                                                 Duration.ZERO);
+        try (MappedAttributeCache secondLevel = open(Duration.ofMinutes(5))) {
+            secondLevel.putAttributes("user1", SAMPLE_ATTRIBUTE_VALUE_SET);
+            Thread.sleep(300);
+            CachedAttributeStore cut = new CachedAttributeStore(mockedStore, CacheSettings.users(policy),
+                                                                CacheSettings.hierarchies(policy), null, secondLevel);
+            // when
+            cut.attributes("user1");
+            Thread.sleep(200);
+            cut.attributes("user1");
+            // then
+            assertEquals(2, secondLevel.hitCount());
+        }
+    }
+
+    @Test
+    public void test_cachedStore_unknownUser_tombstoneWritten() throws IOException {
+        // given
+        when(mockedStore.attributes("user1")).thenReturn(null);
+        RefreshPolicy policy = RefreshPolicy.of(Duration.ofSeconds(30));
+        try (MappedAttributeCache secondLevel = open(Duration.ofMinutes(5))) {
+            CachedAttributeStore cut = new CachedAttributeStore(mockedStore, CacheSettings.users(policy),
+                                                                CacheSettings.hierarchies(policy), null, secondLevel);
+            // when
+            AttributeValueSet result = cut.attributes("user1");
+            // then
+            assertNull(result);
+            assertEquals(1, secondLevel.size());
+            assertNull(secondLevel.attributes("user1"));
+        }
+    }
+
+    private MappedAttributeCache open(Duration maxAge) throws IOException {
+        return MappedAttributeCache.open(tempDir.resolve("l2.cache"), 64 * 1024, maxAge);
+    }
+
+    private static List<String> strings(AttributeValueSet avSet) {
+        List<String> strings = new ArrayList<>();
+        avSet.attributeValues(attributeValue -> strings.add(attributeValueString(attributeValue)));
+        return strings;
+    }
+
+    private static List<String> tiers(Hierarchy hierarchy) {
+        return hierarchy.values().stream().map(ValueTerm::getString).toList();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.ValueTerm;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RankedValueListTests {
+
+    private static final Hierarchy CLEARANCE = Hierarchy.create("clearance", "ordinary", "secret", "top-secret");
+
+    @Test
+    public void test_index_equalHierarchyWithRanks() {
+        // given
+        // when
+        Hierarchy indexed = RankedValueList.index(CLEARANCE);
+        // then
+        assertEquals(CLEARANCE, indexed);
+        RankedValueList values = assertInstanceOf(RankedValueList.class, indexed.values());
+        assertEquals(0, values.indexOf(ValueTerm.value("ordinary")));
+        assertEquals(2, values.indexOf(ValueTerm.value("top-secret")));
+        assertEquals(-1, values.indexOf(ValueTerm.value("unknown")));
+        assertTrue(values.contains(ValueTerm.value("secret")));
+        assertFalse(values.contains(ValueTerm.value("unknown")));
+    }
+
+    @Test
+    public void test_index_alreadyIndexedOrNull_unchanged() {
+        // given
+        Hierarchy indexed = RankedValueList.index(CLEARANCE);
+        // when
+        // then
+        assertSame(indexed, RankedValueList.index(indexed));
+        assertNull(RankedValueList.index(null));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.core.AttributesStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RefreshPolicyTests {
+
+    private static final AttributeValueSet INITIAL_ATTRIBUTES = AttributeValueSet.of("attribute1=value1");
+    private static final AttributeValueSet REFRESHED_ATTRIBUTES = AttributeValueSet.of("attribute1=value2");
+
+    @Mock
+    private AttributesStore mockedStore;
+
+    @Test
+    public void test_of_defaults() {
+        // given
+        // when
+        RefreshPolicy policy = RefreshPolicy.of(Duration.ofSeconds(10));
+        // then
+        assertEquals(Duration.ofSeconds(8), policy.refreshAfter());
+        assertEquals(Duration.ofSeconds(1), policy.jitter());
+        assertEquals(Duration.ZERO, policy.staleWindow());
+        assertEquals(Duration.ofSeconds(2), policy.negativeExpiry());
+        assertEquals(Duration.ofSeconds(8), policy.refreshInterval());
+    }
+
+    @Test
+    public void test_refreshInterval_noRefreshAheadOrStaleWindow_null() {
+        // given
+        RefreshPolicy policy =
+                new RefreshPolicy(Duration.ofSeconds(10), Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+        // when
+        // then
+        assertNull(policy.refreshInterval());
+    }
+
+    @Test
+    public void test_refreshInterval_staleWindowOnly_refreshAtExpiry() {
+        // given
+        RefreshPolicy policy =
+                new RefreshPolicy(Duration.ofSeconds(10), Duration.ofSeconds(20), Duration.ZERO, Duration.ofMinutes(1),
+                                  Duration.ZERO);
+        // when
+        // then
+        assertEquals(Duration.ofSeconds(10), policy.refreshInterval());
+    }
+
+    @Test
+    public void test_jitteredExpiry_withinBounds() {
+        // given
+        RefreshPolicy policy =
+                new RefreshPolicy(Duration.ofSeconds(10), Duration.ZERO, Duration.ofSeconds(2), Duration.ofSeconds(5),
+                                  Duration.ZERO);
+        Expiry<String, String> expiry = policy.jitteredExpiry();
+        // when
+        // then
+        for (int i = 0; i < 100; i++) {
+            long nanos = expiry.expireAfterCreate("key", "value", 0);
+            assertTrue(nanos >= Duration.ofSeconds(15).toNanos());
+            assertTrue(nanos <= Duration.ofSeconds(17).toNanos());
+            assertEquals(nanos, expiry.expireAfterRead("key", "value", 0, nanos));
+        }
+    }
+
+    @Test
+    public void test_refreshAhead_oldValueServedWhileReloading() throws InterruptedException {
+        // given
+        when(mockedStore.attributes("user")).thenReturn(INITIAL_ATTRIBUTES).thenReturn(REFRESHED_ATTRIBUTES);
+        RefreshPolicy policy =
+                new RefreshPolicy(Duration.ofSeconds(30), Duration.ofMillis(50), Duration.ZERO, Duration.ZERO,
+                                  Duration.ZERO);
+        CachedAttributeStore cut = new CachedAttributeStore(mockedStore, policy);
+        // when
+        cut.attributes("user");
+        Thread.sleep(100);
+        AttributeValueSet servedDuringRefresh = cut.attributes("user");
+        // then
+        assertEquals(INITIAL_ATTRIBUTES, servedDuringRefresh);
+        assertEquals(REFRESHED_ATTRIBUTES, awaitValue(cut, REFRESHED_ATTRIBUTES));
+        verify(mockedStore, times(2)).attributes("user");
+    }
+
+    @Test
+    public void test_staleWindow_staleValueKeptWhenReloadFails() throws InterruptedException {
+        // given
+        when(mockedStore.attributes("user")).thenReturn(INITIAL_ATTRIBUTES)
+                                            .thenThrow(new RuntimeException("Remote store unavailable"));
+        RefreshPolicy policy =
+                new RefreshPolicy(Duration.ofMillis(50), Duration.ZERO, Duration.ZERO, Duration.ofSeconds(30),
+                                  Duration.ZERO);
+        CachedAttributeStore cut = new CachedAttributeStore(mockedStore, policy);
+        // when
+        cut.attributes("user");
+        Thread.sleep(100);
+        AttributeValueSet staleResult = cut.attributes("user");
+        Thread.sleep(100);
+        AttributeValueSet subsequentResult = cut.attributes("user");
+        // then
+        assertEquals(INITIAL_ATTRIBUTES, staleResult);
+        assertEquals(INITIAL_ATTRIBUTES, subsequentResult);
+        verify(mockedStore, atLeast(2)).attributes("user");
+    }
+
+    private static AttributeValueSet awaitValue(CachedAttributeStore cut, AttributeValueSet expected)
+            throws InterruptedException {
+        AttributeValueSet actual = cut.attributes("user");
+        for (int i = 0; i < 50 && !expected.equals(actual); i++) {
+            Thread.sleep(20);
+            actual = cut.attributes("user");
+        }
+        return actual;
+    }
+}
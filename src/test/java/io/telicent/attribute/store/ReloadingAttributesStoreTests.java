@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.attribute.utils.AttributeUtils;
+import io.telicent.jena.abac.core.AttributesStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReloadingAttributesStoreTests {
+
+    private static final String USER_1 = """
+            PREFIX authz: <http://telicent.io/security#>
+            [] authz:user "u1" ; authz:userAttribute "engineer" .
+            """;
+
+    private static final String USER_2 = """
+            PREFIX authz: <http://telicent.io/security#>
+            [] authz:user "u2" ; authz:userAttribute "contractor" .
+            """;
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void test_reload_swapsStoreAndNotifiesListeners() throws IOException {
+        // given
+        Path file = write(USER_1);
+        AtomicInteger reloads = new AtomicInteger();
+        try (ReloadingAttributesStore cut = create(file)) {
+            cut.onReload(reloads::incrementAndGet);
+            assertNotNull(cut.attributes("u1"));
+            Files.writeString(file, USER_2);
+            // when
+            boolean reloaded = cut.reload();
+            // then
+            assertTrue(reloaded);
+            assertEquals(1, reloads.get());
+            assertNull(cut.attributes("u1"));
+            assertNotNull(cut.attributes("u2"));
+        }
+    }
+
+    @Test
+    public void test_reload_badFile_keepsCurrentStore() throws IOException {
+        // given
+        Path file = write(USER_1);
+        AtomicInteger reloads = new AtomicInteger();
+        try (ReloadingAttributesStore cut = create(file)) {
+            cut.onReload(reloads::incrementAndGet);
+            Files.writeString(file, "this is not turtle");
+            // when
+            boolean reloaded = cut.reload();
+            // then
+            assertFalse(reloaded);
+            assertEquals(0, reloads.get());
+            assertNotNull(cut.attributes("u1"));
+        }
+    }
+
+    @Test
+    public void test_watch_fileChanged_reloaded() throws Exception {
+        // given
+        Path file = write(USER_1);
+        CountDownLatch reloaded = new CountDownLatch(1);
+        try (ReloadingAttributesStore cut = create(file).watch()) {
+            cut.onReload(reloaded::countDown);
+            // when
+            Files.writeString(file, USER_2);
+            // then
+            assertTrue(reloaded.await(30, TimeUnit.SECONDS));
+            assertNotNull(cut.attributes("u2"));
+        }
+    }
+
+    @Test
+    public void test_watch_symbolicLinkSwapped_reloaded() throws Exception {
+        // given
+        Files.createDirectory(tempDir.resolve("v1"));
+        Files.createDirectory(tempDir.resolve("v2"));
+        Files.writeString(tempDir.resolve("v1/attributes.ttl"), USER_1);
+        Files.writeString(tempDir.resolve("v2/attributes.ttl"), USER_2);
+        Files.createSymbolicLink(tempDir.resolve("..data"), Path.of("v1"));
+        Path file = Files.createSymbolicLink(tempDir.resolve("attributes.ttl"), Path.of("..data/attributes.ttl"));
+        CountDownLatch reloaded = new CountDownLatch(1);
+        try (ReloadingAttributesStore cut = create(file).watch()) {
+            cut.onReload(reloaded::countDown);
+            // when
+            Files.createSymbolicLink(tempDir.resolve("..data_tmp"), Path.of("v2"));
+            Files.move(tempDir.resolve("..data_tmp"), tempDir.resolve("..data"), StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+            // then
+            assertTrue(reloaded.await(30, TimeUnit.SECONDS));
+            assertNull(cut.attributes("u1"));
+            assertNotNull(cut.attributes("u2"));
+        }
+    }
+
+    @Test
+    public void test_snapshot_unchangedByReload() throws IOException {
+        // given
+        Path file = write(USER_1);
+        try (ReloadingAttributesStore cut = create(file)) {
+            AttributesStore snapshot = cut.snapshot();
+            Files.writeString(file, USER_2);
+            // when
+            cut.reload();
+            // then
+            assertNotNull(snapshot.attributes("u1"));
+            assertNull(snapshot.attributes("u2"));
+            assertNotNull(cut.snapshot().attributes("u2"));
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(tempDir.resolve("attributes.ttl"), content);
+    }
+
+    private static ReloadingAttributesStore create(Path file) {
+        return new ReloadingAttributesStore(file, path -> AttributeUtils.createLocalAttributeStore(path.toString()),
+                                            Duration.ofMillis(50));
+    }
+}
@@ -13,15 +13,26 @@
 package io.telicent.attribute.store;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.jena.cmd.CmdException;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 import static io.telicent.attribute.utils.URLRequests.getRequest;
+import static io.telicent.attribute.utils.URLRequests.getResponse;
+import static io.telicent.attribute.utils.URLRequests.postJsonRequest;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class SASServerTests {
     private static final String PORT_PARAMETER = "--port";
@@ -29,8 +40,12 @@ class SASServerTests {
     private static final String STORE_PARAMETER = "--store";
     private static final String CONFIG_FILE_URI = "file:src/test/resources/sample_attributes.ttl";
     private static final String[] WORKING_CONFIG = {STORE_PARAMETER, CONFIG_FILE_URI, PORT_PARAMETER, PORT};
+    private static final String[] BULK_CONFIG =
+            {STORE_PARAMETER, CONFIG_FILE_URI, PORT_PARAMETER, "12352", "--bulkLookup", "true"};
+    private static String plainUrl;
     private static String userUrl;
     private static String hierarchyUrl;
+    private static String bulkUserUrl;
 
     @BeforeAll
     public static void setupClass() {
@@ -39,6 +54,10 @@ class SASServerTests {
         String baseURL = server.getURL();
         userUrl = baseURL + "/users/lookup/%s";
         hierarchyUrl = baseURL + "/hierarchies/lookup/%s";
+        plainUrl = baseURL;
+        SASServer bulkServer = new SASServer(BULK_CONFIG);
+        bulkServer.mainRun();
+        bulkUserUrl = bulkServer.getURL() + AttributeStoreService.USERS_LOOKUP_PATH;
     }
 
     @Test
@@ -54,6 +73,44 @@ class SASServerTests {
         assertIterableEquals(expected, actual.attributes);
     }
 
+    @Test
+    void test_happyPath_bulkUserRequest() throws JsonProcessingException {
+        // given
+        String body = "{\"users\":[\"employee1\",\"unknown-user\"]}";
+        List<String> expected =
+                List.of("credentials=ordinary-degree", "employee", "engineer", "email=\"e1@telicent.io\"",
+                        "status=public");
+        // when
+        HttpResponse<String> response = postJsonRequest(bulkUserUrl, body);
+        // then
+        assertEquals(200, response.statusCode());
+        Map<String, Map<String, List<String>>> actual =
+                new ObjectMapper().readValue(response.body(), new TypeReference<>() {});
+        Map<String, List<String>> users = actual.get("users");
+        assertIterableEquals(expected, users.get("employee1"));
+        assertFalse(users.containsKey("unknown-user"));
+    }
+
+    @Test
+    void test_bulkUserRequest_notEnabled_notServed() {
+        // given
+        String body = "{ \"users\" : [ \"employee1\" ] }";
+        // when
+        HttpResponse<String> response = postJsonRequest(plainUrl + AttributeStoreService.USERS_LOOKUP_PATH, body);
+        // then
+        assertNotEquals(200, response.statusCode());
+    }
+
+    @Test
+    void test_bulkUserRequest_missingUsers_badRequest() {
+        // given
+        String body = "{}";
+        // when
+        HttpResponse<String> response = postJsonRequest(bulkUserUrl, body);
+        // then
+        assertEquals(400, response.statusCode());
+    }
+
     @Test
     void test_happyPath_hierarchyRequest() throws JsonProcessingException {
         // given
@@ -65,6 +122,88 @@ class SASServerTests {
         assertIterableEquals(expected, actual.tiers);
     }
 
+    @Test
+    void test_faultInjection_userErrorsOnly() {
+        // given
+        String[] args = {STORE_PARAMETER, CONFIG_FILE_URI, PORT_PARAMETER, "12350", "--userErrorRate", "1"};
+        SASServer server = new SASServer(args);
+        server.mainRun();
+        // when
+        HttpResponse<String> userResponse = getResponse(String.format(server.getURL() + "/users/lookup/%s",
+                                                                      "employee1"));
+        HttpResponse<String> bulkResponse = postJsonRequest(server.getURL() + AttributeStoreService.USERS_LOOKUP_PATH,
+                                                            "{\"users\":[\"employee1\"]}");
+        HttpResponse<String> hierarchyResponse =
+                getResponse(String.format(server.getURL() + "/hierarchies/lookup/%s", "credentials"));
+        // then
+        assertEquals(503, userResponse.statusCode());
+        assertEquals(503, bulkResponse.statusCode());
+        assertEquals(200, hierarchyResponse.statusCode());
+    }
+
+    @Test
+    void test_faultInjection_latencyAndTimeouts() {
+        // given
+        String[] args = {STORE_PARAMETER, CONFIG_FILE_URI, PORT_PARAMETER, "12351", "--latency", "fixed:PT0.2S",
+                         "--hierarchyTimeoutRate", "1", "--timeoutDelay", "PT0.1S"};
+        SASServer server = new SASServer(args);
+        server.mainRun();
+        // when
+        long start = System.nanoTime();
+        HttpResponse<String> userResponse = getResponse(String.format(server.getURL() + "/users/lookup/%s",
+                                                                      "employee1"));
+        long userMillis = (System.nanoTime() - start) / 1_000_000;
+        HttpResponse<String> hierarchyResponse =
+                getResponse(String.format(server.getURL() + "/hierarchies/lookup/%s", "credentials"));
+        // then
+        assertEquals(200, userResponse.statusCode());
+        assertTrue(userMillis >= 200, "took " + userMillis + "ms");
+        assertEquals(504, hierarchyResponse.statusCode());
+        assertEquals(new LatencyDistribution.Fixed(Duration.ofMillis(200)),
+                     server.getFaultInjection().users().latency());
+    }
+
+    @Test
+    void test_faultInjection_delayedBulkRequest_answered() throws JsonProcessingException {
+        // given
+        String[] args = {STORE_PARAMETER, CONFIG_FILE_URI, PORT_PARAMETER, "12353", "--bulkLookup", "true",
+                         "--latency", "fixed:PT0.2S"};
+        SASServer server = new SASServer(args);
+        server.mainRun();
+        // when
+        long start = System.nanoTime();
+        HttpResponse<String> response = postJsonRequest(server.getURL() + AttributeStoreService.USERS_LOOKUP_PATH,
+                                                         "{\"users\":[\"employee1\",\"employee2\"]}");
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        // then
+        assertEquals(200, response.statusCode());
+        assertTrue(millis >= 200, "took " + millis + "ms");
+        Map<String, Map<String, List<String>>> actual =
+                new ObjectMapper().readValue(response.body(), new TypeReference<>() {});
+        assertEquals(2, actual.get("users").size());
+    }
+
+    @Test
+    void test_faultInjection_badSettings_throw() {
+        // given
+        String[] badRates = {STORE_PARAMETER, CONFIG_FILE_URI, "--errorRate", "0.7", "--timeoutRate", "0.7"};
+        String[] badLatency = {STORE_PARAMETER, CONFIG_FILE_URI, "--latency", "sometimes"};
+        // when
+        // then
+        assertThrows(CmdException.class, new SASServer(badRates)::process);
+        assertThrows(CmdException.class, new SASServer(badLatency)::process);
+    }
+
+    @Test
+    void test_noFaultsByDefault() {
+        // given
+        SASServer server = new SASServer(WORKING_CONFIG);
+        // when
+        server.process();
+        // then
+        assertTrue(server.getFaultInjection().isNone());
+    }
+
     @Test
     void test_commandName() {
         // given
@@ -85,7 +224,8 @@ class SASServerTests {
         // when
         String actualSummary = server.getSummary();
         // then
-        String expectedSummary = "SASServer --store=<file:filename> [--port]";
+        String expectedSummary = "SASServer --store=<file:filename> [--port] [--bulkLookup] [--latency=<distribution>]"
+                                 + " [--errorRate=<fraction>] [--timeoutRate=<fraction>] [--userVariation=<sigma>]";
         assertEquals(expectedSummary, actualSummary);
     }
 }
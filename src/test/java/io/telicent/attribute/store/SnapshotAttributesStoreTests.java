@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.store;
+
+import io.telicent.attribute.utils.AttributeUtils;
+import io.telicent.jena.abac.AttributeValueSet;
+import io.telicent.jena.abac.Hierarchy;
+import io.telicent.jena.abac.attributes.Attribute;
+import io.telicent.jena.abac.attributes.ValueTerm;
+import io.telicent.jena.abac.core.AttributesStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.telicent.attribute.utils.AttributeUtils.attributeValueString;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotAttributesStoreTests {
+
+    private static final String SAMPLE_FILE = "src/test/resources/sample_attributes.ttl";
+
+    private static final Attribute CLEARANCE = new Attribute("clearance");
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void test_writeAndOpen_sameAttributes() throws IOException {
+        // given
+        AttributesStore expected = AttributeUtils.createLocalAttributeStore(SAMPLE_FILE);
+        Path snapshot = tempDir.resolve("attributes.snapshot");
+        // when
+        SnapshotAttributesStore.write(expected, snapshot);
+        SnapshotAttributesStore cut = SnapshotAttributesStore.open(snapshot);
+        // then
+        assertEquals(expected.users(), cut.users());
+        for (String user : expected.users()) {
+            assertEquals(strings(expected.attributes(user)), strings(cut.attributes(user)), user);
+        }
+        assertNull(cut.attributes("unknown-user"));
+        assertTrue(cut.hasHierarchy(CLEARANCE));
+        assertEquals(tiers(expected.getHierarchy(CLEARANCE)), tiers(cut.getHierarchy(CLEARANCE)));
+        assertFalse(cut.hasHierarchy(new Attribute("unknown")));
+        assertNull(cut.getHierarchy(new Attribute("unknown")));
+    }
+
+    @Test
+    public void test_attributes_sameSetShared() throws IOException {
+        // given
+        SnapshotAttributesStore cut = SnapshotAttributesStore.open(compile());
+        // when
+        AttributeValueSet first = cut.attributes("u1");
+        AttributeValueSet second = cut.attributes("employee1");
+        // then
+        assertSame(first, second);
+    }
+
+    @Test
+    public void test_isSnapshot() throws IOException {
+        // given
+        Path snapshot = compile();
+        // when
+        // then
+        assertTrue(SnapshotAttributesStore.isSnapshot(snapshot));
+        assertFalse(SnapshotAttributesStore.isSnapshot(Path.of(SAMPLE_FILE)));
+        assertFalse(SnapshotAttributesStore.isSnapshot(tempDir.resolve("missing")));
+    }
+
+    @Test
+    public void test_open_notSnapshot_throws() throws IOException {
+        // given
+        Path file = Files.writeString(tempDir.resolve("not.snapshot"), "not a snapshot at all, just some text");
+        // when
+        // then
+        assertThrows(IllegalArgumentException.class, () -> SnapshotAttributesStore.open(file));
+    }
+
+    @Test
+    public void test_open_truncated_throws() throws IOException {
+        // given
+        byte[] bytes = Files.readAllBytes(compile());
+        Path lastByteMissing = Files.write(tempDir.resolve("last.snapshot"), Arrays.copyOf(bytes, bytes.length - 1));
+        Path halfMissing = Files.write(tempDir.resolve("half.snapshot"), Arrays.copyOf(bytes, bytes.length / 2));
+        // when
+        // then
+        assertThrows(IllegalArgumentException.class, () -> SnapshotAttributesStore.open(lastByteMissing));
+        assertThrows(IllegalArgumentException.class, () -> SnapshotAttributesStore.open(halfMissing));
+    }
+
+    @Test
+    public void test_createLocalAttributeStore_snapshotDetected() throws IOException {
+        // given
+        Path snapshot = compile();
+        // when
+        AttributesStore store = AttributeUtils.createLocalAttributeStore("file:" + snapshot);
+        // then
+        assertInstanceOf(SnapshotAttributesStore.class, store);
+        assertNotNull(store.attributes("u3"));
+    }
+
+    @Test
+    public void test_compiler_writesSnapshot() {
+        // given
+        Path snapshot = tempDir.resolve("compiled.snapshot");
+        String[] args = {"--store", "file:" + SAMPLE_FILE, "--output", snapshot.toString()};
+        // when
+        new SnapshotCompiler(args).mainRun();
+        // then
+        assertTrue(SnapshotAttributesStore.isSnapshot(snapshot));
+    }
+
+    private Path compile() throws IOException {
+        Path snapshot = tempDir.resolve("attributes.snapshot");
+        SnapshotAttributesStore.write(AttributeUtils.createLocalAttributeStore(SAMPLE_FILE), snapshot);
+        return snapshot;
+    }
+
+    private static List<String> strings(AttributeValueSet avSet) {
+        List<String> strings = new ArrayList<>();
+        avSet.attributeValues(attributeValue -> strings.add(attributeValueString(attributeValue)));
+        return strings;
+    }
+
+    private static List<String> tiers(Hierarchy hierarchy) {
+        return hierarchy.values().stream().map(ValueTerm::getString).toList();
+    }
+}
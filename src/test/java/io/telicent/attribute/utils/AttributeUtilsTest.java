@@ -14,12 +14,17 @@ package io.telicent.attribute.utils;
 
 import org.junit.jupiter.api.Test;
 
+import org.apache.jena.cmd.CmdException;
+
+import io.telicent.jena.abac.AttributeValueSet;
+
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
-import static io.telicent.attribute.utils.AttributeUtils.parseDuration;
-import static io.telicent.attribute.utils.AttributeUtils.portNumber;
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static io.telicent.attribute.utils.AttributeUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class AttributeUtilsTest {
     @Test
@@ -41,4 +46,77 @@ public class AttributeUtilsTest {
         // then
         assertEquals(actual, expected);
     }
+
+    @Test
+    public void parseBoolean_emptyString_returnDefault() {
+        // given
+        // when
+        boolean actual = parseBoolean("", true);
+        // then
+        assertTrue(actual);
+    }
+
+    @Test
+    public void parseSize_emptyString_returnDefault() {
+        // given
+        long expected = 500;
+        // when
+        long actual = parseSize(null, expected);
+        // then
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void parseSize_invalidValues_throwException() {
+        // given
+        // when
+        // then
+        assertThrows(CmdException.class, () -> parseSize("-5", 10));
+        assertThrows(CmdException.class, () -> parseSize("lots", 10));
+    }
+
+    @Test
+    public void parseFraction_values() {
+        // given
+        // when
+        // then
+        assertEquals(0.25, parseFraction(null, 0.25));
+        assertEquals(0.5, parseFraction("0.5", 0));
+        assertEquals(1.0, parseFraction("1", 0));
+        assertThrows(CmdException.class, () -> parseFraction("1.5", 0));
+        assertThrows(CmdException.class, () -> parseFraction("-0.1", 0));
+        assertThrows(CmdException.class, () -> parseFraction("NaN", 0));
+        assertThrows(CmdException.class, () -> parseFraction("half", 0));
+    }
+
+    @Test
+    public void parseCount_emptyString_returnDefault() {
+        // given
+        int expected = 8;
+        // when
+        int actual = parseCount("", expected);
+        // then
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void parseCount_invalidValues_throwException() {
+        // given
+        // when
+        // then
+        assertThrows(CmdException.class, () -> parseCount("0", 10));
+        assertThrows(CmdException.class, () -> parseCount("5000000000", 10));
+    }
+
+    @Test
+    public void attributeValueString_roundTrip_matchesParsedValues() {
+        // given
+        List<String> expected = List.of("employee", "email=\"e1@telicent.io\"", "status=public");
+        // when
+        AttributeValueSet avSet = parseAttributeValues(expected);
+        List<String> actual = new ArrayList<>();
+        avSet.attributeValues(attributeValue -> actual.add(attributeValueString(attributeValue)));
+        // then
+        assertEquals(expected, actual);
+    }
 }
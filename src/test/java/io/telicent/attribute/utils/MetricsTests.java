@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) Telicent Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.telicent.attribute.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.telicent.attribute.utils.Metrics.Histogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTests {
+
+    @Test
+    public void test_scrape_countersAndGauges() {
+        // given
+        Metrics cut = new Metrics();
+        cut.counter("test_requests_total", "Requests", () -> 3, "result", "ok")
+           .counter("test_requests_total", "Requests", () -> 1, "result", "say \"no\"")
+           .gauge("test_size", "Size", () -> 2.5);
+        // when
+        String scraped = cut.scrape();
+        // then
+        assertEquals("""
+                     # HELP test_requests_total Requests
+                     # TYPE test_requests_total counter
+                     test_requests_total{result="ok"} 3
+                     test_requests_total{result="say \\"no\\""} 1
+                     # HELP test_size Size
+                     # TYPE test_size gauge
+                     test_size 2.5
+                     """, scraped);
+    }
+
+    @Test
+    public void test_scrape_histogramBucketsCumulative() {
+        // given
+        Histogram histogram = new Histogram(0.1, 1);
+        Metrics cut = new Metrics().histogram("test_duration_seconds", "Duration", histogram, "path", "/eval");
+        // when
+        histogram.observe(0.05);
+        histogram.observeNanos(TimeUnit.MILLISECONDS.toNanos(500));
+        histogram.observe(2);
+        String scraped = cut.scrape();
+        // then
+        assertTrue(scraped.contains("test_duration_seconds_bucket{path=\"/eval\",le=\"0.1\"} 1\n"), scraped);
+        assertTrue(scraped.contains("test_duration_seconds_bucket{path=\"/eval\",le=\"1\"} 2\n"), scraped);
+        assertTrue(scraped.contains("test_duration_seconds_bucket{path=\"/eval\",le=\"+Inf\"} 3\n"), scraped);
+        assertTrue(scraped.contains("test_duration_seconds_sum{path=\"/eval\"} 2.55\n"), scraped);
+        assertTrue(scraped.contains("test_duration_seconds_count{path=\"/eval\"} 3\n"), scraped);
+        assertEquals(3, histogram.count());
+    }
+
+    @Test
+    public void test_cache_statsExposed() {
+        // given
+        Cache<String, String> cache = Caffeine.newBuilder().recordStats().build();
+        Metrics cut = new Metrics().cache("test_cache", "things", cache);
+        // when
+        cache.get("a", key -> "A");
+        cache.getIfPresent("a");
+        cache.getIfPresent("b");
+        String scraped = cut.scrape();
+        // then
+        assertTrue(scraped.contains("test_cache_hits_total{cache=\"things\"} 1\n"), scraped);
+        assertTrue(scraped.contains("test_cache_misses_total{cache=\"things\"} 2\n"), scraped);
+        assertTrue(scraped.contains("test_cache_loads_total{cache=\"things\"} 1\n"), scraped);
+        assertTrue(scraped.contains("test_cache_size{cache=\"things\"} 1\n"), scraped);
+        assertTrue(scraped.contains("# TYPE test_cache_load_duration_seconds_total counter\n"), scraped);
+    }
+
+    @Test
+    public void test_register_typeClash_throws() {
+        // given
+        Metrics cut = new Metrics().counter("test_total", "Test", () -> 1);
+        // when
+        // then
+        assertThrows(IllegalArgumentException.class, () -> cut.gauge("test_total", "Test", () -> 1));
+    }
+}
@@ -16,6 +16,13 @@ import org.apache.jena.atlas.lib.IRILib;
 import org.apache.jena.atlas.web.HttpException;
 import org.apache.jena.http.HttpOp;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
 public final class URLRequests {
 
     private URLRequests() {
@@ -51,4 +58,46 @@ public final class URLRequests {
         String requestURL = String.format(URL, params);
         return HttpOp.httpGetString(requestURL);
     }
+
+    /** Execute an HTTP request using HTTP GET and return the response, whatever its status.
+     * @param URL - remote endpoint
+     * @return the response (status code and body)
+     */
+    public static HttpResponse<String> getResponse(String URL) {
+        return send(HttpRequest.newBuilder(URI.create(URL)).GET().build());
+    }
+
+    /** Execute an HTTP request using HTTP POST with a JSON body and return the response.
+     * @param URL - remote endpoint
+     * @param body - JSON request body
+     * @return the response (status code and body)
+     */
+    public static HttpResponse<String> postJsonRequest(String URL, String body) {
+        return postBodyRequest(URL, "application/json", body);
+    }
+
+    /** Execute an HTTP request using HTTP POST with the given body and return the response.
+     * @param URL - remote endpoint
+     * @param contentType - content type of the body
+     * @param body - request body
+     * @return the response (status code and body)
+     */
+    public static HttpResponse<String> postBodyRequest(String URL, String contentType, String body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(URL))
+                                         .header("Content-Type", contentType)
+                                         .POST(HttpRequest.BodyPublishers.ofString(body))
+                                         .build();
+        return send(request);
+    }
+
+    private static HttpResponse<String> send(HttpRequest request) {
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
 }